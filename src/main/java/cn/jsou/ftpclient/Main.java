@@ -1,17 +1,49 @@
 package cn.jsou.ftpclient;
 
+import cn.jsou.ftpclient.ftp.FtpSessionPool;
+import cn.jsou.ftpclient.transfer.AutoUploader;
+import cn.jsou.ftpclient.ui.FileExplorerComponent;
 import cn.jsou.ftpclient.ui.MainFrame;
+import cn.jsou.ftpclient.utils.StartupTimer;
+import cn.jsou.ftpclient.utils.TimeUtil;
 import org.apache.logging.log4j.LogManager;
-import org.apache.logging.log4j.Logger;
 
 import javax.swing.*;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
 
 import static javax.swing.UIManager.setLookAndFeel;
 
 public class Main {
-	private static final Logger logger = LogManager.getLogger(Main.class);
+	/**
+	 * 设为true时，首次列出本地目录后输出启动耗时并退出，用于生成CDS归档的训练启动
+	 */
+	private static final String EXIT_AFTER_STARTUP = "ftpclient.exitAfterStartup";
+	/**
+	 * 以无界面的自动上传模式运行的命令
+	 */
+	private static final String UPLOAD_WATCH       = "upload-watch";
+	/**
+	 * 自动上传模式读取登录密码的环境变量，避免密码出现在命令行中
+	 */
+	private static final String PASSWORD_ENV       = "FTP_PASSWORD";
 
 	public static void main(String[] args) {
+		if (args.length > 0 && UPLOAD_WATCH.equals(args[0])) {
+			System.exit(uploadWatch(args));
+		}
+		StartupTimer.mark("JVM启动");
+		// 界面线程设置外观、创建窗口的同时，后台线程初始化日志和相对时间格式，并准备图标
+		Thread warmUp = new Thread(() -> {
+			LogManager.getContext(false);
+			TimeUtil.warmUp();
+		}, "startup-warm-up");
+		warmUp.setDaemon(true);
+		warmUp.start();
+		FileExplorerComponent.prefetchIcons();
+
 		SwingUtilities.invokeLater(() -> {
 			try {
 				setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
@@ -19,11 +51,74 @@ public class Main {
 			         ClassNotFoundException |
 			         InstantiationException |
 			         IllegalAccessException e) {
-				logger.error("Unsupported Look and Feel: {}", e.getMessage());
+				// 日志记录器在用到时才获取，以免在类初始化时阻塞等待日志框架初始化
+				LogManager.getLogger(Main.class).error("Unsupported Look and Feel: {}", e.getMessage());
 			}
+			StartupTimer.mark("设置外观");
 
 			MainFrame frame = new MainFrame();
+			StartupTimer.mark("创建窗口");
 			frame.setVisible(true);
+			StartupTimer.mark("显示窗口");
+			frame.whenReady().whenComplete((ignored, e) -> {
+				StartupTimer.mark("列出本地目录");
+				LogManager.getLogger(Main.class).info(StartupTimer.report());
+				if (Boolean.getBoolean(EXIT_AFTER_STARTUP)) {
+					frame.dispose();
+					System.exit(0);
+				}
+			});
 		});
 	}
-}
\ No newline at end of file
+
+	/**
+	 * 无界面的自动上传模式，持续监视本地目录并上传写入完成的文件，直到进程被终止
+	 *
+	 * <p>用法：{@code upload-watch <服务器> <端口> <用户名> <本地目录> <远程目录> [会话数]}，密码从环境变量
+	 * {@value #PASSWORD_ENV} 读取。已上传文件的状态保存在 {@code ~/.ftpclient/upload-watch} 中，
+	 * 按本地目录和远程目录区分，重新启动后不会重复上传。</p>
+	 *
+	 * @param args 命令行参数，第一个为 {@value #UPLOAD_WATCH}
+	 *
+	 * @return 进程的退出码
+	 */
+	private static int uploadWatch(String[] args) {
+		if (args.length < 6 || args.length > 7 || (args.length == 7 && !args[6].matches("[1-9]\\d{0,2}"))) {
+			System.err.println("Usage: " + UPLOAD_WATCH +
+			                   " <server> <port> <username> <local-dir> <remote-dir> [sessions]" +
+			                   " (password from $" + PASSWORD_ENV + ")");
+			return 2;
+		}
+		File localDir = new File(args[4]);
+		if (!localDir.isDirectory()) {
+			System.err.println("Not a directory: " + localDir);
+			return 2;
+		}
+		String password = System.getenv(PASSWORD_ENV);
+		int    sessions = args.length == 7 ? Integer.parseInt(args[6]) : 4;
+		CRC32  crc      = new CRC32();
+		crc.update((localDir.getAbsolutePath() + '\n' + args[5] + '@' + args[1]).getBytes(StandardCharsets.UTF_8));
+		File stateFile = new File(System.getProperty("user.home"),
+		                          ".ftpclient/upload-watch/" + Long.toHexString(crc.getValue()) + ".state");
+
+		FtpSessionPool pool     = new FtpSessionPool(args[1], args[2], args[3], password == null ? "" : password, sessions);
+		AutoUploader   uploader = new AutoUploader(pool, localDir, args[5], stateFile);
+		try {
+			uploader.start();
+		} catch (IOException e) {
+			LogManager.getLogger(Main.class).error("Failed to start auto upload", e);
+			pool.close();
+			return 1;
+		}
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			uploader.stop();
+			pool.close();
+		}, "auto-upload-shutdown"));
+		try {
+			Thread.currentThread().join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		return 0;
+	}
+}
@@ -331,6 +331,53 @@ public enum Command {
 	 * @see <a href="https://tools.ietf.org/html/rfc3659">RFC 3659</a>
 	 */
 	MACHINE_LIST_DICTIONARY("MLSD"),
+	/**
+	 * 文件大小
+	 *
+	 * <p>此命令用于获取服务器上文件的传输大小（以八位字节为单位），该大小与当前的表示类型（TYPE）相关。
+	 * 回复代码213后跟一个十进制数表示文件大小。客户端可以借助此命令判断部分传输的文件需要从哪里恢复。</p>
+	 *
+	 * @see <a href="https://tools.ietf.org/html/rfc3659">RFC 3659</a>
+	 */
+	SIZE("SIZE"),
+	/**
+	 * 修改事实：修改时间
+	 *
+	 * <p>此命令用于设置服务器上文件的最后修改时间。参数为UTC时间的 {@code YYYYMMDDHHMMSS} 形式的时间值，后跟文件路径名。
+	 * 成功时回复213并返回实际设置的时间。同步工具借助此命令使上传后的文件保持与源文件相同的修改时间。</p>
+	 *
+	 * @see <a href="https://tools.ietf.org/html/draft-somers-ftp-mfxx-04">draft-somers-ftp-mfxx</a>
+	 */
+	MODIFY_FACT_MODIFICATION_TIME("MFMT"),
+	/**
+	 * 文件哈希
+	 *
+	 * <p>此命令要求服务器计算文件的哈希值，使用的算法由FEAT中HASH特性标记为 {@code *} 的算法决定，可以通过 {@code OPTS HASH} 切换。
+	 * 回复代码213后跟算法名、字节范围、十六进制哈希值和文件路径名。客户端借助此命令在传输后校验文件完整性。</p>
+	 *
+	 * @see <a href="https://tools.ietf.org/html/draft-bryan-ftpext-hash-02">draft-bryan-ftpext-hash</a>
+	 */
+	HASH("HASH"),
+	/**
+	 * 文件MD5摘要
+	 *
+	 * <p>此命令要求服务器计算文件的MD5摘要，回复代码251后跟文件路径名和十六进制摘要。服务器在FEAT中以MD5特性声明支持。</p>
+	 *
+	 * @see <a href="https://tools.ietf.org/html/draft-twine-ftpmd5-00">draft-twine-ftpmd5</a>
+	 */
+	MD5("MD5"),
+	/**
+	 * 文件MD5摘要（非标准）
+	 *
+	 * <p>此命令是部分服务器实现的非标准扩展，要求服务器计算文件的MD5摘要，回复中包含十六进制摘要。</p>
+	 */
+	EXTENDED_MD5("XMD5"),
+	/**
+	 * 文件CRC32校验和（非标准）
+	 *
+	 * <p>此命令是部分服务器实现的非标准扩展，要求服务器计算文件的CRC32校验和，回复中包含十六进制校验和。</p>
+	 */
+	EXTENDED_CRC("XCRC"),
 	/**
 	 * 扩展端口
 	 *
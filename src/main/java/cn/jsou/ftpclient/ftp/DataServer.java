@@ -22,7 +22,15 @@ public class DataServer implements Runnable {
 	/**
 	 * 注册的连接处理器，用于处理接收到的数据连接
 	 */
-	private              ConnectionHandler connectionHandler; // 注册的处理函数
+	private volatile     ConnectionHandler connectionHandler; // 注册的处理函数
+	/**
+	 * 传输结束后是否保留数据连接（块模式）
+	 */
+	private volatile     boolean           keepAlive;
+	/**
+	 * 块模式下保留的数据连接，可用于下一次传输
+	 */
+	private volatile     Socket            persistentSocket;
 
 	/**
 	 * 构造函数，创建一个新的数据服务器实例
@@ -53,20 +61,92 @@ public class DataServer implements Runnable {
 		try {
 			while (!serverSocket.isClosed()) {
 				Socket socket = serverSocket.accept();
-				if (connectionHandler != null) {
-					connectionHandler.handleConnection(socket);
-				}
-				IOUtils.closeQuietly(socket);
+				// 块模式下连接在文件之间保持打开，文件的最后一块不应等待对方对上一块的延迟确认
+				socket.setTcpNoDelay(true);
+				// 服务器打开了新的数据连接，原来保留的连接不再使用
+				closePersistentConnection();
+				handle(socket);
 			}
 		} catch (IOException e) {
 			logger.error("DataServer stopped: {}", e.getMessage());
 		}
 	}
 
+	/**
+	 * 设置传输结束后是否保留数据连接
+	 *
+	 * <p>块模式（MODE B）以文件结束标记而不是关闭连接表示传输结束，同一数据连接可以用于后续的传输，
+	 * 省去每个文件一次的TCP握手和慢启动。关闭保留时同时关闭已保留的连接。</p>
+	 *
+	 * @param keepAlive 是否保留
+	 */
+	public void setKeepAlive(boolean keepAlive) {
+		this.keepAlive = keepAlive;
+		if (!keepAlive) {
+			closePersistentConnection();
+		}
+	}
+
+	/**
+	 * 判断是否有保留的数据连接
+	 *
+	 * @return 如果有可用的保留连接，返回true；否则返回false
+	 */
+	public boolean hasPersistentConnection() {
+		Socket socket = persistentSocket;
+		return socket != null && !socket.isClosed();
+	}
+
+	/**
+	 * 在保留的数据连接上，由当前线程执行注册的连接处理器
+	 *
+	 * <p>服务器以125回复表示复用已打开的数据连接时调用。</p>
+	 */
+	public void handlePersistentConnection() {
+		Socket socket = persistentSocket;
+		if (socket != null) {
+			handle(socket);
+		}
+	}
+
+	/**
+	 * 关闭保留的数据连接
+	 */
+	public void closePersistentConnection() {
+		Socket socket = persistentSocket;
+		persistentSocket = null;
+		IOUtils.closeQuietly(socket);
+	}
+
+	/**
+	 * 使用注册的处理器处理数据连接，并按是否保留连接决定关闭或保留
+	 *
+	 * <p>保留的连接在处理器开始前登记，处理器完成（闭锁释放）时连接已经可供下一次传输使用。</p>
+	 *
+	 * @param socket 数据连接的套接字
+	 */
+	private void handle(Socket socket) {
+		boolean keep = keepAlive;
+		if (keep) {
+			persistentSocket = socket;
+		}
+		ConnectionHandler handler = connectionHandler;
+		if (handler != null) {
+			handler.handleConnection(socket);
+		}
+		if (!keep || socket.isClosed()) {
+			if (persistentSocket == socket) {
+				persistentSocket = null;
+			}
+			IOUtils.closeQuietly(socket);
+		}
+	}
+
 	/**
 	 * 关闭数据服务器，停止接收数据连接
 	 */
 	public void close() {
+		closePersistentConnection();
 		if (!serverSocket.isClosed()) {
 			IOUtils.closeQuietly(serverSocket);
 		}
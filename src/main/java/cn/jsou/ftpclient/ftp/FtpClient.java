@@ -4,39 +4,112 @@ import cn.jsou.ftpclient.ftp.handlers.ConnectionHandler;
 import cn.jsou.ftpclient.ftp.handlers.MLSDHandler;
 import cn.jsou.ftpclient.ftp.handlers.RETRHandler;
 import cn.jsou.ftpclient.ftp.handlers.STORHandler;
+import cn.jsou.ftpclient.ftp.handlers.StreamHandler;
+import cn.jsou.ftpclient.ftp.handlers.TailCompareHandler;
+import cn.jsou.ftpclient.ftp.handlers.TransferDigest;
+import cn.jsou.ftpclient.utils.GlobalPathUtil;
+import cn.jsou.ftpclient.vfs.Directory;
 import cn.jsou.ftpclient.vfs.VirtualFileSystem;
 import org.apache.commons.io.IOUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.RandomAccessFile;
+import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.function.LongSupplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.zip.Deflater;
 
 /**
  * FTP客户端类，用于建立和管理FTP连接，以及执行FTP命令
  */
 public class FtpClient {
-	private static final Logger            logger     = LogManager.getLogger(FtpClient.class);
+	private static final Logger            logger               = LogManager.getLogger(FtpClient.class);
+	/**
+	 * MFMT命令使用的UTC时间格式
+	 */
+	private static final DateTimeFormatter MFMT_FORMAT          = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+	/**
+	 * HASH命令的算法偏好，靠前的优先
+	 */
+	private static final List<String>      HASH_ORDER           = List.of("SHA-256", "SHA-512", "SHA-1", "MD5", "CRC32");
+	/**
+	 * PASV回复中的HOST-PORT规范
+	 */
+	private static final Pattern           PASV_ADDRESS         = Pattern.compile("(\\d+,\\d+,\\d+,\\d+,\\d+,\\d+)");
+	/**
+	 * MLST事实行中表示目录的type事实
+	 */
+	private static final Pattern           DIRECTORY_FACT       = Pattern.compile("(?i)(^|;|\\s)type=[cp]?dir;");
+	/**
+	 * 站点间中继使用的内存管道大小（字节）
+	 */
+	private static final int               RELAY_BUFFER_SIZE    = 1 << 20;
+	/**
+	 * 流式读写时等待服务器建立数据连接的最长时间（毫秒）
+	 */
+	private static final long              STREAM_OPEN_TIMEOUT  = 30_000;
+	/**
+	 * 建立控制连接的最长等待时间（毫秒）
+	 */
+	private static final int               CONNECT_TIMEOUT      = 30_000;
+	/**
+	 * 以流水线方式发送命令时每批的命令数
+	 *
+	 * <p>服务器启用Nagle算法时，每批的后续响应往往要等客户端的延迟确认（约40毫秒）才发出，批次越大，这一开销分摊得越少。
+	 * 256条命令及其响应仍远小于套接字缓冲区，不会使双方互相阻塞。</p>
+	 */
+	private static final int               PIPELINE_DEPTH       = 256;
 	/**
 	 * 服务器信息，包括系统信息和支持的特性
 	 */
-	public final         ServerInfo        serverInfo = new ServerInfo();
+	public final         ServerInfo        serverInfo           = new ServerInfo();
+	/**
+	 * FTP服务器的地址
+	 */
+	private final        String            server;
+	/**
+	 * FTP服务器的端口号
+	 */
+	private final        int               port;
 	/**
-	 * 与FTP服务器的控制连接套接字
+	 * 与FTP服务器的控制连接套接字，重新连接时替换
 	 */
-	private final        Socket            serverSocket;
+	private volatile     Socket            serverSocket;
 	/**
-	 * 用于发送FTP命令和接收响应的工具类
+	 * 用于发送FTP命令和接收响应的工具类，重新连接时替换
 	 */
-	private final        FtpCommands       ftpCommands;
+	private volatile     FtpCommands       ftpCommands;
 	/**
 	 * 数据服务器运行的线程
 	 */
-	private final        Thread            serverThread;
+	private              Thread            serverThread;
 	/**
 	 * 数据服务器，用于处理数据连接
 	 */
@@ -48,7 +121,71 @@ public class FtpClient {
 	/**
 	 * 远程虚拟文件系统，用于管理FTP服务器上的文件系统
 	 */
-	public               VirtualFileSystem remoteFs   = new VirtualFileSystem(this);
+	public               VirtualFileSystem remoteFs             = new VirtualFileSystem(this);
+	/**
+	 * 控制连接上等待每个响应的最长时间（毫秒），超时后控制连接被视为失效
+	 */
+	private              int               replyTimeout         = 120_000;
+	/**
+	 * 断点续传前用于校验的尾部窗口大小（字节），为0时不校验
+	 */
+	private              int               resumeVerifyWindow;
+	/**
+	 * 是否在传输后校验文件的摘要
+	 */
+	private              boolean           checksumVerification;
+	/**
+	 * 协商得到的摘要命令，服务器不支持任何摘要命令时为null
+	 */
+	private              Command           checksumCommand;
+	/**
+	 * 协商得到的摘要算法
+	 */
+	private              String            checksumAlgorithm;
+	/**
+	 * 是否已经协商过摘要命令
+	 */
+	private              boolean           checksumNegotiated;
+	/**
+	 * 是否在服务器支持时使用MODE Z压缩传输
+	 */
+	private              boolean           compression;
+	/**
+	 * MODE Z的压缩级别
+	 */
+	private              int               compressionLevel     = Deflater.DEFAULT_COMPRESSION;
+	/**
+	 * 使用MODE Z的最小文件大小（字节），更小的文件压缩收益不抵开销
+	 */
+	private              long              compressionThreshold = 4096;
+	/**
+	 * 是否已经通过OPTS告知服务器压缩级别
+	 */
+	private              boolean           compressionLevelSent;
+	/**
+	 * 控制连接上当前的传输模式
+	 */
+	private              TransferMode      transferMode         = TransferMode.STREAM;
+	/**
+	 * 是否在服务器支持时使用块模式传输
+	 */
+	private              boolean           blockMode;
+	/**
+	 * 服务器是否拒绝过MODE B
+	 */
+	private              boolean           blockModeRefused;
+	/**
+	 * 下一次传输是否沿用保留的数据连接
+	 */
+	private              boolean           reusingDataConnection;
+	/**
+	 * 控制连接上当前的表示类型
+	 */
+	private              TypeCode          representationType   = TypeCode.IMAGE;
+	/**
+	 * 使用ASCII类型传输的文件扩展名（小写，不含点）
+	 */
+	private              Set<String>       asciiExtensions      = Set.of();
 
 	/**
 	 * 构造函数，初始化FTP客户端
@@ -59,18 +196,113 @@ public class FtpClient {
 	 * @throws IOException 如果无法建立与FTP服务器的连接
 	 */
 	public FtpClient(String server, String port) throws IOException {
-		this.serverSocket = new Socket(server, Integer.parseInt(port));
-		this.ftpCommands  = new FtpCommands(serverSocket);
-		this.dataServer   = new DataServer(serverSocket.getLocalAddress());
+		this.server = server;
+		this.port   = Integer.parseInt(port);
+		connect();
+	}
+
+	/**
+	 * 建立控制连接并读取欢迎信息，必要时在新的本地地址上启动数据服务器
+	 *
+	 * @throws IOException 如果无法建立与FTP服务器的连接
+	 */
+	private void connect() throws IOException {
+		Socket socket = new Socket();
+		socket.connect(new InetSocketAddress(server, port), CONNECT_TIMEOUT);
+		socket.setKeepAlive(true);
+		socket.setSoTimeout(replyTimeout);
+		this.serverSocket = socket;
+		this.ftpCommands  = new FtpCommands(socket);
+		if (dataServer == null || !dataServer.serverSocket.getInetAddress().equals(socket.getLocalAddress())) {
+			// 本地地址变化后（例如网络切换），原来的数据服务器无法再被服务器连接到
+			stopDataServer();
+			this.dataServer = new DataServer(socket.getLocalAddress());
 
-		// 在新线程中运行DataServer
-		this.serverThread = new Thread(dataServer);
-		this.serverThread.start();
+			// 在新线程中运行DataServer
+			this.serverThread = new Thread(dataServer);
+			this.serverThread.start();
+		}
 
 		// 处理服务器的欢迎信息
 		ftpCommands.readResponse();
 	}
 
+	/**
+	 * 判断控制连接是否仍然可用
+	 *
+	 * @return 如果可用，返回true；如果连接已关闭或失效，返回false
+	 */
+	public boolean isConnected() {
+		return !serverSocket.isClosed() && !ftpCommands.isBroken();
+	}
+
+	/**
+	 * 在控制连接空闲时发送NOOP保持连接，并检查连接是否仍然可用
+	 *
+	 * <p>其他线程正在使用控制连接、传输尚未结束或空闲时间不足时不发送。其他线程的命令超过回复超时仍没有进展时，连接被视为失效。</p>
+	 *
+	 * @param idleTime 发送NOOP前需要的最短空闲时间（毫秒）
+	 * @param timeout  等待响应的最长时间（毫秒）
+	 *
+	 * @return 如果连接可用，返回true；如果服务器没有正常回复，返回false
+	 */
+	public boolean keepAlive(long idleTime, long timeout) {
+		try {
+			return ftpCommands.keepAlive(idleTime, timeout);
+		} catch (IOException e) {
+			logger.warn("Keep-alive failed on {}:{}: {}", server, port, e.getMessage());
+			return false;
+		}
+	}
+
+	/**
+	 * 重新建立控制连接并恢复会话状态
+	 *
+	 * <p>依次恢复登录、UTF-8选项、表示类型和当前工作目录。传输模式回到服务器默认的流模式，
+	 * 保留的块模式数据连接被关闭，之后的传输会重新协商。</p>
+	 *
+	 * <p>不等待原来的控制连接上正在进行的命令：先关闭套接字，卡在读写上的线程随即因I/O错误返回。</p>
+	 *
+	 * @param password 登录密码
+	 *
+	 * @return 如果重新连接并登录成功，返回true；否则返回false
+	 */
+	public boolean reconnect(String password) {
+		String path = remoteFs.getCurrentDirectoryPath();
+		// 先关闭套接字：读写器的close要等待正在读写的线程释放它们的内部锁
+		IOUtils.closeQuietly(serverSocket);
+		ftpCommands.close();
+		dataServer.closePersistentConnection();
+		try {
+			connect();
+			if (username == null || !login(username, password)) {
+				logger.error("Failed to login again to {}:{} as {}", server, port, username);
+				return false;
+			}
+			transferMode          = TransferMode.STREAM;
+			compressionLevelSent  = false;
+			reusingDataConnection = false;
+			enableUtf8();
+			Response typeResp = ftpCommands.representationType(representationType);
+			if (!typeResp.isSuccess()) {
+				logger.warn("Failed to restore representation type with reply code: {}", typeResp.getReplyCode());
+			}
+			if (!path.isEmpty()) {
+				Response cwdResp = ftpCommands.changeWorkingDirectory(path);
+				if (!cwdResp.isSuccess()) {
+					logger.warn("Failed to restore working directory {} with reply code: {}",
+					            path,
+					            cwdResp.getReplyCode());
+				}
+			}
+			logger.info("Reconnected to {}:{} as {}", server, port, username);
+			return true;
+		} catch (IOException e) {
+			logger.error("Failed to reconnect to {}:{}", server, port, e);
+			return false;
+		}
+	}
+
 	/**
 	 * 登录FTP服务器
 	 *
@@ -100,32 +332,55 @@ public class FtpClient {
 	 * @throws IOException 如果发送命令或读取响应时出现IO异常
 	 */
 	public void init() throws IOException {
-		Response sysResp = ftpCommands.system();
-		if (sysResp.isSuccess()) {
-			serverInfo.setSysInfo(sysResp.getMessage());
-		}
+		init(null, true);
+	}
 
-		Response featResp = ftpCommands.features();
-		if (featResp.isSuccess()) {
-			// 使用正则表达式分割字符串，匹配所有连续的换行符及其前后的连续空白字符
-			String[] features = featResp.getMessage().split("\\s*\\n+\\s*");
-			// 检查features数组长度是否大于2，确保至少存在一个特性（除去第一个和最后一个元素）
-			if (features.length > 2) {
-				// 使用Stream API从features数组中去除第一个和最后一个元素，并去除每个特性字符串前后的连续空白
-				Arrays.stream(features, 1, features.length - 1) // 跳过第一个和最后一个元素
-				      .map(String::trim) // 去除前后的连续空白
-				      .forEach(serverInfo::addFeature); // 加入到serverInfo中
+	/**
+	 * 初始化客户端，可以使用缓存的服务器信息
+	 *
+	 * <p>SYST和FEAT以流水线方式一起发送；给定缓存的服务器信息时不再发送。随后OPTS UTF8、PWD和TYPE互不依赖，
+	 * 也以流水线方式一次发送，登录后的设置因此只需一到两次往返。PORT由每次传输前的 {@link #prepareDataConnection()} 发送。</p>
+	 *
+	 * @param capabilities  同一服务器上其他会话查询到的服务器信息，为null时向服务器查询
+	 * @param listDirectory 是否列出当前工作目录，只用于传输的会话可以跳过
+	 *
+	 * @throws IOException 如果发送命令或读取响应时出现IO异常
+	 */
+	public void init(ServerInfo capabilities, boolean listDirectory) throws IOException {
+		if (capabilities != null) {
+			serverInfo.copyFrom(capabilities);
+		} else {
+			List<Response> infoResps = ftpCommands.systemFeatures();
+			Response       sysResp   = infoResps.get(0);
+			if (sysResp.isSuccess()) {
+				serverInfo.setSysInfo(sysResp.getMessage());
+			}
+
+			Response featResp = infoResps.get(1);
+			if (featResp.isSuccess()) {
+				// 使用正则表达式分割字符串，匹配所有连续的换行符及其前后的连续空白字符
+				String[] features = featResp.getMessage().split("\\s*\\n+\\s*");
+				// 检查features数组长度是否大于2，确保至少存在一个特性（除去第一个和最后一个元素）
+				if (features.length > 2) {
+					// 使用Stream API从features数组中去除第一个和最后一个元素，并去除每个特性字符串前后的连续空白
+					Arrays.stream(features, 1, features.length - 1) // 跳过第一个和最后一个元素
+					      .map(String::trim) // 去除前后的连续空白
+					      .forEach(serverInfo::addFeature); // 加入到serverInfo中
+				}
 			}
 		}
 
-		if (serverInfo.hasFeature("UTF8")) {
-			Response optsResp = ftpCommands.options("UTF8", "ON");
+		boolean        utf8       = serverInfo.hasFeature("UTF8");
+		List<Response> setupResps = ftpCommands.sessionSetup(utf8, TypeCode.IMAGE);
+		int            index      = 0;
+		if (utf8) {
+			Response optsResp = setupResps.get(index++);
 			if (!optsResp.isSuccess()) {
 				logger.warn("Failed to enable UTF-8 support with reply code {}", optsResp.getReplyCode());
 			}
 		}
 
-		Response pwdResp = ftpCommands.printWorkingDirectory();
+		Response pwdResp = setupResps.get(index++);
 		if (pwdResp.isSuccess()) {
 			String message = pwdResp.getMessage().trim();
 			// 使用正则表达式提取被引号包裹的路径
@@ -137,17 +392,28 @@ public class FtpClient {
 			}
 		}
 
-		Response typeResp = ftpCommands.representationType(TypeCode.IMAGE);
+		Response typeResp = setupResps.get(index);
 		if (!typeResp.isSuccess()) {
 			logger.warn("Failed to set representation type to IMAGE with reply code: {}", typeResp.getReplyCode());
 		}
 
-		Response portResp = ftpCommands.dataPort(dataServer.serverSocket);
-		if (!portResp.isSuccess()) {
-			logger.warn("Failed to set data port with reply code: {}", portResp.getReplyCode());
+		if (listDirectory) {
+			machineListDictionary(remoteFs.getCurrentDirectoryPath());
 		}
+	}
 
-		machineListDictionary(remoteFs.getCurrentDirectoryPath());
+	/**
+	 * 服务器支持时通过OPTS启用UTF-8编码的路径名
+	 *
+	 * @throws IOException 如果发送命令或读取响应时出现IO异常
+	 */
+	private void enableUtf8() throws IOException {
+		if (serverInfo.hasFeature("UTF8")) {
+			Response optsResp = ftpCommands.options("UTF8", "ON");
+			if (!optsResp.isSuccess()) {
+				logger.warn("Failed to enable UTF-8 support with reply code {}", optsResp.getReplyCode());
+			}
+		}
 	}
 
 	/**
@@ -163,15 +429,17 @@ public class FtpClient {
 		Response cwdResp = ftpCommands.changeWorkingDirectory(name);
 		if (!cwdResp.isSuccess()) {
 			logger.warn("Failed to change working directory to {} with reply code: {}", name, cwdResp.getReplyCode());
+			if (name.startsWith("/")) {
+				// 调用方为列出该目录预先创建的节点并不存在于服务器上
+				remoteFs.forgetDirectory(name);
+			}
 		} else {
 			String tmp = remoteFs.getCurrentDirectoryPath();
 			remoteFs.changeDirectory(name);
-			Response portResp = ftpCommands.dataPort(dataServer.serverSocket);
-			if (!portResp.isSuccess()) {
-				logger.warn("Failed to set data port with reply code: {}", portResp.getReplyCode());
-			}
-			if (serverInfo.hasFeature("MLSD")) {
-				ConnectionHandler ch = new MLSDHandler(remoteFs);
+			if (serverInfo.supportsMachineList()) {
+				MLSDHandler ch = new MLSDHandler(remoteFs);
+				ch.setTransferMode(prepareTransferMode(() -> -1), compressionLevel);
+				prepareDataConnection();
 				dataServer.setConnectionHandler(ch);
 				Response mlsdResp = ftpCommands.machineListDictionary();
 				if (!mlsdResp.isSuccess()) {
@@ -179,198 +447,1436 @@ public class FtpClient {
 					remoteFs.createDirectory(tmp);
 					return false;
 				}
-				try {
-					ch.waitForCompletion();
-				} catch (InterruptedException e) {
-					logger.error("Failed to wait for data server to complete", e);
+				boolean listed = completeTransfer(ch, mlsdResp);
+				if (listed) {
+					remoteFs.indexCurrentDirectory();
 				}
-				return true;
+				return listed;
 			}
 		}
 		return false;
 	}
 
 	/**
-	 * 上传文件到FTP服务器
+	 * 上传文件到FTP服务器的当前工作目录
 	 *
 	 * @param file 要上传的本地文件
 	 *
 	 * @return 如果文件上传成功，返回true；否则返回false
 	 */
 	public boolean uploadFile(java.io.File file) {
+		return uploadFile(file, file.getName());
+	}
+
+	/**
+	 * 上传文件到FTP服务器的指定路径
+	 *
+	 * @param file       要上传的本地文件
+	 * @param remotePath 远程文件的路径（绝对路径或相对于当前工作目录的路径）
+	 *
+	 * @return 如果文件上传成功，返回true；否则返回false
+	 */
+	public boolean uploadFile(java.io.File file, String remotePath) {
 		try {
-			Response portResp = ftpCommands.dataPort(dataServer.serverSocket);
-			if (!portResp.isSuccess()) {
-				logger.error("Failed to set data port with reply code: {}", portResp.getReplyCode());
-				return false;
-			}
-			ConnectionHandler ch = new STORHandler(file);
-			dataServer.setConnectionHandler(ch);
-			Response storResp = ftpCommands.store(file.getName());
-			if (!storResp.isSuccess()) {
-				logger.error("Failed to store file with reply code: {}", storResp.getReplyCode());
-				return false;
-			}
+			TransferDigest digest = newTransferDigest();
+			return store(new STORHandler(file, 0, digest), file.length(), remotePath, digest);
 		} catch (IOException e) {
 			logger.error("Failed to upload file", e);
 			return false;
 		}
-		return true;
 	}
 
 	/**
-	 * 上传目录到FTP服务器
+	 * 将输入流中的数据上传到FTP服务器的指定路径
 	 *
-	 * @param file 要上传的本地目录
+	 * <p>输入流在传输结束后由数据连接的处理器关闭。数据不经过本地文件，可以由多个会话共享同一份读取结果。</p>
 	 *
-	 * @return 如果目录上传成功，返回true；否则返回false
+	 * @param in         要上传的数据
+	 * @param size       数据的字节数，用于选择传输模式；未知时为负数
+	 * @param remotePath 远程文件的路径（绝对路径或相对于当前工作目录的路径）
+	 *
+	 * @return 如果上传成功，返回true；否则返回false
 	 */
-	public boolean uploadDirectory(java.io.File file) {
-		String current = remoteFs.getCurrentDirectoryPath();
+	public boolean uploadStream(InputStream in, long size, String remotePath) {
 		try {
-			if (!file.isDirectory()) {
-				return false;
-			}
-			makeDirectory(file.getName());
-			Response cwdResp = ftpCommands.changeWorkingDirectory(file.getName());
-			if (!cwdResp.isSuccess()) {
-				logger.error("Failed to change working directory to {} with reply code: {}",
-				             file.getName(),
-				             cwdResp.getReplyCode());
-				return false;
-			}
-			remoteFs.changeDirectory(remoteFs.getCurrentDirectoryPath() + '/' + file.getName());
-			for (java.io.File f : Objects.requireNonNull(file.listFiles())) {
-				if (f.isDirectory()) {
-					uploadDirectory(f);
-				} else {
-					uploadFile(f);
-					dataServer.waitHandlerComplete();
-				}
-			}
-			return true;
-		} catch (Exception e) {
-			logger.error("Failed to upload directory", e);
+			TransferDigest digest = newTransferDigest();
+			return store(new STORHandler(in, digest), size, remotePath, digest);
+		} catch (IOException e) {
+			logger.error("Failed to upload stream", e);
 			return false;
-		} finally {
-			remoteFs.changeDirectory(current);
 		}
 	}
 
 	/**
-	 * 从FTP服务器下载文件
+	 * 使用给定的处理器执行STOR，并在启用时校验摘要
 	 *
-	 * @param filename filename 要下载的文件名
-	 * @param file     本地文件的存储位置
+	 * @param ch         提供上传数据的处理器
+	 * @param size       上传的字节数，未知时为负数
+	 * @param remotePath 远程文件的路径
+	 * @param digest     随传输计算的摘要，为null时不校验
 	 *
-	 * @return 如果文件下载成功，返回true；否则返回false
+	 * @return 如果上传成功，返回true；否则返回false
+	 *
+	 * @throws IOException 如果发送命令或读取响应时出现IO异常
 	 */
-	public boolean downloadFile(String filename, java.io.File file) {
-		try {
-			Response portResp = ftpCommands.dataPort(dataServer.serverSocket);
-			if (!portResp.isSuccess()) {
-				logger.error("Failed to set data port with reply code: {}", portResp.getReplyCode());
-				return false;
-			}
-			ConnectionHandler ch = new RETRHandler(file);
-			dataServer.setConnectionHandler(ch);
-			Response retrResp = ftpCommands.retrieve(filename);
-			if (!retrResp.isSuccess()) {
-				logger.error("Failed to retrieve file with reply code: {}", retrResp.getReplyCode());
-				return false;
-			}
-		} catch (IOException e) {
-			logger.error("Failed to download file", e);
+	private boolean store(STORHandler ch, long size, String remotePath, TransferDigest digest) throws IOException {
+		ch.setAscii(prepareRepresentationType(remotePath));
+		ch.setTransferMode(prepareTransferMode(() -> size), compressionLevel);
+		if (!prepareDataConnection()) {
 			return false;
 		}
-		return true;
+		dataServer.setConnectionHandler(ch);
+		Response storResp = ftpCommands.store(remotePath);
+		if (!storResp.isSuccess()) {
+			logger.error("Failed to store file with reply code: {}", storResp.getReplyCode());
+			return false;
+		}
+		return completeTransfer(ch, storResp) &&
+		       (digest == null || ch.isAscii() || verifyChecksum(remotePath, digest));
 	}
 
 	/**
-	 * 从FTP服务器下载目录
+	 * 断点续传上传文件到FTP服务器
 	 *
-	 * @param dirname 要下载的目录名
-	 * @param file    本地目录的存储位置
+	 * <p>先用SIZE查询服务器上已有部分的大小，如设置了校验窗口，则取回该部分的尾部与本地文件比对，
+	 * 一致时从该偏移量继续发送剩余数据（服务器支持REST STREAM时使用REST加STOR，否则使用APPE）。
+	 * 服务器上不存在该文件、大小无法获取、比本地文件更大或尾部不一致时，退回完整上传。</p>
 	 *
-	 * @return 如果目录下载成功，返回true；否则返回false
+	 * @param file 要上传的本地文件
+	 *
+	 * @return 如果文件上传成功，返回true；否则返回false
 	 */
-	public boolean downloadDirectory(String dirname, java.io.File file) {
-		String current = remoteFs.getCurrentDirectoryPath();
+	public boolean resumeUpload(java.io.File file) {
+		String name = file.getName();
+		if (isAsciiFile(name)) {
+			return uploadFile(file); // ASCII类型下两端的字节偏移量不一致，无法续传
+		}
+		long localSize  = file.length();
+		long remoteSize = size(name);
+		if (remoteSize <= 0 || remoteSize > localSize) {
+			return uploadFile(file);
+		}
 		try {
-			if (!file.exists()) {
-				file.mkdir();
+			int window = (int) Math.min(resumeVerifyWindow, remoteSize);
+			if (window > 0 && !remoteTailMatches(name, file, remoteSize, window)) {
+				logger.warn("Remote tail of {} does not match local file, uploading from scratch", name);
+				return uploadFile(file);
 			}
-			Response cwdResp = ftpCommands.changeWorkingDirectory(dirname);
-			if (!cwdResp.isSuccess()) {
-				logger.error("Failed to change working directory to {} with reply code: {}",
-				             dirname,
-				             cwdResp.getReplyCode());
+			if (remoteSize == localSize) {
+				return true; // 服务器上的文件已完整
+			}
+			if (!useTransferMode(TransferMode.STREAM) || !useRepresentationType(TypeCode.IMAGE)) {
+				return uploadFile(file); // 压缩模式下REST的偏移量含义不明确，只在流模式下续传
+			}
+			if (!prepareDataConnection()) {
 				return false;
 			}
-			machineListDictionary(dirname);
-			remoteFs.changeDirectory(remoteFs.getCurrentDirectoryPath() + '/' + dirname);
-			for (var f : remoteFs.getFiles(remoteFs.getCurrentDirectoryPath())) {
-				java.io.File newFile = new java.io.File(file.getAbsolutePath() + '/' + f.getName());
-				downloadFile(f.getName(), newFile);
-				dataServer.waitHandlerComplete();
+			ConnectionHandler ch = new STORHandler(file, remoteSize);
+			dataServer.setConnectionHandler(ch);
+			Response storResp;
+			if (serverInfo.hasFeature("REST STREAM")) {
+				Response restResp = ftpCommands.restart(remoteSize);
+				if (!restResp.isSuccess()) {
+					logger.warn("Server refused restart marker {} with reply code: {}",
+					            remoteSize,
+					            restResp.getReplyCode());
+					return uploadFile(file);
+				}
+				storResp = ftpCommands.store(name);
+			} else {
+				storResp = ftpCommands.append(name);
 			}
-			for (var d : remoteFs.getDirectories(remoteFs.getCurrentDirectoryPath())) {
-				java.io.File newFile = new java.io.File(file.getAbsolutePath() + '/' + d);
-				newFile.mkdir();
-				downloadDirectory(d, newFile);
+			if (!storResp.isSuccess()) {
+				logger.error("Failed to resume file upload with reply code: {}", storResp.getReplyCode());
+				return false;
 			}
-		} catch (Exception e) {
-			logger.error("Failed to download directory", e);
-		} finally {
-			remoteFs.changeDirectory(current);
+			return completeTransfer(ch, storResp);
+		} catch (IOException e) {
+			logger.error("Failed to resume file upload", e);
+			return false;
 		}
-
-		return true;
 	}
 
 	/**
-	 * 重命名文件或目录
+	 * 取回服务器上文件的尾部窗口并与本地文件同一位置的数据比对
 	 *
-	 * @param oldPathname 旧文件名（相对路径）
-	 * @param newFilename 新文件名（相对路径）
+	 * @param name       远程文件名
+	 * @param file       本地文件
+	 * @param remoteSize 远程文件的大小
+	 * @param window     比对窗口的大小（字节）
+	 *
+	 * @return 一致时返回true，否则返回false
+	 *
+	 * @throws IOException 如果读取本地文件或发送命令时出现IO异常
 	 */
-	public void rename(String oldPathname, String newFilename) {
-		try {
-			Response renameResp = ftpCommands.renameFrom(oldPathname);
-			if (!renameResp.isSuccess()) {
-				logger.error("Failed to rename file with reply code: {}", renameResp.getReplyCode());
-			}
-			Response renameToResp = ftpCommands.renameTo(newFilename);
-			if (!renameToResp.isSuccess()) {
-				logger.error("Failed to rename file with reply code: {}", renameToResp.getReplyCode());
-			}
-		} catch (IOException e) {
-			logger.error("Failed to rename file", e);
+	private boolean remoteTailMatches(String name, java.io.File file, long remoteSize, int window)
+			throws IOException {
+		byte[] expected = new byte[window];
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+			raf.seek(remoteSize - window);
+			raf.readFully(expected);
+		}
+		if (!useTransferMode(TransferMode.STREAM) || !useRepresentationType(TypeCode.IMAGE)) {
+			return false;
+		}
+		if (!prepareDataConnection()) {
+			return false;
+		}
+		Response restResp = ftpCommands.restart(remoteSize - window);
+		if (!restResp.isSuccess()) {
+			logger.warn("Server refused restart marker with reply code: {}", restResp.getReplyCode());
+			return false;
+		}
+		TailCompareHandler ch = new TailCompareHandler(expected);
+		dataServer.setConnectionHandler(ch);
+		Response retrResp = ftpCommands.retrieve(name);
+		if (!retrResp.isSuccess()) {
+			logger.error("Failed to retrieve file tail with reply code: {}", retrResp.getReplyCode());
+			return false;
 		}
+		return completeTransfer(ch, retrResp) && ch.isMatched();
 	}
 
 	/**
-	 * 删除文件或目录
+	 * 上传目录到FTP服务器
 	 *
-	 * @param pathname 文件或目录的绝对路径
+	 * <p>先遍历一次本地目录，收集上传需要的所有远程目录，由 {@link #makeDirectories(Collection)}
+	 * 跳过虚拟文件系统中已有的目录，并以流水线方式一次创建其余目录。随后文件以绝对路径上传，不再逐个目录切换工作目录。</p>
+	 *
+	 * @param file 要上传的本地目录
+	 *
+	 * @return 如果目录上传成功，返回true；否则返回false
 	 */
-	public void delete(String pathname) {
-		try {
-			if (remoteFs.isDirectory(pathname)) {
-				remoteFs.getDirectories(pathname).forEach(d -> delete(pathname + '/' + d));
-				remoteFs.getFiles(pathname).forEach(f -> delete(pathname + '/' + f.getName()));
-				Response rmdResp = ftpCommands.removeDirectory(pathname);
-				if (!rmdResp.isSuccess()) {
-					logger.error("Failed to remove directory with reply code: {}", rmdResp.getReplyCode());
+	public boolean uploadDirectory(java.io.File file) {
+		if (!file.isDirectory()) {
+			return false;
+		}
+		List<String>              directories = new ArrayList<>();
+		Map<java.io.File, String> files       = new LinkedHashMap<>();
+		collectUploadTree(file, remoteFs.getCurrentDirectoryPath() + '/' + file.getName(), directories, files);
+
+		List<String> failedDirectories = makeDirectories(directories);
+		if (!failedDirectories.isEmpty()) {
+			// 已存在的目录不计入失败；确实无法创建的目录中的文件会各自上传失败，其余文件照常上传
+			logger.warn("Could not create {} of {} directories for {}",
+			            failedDirectories.size(),
+			            directories.size(),
+			            file);
+		}
+		boolean success = true;
+		for (Map.Entry<java.io.File, String> entry : files.entrySet()) {
+			success &= uploadFile(entry.getKey(), entry.getValue());
+		}
+		return success;
+	}
+
+	/**
+	 * 收集上传本地目录所需的远程目录和文件
+	 *
+	 * @param dir         本地目录
+	 * @param path        对应的远程目录的路径
+	 * @param directories 收集到的远程目录，父目录在前
+	 * @param files       收集到的本地文件及其远程路径
+	 */
+	private void collectUploadTree(java.io.File dir, String path, List<String> directories,
+	                               Map<java.io.File, String> files) {
+		directories.add(path);
+		for (java.io.File f : Objects.requireNonNull(dir.listFiles())) {
+			if (f.isDirectory()) {
+				collectUploadTree(f, path + '/' + f.getName(), directories, files);
+			} else {
+				files.put(f, path + '/' + f.getName());
+			}
+		}
+	}
+
+	/**
+	 * 从FTP服务器下载文件
+	 *
+	 * @param filename filename 要下载的文件名
+	 * @param file     本地文件的存储位置
+	 *
+	 * @return 如果文件下载成功，返回true；否则返回false
+	 */
+	public boolean downloadFile(String filename, java.io.File file) {
+		try {
+			TransferDigest digest = newTransferDigest();
+			return retrieve(new RETRHandler(file, false, 0, digest), filename, digest);
+		} catch (IOException e) {
+			logger.error("Failed to download file", e);
+			return false;
+		}
+	}
+
+	/**
+	 * 从FTP服务器下载文件，并将数据写入输出流
+	 *
+	 * <p>输出流在传输结束后由数据连接的处理器关闭。</p>
+	 *
+	 * @param filename 要下载的文件名
+	 * @param out      接收数据的输出流
+	 *
+	 * @return 如果下载成功，返回true；否则返回false
+	 */
+	public boolean downloadStream(String filename, OutputStream out) {
+		try {
+			TransferDigest digest = newTransferDigest();
+			return retrieve(new RETRHandler(out, digest), filename, digest);
+		} catch (IOException e) {
+			logger.error("Failed to download stream", e);
+			return false;
+		}
+	}
+
+	/**
+	 * 使用给定的处理器执行RETR，并在启用时校验摘要
+	 *
+	 * @param ch       接收数据的处理器
+	 * @param filename 要下载的文件名
+	 * @param digest   随传输计算的摘要，为null时不校验
+	 *
+	 * @return 如果下载成功，返回true；否则返回false
+	 *
+	 * @throws IOException 如果发送命令或读取响应时出现IO异常
+	 */
+	private boolean retrieve(RETRHandler ch, String filename, TransferDigest digest) throws IOException {
+		ch.setAscii(prepareRepresentationType(filename));
+		ch.setTransferMode(prepareTransferMode(() -> compressionThreshold > 0 ? size(filename) : -1),
+		                   compressionLevel);
+		if (!prepareDataConnection()) {
+			return false;
+		}
+		dataServer.setConnectionHandler(ch);
+		Response retrResp = ftpCommands.retrieve(filename);
+		if (!retrResp.isSuccess()) {
+			logger.error("Failed to retrieve file with reply code: {}", retrResp.getReplyCode());
+			return false;
+		}
+		return completeTransfer(ch, retrResp) &&
+		       (digest == null || ch.isAscii() || verifyChecksum(filename, digest));
+	}
+
+	/**
+	 * 打开读取远程文件的输入流，数据直接来自数据连接，不经过本地文件
+	 *
+	 * <p>流关闭之前控制连接一直处于传输中，本会话不能执行其他命令。关闭流时读取服务器的完成回复，
+	 * 读完全部数据后回复不是2yz或摘要校验失败时，关闭会抛出异常；未读完就关闭时视为放弃传输，不报告错误。
+	 * 读取过程在调用者的线程中进行，例如可以边接收边解析远程的CSV文件。</p>
+	 *
+	 * @param remotePath 远程文件的路径
+	 *
+	 * @return 远程文件数据的输入流
+	 *
+	 * @throws IOException 如果服务器拒绝RETR或数据连接无法建立
+	 */
+	public InputStream openInputStream(String remotePath) throws IOException {
+		TransferDigest digest   = newTransferDigest();
+		StreamHandler  ch       = new StreamHandler(false);
+		Response       retrResp = openStream(ch, remotePath, false);
+		InputStream    in;
+		try {
+			in = ch.awaitInputStream(STREAM_OPEN_TIMEOUT);
+		} catch (IOException e) {
+			finishStream(ch, retrResp, remotePath, null, false);
+			throw e;
+		}
+		return new FilterInputStream(in) {
+			private boolean eof;
+			private boolean closed;
+
+			@Override public int read() throws IOException {
+				byte[] b = new byte[1];
+				return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+			}
+
+			@Override public int read(byte[] b, int off, int len) throws IOException {
+				int n = super.read(b, off, len);
+				if (n < 0) {
+					eof = true;
+				} else if (digest != null) {
+					digest.update(b, off, n);
+				}
+				return n;
+			}
+
+			@Override public long skip(long n) throws IOException {
+				// 跳过的数据也需要计入摘要
+				byte[] buffer = new byte[(int) Math.min(n, 1 << 13)];
+				int    read   = read(buffer, 0, buffer.length);
+				return Math.max(read, 0);
+			}
+
+			@Override public void close() throws IOException {
+				if (closed) {
+					return;
+				}
+				closed = true;
+				try {
+					super.close();
+				} finally {
+					finishStream(ch, retrResp, remotePath, digest, eof);
+				}
+			}
+		};
+	}
+
+	/**
+	 * 打开写入远程文件的输出流，数据直接写入数据连接，不经过本地文件
+	 *
+	 * <p>流关闭之前控制连接一直处于传输中，本会话不能执行其他命令。关闭流时结束数据连接并读取服务器的完成回复，
+	 * 回复不是2yz或摘要校验失败时，关闭会抛出异常。</p>
+	 *
+	 * @param remotePath 远程文件的路径
+	 *
+	 * @return 写入远程文件的输出流
+	 *
+	 * @throws IOException 如果服务器拒绝STOR或数据连接无法建立
+	 */
+	public OutputStream openOutputStream(String remotePath) throws IOException {
+		TransferDigest digest   = newTransferDigest();
+		StreamHandler  ch       = new StreamHandler(true);
+		Response       storResp = openStream(ch, remotePath, true);
+		OutputStream   out;
+		try {
+			out = ch.awaitOutputStream(STREAM_OPEN_TIMEOUT);
+		} catch (IOException e) {
+			finishStream(ch, storResp, remotePath, null, false);
+			throw e;
+		}
+		return new FilterOutputStream(out) {
+			private boolean closed;
+
+			@Override public void write(int b) throws IOException {
+				write(new byte[]{(byte) b}, 0, 1);
+			}
+
+			@Override public void write(byte[] b, int off, int len) throws IOException {
+				out.write(b, off, len);
+				if (digest != null) {
+					digest.update(b, off, len);
+				}
+			}
+
+			@Override public void close() throws IOException {
+				if (closed) {
+					return;
+				}
+				closed = true;
+				try {
+					super.close();
+				} finally {
+					finishStream(ch, storResp, remotePath, digest, true);
+				}
+			}
+		};
+	}
+
+	/**
+	 * 为流式读写发送RETR或STOR
+	 *
+	 * <p>处理器需要占用数据连接直到调用者关闭流，而块模式复用连接时处理器在当前线程中执行，因此流式读写不使用块模式。</p>
+	 *
+	 * @param ch         交出数据连接的处理器
+	 * @param remotePath 远程文件的路径
+	 * @param upload     是否上传
+	 *
+	 * @return 传输命令的预备回复
+	 *
+	 * @throws IOException 如果发送命令时出现IO异常或服务器拒绝传输
+	 */
+	private Response openStream(StreamHandler ch, String remotePath, boolean upload) throws IOException {
+		LongSupplier size = upload || compressionThreshold == 0 ? () -> -1 : () -> size(remotePath);
+		ch.setAscii(prepareRepresentationType(remotePath));
+		ch.setTransferMode(prepareTransferMode(size, false), compressionLevel);
+		if (!prepareDataConnection()) {
+			throw new IOException("Failed to set data port for " + remotePath);
+		}
+		dataServer.setConnectionHandler(ch);
+		Response resp = upload ? ftpCommands.store(remotePath) : ftpCommands.retrieve(remotePath);
+		if (!resp.isSuccess()) {
+			throw new IOException("Failed to open " + remotePath + " with reply code: " + resp.getReplyCode());
+		}
+		return resp;
+	}
+
+	/**
+	 * 结束流式读写：释放数据连接，读取完成回复并在需要时校验摘要
+	 *
+	 * @param ch          交出数据连接的处理器
+	 * @param preliminary 传输命令的预备回复
+	 * @param remotePath  远程文件的路径
+	 * @param digest      随传输计算的摘要，为null时不校验
+	 * @param complete    数据是否完整传输；未完整传输时只读取回复，不报告错误
+	 *
+	 * @throws IOException 如果完整传输后服务器没有确认完成或摘要不一致
+	 */
+	private void finishStream(StreamHandler ch, Response preliminary, String remotePath, TransferDigest digest,
+	                          boolean complete) throws IOException {
+		ch.release();
+		boolean done = completeTransfer(ch, preliminary);
+		if (!complete) {
+			return;
+		}
+		if (!done) {
+			throw new IOException("Transfer of " + remotePath + " was not completed by the server");
+		}
+		if (digest != null && !ch.isAscii() && !verifyChecksum(remotePath, digest)) {
+			throw new IOException(digest.getAlgorithm() + " mismatch for " + remotePath);
+		}
+	}
+
+	/**
+	 * 将本服务器上的文件直接传输到另一台服务器（站点间传输）
+	 *
+	 * <p>优先使用FXP方式：本服务器以PASV监听，目标服务器以PORT连接到该地址，数据在两台服务器之间直接传输，不经过本机。
+	 * 任一服务器拒绝PASV、PORT或建立数据连接时，退回中继方式：本会话RETR的数据经内存管道直接作为目标会话STOR的数据，
+	 * 同样不写入本地磁盘。两个会话在传输期间都不能用于其他操作。</p>
+	 *
+	 * @param sourcePath 本服务器上文件的路径
+	 * @param target     目标服务器的会话
+	 * @param targetPath 目标服务器上文件的路径
+	 *
+	 * @return 如果传输成功，返回true；否则返回false
+	 */
+	public boolean transferTo(String sourcePath, FtpClient target, String targetPath) {
+		try {
+			if (siteToSite(sourcePath, target, targetPath)) {
+				return true;
+			}
+		} catch (IOException e) {
+			logger.error("Failed to transfer {} between servers", sourcePath, e);
+			return false;
+		}
+		logger.info("Relaying {} through the client", sourcePath);
+		return relay(sourcePath, target, targetPath);
+	}
+
+	/**
+	 * 使用PASV和PORT在两台服务器之间直接传输文件
+	 *
+	 * @param sourcePath 本服务器上文件的路径
+	 * @param target     目标服务器的会话
+	 * @param targetPath 目标服务器上文件的路径
+	 *
+	 * @return 如果传输成功，返回true；服务器拒绝站点间传输或传输失败时返回false
+	 *
+	 * @throws IOException 如果发送命令或读取响应时出现IO异常
+	 */
+	private boolean siteToSite(String sourcePath, FtpClient target, String targetPath) throws IOException {
+		// 两台服务器必须使用相同的传输模式，流模式最为通用
+		if (!useTransferMode(TransferMode.STREAM) || !target.useTransferMode(TransferMode.STREAM)) {
+			return false;
+		}
+		TypeCode type = isAsciiFile(sourcePath) ? TypeCode.ASCII : TypeCode.IMAGE;
+		if (!useRepresentationType(type) || !target.useRepresentationType(type)) {
+			return false;
+		}
+		Response pasvResp = ftpCommands.passive();
+		Matcher  address  = PASV_ADDRESS.matcher(pasvResp.getMessage());
+		if (pasvResp.getReplyCode() != ReplyCode.ENTERING_PASSIVE_MODE || !address.find()) {
+			logger.warn("Source server refused PASV with reply code: {}", pasvResp.getReplyCode());
+			return false;
+		}
+		Response portResp = target.ftpCommands.dataPort(address.group(1));
+		if (!portResp.isPositiveCompletion()) {
+			logger.warn("Target server refused PORT {} with reply code: {}", address.group(1), portResp.getReplyCode());
+			return false;
+		}
+		Response storResp = target.ftpCommands.store(targetPath);
+		if (!storResp.isSuccess()) {
+			logger.warn("Target server refused STOR with reply code: {}", storResp.getReplyCode());
+			return false;
+		}
+		Response retrResp = ftpCommands.retrieve(sourcePath);
+		if (!retrResp.isSuccess()) {
+			logger.warn("Source server refused RETR with reply code: {}", retrResp.getReplyCode());
+			target.abortTransfer();
+			return false;
+		}
+		Response retrDone = ftpCommands.readTransferResponse();
+		Response storDone = target.ftpCommands.readTransferResponse();
+		if (!retrDone.isPositiveCompletion() || !storDone.isPositiveCompletion()) {
+			logger.error("Transfer between servers not completed with reply codes: {}, {}",
+			             retrDone.getReplyCode(),
+			             storDone.getReplyCode());
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * 中止控制连接上正在等待数据的传输命令，并读取其回复
+	 *
+	 * <p>无论传输是已因数据连接失败而结束还是被ABOR中止，服务器都先发送传输命令的最终回复，再发送ABOR自身的回复。</p>
+	 *
+	 * @throws IOException 如果发送命令或读取响应时出现IO异常
+	 */
+	private void abortTransfer() throws IOException {
+		Response transferResp = ftpCommands.abort();
+		Response abortResp    = ftpCommands.readResponse();
+		logger.debug("Aborted transfer with reply code: {}", transferResp.getReplyCode());
+		if (!abortResp.isPositiveCompletion()) {
+			logger.warn("Failed to abort transfer with reply code: {}", abortResp.getReplyCode());
+		}
+	}
+
+	/**
+	 * 经内存管道将本服务器上的文件中继到另一台服务器
+	 *
+	 * <p>目标会话在单独的线程中从管道读取数据并上传，当前线程下载并写入管道，管道满时下载等待上传，不占用磁盘。</p>
+	 *
+	 * @param sourcePath 本服务器上文件的路径
+	 * @param target     目标服务器的会话
+	 * @param targetPath 目标服务器上文件的路径
+	 *
+	 * @return 如果下载和上传都成功，返回true；否则返回false
+	 */
+	private boolean relay(String sourcePath, FtpClient target, String targetPath) {
+		PipedInputStream  in = new PipedInputStream(RELAY_BUFFER_SIZE);
+		PipedOutputStream out;
+		try {
+			out = new PipedOutputStream(in);
+		} catch (IOException e) {
+			logger.error("Failed to create relay pipe", e);
+			return false;
+		}
+		FutureTask<Boolean> upload = new FutureTask<>(() -> {
+			try (in) {
+				return target.uploadStream(in, -1, targetPath);
+			}
+		});
+		new Thread(upload).start();
+		boolean downloaded = downloadStream(sourcePath, out);
+		// 下载未能开始时处理器不会关闭管道，关闭后上传端读到结尾
+		IOUtils.closeQuietly(out);
+		try {
+			boolean uploaded = upload.get();
+			if (uploaded && !downloaded) {
+				// 目标服务器已保存不完整的数据
+				target.deleteFile(targetPath);
+			}
+			return uploaded && downloaded;
+		} catch (ExecutionException e) {
+			logger.error("Failed to relay {} to target server", sourcePath, e.getCause());
+			return false;
+		} catch (InterruptedException e) {
+			logger.error("Interrupted while relaying {}", sourcePath, e);
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	/**
+	 * 断点续传下载文件
+	 *
+	 * <p>本地已存在部分文件时，用REST从本地文件长度处继续RETR，并将数据追加到本地文件。
+	 * 如设置了校验窗口，则从本地文件长度减去窗口大小处开始传输，先比对重叠的部分，一致后才追加其余数据。
+	 * 本地文件比远程文件更大、服务器拒绝REST或尾部不一致时，退回完整下载。</p>
+	 *
+	 * @param filename 要下载的文件名
+	 * @param file     本地文件的存储位置
+	 *
+	 * @return 如果文件下载成功，返回true；否则返回false
+	 */
+	public boolean resumeDownload(String filename, java.io.File file) {
+		long localSize = file.isFile() ? file.length() : 0;
+		if (localSize == 0 || isAsciiFile(filename)) {
+			return downloadFile(filename, file);
+		}
+		long remoteSize = size(filename);
+		if (remoteSize >= 0 && localSize > remoteSize) {
+			return downloadFile(filename, file);
+		}
+		int window = (int) Math.min(resumeVerifyWindow, localSize);
+		if (remoteSize == localSize && window == 0) {
+			return true; // 本地文件已完整
+		}
+		try {
+			if (!useTransferMode(TransferMode.STREAM) || !useRepresentationType(TypeCode.IMAGE)) {
+				return downloadFile(filename, file);
+			}
+			if (!prepareDataConnection()) {
+				return false;
+			}
+			Response restResp = ftpCommands.restart(localSize - window);
+			if (!restResp.isSuccess()) {
+				logger.warn("Server refused restart marker with reply code: {}", restResp.getReplyCode());
+				return downloadFile(filename, file);
+			}
+			RETRHandler ch = new RETRHandler(file, true, window);
+			dataServer.setConnectionHandler(ch);
+			Response retrResp = ftpCommands.retrieve(filename);
+			if (!retrResp.isSuccess()) {
+				logger.error("Failed to retrieve file with reply code: {}", retrResp.getReplyCode());
+				return false;
+			}
+			boolean completed = completeTransfer(ch, retrResp);
+			if (!ch.isTailMatched()) {
+				logger.warn("Local tail of {} does not match remote file, downloading from scratch", filename);
+				return downloadFile(filename, file);
+			}
+			return completed;
+		} catch (IOException e) {
+			logger.error("Failed to resume file download", e);
+			return false;
+		}
+	}
+
+	/**
+	 * 使用SIZE命令查询远程文件的大小
+	 *
+	 * @param pathname 远程文件的路径
+	 *
+	 * @return 文件大小（字节）；服务器不支持SIZE或文件不存在时返回-1
+	 */
+	public long size(String pathname) {
+		try {
+			Response sizeResp = ftpCommands.size(pathname);
+			if (sizeResp.isPositiveCompletion()) {
+				return Long.parseLong(sizeResp.getMessage().trim());
+			}
+			logger.debug("Failed to get size of {} with reply code: {}", pathname, sizeResp.getReplyCode());
+		} catch (IOException e) {
+			logger.error("Failed to get file size", e);
+		} catch (NumberFormatException e) {
+			logger.error("Malformed SIZE reply for {}", pathname, e);
+		}
+		return -1;
+	}
+
+	/**
+	 * 设置控制连接上等待每个响应的最长时间
+	 *
+	 * <p>传输的完成回复在数据传输结束后才读取，站点间传输的完成回复不受此限制，因此只需覆盖服务器处理单条命令的时间，
+	 * 例如计算大文件的校验和。保活检查也以此判断其他线程的命令是否卡住。</p>
+	 *
+	 * @param replyTimeout 最长等待时间（毫秒）
+	 */
+	public void setReplyTimeout(int replyTimeout) {
+		this.replyTimeout = Math.max(1, replyTimeout);
+		try {
+			serverSocket.setSoTimeout(this.replyTimeout);
+		} catch (IOException e) {
+			logger.warn("Failed to set reply timeout", e);
+		}
+	}
+
+	/**
+	 * 设置断点续传前用于校验的尾部窗口大小
+	 *
+	 * @param resumeVerifyWindow 窗口大小（字节），为0时不校验
+	 */
+	public void setResumeVerifyWindow(int resumeVerifyWindow) {
+		this.resumeVerifyWindow = Math.max(0, resumeVerifyWindow);
+	}
+
+	/**
+	 * 设置是否在传输后校验文件的摘要
+	 *
+	 * <p>启用后，上传和下载在数据流经处理器时计算摘要，传输完成后向服务器请求同一文件的摘要并比对，不一致时视为传输失败。
+	 * 客户端使用的算法由服务器决定：优先使用FEAT中的HASH特性（必要时通过 {@code OPTS HASH} 选择更强的算法），
+	 * 其次依次是MD5、XMD5和XCRC。服务器不支持任何摘要命令时不做校验。断点续传只传输部分数据，不做校验。</p>
+	 *
+	 * @param checksumVerification 是否校验
+	 */
+	public void setChecksumVerification(boolean checksumVerification) {
+		this.checksumVerification = checksumVerification;
+	}
+
+	/**
+	 * 为一次传输创建摘要，首次调用时与服务器协商摘要命令
+	 *
+	 * @return 摘要；未启用校验或服务器不支持时返回null
+	 *
+	 * @throws IOException 如果发送OPTS命令时出现IO异常
+	 */
+	private TransferDigest newTransferDigest() throws IOException {
+		if (!checksumVerification) {
+			return null;
+		}
+		if (!checksumNegotiated) {
+			negotiateChecksum();
+			checksumNegotiated = true;
+		}
+		return checksumCommand == null ? null : TransferDigest.of(checksumAlgorithm);
+	}
+
+	/**
+	 * 根据服务器声明的特性选择摘要命令和算法
+	 *
+	 * @throws IOException 如果发送OPTS命令时出现IO异常
+	 */
+	private void negotiateChecksum() throws IOException {
+		String hash = serverInfo.getFeature("HASH");
+		if (hash != null) {
+			// 特性形如 "HASH SHA-256*;SHA-1;MD5"，星号标记当前选定的算法
+			String       current = null;
+			List<String> offered = new ArrayList<>();
+			for (String algorithm : hash.substring(4).trim().toUpperCase().split(";")) {
+				String name = algorithm.trim();
+				if (name.endsWith("*")) {
+					name    = name.substring(0, name.length() - 1);
+					current = name;
+				}
+				offered.add(name);
+			}
+			String preferred = HASH_ORDER.stream().filter(offered::contains).findFirst().orElse(current);
+			if (preferred != null && !preferred.equals(current)) {
+				Response optsResp = ftpCommands.options("HASH", preferred);
+				if (!optsResp.isPositiveCompletion()) {
+					logger.warn("Server refused hash algorithm {} with reply code: {}",
+					            preferred,
+					            optsResp.getReplyCode());
+					preferred = current;
+				}
+			}
+			if (preferred != null && TransferDigest.of(preferred) != null) {
+				checksumCommand   = Command.HASH;
+				checksumAlgorithm = preferred;
+			}
+		} else if (serverInfo.hasFeature("MD5")) {
+			checksumCommand   = Command.MD5;
+			checksumAlgorithm = "MD5";
+		} else if (serverInfo.hasFeature("XMD5")) {
+			checksumCommand   = Command.EXTENDED_MD5;
+			checksumAlgorithm = "MD5";
+		} else if (serverInfo.hasFeature("XCRC")) {
+			checksumCommand   = Command.EXTENDED_CRC;
+			checksumAlgorithm = "CRC32";
+		}
+		if (checksumCommand == null) {
+			logger.info("Server does not advertise a checksum command, transfers will not be verified");
+		} else {
+			logger.info("Verifying transfers with {} ({})", checksumCommand.getCommand(), checksumAlgorithm);
+		}
+	}
+
+	/**
+	 * 向服务器请求文件的摘要，并与传输中计算的摘要比对
+	 *
+	 * @param pathname 远程文件的路径
+	 * @param digest   传输中计算的摘要
+	 *
+	 * @return 如果一致，返回true；否则返回false
+	 *
+	 * @throws IOException 如果发送命令或读取响应时出现IO异常
+	 */
+	private boolean verifyChecksum(String pathname, TransferDigest digest) throws IOException {
+		Response hashResp;
+		switch (checksumCommand) {
+			case HASH:
+				hashResp = ftpCommands.hash(pathname);
+				break;
+			case MD5:
+				hashResp = ftpCommands.md5(pathname);
+				break;
+			case EXTENDED_MD5:
+				hashResp = ftpCommands.extendedMd5(pathname);
+				break;
+			default:
+				hashResp = ftpCommands.extendedCrc(pathname);
+				break;
+		}
+		if (!hashResp.isSuccess()) {
+			logger.error("Failed to get {} of {} with reply code: {}",
+			             digest.getAlgorithm(),
+			             pathname,
+			             hashResp.getReplyCode());
+			return false;
+		}
+		if (!digest.matches(replyChecksum(checksumCommand, hashResp.getMessage()))) {
+			logger.error("{} mismatch for {}: computed {}, server replied {}",
+			             digest.getAlgorithm(),
+			             pathname,
+			             digest.toHex(),
+			             hashResp.getMessage());
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * 从摘要命令的回复中取出摘要
+	 *
+	 * <p>HASH的回复为 {@code 算法 范围 摘要 路径}，摘要是第三个词；MD5的回复为 {@code "路径" 摘要}，
+	 * XMD5和XCRC的回复只有摘要或者以摘要结尾，摘要是最后一个词。</p>
+	 *
+	 * @param command 发送的摘要命令
+	 * @param message 回复的文本，不含回复码
+	 *
+	 * @return 回复中的摘要；回复格式不符时返回空字符串
+	 */
+	private static String replyChecksum(Command command, String message) {
+		String[] words = message.trim().split("\\s+");
+		if (command == Command.HASH) {
+			return words.length >= 3 ? words[2] : "";
+		}
+		return words[words.length - 1];
+	}
+
+	/**
+	 * 设置使用ASCII类型（TYPE A）传输的文件扩展名
+	 *
+	 * <p>扩展名匹配的文件在传输前切换到TYPE A，行结束符在网络上为CRLF，在本地为系统的行结束符；
+	 * 其余文件使用TYPE I按字节原样传输，只在类型变化时发送TYPE命令，二进制传输不受影响。
+	 * ASCII类型的传输不做摘要校验，也不断点续传，因为两端的字节数可能不同。</p>
+	 *
+	 * @param extensions 扩展名，如 {@code txt}、{@code csv}、{@code jcl}，不区分大小写，可以带点；为空时所有文件都使用TYPE I
+	 */
+	public void setAsciiExtensions(Collection<String> extensions) {
+		Set<String> normalized = new HashSet<>();
+		for (String extension : extensions) {
+			String name = extension.trim().toLowerCase();
+			normalized.add(name.startsWith(".") ? name.substring(1) : name);
+		}
+		this.asciiExtensions = Set.copyOf(normalized);
+	}
+
+	/**
+	 * 根据扩展名规则判断文件是否使用ASCII类型传输
+	 *
+	 * @param pathname 文件的路径或文件名
+	 *
+	 * @return 如果使用ASCII类型，返回true；否则返回false
+	 */
+	public boolean isAsciiFile(String pathname) {
+		if (asciiExtensions.isEmpty()) {
+			return false;
+		}
+		int slash = Math.max(pathname.lastIndexOf('/'), pathname.lastIndexOf('\\'));
+		int dot   = pathname.lastIndexOf('.');
+		return dot > slash + 1 && asciiExtensions.contains(pathname.substring(dot + 1).toLowerCase());
+	}
+
+	/**
+	 * 按扩展名规则为下一次传输切换表示类型
+	 *
+	 * @param pathname 要传输的文件的路径
+	 *
+	 * @return 如果下一次传输使用ASCII类型，返回true；否则返回false
+	 *
+	 * @throws IOException 如果发送命令时出现IO异常
+	 */
+	private boolean prepareRepresentationType(String pathname) throws IOException {
+		useRepresentationType(isAsciiFile(pathname) ? TypeCode.ASCII : TypeCode.IMAGE);
+		return representationType == TypeCode.ASCII;
+	}
+
+	/**
+	 * 切换控制连接上的表示类型，已处于该类型时不发送命令
+	 *
+	 * @param type 目标表示类型
+	 *
+	 * @return 如果已处于或成功切换到该类型，返回true；否则返回false
+	 *
+	 * @throws IOException 如果发送命令时出现IO异常
+	 */
+	private boolean useRepresentationType(TypeCode type) throws IOException {
+		if (representationType == type) {
+			return true;
+		}
+		Response typeResp = ftpCommands.representationType(type);
+		if (!typeResp.isPositiveCompletion()) {
+			logger.warn("Failed to set representation type {} with reply code: {}", type, typeResp.getReplyCode());
+			return false;
+		}
+		representationType = type;
+		return true;
+	}
+
+	/**
+	 * 设置是否在服务器支持时使用MODE Z压缩传输
+	 *
+	 * <p>启用后，服务器在FEAT中声明MODE Z时，MLSD以及不小于压缩阈值的文件的上传和下载使用压缩流模式，
+	 * 日志、CSV、JSON等文本数据在窄带链路上可以成倍减少传输量。断点续传始终使用流模式。</p>
+	 *
+	 * @param compression 是否压缩
+	 */
+	public void setCompression(boolean compression) {
+		this.compression = compression;
+	}
+
+	/**
+	 * 设置是否在服务器支持时使用块模式（MODE B）传输
+	 *
+	 * <p>块模式以文件结束标记分隔文件，服务器可以在连续的传输之间保留同一个数据连接，
+	 * 传输大量小文件时省去每个文件一次的TCP握手、慢启动和关闭。服务器拒绝MODE B时退回流模式，不再尝试。
+	 * 达到压缩阈值的文件仍优先使用MODE Z。</p>
+	 *
+	 * @param blockMode 是否使用块模式
+	 */
+	public void setBlockMode(boolean blockMode) {
+		this.blockMode = blockMode;
+	}
+
+	/**
+	 * 设置MODE Z的压缩级别
+	 *
+	 * <p>该级别用于客户端上传时的压缩，并在首次进入MODE Z时通过 {@code OPTS MODE Z LEVEL} 告知服务器用于下载。</p>
+	 *
+	 * @param compressionLevel 压缩级别（0-9），或 {@link Deflater#DEFAULT_COMPRESSION}
+	 */
+	public void setCompressionLevel(int compressionLevel) {
+		this.compressionLevel     = compressionLevel;
+		this.compressionLevelSent = false;
+	}
+
+	/**
+	 * 设置使用MODE Z的最小文件大小
+	 *
+	 * <p>下载时需要先用SIZE查询文件大小；阈值为0时所有文件都压缩，不额外查询。</p>
+	 *
+	 * @param compressionThreshold 最小文件大小（字节）
+	 */
+	public void setCompressionThreshold(long compressionThreshold) {
+		this.compressionThreshold = Math.max(0, compressionThreshold);
+	}
+
+	/**
+	 * 根据压缩设置和文件大小为下一次传输选择传输模式
+	 *
+	 * <p>达到压缩阈值的传输优先使用MODE Z；其余传输在启用块模式且服务器接受MODE B时使用块模式，否则使用流模式。</p>
+	 *
+	 * @param size 提供文件大小的函数，大小未知时返回负数；只在需要比较阈值时调用
+	 *
+	 * @return 下一次传输使用的传输模式
+	 *
+	 * @throws IOException 如果发送命令时出现IO异常
+	 */
+	private TransferMode prepareTransferMode(LongSupplier size) throws IOException {
+		return prepareTransferMode(size, blockMode);
+	}
+
+	/**
+	 * 根据压缩设置和文件大小为下一次传输选择传输模式
+	 *
+	 * @param size  提供文件大小的函数，大小未知时返回负数；只在需要比较阈值时调用
+	 * @param block 是否允许使用块模式
+	 *
+	 * @return 下一次传输使用的传输模式
+	 *
+	 * @throws IOException 如果发送命令时出现IO异常
+	 */
+	private TransferMode prepareTransferMode(LongSupplier size, boolean block) throws IOException {
+		boolean deflate = compression && serverInfo.hasFeature("MODE Z");
+		if (deflate && compressionThreshold > 0) {
+			long bytes = size.getAsLong();
+			deflate = bytes < 0 || bytes >= compressionThreshold;
+		}
+		if (deflate && useTransferMode(TransferMode.DEFLATE)) {
+			return transferMode;
+		}
+		if (block && !blockModeRefused) {
+			if (useTransferMode(TransferMode.BLOCK)) {
+				return transferMode;
+			}
+			blockModeRefused = true;
+		}
+		useTransferMode(TransferMode.STREAM);
+		return transferMode;
+	}
+
+	/**
+	 * 切换控制连接上的传输模式，已处于该模式时不发送命令
+	 *
+	 * @param mode 目标传输模式
+	 *
+	 * @return 如果已处于或成功切换到该模式，返回true；否则返回false
+	 *
+	 * @throws IOException 如果发送命令时出现IO异常
+	 */
+	private boolean useTransferMode(TransferMode mode) throws IOException {
+		if (transferMode == mode) {
+			return true;
+		}
+		Response modeResp = ftpCommands.transferMode(mode);
+		if (!modeResp.isPositiveCompletion()) {
+			logger.warn("Failed to set transfer mode {} with reply code: {}", mode, modeResp.getReplyCode());
+			return false;
+		}
+		transferMode = mode;
+		dataServer.setKeepAlive(mode == TransferMode.BLOCK);
+		if (mode == TransferMode.DEFLATE && !compressionLevelSent && compressionLevel >= 0) {
+			Response optsResp = ftpCommands.options("MODE", "Z LEVEL " + compressionLevel);
+			if (!optsResp.isPositiveCompletion()) {
+				logger.debug("Server ignored MODE Z level with reply code: {}", optsResp.getReplyCode());
+			}
+			compressionLevelSent = true;
+		}
+		return true;
+	}
+
+	/**
+	 * 等待数据连接处理完成，并读取传输命令的完成回复
+	 *
+	 * <p>RETR、STOR、MLSD等命令首先返回1yz预备回复，数据连接关闭后服务器才会发送最终的2yz（或4yz、5yz）回复。
+	 * 必须读取该回复，否则下一条命令会读到本次传输遗留的回复。</p>
+	 *
+	 * <p>块模式下复用已保留的数据连接时，服务器以125回复表示沿用该连接，此时由当前线程在该连接上执行处理器；
+	 * 完成回复为226或传输失败时不再保留该连接。</p>
+	 *
+	 * @param ch          本次传输的连接处理器
+	 * @param preliminary 传输命令的预备回复
+	 *
+	 * @return 如果服务器确认传输完成，返回true；否则返回false
+	 *
+	 * @throws IOException 如果读取响应时出现IO异常
+	 */
+	private boolean completeTransfer(ConnectionHandler ch, Response preliminary) throws IOException {
+		if (reusingDataConnection && preliminary.getReplyCode() == ReplyCode.DATA_CONNECTION_ALREADY_OPEN) {
+			dataServer.handlePersistentConnection();
+		}
+		try {
+			ch.waitForCompletion();
+		} catch (InterruptedException e) {
+			logger.error("Failed to wait for data server to complete", e);
+			Thread.currentThread().interrupt();
+		}
+		Response doneResp = ftpCommands.readResponse();
+		if (!doneResp.isPositiveCompletion()) {
+			dataServer.closePersistentConnection();
+			logger.error("Transfer not completed with reply code: {}", doneResp.getReplyCode());
+			return false;
+		}
+		if (doneResp.getReplyCode() == ReplyCode.CLOSING_DATA_CONNECTION) {
+			dataServer.closePersistentConnection();
+		}
+		return true;
+	}
+
+	/**
+	 * 为下一次传输准备数据连接
+	 *
+	 * <p>块模式下已保留数据连接时不发送PORT，服务器将沿用该连接；否则发送PORT让服务器连接到数据服务器。</p>
+	 *
+	 * @return 如果数据连接已准备好，返回true；否则返回false
+	 *
+	 * @throws IOException 如果发送命令时出现IO异常
+	 */
+	private boolean prepareDataConnection() throws IOException {
+		reusingDataConnection = transferMode == TransferMode.BLOCK && dataServer.hasPersistentConnection();
+		if (reusingDataConnection) {
+			return true;
+		}
+		Response portResp = ftpCommands.dataPort(dataServer.serverSocket);
+		if (!portResp.isSuccess()) {
+			logger.error("Failed to set data port with reply code: {}", portResp.getReplyCode());
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * 从FTP服务器下载目录
+	 *
+	 * @param dirname 要下载的目录名
+	 * @param file    本地目录的存储位置
+	 *
+	 * @return 如果目录下载成功，返回true；否则返回false
+	 */
+	public boolean downloadDirectory(String dirname, java.io.File file) {
+		String current = remoteFs.getCurrentDirectoryPath();
+		try {
+			if (!file.exists()) {
+				file.mkdir();
+			}
+			Response cwdResp = ftpCommands.changeWorkingDirectory(dirname);
+			if (!cwdResp.isSuccess()) {
+				logger.error("Failed to change working directory to {} with reply code: {}",
+				             dirname,
+				             cwdResp.getReplyCode());
+				return false;
+			}
+			machineListDictionary(dirname);
+			remoteFs.changeDirectory(remoteFs.getCurrentDirectoryPath() + '/' + dirname);
+			for (var f : remoteFs.getFiles(remoteFs.getCurrentDirectoryPath())) {
+				java.io.File newFile = new java.io.File(file.getAbsolutePath() + '/' + f.getName());
+				downloadFile(f.getName(), newFile);
+				dataServer.waitHandlerComplete();
+			}
+			for (var d : remoteFs.getDirectories(remoteFs.getCurrentDirectoryPath())) {
+				java.io.File newFile = new java.io.File(file.getAbsolutePath() + '/' + d);
+				newFile.mkdir();
+				downloadDirectory(d, newFile);
+			}
+		} catch (Exception e) {
+			logger.error("Failed to download directory", e);
+		} finally {
+			remoteFs.changeDirectory(current);
+		}
+
+		return true;
+	}
+
+	/**
+	 * 重命名文件或目录
+	 *
+	 * @param oldPathname 旧文件名（相对路径）
+	 * @param newFilename 新文件名（相对路径）
+	 *
+	 * @return 如果重命名成功，返回true；否则返回false
+	 */
+	public boolean rename(String oldPathname, String newFilename) {
+		try {
+			Response renameResp = ftpCommands.renameFrom(oldPathname);
+			if (!renameResp.isSuccess()) {
+				logger.error("Failed to rename file with reply code: {}", renameResp.getReplyCode());
+				return false;
+			}
+			Response renameToResp = ftpCommands.renameTo(newFilename);
+			if (!renameToResp.isSuccess()) {
+				logger.error("Failed to rename file with reply code: {}", renameToResp.getReplyCode());
+				return false;
+			}
+			return true;
+		} catch (IOException e) {
+			logger.error("Failed to rename file", e);
+			return false;
+		}
+	}
+
+	/**
+	 * 批量移动或重命名远程文件和目录
+	 *
+	 * <p>先以流水线方式一次性创建所有目标路径中缺少的父目录，然后按批发送RNFR/RNTO命令对，
+	 * 每批只等待一次往返，因此重新组织上万个文件只需数秒。各对之间互不影响，一对失败不会中断其余的移动。</p>
+	 *
+	 * @param moves 旧路径到新路径的映射，均为绝对路径，按迭代顺序执行
+	 *
+	 * @return 每个旧路径的移动结果，按迭代顺序排列
+	 */
+	public Map<String, Boolean> move(Map<String, String> moves) {
+		Set<String> parents = new LinkedHashSet<>();
+		for (String target : moves.values()) {
+			String normalized = GlobalPathUtil.normalizePath(target);
+			int    index      = normalized.lastIndexOf('/');
+			if (index > 0) {
+				parents.add(normalized.substring(0, index));
+			}
+		}
+		makeDirectories(parents);
+
+		List<String>         from    = new ArrayList<>(moves.keySet());
+		List<String>         to      = new ArrayList<>(moves.values());
+		Map<String, Boolean> results = new LinkedHashMap<>();
+		int                  pairs   = PIPELINE_DEPTH / 2;
+		for (int i = 0; i < from.size(); i += pairs) {
+			int end = Math.min(from.size(), i + pairs);
+			try {
+				List<Response> responses = ftpCommands.rename(from.subList(i, end), to.subList(i, end));
+				for (int j = i; j < end; j++) {
+					Response renameResp   = responses.get(2 * (j - i));
+					Response renameToResp = responses.get(2 * (j - i) + 1);
+					boolean  success      = renameResp.isSuccess() && renameToResp.isPositiveCompletion();
+					if (!success) {
+						logger.error("Failed to move {} to {} with reply codes: {}, {}",
+						             from.get(j),
+						             to.get(j),
+						             renameResp.getReplyCode(),
+						             renameToResp.getReplyCode());
+					}
+					results.put(from.get(j), success);
 				}
-			} else {
-				Response deleteResp = ftpCommands.delete(pathname);
-				if (!deleteResp.isSuccess()) {
-					logger.error("Failed to delete file with reply code: {}", deleteResp.getReplyCode());
+			} catch (IOException e) {
+				// 控制连接已不可用，其余的移动都无法执行
+				logger.error("Failed to move files", e);
+				for (int j = i; j < from.size(); j++) {
+					results.put(from.get(j), false);
 				}
+				break;
+			}
+		}
+		logger.info("Moved {} of {} entries",
+		            results.values().stream().filter(Boolean::booleanValue).count(),
+		            results.size());
+		return results;
+	}
+
+	/**
+	 * 删除文件或目录
+	 *
+	 * <p>删除目录时先用 {@link VirtualFileSystem#crawl(String)} 遍历一次整棵子树，每个目录只发送一次MLSD，
+	 * 然后自底向上处理：每个目录中的文件以流水线方式成批发送DELE，子目录都删除后再删除该目录。
+	 * 需要在多个会话上并行删除大型目录树时，使用 {@link cn.jsou.ftpclient.transfer.RecursiveDelete}。</p>
+	 *
+	 * @param pathname 文件或目录的绝对路径
+	 */
+	public void delete(String pathname) {
+		if (!remoteFs.isDirectory(pathname)) {
+			deleteFile(pathname);
+			return;
+		}
+		deleteTree(remoteFs.crawl(pathname), pathname);
+	}
+
+	/**
+	 * 自底向上删除已遍历的目录树
+	 *
+	 * @param dir  目录节点
+	 * @param path 目录的绝对路径
+	 *
+	 * @return 如果目录及其内容全部删除，返回true；否则返回false
+	 */
+	private boolean deleteTree(Directory dir, String path) {
+		boolean empty = true;
+		for (Directory sub : dir.getDirectories().values()) {
+			empty &= deleteTree(sub, GlobalPathUtil.join(path, sub.getName()));
+		}
+		List<String> files = new ArrayList<>();
+		dir.getFiles().keySet().forEach(name -> files.add(GlobalPathUtil.join(path, name)));
+		for (int i = 0; i < files.size(); i += PIPELINE_DEPTH) {
+			empty &= deleteFiles(files.subList(i, Math.min(files.size(), i + PIPELINE_DEPTH))).isEmpty();
+		}
+		// 目录中仍有未删除的内容时，RMD必然失败
+		return empty && removeDirectory(path);
+	}
+
+	/**
+	 * 以流水线方式删除多个远程文件，一批命令只等待一次往返
+	 *
+	 * <p>所有命令发送完后才读取响应，一批的数量应使命令和响应都能放进套接字缓冲区，
+	 * 调用方按 {@link #PIPELINE_DEPTH}（256）条一批发送。</p>
+	 *
+	 * @param pathnames 文件的路径，数量不宜超过 {@link #PIPELINE_DEPTH}
+	 *
+	 * @return 删除失败的路径，全部成功时为空列表
+	 */
+	public List<String> deleteFiles(List<String> pathnames) {
+		try {
+			return failedPaths(pathnames, ftpCommands.delete(pathnames));
+		} catch (IOException e) {
+			logger.error("Failed to delete files", e);
+			return new ArrayList<>(pathnames);
+		}
+	}
+
+	/**
+	 * 以流水线方式删除多个空的远程目录，一批命令只等待一次往返
+	 *
+	 * @param pathnames 目录的路径，各目录之间不应有包含关系
+	 *
+	 * @return 删除失败的路径，全部成功时为空列表
+	 */
+	public List<String> removeDirectories(List<String> pathnames) {
+		try {
+			return failedPaths(pathnames, ftpCommands.removeDirectory(pathnames));
+		} catch (IOException e) {
+			logger.error("Failed to remove directories", e);
+			return new ArrayList<>(pathnames);
+		}
+	}
+
+	/**
+	 * 根据流水线命令的响应找出失败的路径
+	 *
+	 * @param pathnames 命令的路径参数
+	 * @param responses 与路径顺序一致的响应
+	 *
+	 * @return 失败的路径
+	 */
+	private List<String> failedPaths(List<String> pathnames, List<Response> responses) {
+		List<String> failed = new ArrayList<>();
+		for (int i = 0; i < pathnames.size(); i++) {
+			if (!responses.get(i).isPositiveCompletion()) {
+				logger.error("Failed to delete {} with reply code: {}",
+				             pathnames.get(i),
+				             responses.get(i).getReplyCode());
+				failed.add(pathnames.get(i));
+			}
+		}
+		return failed;
+	}
+
+	/**
+	 * 改变服务器上的当前工作目录，不修改远程虚拟文件系统
+	 *
+	 * @param pathname 目录的路径
+	 *
+	 * @return 如果切换成功，返回true；否则返回false
+	 */
+	public boolean changeWorkingDirectory(String pathname) {
+		try {
+			Response cwdResp = ftpCommands.changeWorkingDirectory(pathname);
+			if (!cwdResp.isSuccess()) {
+				logger.warn("Failed to change working directory to {} with reply code: {}",
+				            pathname,
+				            cwdResp.getReplyCode());
+				return false;
+			}
+			return true;
+		} catch (IOException e) {
+			logger.error("Failed to change working directory", e);
+			return false;
+		}
+	}
+
+	/**
+	 * 删除单个远程文件
+	 *
+	 * @param pathname 文件的路径
+	 *
+	 * @return 如果删除成功，返回true；否则返回false
+	 */
+	public boolean deleteFile(String pathname) {
+		try {
+			Response deleteResp = ftpCommands.delete(pathname);
+			if (!deleteResp.isSuccess()) {
+				logger.error("Failed to delete file {} with reply code: {}", pathname, deleteResp.getReplyCode());
+				return false;
 			}
+			return true;
 		} catch (IOException e) {
 			logger.error("Failed to delete file", e);
+			return false;
+		}
+	}
+
+	/**
+	 * 删除单个空的远程目录
+	 *
+	 * @param pathname 目录的路径
+	 *
+	 * @return 如果删除成功，返回true；否则返回false
+	 */
+	public boolean removeDirectory(String pathname) {
+		try {
+			Response rmdResp = ftpCommands.removeDirectory(pathname);
+			if (!rmdResp.isSuccess()) {
+				logger.error("Failed to remove directory {} with reply code: {}", pathname, rmdResp.getReplyCode());
+				return false;
+			}
+			return true;
+		} catch (IOException e) {
+			logger.error("Failed to remove directory", e);
+			return false;
+		}
+	}
+
+	/**
+	 * 使用MFMT命令设置远程文件的修改时间
+	 *
+	 * @param pathname    文件的路径
+	 * @param epochMillis 修改时间（UTC毫秒时间戳）
+	 *
+	 * @return 如果服务器支持MFMT并设置成功，返回true；否则返回false
+	 */
+	public boolean setModifiedTime(String pathname, long epochMillis) {
+		if (!serverInfo.hasFeature("MFMT")) {
+			return false;
+		}
+		try {
+			LocalDateTime utc      = LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneOffset.UTC);
+			Response      mfmtResp = ftpCommands.modifyTime(utc.format(MFMT_FORMAT), pathname);
+			if (!mfmtResp.isPositiveCompletion()) {
+				logger.warn("Failed to set modification time of {} with reply code: {}",
+				            pathname,
+				            mfmtResp.getReplyCode());
+				return false;
+			}
+			return true;
+		} catch (IOException e) {
+			logger.error("Failed to set modification time", e);
+			return false;
 		}
 	}
 
@@ -390,6 +1896,105 @@ public class FtpClient {
 		}
 	}
 
+	/**
+	 * 批量创建远程目录及其缺少的上级目录
+	 *
+	 * <p>虚拟文件系统中已知存在的目录不再创建，其余目录按深度排序后以流水线方式分批发送MKD，
+	 * 父目录总在子目录之前，创建成功的目录随即加入虚拟文件系统。服务器上已存在但尚未加载到虚拟文件系统的目录会以550拒绝，
+	 * 这些目录由 {@link #existingDirectories(List)} 再确认一次，确实存在的视为成功并加入虚拟文件系统。</p>
+	 *
+	 * @param pathnames 目录的绝对路径
+	 *
+	 * @return 创建失败的目录，全部成功时为空列表
+	 */
+	public List<String> makeDirectories(Collection<String> pathnames) {
+		Set<String> missing = new LinkedHashSet<>();
+		for (String pathname : pathnames) {
+			String normalized = GlobalPathUtil.normalizePath(pathname);
+			for (int index = normalized.indexOf('/', 1); ; index = normalized.indexOf('/', index + 1)) {
+				String ancestor = index < 0 ? normalized : normalized.substring(0, index);
+				if (!ancestor.isEmpty() && !"/".equals(ancestor) && !remoteFs.isDirectory(ancestor)) {
+					missing.add(ancestor);
+				}
+				if (index < 0) {
+					break;
+				}
+			}
+		}
+		List<String> ordered = new ArrayList<>(missing);
+		ordered.sort(Comparator.comparingLong(path -> path.chars().filter(c -> c == '/').count()));
+		List<String> failed = new ArrayList<>();
+		for (int i = 0; i < ordered.size(); i += PIPELINE_DEPTH) {
+			List<String> batch = ordered.subList(i, Math.min(ordered.size(), i + PIPELINE_DEPTH));
+			try {
+				List<Response>        responses = ftpCommands.makeDirectory(batch);
+				Map<String, Response> rejected  = new LinkedHashMap<>();
+				for (int j = 0; j < batch.size(); j++) {
+					if (responses.get(j).isPositiveCompletion()) {
+						remoteFs.addDirectory(batch.get(j));
+					} else {
+						rejected.put(batch.get(j), responses.get(j));
+					}
+				}
+				if (!rejected.isEmpty()) {
+					Set<String> existing = existingDirectories(new ArrayList<>(rejected.keySet()));
+					rejected.forEach((pathname, response) -> {
+						if (existing.contains(pathname)) {
+							remoteFs.addDirectory(pathname);
+						} else {
+							logger.warn("Failed to make directory {} with reply code: {}",
+							            pathname,
+							            response.getReplyCode());
+							failed.add(pathname);
+						}
+					});
+				}
+			} catch (IOException e) {
+				logger.error("Failed to make directories", e);
+				failed.addAll(ordered.subList(i, ordered.size()));
+				break;
+			}
+		}
+		return failed;
+	}
+
+	/**
+	 * 在MKD被拒绝的路径中找出服务器上已经存在的目录
+	 *
+	 * <p>服务器支持MLST时以流水线方式查询各路径的类型，否则以流水线方式依次CWD到各路径，
+	 * 最后再CWD回虚拟文件系统的当前目录。查询本身失败时视为都不存在。</p>
+	 *
+	 * @param pathnames 目录的绝对路径
+	 *
+	 * @return 确认已存在的目录
+	 */
+	private Set<String> existingDirectories(List<String> pathnames) {
+		Set<String> existing = new HashSet<>();
+		try {
+			if (serverInfo.getFeature("MLST") != null) {
+				List<Response> responses = ftpCommands.machineList(pathnames);
+				for (int i = 0; i < pathnames.size(); i++) {
+					Response response = responses.get(i);
+					if (response.isPositiveCompletion() && DIRECTORY_FACT.matcher(response.getMessage()).find()) {
+						existing.add(pathnames.get(i));
+					}
+				}
+			} else {
+				List<String> targets = new ArrayList<>(pathnames);
+				targets.add(remoteFs.getCurrentDirectoryPath());
+				List<Response> responses = ftpCommands.changeWorkingDirectory(targets);
+				for (int i = 0; i < pathnames.size(); i++) {
+					if (responses.get(i).isPositiveCompletion()) {
+						existing.add(pathnames.get(i));
+					}
+				}
+			}
+		} catch (IOException e) {
+			logger.error("Failed to check existing directories", e);
+		}
+		return existing;
+	}
+
 	/**
 	 * 登出FTP服务器
 	 */
@@ -405,13 +2010,24 @@ public class FtpClient {
 	 * 关闭FTP客户端
 	 */
 	public void close() {
+		ftpCommands.close();
+		IOUtils.closeQuietly(serverSocket);
+		stopDataServer();
+	}
+
+	/**
+	 * 关闭数据服务器并等待其线程结束
+	 */
+	private void stopDataServer() {
+		if (dataServer == null) {
+			return;
+		}
 		try {
-			ftpCommands.close();
-			IOUtils.closeQuietly(serverSocket);
 			dataServer.close();
 			serverThread.join();
 		} catch (InterruptedException e) {
 			logger.error("Failed to close the FTP client", e);
+			Thread.currentThread().interrupt();
 		}
 	}
 }
\ No newline at end of file
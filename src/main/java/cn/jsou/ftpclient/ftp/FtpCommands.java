@@ -10,6 +10,10 @@ import java.io.*;
 import java.net.InetAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
 
 import static cn.jsou.ftpclient.ftp.Command.*;
 
@@ -26,6 +30,26 @@ public class FtpCommands {
 	 * 用于向服务器发送命令的打印写入器
 	 */
 	private final        PrintWriter    writer;
+	/**
+	 * 控制连接套接字，用于调整读取响应的超时
+	 */
+	private final        Socket         socket;
+	/**
+	 * 保证一条命令的发送和响应的读取不被其他线程的命令打断
+	 */
+	private final        ReentrantLock  lock   = new ReentrantLock();
+	/**
+	 * 已发送命令但尚未读取的响应数，包括预备回复之后的完成回复
+	 */
+	private              int            pendingReplies;
+	/**
+	 * 最后一次收发命令的时间
+	 */
+	private volatile     long           lastActivity;
+	/**
+	 * 控制连接是否已经失效
+	 */
+	private volatile     boolean        broken;
 
 	/**
 	 * 构造一个新的FtpCommands实例，初始化与服务器的通信渠道
@@ -35,8 +59,66 @@ public class FtpCommands {
 	 * @throws IOException 如果从套接字获取输入/输出流时发生I/O错误
 	 */
 	public FtpCommands(Socket socket) throws IOException {
-		this.reader = new BufferedReader(new InputStreamReader(socket.getInputStream()));
-		this.writer = new PrintWriter(new OutputStreamWriter(socket.getOutputStream()), true);
+		this.reader       = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+		this.writer       = new PrintWriter(new OutputStreamWriter(socket.getOutputStream()), true);
+		this.socket       = socket;
+		this.lastActivity = System.currentTimeMillis();
+	}
+
+	/**
+	 * 判断控制连接是否已经失效
+	 *
+	 * <p>读取响应时发生I/O错误、服务器关闭了连接或回复421后，控制连接不能再使用，需要重新连接。</p>
+	 *
+	 * @return 如果已经失效，返回true；否则返回false
+	 */
+	boolean isBroken() {
+		return broken;
+	}
+
+	/**
+	 * 在控制连接空闲时发送NOOP，检查连接是否仍然可用
+	 *
+	 * <p>只有在没有其他线程正在收发命令、没有尚未读取的响应（例如传输的完成回复），并且已空闲足够长的时间时才发送，
+	 * 因此NOOP不会插入RNFR/RNTO、REST/RETR这类必须相邻的命令之间。等待响应时使用给定的超时，半开的连接可以很快被发现。</p>
+	 *
+	 * <p>其他线程持有锁时不发送NOOP，而是检查它是否仍有进展：距最后一次收发已超过控制连接的读取超时，
+	 * 说明该命令卡在了读写上（例如写入被对方的接收窗口阻塞，不受读取超时约束），此时把连接标记为失效。</p>
+	 *
+	 * @param idleTime 发送NOOP前需要的最短空闲时间（毫秒）
+	 * @param timeout  等待NOOP响应的最长时间（毫秒）
+	 *
+	 * @return 如果服务器正常回复或者无需发送，返回true；服务器回复错误或其他线程的命令卡住时返回false
+	 *
+	 * @throws IOException 如果发生I/O错误或等待响应超时
+	 */
+	boolean keepAlive(long idleTime, long timeout) throws IOException {
+		if (!lock.tryLock()) {
+			// 读取超时为0表示正在等待站点间传输的完成回复，所需时间没有上限
+			int replyTimeout = socket.getSoTimeout();
+			if (replyTimeout > 0 && System.currentTimeMillis() - lastActivity > replyTimeout) {
+				logger.warn("Command in progress for longer than the reply timeout of {} ms", replyTimeout);
+				broken = true;
+				return false;
+			}
+			return true;
+		}
+		try {
+			if (pendingReplies > 0 || System.currentTimeMillis() - lastActivity < idleTime) {
+				return true;
+			}
+			int soTimeout = socket.getSoTimeout();
+			socket.setSoTimeout((int) timeout);
+			try {
+				return noop().isPositiveCompletion();
+			} finally {
+				if (!socket.isClosed()) {
+					socket.setSoTimeout(soTimeout);
+				}
+			}
+		} finally {
+			lock.unlock();
+		}
 	}
 
 	/**
@@ -67,10 +149,67 @@ public class FtpCommands {
 	 */
 	private Response sendCommand(Command command, String... args) throws IOException {
 		String commandLine = command.getCommand() + " " + Joiner.on(" ").join(args) + "\r\n";
-		writer.print(commandLine);
-		writer.flush();
-		logger.info("Sent command:\t{}", commandLine);
-		return readResponse();
+		lock.lock();
+		try {
+			writer.print(commandLine);
+			writer.flush();
+			logger.info("Sent command:\t{}", commandLine);
+			lastActivity = System.currentTimeMillis();
+			pendingReplies++;
+			return readResponse();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * 以流水线方式连续发送多条同类命令，再依次读取各自的响应
+	 *
+	 * <p>服务器按顺序处理控制连接上的命令，因此不必等待上一条命令的响应即可发送下一条，
+	 * 一批命令只需等待一次往返。调用者应限制每批的数量，避免双方的套接字缓冲区同时写满。</p>
+	 *
+	 * @param command 要发送的FTP命令
+	 * @param args    每条命令的参数
+	 *
+	 * @return 与参数顺序一致的响应
+	 *
+	 * @throws IOException 如果发生I/O错误
+	 */
+	private List<Response> pipeline(Command command, List<String> args) throws IOException {
+		List<String> commandLines = new ArrayList<>(args.size());
+		for (String arg : args) {
+			commandLines.add(command.getCommand() + " " + arg + "\r\n");
+		}
+		return pipeline(commandLines);
+	}
+
+	/**
+	 * 以流水线方式连续发送多条命令行，再依次读取各自的响应
+	 *
+	 * @param commandLines 完整的命令行，包括结尾的CRLF
+	 *
+	 * @return 与命令行顺序一致的响应
+	 *
+	 * @throws IOException 如果发生I/O错误
+	 */
+	private List<Response> pipeline(List<String> commandLines) throws IOException {
+		lock.lock();
+		try {
+			for (String commandLine : commandLines) {
+				writer.print(commandLine);
+				logger.info("Sent command:\t{}", commandLine);
+			}
+			writer.flush();
+			lastActivity = System.currentTimeMillis();
+			pendingReplies += commandLines.size();
+			List<Response> responses = new ArrayList<>(commandLines.size());
+			for (int i = 0; i < commandLines.size(); i++) {
+				responses.add(readResponse());
+			}
+			return responses;
+		} finally {
+			lock.unlock();
+		}
 	}
 
 	/**
@@ -81,6 +220,60 @@ public class FtpCommands {
 	 * @throws IOException 如果读取过程中发生I/O错误。
 	 */
 	Response readResponse() throws IOException {
+		lock.lock();
+		try {
+			Response response = readReply();
+			// 预备回复之后还有一个完成回复
+			if (ReplyType.getReplyType(response.getReplyCode()) != ReplyType.POSITIVE_PRELIMINARY) {
+				pendingReplies = Math.max(0, pendingReplies - 1);
+			}
+			if (response.getReplyCode() == ReplyCode.SERVICE_NOT_AVAILABLE_CLOSING_CONTROL_CONNECTION) {
+				broken = true;
+			}
+			return response;
+		} catch (IOException e) {
+			broken = true;
+			throw e;
+		} finally {
+			lastActivity = System.currentTimeMillis();
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * 读取一个要等整个传输结束才到达的响应，不受控制连接读取超时的限制
+	 *
+	 * <p>站点间传输的数据不经过客户端，最终回复要等两台服务器之间的传输完成才发出，所需时间没有上限。</p>
+	 *
+	 * @return 服务器响应的内容
+	 *
+	 * @throws IOException 如果读取过程中发生I/O错误
+	 */
+	Response readTransferResponse() throws IOException {
+		lock.lock();
+		try {
+			int soTimeout = socket.getSoTimeout();
+			socket.setSoTimeout(0);
+			try {
+				return readResponse();
+			} finally {
+				if (!socket.isClosed()) {
+					socket.setSoTimeout(soTimeout);
+				}
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * 从控制连接读取并解析一个完整的响应
+	 *
+	 * @return 服务器响应的内容
+	 *
+	 * @throws IOException 如果读取过程中发生I/O错误，或服务器已关闭连接
+	 */
+	private Response readReply() throws IOException {
 		StringBuilder responseBuilder = new StringBuilder();
 		String        responseLine;
 		String        statusCode      = null;
@@ -88,6 +281,9 @@ public class FtpCommands {
 		// 读取第一行响应
 		responseLine = reader.readLine();
 		logger.info("Server response:\t{}", responseLine);
+		if (responseLine == null) {
+			throw new EOFException("Control connection closed by server");
+		}
 
 		// 确定是否为多行响应
 		boolean isMultiline = responseLine.matches("^\\d{3}-.*");
@@ -163,6 +359,23 @@ public class FtpCommands {
 		return sendCommand(CHANGE_WORKING_DIRECTORY, pathname);
 	}
 
+	/**
+	 * 以流水线方式依次更改到多个目录
+	 *
+	 * <p>执行后的工作目录是最后一个成功的CWD所指的目录，调用者通常在列表末尾放入原来的工作目录。</p>
+	 *
+	 * @param pathnames 目录的路径
+	 *
+	 * @return 与路径顺序一致的响应
+	 *
+	 * @throws IOException 如果发生I/O错误
+	 * @see <a href="https://tools.ietf.org/html/rfc959">RFC 959</a>
+	 */
+	List<Response> changeWorkingDirectory(List<String> pathnames) throws IOException {
+		return pipeline(CHANGE_WORKING_DIRECTORY,
+		                pathnames.stream().map(GlobalPathUtil::normalizePath).collect(Collectors.toList()));
+	}
+
 	/**
 	 * 注销
 	 *
@@ -229,6 +442,22 @@ public class FtpCommands {
 		}
 	}
 
+	/**
+	 * 传输模式
+	 *
+	 * <p>参数是一个指定数据传输模式的单个Telnet字符代码。默认传输模式是流。</p>
+	 *
+	 * @param mode 传输模式
+	 *
+	 * @return 服务器的响应
+	 *
+	 * @throws IOException 如果发生I/O错误
+	 * @see <a href="https://tools.ietf.org/html/rfc959">RFC 959</a>
+	 */
+	Response transferMode(TransferMode mode) throws IOException {
+		return sendCommand(TRANSFER_MODE, String.valueOf(mode.getCode()));
+	}
+
 	/**
 	 * 表示类型
 	 *
@@ -262,6 +491,18 @@ public class FtpCommands {
 	 * @see <a href="https://tools.ietf.org/html/rfc959">RFC 959</a>
 	 */
 	Response dataPort(ServerSocket socket) throws IOException {
+		// 发送PORT命令
+		return dataPort(hostPort(socket));
+	}
+
+	/**
+	 * 将数据服务器的地址编码为PORT命令使用的HOST-PORT规范
+	 *
+	 * @param socket 数据服务器的套接字
+	 *
+	 * @return 以逗号分隔的地址和端口
+	 */
+	private static String hostPort(ServerSocket socket) {
 		InetAddress localAddress = socket.getInetAddress();
 		int         port         = socket.getLocalPort();
 
@@ -274,10 +515,84 @@ public class FtpCommands {
 		int lowPort  = port % (1 << 8);
 
 		// 构造PORT命令的参数
-		String commandArgument = String.format("%s,%d,%d", hostNumber, highPort, lowPort);
+		return String.format("%s,%d,%d", hostNumber, highPort, lowPort);
+	}
 
-		// 发送PORT命令
-		return sendCommand(DATA_PORT, commandArgument);
+	/**
+	 * 数据端口
+	 *
+	 * <p>使用已编码的HOST-PORT规范作为参数，用于让服务器连接到另一台服务器在PASV回复中给出的地址（站点间传输）。</p>
+	 *
+	 * @param hostPort 形如 {@code h1,h2,h3,h4,p1,p2} 的HOST-PORT规范
+	 *
+	 * @return 服务器的响应
+	 *
+	 * @throws IOException 如果发生I/O错误
+	 * @see <a href="https://tools.ietf.org/html/rfc959">RFC 959</a>
+	 */
+	Response dataPort(String hostPort) throws IOException {
+		return sendCommand(DATA_PORT, hostPort);
+	}
+
+	/**
+	 * 被动
+	 *
+	 * <p>此命令请求服务器-DTP在一个数据端口（不是其默认数据端口）上“监听”，并等待连接而不是在收到传输命令时发起连接。
+	 * 此命令的响应包括服务器正在监听的主机和端口地址。</p>
+	 *
+	 * @return 服务器的响应，成功时为227
+	 *
+	 * @throws IOException 如果发生I/O错误
+	 * @see <a href="https://tools.ietf.org/html/rfc959">RFC 959</a>
+	 */
+	Response passive() throws IOException {
+		return sendCommand(PASSIVE);
+	}
+
+	/**
+	 * 空操作
+	 *
+	 * <p>此命令不影响任何参数或之前输入的命令，除了要求服务器发送OK回复外不指定任何操作。</p>
+	 *
+	 * @return 服务器的响应
+	 *
+	 * @throws IOException 如果发生I/O错误
+	 * @see <a href="https://tools.ietf.org/html/rfc959">RFC 959</a>
+	 */
+	Response noop() throws IOException {
+		return sendCommand(NOOP);
+	}
+
+	/**
+	 * 中止
+	 *
+	 * <p>此命令告诉服务器中止前一个FTP服务命令及其相关的数据传输，服务器关闭数据连接。
+	 * 传输仍在进行时，服务器先以426回复被中止的命令，再以226回复本命令。</p>
+	 *
+	 * @return 服务器的第一个响应
+	 *
+	 * @throws IOException 如果发生I/O错误
+	 * @see <a href="https://tools.ietf.org/html/rfc959">RFC 959</a>
+	 */
+	Response abort() throws IOException {
+		return sendCommand(ABORT);
+	}
+
+	/**
+	 * 以流水线方式查询多个路径的机器可解析信息
+	 *
+	 * <p>MLST的事实行在控制连接上随250回复一起返回，不需要数据连接，因此可以与其他命令一样流水线发送。
+	 * 路径不存在时服务器以550拒绝。</p>
+	 *
+	 * @param pathnames 要查询的路径
+	 *
+	 * @return 与路径顺序一致的响应
+	 *
+	 * @throws IOException 如果发生I/O错误
+	 * @see <a href="https://tools.ietf.org/html/rfc3659">RFC 3659</a>
+	 */
+	List<Response> machineList(List<String> pathnames) throws IOException {
+		return pipeline(MACHINE_LIST, pathnames.stream().map(GlobalPathUtil::normalizePath).collect(Collectors.toList()));
 	}
 
 	/**
@@ -326,6 +641,136 @@ public class FtpCommands {
 		return sendCommand(RETRIEVE, filename);
 	}
 
+	/**
+	 * 追加（带创建）
+	 *
+	 * <p>此命令使服务器-DTP接受通过数据连接传输的数据，并将数据存储在服务器站点的文件中。
+	 * 如果路径名中指定的文件在服务器站点存在，则数据将被追加到该文件中；否则，将在服务器站点创建路径名中指定的文件。</p>
+	 *
+	 * @return 服务器的响应
+	 *
+	 * @throws IOException 如果发生I/O错误
+	 * @see <a href="https://tools.ietf.org/html/rfc959">RFC 959</a>
+	 */
+	Response append(String pathname) throws IOException {
+		pathname = GlobalPathUtil.normalizePath(pathname);
+		return sendCommand(APPEND, pathname);
+	}
+
+	/**
+	 * 重启
+	 *
+	 * <p>此命令不会导致文件传输，而是跳过文件到指定的数据检查点。此命令应立即后跟适当的FTP服务命令，该命令将导致文件传输恢复。
+	 * 在流模式下，检查点即为文件中的字节偏移量。</p>
+	 *
+	 * @param marker 重新开始传输的字节偏移量
+	 *
+	 * @return 服务器的响应，成功时为350
+	 *
+	 * @throws IOException 如果发生I/O错误
+	 * @see <a href="https://tools.ietf.org/html/rfc3659">RFC 3659</a>
+	 */
+	Response restart(long marker) throws IOException {
+		return sendCommand(RESTART, String.valueOf(marker));
+	}
+
+	/**
+	 * 文件大小
+	 *
+	 * <p>此命令用于获取服务器上文件的传输大小。回复代码213后跟一个十进制数表示文件大小。</p>
+	 *
+	 * @param pathname 文件路径
+	 *
+	 * @return 服务器的响应
+	 *
+	 * @throws IOException 如果发生I/O错误
+	 * @see <a href="https://tools.ietf.org/html/rfc3659">RFC 3659</a>
+	 */
+	Response size(String pathname) throws IOException {
+		pathname = GlobalPathUtil.normalizePath(pathname);
+		return sendCommand(SIZE, pathname);
+	}
+
+	/**
+	 * 修改事实：修改时间
+	 *
+	 * <p>此命令用于设置服务器上文件的最后修改时间。</p>
+	 *
+	 * @param time     UTC时间的 {@code YYYYMMDDHHMMSS} 形式
+	 * @param pathname 文件路径
+	 *
+	 * @return 服务器的响应
+	 *
+	 * @throws IOException 如果发生I/O错误
+	 * @see <a href="https://tools.ietf.org/html/draft-somers-ftp-mfxx-04">draft-somers-ftp-mfxx</a>
+	 */
+	Response modifyTime(String time, String pathname) throws IOException {
+		pathname = GlobalPathUtil.normalizePath(pathname);
+		return sendCommand(MODIFY_FACT_MODIFICATION_TIME, time, pathname);
+	}
+
+	/**
+	 * 文件哈希
+	 *
+	 * <p>此命令要求服务器使用当前选定的算法计算文件的哈希值。</p>
+	 *
+	 * @param pathname 文件路径
+	 *
+	 * @return 服务器的响应
+	 *
+	 * @throws IOException 如果发生I/O错误
+	 * @see <a href="https://tools.ietf.org/html/draft-bryan-ftpext-hash-02">draft-bryan-ftpext-hash</a>
+	 */
+	Response hash(String pathname) throws IOException {
+		pathname = GlobalPathUtil.normalizePath(pathname);
+		return sendCommand(HASH, pathname);
+	}
+
+	/**
+	 * 文件MD5摘要
+	 *
+	 * <p>此命令要求服务器计算文件的MD5摘要。</p>
+	 *
+	 * @param pathname 文件路径
+	 *
+	 * @return 服务器的响应
+	 *
+	 * @throws IOException 如果发生I/O错误
+	 * @see <a href="https://tools.ietf.org/html/draft-twine-ftpmd5-00">draft-twine-ftpmd5</a>
+	 */
+	Response md5(String pathname) throws IOException {
+		pathname = GlobalPathUtil.normalizePath(pathname);
+		return sendCommand(MD5, pathname);
+	}
+
+	/**
+	 * 文件MD5摘要（非标准）
+	 *
+	 * @param pathname 文件路径
+	 *
+	 * @return 服务器的响应
+	 *
+	 * @throws IOException 如果发生I/O错误
+	 */
+	Response extendedMd5(String pathname) throws IOException {
+		pathname = GlobalPathUtil.normalizePath(pathname);
+		return sendCommand(EXTENDED_MD5, pathname);
+	}
+
+	/**
+	 * 文件CRC32校验和（非标准）
+	 *
+	 * @param pathname 文件路径
+	 *
+	 * @return 服务器的响应
+	 *
+	 * @throws IOException 如果发生I/O错误
+	 */
+	Response extendedCrc(String pathname) throws IOException {
+		pathname = GlobalPathUtil.normalizePath(pathname);
+		return sendCommand(EXTENDED_CRC, pathname);
+	}
+
 	/**
 	 * 重命名从
 	 *
@@ -356,6 +801,66 @@ public class FtpCommands {
 		return sendCommand(RENAME_TO, filename);
 	}
 
+	/**
+	 * 以流水线方式重命名多个文件或目录
+	 *
+	 * <p>每对路径依次发送RNFR和RNTO，所有命令一次写出。RNFR失败时服务器会以503拒绝紧随其后的RNTO，
+	 * 因此各对之间互不影响。</p>
+	 *
+	 * @param fromPathnames 旧路径
+	 * @param toPathnames   与旧路径一一对应的新路径
+	 *
+	 * @return 每对路径的RNFR和RNTO响应，依次排列，共为路径对数的两倍
+	 *
+	 * @throws IOException 如果发生I/O错误
+	 * @see <a href="https://tools.ietf.org/html/rfc959">RFC 959</a>
+	 */
+	List<Response> rename(List<String> fromPathnames, List<String> toPathnames) throws IOException {
+		List<String> commandLines = new ArrayList<>(fromPathnames.size() * 2);
+		for (int i = 0; i < fromPathnames.size(); i++) {
+			String from = GlobalPathUtil.normalizePath(fromPathnames.get(i));
+			String to   = GlobalPathUtil.normalizePath(toPathnames.get(i));
+			commandLines.add(RENAME_FROM.getCommand() + " " + from + "\r\n");
+			commandLines.add(RENAME_TO.getCommand() + " " + to + "\r\n");
+		}
+		return pipeline(commandLines);
+	}
+
+	/**
+	 * 以流水线方式查询服务器的系统类型和支持的特性
+	 *
+	 * @return SYST和FEAT的响应，依次排列
+	 *
+	 * @throws IOException 如果发生I/O错误
+	 * @see <a href="https://tools.ietf.org/html/rfc2389">RFC 2389</a>
+	 */
+	List<Response> systemFeatures() throws IOException {
+		return pipeline(List.of(SYSTEM.getCommand() + "\r\n", FEATURES.getCommand() + "\r\n"));
+	}
+
+	/**
+	 * 以流水线方式发送登录后的会话设置命令
+	 *
+	 * <p>这些命令互不依赖，一次写出后只需等待一次往返。</p>
+	 *
+	 * @param utf8 是否发送 {@code OPTS UTF8 ON}
+	 * @param tc   表示类型
+	 *
+	 * @return 依次为OPTS（仅当utf8为true时）、PWD和TYPE的响应
+	 *
+	 * @throws IOException 如果发生I/O错误
+	 * @see <a href="https://tools.ietf.org/html/rfc959">RFC 959</a>
+	 */
+	List<Response> sessionSetup(boolean utf8, TypeCode tc) throws IOException {
+		List<String> commandLines = new ArrayList<>(3);
+		if (utf8) {
+			commandLines.add(OPTIONS.getCommand() + " UTF8 ON\r\n");
+		}
+		commandLines.add(PRINT_WORKING_DIRECTORY.getCommand() + "\r\n");
+		commandLines.add(REPRESENTATION_TYPE.getCommand() + " " + tc.getCode() + "\r\n");
+		return pipeline(commandLines);
+	}
+
 	/**
 	 * 删除
 	 *
@@ -372,6 +877,20 @@ public class FtpCommands {
 		return sendCommand(DELETE, filepath);
 	}
 
+	/**
+	 * 以流水线方式删除多个文件
+	 *
+	 * @param filepaths 要删除的文件的路径
+	 *
+	 * @return 与路径顺序一致的响应
+	 *
+	 * @throws IOException 如果发生I/O错误
+	 * @see <a href="https://tools.ietf.org/html/rfc959">RFC 959</a>
+	 */
+	List<Response> delete(List<String> filepaths) throws IOException {
+		return pipeline(DELETE, filepaths.stream().map(GlobalPathUtil::normalizePath).collect(Collectors.toList()));
+	}
+
 	/**
 	 * 创建目录
 	 *
@@ -387,6 +906,23 @@ public class FtpCommands {
 		return sendCommand(MAKE_DIRECTORY, pathname);
 	}
 
+	/**
+	 * 以流水线方式创建多个目录
+	 *
+	 * <p>服务器按顺序执行这些命令，父目录排在子目录之前即可在同一批中创建。</p>
+	 *
+	 * @param pathnames 要创建的目录的路径
+	 *
+	 * @return 与路径顺序一致的响应
+	 *
+	 * @throws IOException 如果发生I/O错误
+	 * @see <a href="https://tools.ietf.org/html/rfc959">RFC 959</a>
+	 */
+	List<Response> makeDirectory(List<String> pathnames) throws IOException {
+		return pipeline(MAKE_DIRECTORY,
+		                pathnames.stream().map(GlobalPathUtil::normalizePath).collect(Collectors.toList()));
+	}
+
 	/**
 	 * 删除目录
 	 *
@@ -402,6 +938,21 @@ public class FtpCommands {
 		return sendCommand(REMOVE_DIRECTORY, pathname);
 	}
 
+	/**
+	 * 以流水线方式删除多个目录
+	 *
+	 * @param pathnames 要删除的目录的路径，应当已为空
+	 *
+	 * @return 与路径顺序一致的响应
+	 *
+	 * @throws IOException 如果发生I/O错误
+	 * @see <a href="https://tools.ietf.org/html/rfc959">RFC 959</a>
+	 */
+	List<Response> removeDirectory(List<String> pathnames) throws IOException {
+		return pipeline(REMOVE_DIRECTORY,
+		                pathnames.stream().map(GlobalPathUtil::normalizePath).collect(Collectors.toList()));
+	}
+
 	/**
 	 * 关闭与FTP服务器的通信渠道
 	 */
@@ -0,0 +1,171 @@
+package cn.jsou.ftpclient.ftp;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 建立已登录、已初始化的FTP会话，并可以在后台提前建立会话
+ *
+ * <p>SYST和FEAT的结果在工厂内缓存，第一个会话查询之后，新会话直接使用缓存，登录后的设置命令以流水线方式发送，
+ * 建立一个会话只需连接、问候、USER、PASS和一次设置往返。{@link #prefetch(int)} 在后台并行建立会话，
+ * 之后的 {@link #open()} 优先取用这些会话，尚未建立完成时等待它而不是另建连接。</p>
+ */
+public class FtpConnectionFactory implements AutoCloseable {
+	private static final Logger                   logger     = LogManager.getLogger(FtpConnectionFactory.class);
+	/**
+	 * 提前建立中或已建立的会话
+	 */
+	private final        Queue<Future<FtpClient>> prefetched = new ConcurrentLinkedQueue<>();
+	/**
+	 * 在后台建立会话的线程池
+	 */
+	private final        ExecutorService          executor;
+	/**
+	 * FTP服务器的地址
+	 */
+	private final        String                   server;
+	/**
+	 * FTP服务器的端口号
+	 */
+	private final        String                   port;
+	/**
+	 * 登录用户名
+	 */
+	private final        String                   username;
+	/**
+	 * 登录密码
+	 */
+	private final        String                   password;
+	/**
+	 * 第一个会话查询到的服务器信息，尚未查询或已失效时为null
+	 */
+	private volatile     ServerInfo               capabilities;
+
+	/**
+	 * 构造函数
+	 *
+	 * @param server   FTP服务器的地址
+	 * @param port     FTP服务器的端口号
+	 * @param username 登录用户名
+	 * @param password 登录密码
+	 */
+	public FtpConnectionFactory(String server, String port, String username, String password) {
+		this.server   = server;
+		this.port     = port;
+		this.username = username;
+		this.password = password;
+		this.executor = Executors.newCachedThreadPool(runnable -> {
+			Thread thread = new Thread(runnable, "ftp-prefetch");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * 在后台并行建立若干会话，供之后的 {@link #open()} 使用
+	 *
+	 * @param count 要提前建立的会话数
+	 */
+	public void prefetch(int count) {
+		for (int i = 0; i < count; i++) {
+			prefetched.add(executor.submit(this::connect));
+		}
+	}
+
+	/**
+	 * 取得一个已登录并初始化的会话
+	 *
+	 * <p>有提前建立的会话时优先使用，其中建立失败或连接已断开的会被丢弃；没有时在当前线程中建立新会话。</p>
+	 *
+	 * @return 可以直接用于传输的FTP客户端，不会列出工作目录
+	 *
+	 * @throws IOException 如果无法建立或登录会话
+	 */
+	public FtpClient open() throws IOException {
+		Future<FtpClient> future;
+		while ((future = prefetched.poll()) != null) {
+			try {
+				FtpClient client = future.get();
+				if (client.isConnected()) {
+					return client;
+				}
+				client.close();
+			} catch (ExecutionException e) {
+				logger.warn("Discarding prefetched session to {}:{}: {}", server, port, e.getCause().getMessage());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while waiting for a prefetched session");
+			}
+		}
+		return connect();
+	}
+
+	/**
+	 * 建立一个新会话，使用或填充服务器信息的缓存
+	 *
+	 * @return 新的FTP客户端
+	 *
+	 * @throws IOException 如果连接或登录失败
+	 */
+	private FtpClient connect() throws IOException {
+		long      start  = System.currentTimeMillis();
+		String    key    = server + ':' + port;
+		FtpClient client = new FtpClient(server, port);
+		try {
+			if (!client.login(username, password)) {
+				throw new IOException("Failed to login to " + key + " as " + username);
+			}
+			ServerInfo cached = capabilities;
+			client.init(cached, false);
+			// FEAT失败时得到的空结果不缓存，下一个会话重新查询
+			if (cached == null && !client.serverInfo.isEmpty()) {
+				ServerInfo snapshot = new ServerInfo();
+				snapshot.copyFrom(client.serverInfo);
+				capabilities = snapshot;
+			}
+		} catch (IOException e) {
+			client.close();
+			throw e;
+		}
+		logger.info("Opened session to {} in {} ms", key, System.currentTimeMillis() - start);
+		return client;
+	}
+
+	/**
+	 * 丢弃缓存的服务器信息，之后建立的会话重新查询
+	 *
+	 * <p>会话断开后重新连接时调用：服务器可能已经重启或升级，原来的特性不一定仍然成立。</p>
+	 */
+	public void invalidateCapabilities() {
+		capabilities = null;
+	}
+
+	/**
+	 * 关闭尚未取用的提前建立的会话，并停止后台线程
+	 */
+	@Override public void close() {
+		Future<FtpClient> future;
+		while ((future = prefetched.poll()) != null) {
+			try {
+				FtpClient client = future.get();
+				client.logout();
+				client.close();
+			} catch (ExecutionException e) {
+				// 建立失败的会话无需关闭
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			}
+		}
+		executor.shutdown();
+	}
+}
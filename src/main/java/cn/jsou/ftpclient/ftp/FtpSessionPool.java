@@ -0,0 +1,249 @@
+package cn.jsou.ftpclient.ftp;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * FTP会话池，为并行传输维护多个已登录的FTP客户端
+ *
+ * <p>每个会话拥有独立的控制连接和数据服务器，同一时刻只能由一个线程使用。会话在第一次借出时按需创建，
+ * 总数不超过池的容量；容量已满时，借用方会阻塞直到有会话被归还。空闲较久的会话在借出前先检查控制连接，
+ * 连接已断开时重新连接并恢复会话状态，无法恢复的会话被丢弃并由新会话代替，长时间运行的批量任务因此不会因空闲超时而中断。</p>
+ */
+public class FtpSessionPool {
+	private static final Logger                   logger               = LogManager.getLogger(FtpSessionPool.class);
+	/**
+	 * 借出前空闲超过该时间的会话先用NOOP检查连接（毫秒）
+	 */
+	private static final long                     VALIDATION_IDLE_TIME = 10_000;
+	/**
+	 * 检查连接时等待NOOP响应的最长时间（毫秒）
+	 */
+	private static final long                     REPLY_TIMEOUT        = 10_000;
+	/**
+	 * 空闲的会话
+	 */
+	private final        BlockingQueue<FtpClient> idle                 = new LinkedBlockingQueue<>();
+	/**
+	 * 已创建的所有会话，用于关闭池
+	 */
+	private final        List<FtpClient>          sessions             = new ArrayList<>();
+	/**
+	 * 建立新会话的工厂
+	 */
+	private final        FtpConnectionFactory     factory;
+	/**
+	 * FTP服务器的地址
+	 */
+	private final        String                   server;
+	/**
+	 * FTP服务器的端口号
+	 */
+	private final        String                   port;
+	/**
+	 * 登录密码
+	 */
+	private final        String                   password;
+	/**
+	 * 池的容量，即最多同时存在的会话数
+	 */
+	private final        int                      capacity;
+	/**
+	 * 已创建或正在创建的会话数
+	 */
+	private              int                      reserved;
+
+	/**
+	 * 构造函数
+	 *
+	 * @param server   FTP服务器的地址
+	 * @param port     FTP服务器的端口号
+	 * @param username 登录用户名
+	 * @param password 登录密码
+	 * @param capacity 最多同时存在的会话数
+	 */
+	public FtpSessionPool(String server, String port, String username, String password, int capacity) {
+		this.server   = server;
+		this.port     = port;
+		this.password = password;
+		this.capacity = Math.max(1, capacity);
+		this.factory  = new FtpConnectionFactory(server, port, username, password);
+	}
+
+	/**
+	 * 在后台提前建立会话，使随后借用的工作线程不必等待连接和登录
+	 *
+	 * <p>提前建立的会话数不超过池中尚未创建的容量。</p>
+	 *
+	 * @param count 预计马上需要的会话数
+	 */
+	public void warmUp(int count) {
+		int missing;
+		synchronized (sessions) {
+			missing = Math.min(count - idle.size(), capacity - reserved);
+		}
+		if (missing > 0) {
+			factory.prefetch(missing);
+		}
+	}
+
+	/**
+	 * 借出一个会话，必要时创建新会话
+	 *
+	 * @return 已登录并初始化的FTP客户端
+	 *
+	 * @throws IOException          如果无法建立或登录新会话
+	 * @throws InterruptedException 如果线程在等待空闲会话时被中断
+	 */
+	public FtpClient borrow() throws IOException, InterruptedException {
+		while (true) {
+			FtpClient client = idle.poll();
+			if (client == null) {
+				client = createOrWait();
+				if (client == null) {
+					continue;
+				}
+			}
+			if (validate(client)) {
+				return client;
+			}
+			discard(client);
+		}
+	}
+
+	/**
+	 * 容量未满时创建新会话，否则等待有会话被归还
+	 *
+	 * @return 新创建或被归还的会话；等待期间容量被释放时返回null，由调用者重新尝试
+	 *
+	 * @throws IOException          如果无法建立或登录新会话
+	 * @throws InterruptedException 如果线程在等待空闲会话时被中断
+	 */
+	private FtpClient createOrWait() throws IOException, InterruptedException {
+		FtpClient client;
+		boolean   create = false;
+		synchronized (sessions) {
+			if (reserved < capacity) {
+				reserved++;
+				create = true;
+			}
+		}
+		if (!create) {
+			// 丢弃会话会释放容量，因此不能无限期等待归还
+			return idle.poll(VALIDATION_IDLE_TIME, TimeUnit.MILLISECONDS);
+		}
+		// 在锁外建立连接，使多个工作线程可以同时打开各自的会话
+		try {
+			client = openSession();
+		} catch (IOException e) {
+			synchronized (sessions) {
+				reserved--;
+			}
+			throw e;
+		}
+		synchronized (sessions) {
+			sessions.add(client);
+		}
+		return client;
+	}
+
+	/**
+	 * 检查会话的控制连接，已断开时重新连接
+	 *
+	 * @param client 要检查的会话
+	 *
+	 * @return 如果会话可用，返回true；否则返回false
+	 */
+	private boolean validate(FtpClient client) {
+		if (client.isConnected() && client.keepAlive(VALIDATION_IDLE_TIME, REPLY_TIMEOUT)) {
+			return true;
+		}
+		logger.warn("Pooled session to {}:{} lost its control connection, reconnecting", server, port);
+		factory.invalidateCapabilities();
+		return client.reconnect(password);
+	}
+
+	/**
+	 * 关闭无法恢复的会话，并释放其占用的容量
+	 *
+	 * @param client 要丢弃的会话
+	 */
+	private void discard(FtpClient client) {
+		client.close();
+		synchronized (sessions) {
+			sessions.remove(client);
+			reserved--;
+		}
+	}
+
+	/**
+	 * 恢复借出后控制连接断开的会话，使其可以继续使用
+	 *
+	 * @param client 借出的会话
+	 *
+	 * @return 如果连接可用或已重新连接，返回true；否则返回false
+	 */
+	public boolean restore(FtpClient client) {
+		if (client.isConnected()) {
+			return true;
+		}
+		factory.invalidateCapabilities();
+		return client.reconnect(password);
+	}
+
+	/**
+	 * 归还借出的会话
+	 *
+	 * @param client 要归还的FTP客户端
+	 */
+	public void release(FtpClient client) {
+		if (client != null) {
+			idle.offer(client);
+		}
+	}
+
+	/**
+	 * 获取池的容量
+	 *
+	 * @return 最多同时存在的会话数
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * 通过工厂取得一个已登录并初始化的新会话，可能是提前建立的
+	 *
+	 * @return 新的FTP客户端
+	 *
+	 * @throws IOException 如果连接或登录失败
+	 */
+	private FtpClient openSession() throws IOException {
+		FtpClient client = factory.open();
+		logger.info("Opened pooled session to {}:{}", server, port);
+		return client;
+	}
+
+	/**
+	 * 登出并关闭池中的所有会话
+	 */
+	public void close() {
+		synchronized (sessions) {
+			for (FtpClient client : sessions) {
+				client.logout();
+				client.close();
+			}
+			sessions.clear();
+			idle.clear();
+			reserved = 0;
+		}
+		factory.close();
+	}
+}
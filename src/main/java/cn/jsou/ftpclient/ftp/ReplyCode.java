@@ -87,6 +87,14 @@ public enum ReplyCode {
 	 * 请求的文件操作正常，已完成
 	 */
 	REQUESTED_FILE_ACTION_OKAY(250, "Requested file action okay, completed."),
+	/**
+	 * 文件摘要
+	 *
+	 * <p>MD5命令的成功回复，文本为文件路径名和十六进制摘要。</p>
+	 *
+	 * @see <a href="https://tools.ietf.org/html/draft-twine-ftpmd5-00">draft-twine-ftpmd5</a>
+	 */
+	FILE_DIGEST(251, "File digest."),
 	/**
 	 * “PATHNAME”已创建
 	 */
@@ -53,4 +53,15 @@ public class Response {
 		        replyType == ReplyType.POSITIVE_PRELIMINARY ||
 		        replyType == ReplyType.POSITIVE_COMPLETION);
 	}
+
+	/**
+	 * 判断是否为正面完成回复（2yz）
+	 *
+	 * <p>数据传输类命令在返回1yz预备回复后，只有在随后的2yz完成回复中才表示传输真正成功。</p>
+	 *
+	 * @return 是否为正面完成回复
+	 */
+	public boolean isPositiveCompletion() {
+		return ReplyType.getReplyType(replyCode) == ReplyType.POSITIVE_COMPLETION;
+	}
 }
@@ -30,6 +30,26 @@ public class ServerInfo {
 		this.sysInfo = sysInfo;
 	}
 
+	/**
+	 * 用另一个服务器信息的内容替换当前内容
+	 *
+	 * @param other 要复制的服务器信息
+	 */
+	public void copyFrom(ServerInfo other) {
+		features.clear();
+		features.addAll(other.features);
+		sysInfo = other.sysInfo;
+	}
+
+	/**
+	 * 判断是否没有任何特性，例如FEAT失败或服务器不支持FEAT
+	 *
+	 * @return 如果特性集合为空，返回true；否则返回false
+	 */
+	public boolean isEmpty() {
+		return features.isEmpty();
+	}
+
 	/**
 	 * 向特性集合中添加一个新特性
 	 *
@@ -49,4 +69,35 @@ public class ServerInfo {
 	public boolean hasFeature(String feature) {
 		return features.contains(feature);
 	}
+
+	/**
+	 * 根据特性名称查找服务器公布的完整特性行
+	 *
+	 * <p>FEAT回复中的特性行可能带有参数，例如 {@code MLST size*;modify*;type*;}，此方法只比较第一个词（不区分大小写）。</p>
+	 *
+	 * @param name 特性名称，例如 {@code MLST}
+	 *
+	 * @return 完整的特性行；服务器未公布该特性时返回null
+	 */
+	public String getFeature(String name) {
+		for (String feature : features) {
+			int    space = feature.indexOf(' ');
+			String head  = space == -1 ? feature : feature.substring(0, space);
+			if (head.equalsIgnoreCase(name)) {
+				return feature;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * 判断服务器是否支持MLSD命令
+	 *
+	 * <p>RFC 3659规定，FEAT回复中公布MLST特性即表示同时支持MLST和MLSD命令。</p>
+	 *
+	 * @return 如果服务器支持MLSD，返回true；否则返回false
+	 */
+	public boolean supportsMachineList() {
+		return hasFeature("MLSD") || getFeature("MLST") != null;
+	}
 }
@@ -0,0 +1,240 @@
+package cn.jsou.ftpclient.ftp;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 会话监督器，保持一个FTP客户端的控制连接存活，并在连接断开后透明地重新连接
+ *
+ * <p>后台线程定期检查控制连接，空闲达到保活间隔时发送NOOP，NOOP超时或失败即视为连接已断开，立即重新连接并恢复会话状态，
+ * 不必等到下一次操作失败。通过 {@link #execute(Operation)} 执行的幂等操作在连接断开时会重新连接后重试，
+ * 长时间运行的批量任务因此可以度过短暂的网络故障。</p>
+ */
+public class SessionSupervisor implements AutoCloseable {
+	private static final Logger                   logger            = LogManager.getLogger(SessionSupervisor.class);
+	/**
+	 * 被监督的FTP客户端
+	 */
+	private final        FtpClient                client;
+	/**
+	 * 重新登录使用的密码
+	 */
+	private final        String                   password;
+	/**
+	 * 执行保活检查的后台线程
+	 */
+	private              ScheduledExecutorService scheduler;
+	/**
+	 * 控制连接空闲多久后发送NOOP（毫秒）
+	 */
+	private              long                     keepAliveInterval = 60_000;
+	/**
+	 * 等待NOOP响应的最长时间（毫秒）
+	 */
+	private              long                     replyTimeout      = 10_000;
+	/**
+	 * 幂等操作因连接断开而失败后的最多重试次数
+	 */
+	private              int                      maxRetries        = 3;
+	/**
+	 * 第一次重试前的等待时间（毫秒），之后每次重试按次数递增
+	 */
+	private              long                     retryDelay        = 2000;
+
+	/**
+	 * 构造函数
+	 *
+	 * @param client   已登录的FTP客户端
+	 * @param password 登录密码，用于重新连接后再次登录
+	 */
+	public SessionSupervisor(FtpClient client, String password) {
+		this.client   = client;
+		this.password = password;
+	}
+
+	/**
+	 * 设置控制连接空闲多久后发送NOOP
+	 *
+	 * <p>应小于服务器的空闲超时（常见为300秒），防火墙和NAT的连接跟踪超时可能更短。</p>
+	 *
+	 * @param keepAliveInterval 空闲时间（毫秒）
+	 */
+	public void setKeepAliveInterval(long keepAliveInterval) {
+		this.keepAliveInterval = Math.max(1000, keepAliveInterval);
+	}
+
+	/**
+	 * 设置等待NOOP响应的最长时间
+	 *
+	 * @param replyTimeout 最长等待时间（毫秒）
+	 */
+	public void setReplyTimeout(long replyTimeout) {
+		this.replyTimeout = Math.max(1, replyTimeout);
+	}
+
+	/**
+	 * 设置幂等操作因连接断开而失败后的最多重试次数
+	 *
+	 * @param maxRetries 重试次数
+	 */
+	public void setMaxRetries(int maxRetries) {
+		this.maxRetries = Math.max(0, maxRetries);
+	}
+
+	/**
+	 * 设置第一次重试前的等待时间
+	 *
+	 * @param retryDelay 等待时间（毫秒）
+	 */
+	public void setRetryDelay(long retryDelay) {
+		this.retryDelay = Math.max(0, retryDelay);
+	}
+
+	/**
+	 * 启动后台保活检查
+	 */
+	public synchronized void start() {
+		if (scheduler != null) {
+			return;
+		}
+		scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "ftp-keepalive");
+			thread.setDaemon(true);
+			return thread;
+		});
+		// 检查间隔为保活间隔的一半，使NOOP在空闲时间到达后不久即发出
+		long period = keepAliveInterval / 2;
+		scheduler.scheduleWithFixedDelay(this::check, period, period, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * 执行一个幂等操作，控制连接断开时重新连接并重试
+	 *
+	 * <p>操作执行后控制连接已失效，即视为因连接断开而失败，无论操作本身返回了什么。
+	 * 只应传入重复执行不会产生额外影响的操作，例如列目录、下载或以相同内容覆盖上传。</p>
+	 *
+	 * @param operation 要执行的操作
+	 * @param <T>       操作结果的类型
+	 *
+	 * @return 操作的结果
+	 *
+	 * @throws IOException 如果操作因其他原因失败，或者重试次数用尽后连接仍然断开
+	 */
+	public <T> T execute(Operation<T> operation) throws IOException {
+		IOException failure = null;
+		for (int attempt = 0; attempt <= maxRetries; attempt++) {
+			if (attempt > 0) {
+				pause(retryDelay * attempt);
+				logger.warn("Retrying operation after connection loss (attempt {} of {})", attempt, maxRetries);
+			}
+			if (!ensureConnected()) {
+				failure = new IOException("Failed to reconnect the control connection");
+				continue;
+			}
+			try {
+				T result = operation.run(client);
+				if (client.isConnected()) {
+					return result;
+				}
+				failure = new IOException("Control connection lost during operation");
+			} catch (IOException e) {
+				if (client.isConnected()) {
+					throw e;
+				}
+				failure = e;
+			}
+		}
+		throw failure;
+	}
+
+	/**
+	 * 执行一个非幂等操作，只在执行前确保连接可用，失败时不重试
+	 *
+	 * @param operation 要执行的操作
+	 * @param <T>       操作结果的类型
+	 *
+	 * @return 操作的结果
+	 *
+	 * @throws IOException 如果无法重新连接或操作失败
+	 */
+	public <T> T executeOnce(Operation<T> operation) throws IOException {
+		if (!ensureConnected()) {
+			throw new IOException("Failed to reconnect the control connection");
+		}
+		return operation.run(client);
+	}
+
+	/**
+	 * 后台线程的定期检查：发送保活命令，发现连接断开时重新连接
+	 */
+	private void check() {
+		if (client.isConnected() && client.keepAlive(keepAliveInterval, replyTimeout)) {
+			return;
+		}
+		logger.warn("Control connection lost, reconnecting");
+		ensureConnected();
+	}
+
+	/**
+	 * 确保控制连接可用，必要时重新连接
+	 *
+	 * @return 如果连接可用，返回true；否则返回false
+	 */
+	private synchronized boolean ensureConnected() {
+		if (client.isConnected()) {
+			return true;
+		}
+		return client.reconnect(password);
+	}
+
+	/**
+	 * 在重试之间等待
+	 *
+	 * @param millis 等待时间（毫秒）
+	 *
+	 * @throws InterruptedIOException 如果线程在等待时被中断
+	 */
+	private void pause(long millis) throws InterruptedIOException {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting to retry");
+		}
+	}
+
+	/**
+	 * 停止后台保活检查，不关闭客户端
+	 */
+	@Override public synchronized void close() {
+		if (scheduler != null) {
+			scheduler.shutdownNow();
+			scheduler = null;
+		}
+	}
+
+	/**
+	 * 在被监督的客户端上执行的操作
+	 *
+	 * @param <T> 操作结果的类型
+	 */
+	@FunctionalInterface
+	public interface Operation<T> {
+		/**
+		 * 执行操作
+		 *
+		 * @param client FTP客户端
+		 *
+		 * @return 操作的结果
+		 *
+		 * @throws IOException 如果发生I/O错误
+		 */
+		T run(FtpClient client) throws IOException;
+	}
+}
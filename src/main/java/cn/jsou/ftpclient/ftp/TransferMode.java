@@ -0,0 +1,47 @@
+package cn.jsou.ftpclient.ftp;
+
+/**
+ * FTP传输模式枚举
+ */
+public enum TransferMode {
+	/**
+	 * 流模式，数据作为字节流传输，以关闭数据连接表示结束
+	 */
+	STREAM('S'),
+	/**
+	 * 块模式，数据分块传输，每块带有描述符和长度
+	 */
+	BLOCK('B'),
+	/**
+	 * 压缩模式，使用游程编码压缩重复字节
+	 */
+	COMPRESSED('C'),
+	/**
+	 * 压缩流模式，数据以zlib（deflate）格式压缩后传输
+	 *
+	 * @see <a href="https://tools.ietf.org/html/draft-preston-ftpext-deflate-04">draft-preston-ftpext-deflate</a>
+	 */
+	DEFLATE('Z');
+	/**
+	 * 传输模式代码
+	 */
+	private final char code;
+
+	/**
+	 * 构造函数
+	 *
+	 * @param code 传输模式代码
+	 */
+	TransferMode(char code) {
+		this.code = code;
+	}
+
+	/**
+	 * 获取传输模式代码
+	 *
+	 * @return 传输模式代码
+	 */
+	public char getCode() {
+		return code;
+	}
+}
@@ -0,0 +1,172 @@
+package cn.jsou.ftpclient.ftp.handlers;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * ASCII类型（TYPE A）下载时的输入流，把网络标准的CRLF行结束符转换为LF
+ *
+ * <p>数据按块读入内部缓冲区后原地转换：CRLF中的CR被删除，孤立的CR保留。缓冲区末尾的CR要等到下一块才能确定是否属于CRLF，
+ * 因此暂不输出，放回下一块的开头一起转换。整个过程不按行拆分，也不构造字符串。</p>
+ *
+ * @see <a href="https://tools.ietf.org/html/rfc959#section-3.1.1.1">RFC 959 3.1.1.1</a>
+ */
+public class AsciiInputStream extends FilterInputStream {
+	/**
+	 * 内部缓冲区大小
+	 */
+	private static final int     BUFFER_SIZE = 1 << 13;
+	/**
+	 * 转换后的数据
+	 */
+	private final        byte[]  buffer      = new byte[BUFFER_SIZE];
+	/**
+	 * 缓冲区中下一个待读取字节的位置
+	 */
+	private              int     position;
+	/**
+	 * 缓冲区中转换后数据的长度
+	 */
+	private              int     limit;
+	/**
+	 * 上一块是否以尚未输出的CR结尾
+	 */
+	private              boolean pendingCr;
+
+	/**
+	 * 构造函数
+	 *
+	 * @param in 数据连接上的输入流
+	 */
+	public AsciiInputStream(InputStream in) {
+		super(in);
+	}
+
+	/**
+	 * 读取一个字节
+	 *
+	 * @return 读取的字节，文件结束时返回-1
+	 *
+	 * @throws IOException 如果读取时发生I/O错误
+	 */
+	@Override public int read() throws IOException {
+		if (position == limit && !fill()) {
+			return -1;
+		}
+		return buffer[position++] & 0xFF;
+	}
+
+	/**
+	 * 读取转换后的数据
+	 *
+	 * @param b   缓冲区
+	 * @param off 缓冲区的起始位置
+	 * @param len 最多读取的字节数
+	 *
+	 * @return 读取的字节数，文件结束时返回-1
+	 *
+	 * @throws IOException 如果读取时发生I/O错误
+	 */
+	@Override public int read(byte[] b, int off, int len) throws IOException {
+		if (len == 0) {
+			return 0;
+		}
+		if (position == limit && !fill()) {
+			return -1;
+		}
+		int n = Math.min(len, limit - position);
+		System.arraycopy(buffer, position, b, off, n);
+		position += n;
+		return n;
+	}
+
+	/**
+	 * 跳过转换后的数据
+	 *
+	 * @param n 要跳过的字节数
+	 *
+	 * @return 实际跳过的字节数
+	 *
+	 * @throws IOException 如果读取时发生I/O错误
+	 */
+	@Override public long skip(long n) throws IOException {
+		if (n <= 0 || (position == limit && !fill())) {
+			return 0;
+		}
+		int skipped = (int) Math.min(n, limit - position);
+		position += skipped;
+		return skipped;
+	}
+
+	/**
+	 * 获取无需阻塞即可读取的字节数
+	 *
+	 * @return 缓冲区中剩余的字节数
+	 */
+	@Override public int available() {
+		return limit - position;
+	}
+
+	/**
+	 * 不支持标记
+	 *
+	 * @return false
+	 */
+	@Override public boolean markSupported() {
+		return false;
+	}
+
+	/**
+	 * 读入下一块数据并原地转换，直到得到至少一个字节或到达文件结束
+	 *
+	 * @return 如果缓冲区中有数据，返回true；文件结束时返回false
+	 *
+	 * @throws IOException 如果读取时发生I/O错误
+	 */
+	private boolean fill() throws IOException {
+		do {
+			int start = 0;
+			if (pendingCr) {
+				buffer[start++] = '\r';
+			}
+			int n = in.read(buffer, start, buffer.length - start);
+			if (n < 0) {
+				// 文件以CR结尾，按原样输出
+				position  = 0;
+				limit     = start;
+				pendingCr = false;
+				return limit > 0;
+			}
+			position = 0;
+			limit    = translate(start + n);
+		} while (limit == 0);
+		return true;
+	}
+
+	/**
+	 * 在缓冲区中原地删除CRLF中的CR
+	 *
+	 * @param length 缓冲区中数据的长度
+	 *
+	 * @return 转换后数据的长度，末尾的CR不计入
+	 */
+	private int translate(int length) {
+		pendingCr = false;
+		int w = 0;
+		for (int i = 0; i < length; i++) {
+			byte c = buffer[i];
+			if (c == '\r') {
+				if (i + 1 == length) {
+					pendingCr = true;
+					break;
+				}
+				if (buffer[i + 1] == '\n') {
+					continue;
+				}
+			}
+			buffer[w++] = c;
+		}
+		return w;
+	}
+}
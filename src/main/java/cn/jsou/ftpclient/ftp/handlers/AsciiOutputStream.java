@@ -0,0 +1,113 @@
+package cn.jsou.ftpclient.ftp.handlers;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * ASCII类型（TYPE A）上传时的输出流，把本地的LF行结束符转换为网络标准的CRLF
+ *
+ * <p>孤立的LF前补上CR，已经是CRLF的数据保持不变，因此本地文件无论使用LF还是CRLF都能得到正确的结果。
+ * 转换结果直接写入内部缓冲区，缓冲区将满时整块写出，不按行拆分，也不构造字符串。</p>
+ *
+ * @see <a href="https://tools.ietf.org/html/rfc959#section-3.1.1.1">RFC 959 3.1.1.1</a>
+ */
+public class AsciiOutputStream extends FilterOutputStream {
+	/**
+	 * 内部缓冲区大小，每个输入字节最多产生两个输出字节
+	 */
+	private static final int     BUFFER_SIZE = 1 << 14;
+	/**
+	 * 转换后待写出的数据
+	 */
+	private final        byte[]  buffer      = new byte[BUFFER_SIZE];
+	/**
+	 * 缓冲区中的数据长度
+	 */
+	private              int     count;
+	/**
+	 * 上一个写入的字节是否为CR
+	 */
+	private              boolean lastCr;
+
+	/**
+	 * 构造函数
+	 *
+	 * @param out 数据连接上的输出流
+	 */
+	public AsciiOutputStream(OutputStream out) {
+		super(out);
+	}
+
+	/**
+	 * 写入一个字节
+	 *
+	 * @param b 要写入的字节
+	 *
+	 * @throws IOException 如果写出时发生I/O错误
+	 */
+	@Override public void write(int b) throws IOException {
+		if (count + 2 > buffer.length) {
+			flushBuffer();
+		}
+		append((byte) b);
+	}
+
+	/**
+	 * 写入一段数据，逐字节转换到内部缓冲区
+	 *
+	 * @param b   数据
+	 * @param off 数据的起始位置
+	 * @param len 数据长度
+	 *
+	 * @throws IOException 如果写出时发生I/O错误
+	 */
+	@Override public void write(byte[] b, int off, int len) throws IOException {
+		int end = off + len;
+		while (off < end) {
+			if (count + 2 > buffer.length) {
+				flushBuffer();
+			}
+			// 本轮最多处理的字节数，保证即使全部是LF也不会溢出缓冲区
+			int stop = Math.min(end, off + (buffer.length - count) / 2);
+			for (; off < stop; off++) {
+				append(b[off]);
+			}
+		}
+	}
+
+	/**
+	 * 写出缓冲区中的数据并刷新底层输出流
+	 *
+	 * @throws IOException 如果写出时发生I/O错误
+	 */
+	@Override public void flush() throws IOException {
+		flushBuffer();
+		out.flush();
+	}
+
+	/**
+	 * 把一个字节转换后放入缓冲区
+	 *
+	 * @param c 要写入的字节
+	 */
+	private void append(byte c) {
+		if (c == '\n' && !lastCr) {
+			buffer[count++] = '\r';
+		}
+		buffer[count++] = c;
+		lastCr          = c == '\r';
+	}
+
+	/**
+	 * 把缓冲区中的数据写出到底层输出流
+	 *
+	 * @throws IOException 如果写出时发生I/O错误
+	 */
+	private void flushBuffer() throws IOException {
+		if (count > 0) {
+			out.write(buffer, 0, count);
+			count = 0;
+		}
+	}
+}
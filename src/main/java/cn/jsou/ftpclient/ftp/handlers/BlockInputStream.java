@@ -0,0 +1,129 @@
+package cn.jsou.ftpclient.ftp.handlers;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 块模式（MODE B）的输入流，从带有描述符和长度的块中还原数据
+ *
+ * <p>读到带有EOF描述符的块后返回流结束，但不关闭底层的数据连接，同一连接可以继续用于下一次传输。
+ * 重启标记块不属于文件数据，读取时跳过。</p>
+ *
+ * @see <a href="https://tools.ietf.org/html/rfc959#section-3.4.2">RFC 959 3.4.2</a>
+ */
+public class BlockInputStream extends InputStream {
+	/**
+	 * 描述符：重启标记
+	 */
+	private static final int         DESCRIPTOR_RESTART_MARKER = 16;
+	/**
+	 * 底层数据连接的输入流
+	 */
+	private final        InputStream in;
+	/**
+	 * 当前块中尚未读取的字节数
+	 */
+	private              int         remaining;
+	/**
+	 * 当前块是否带有EOF描述符
+	 */
+	private              boolean     lastBlock;
+	/**
+	 * 是否已经读到文件结束
+	 */
+	private              boolean     eof;
+
+	/**
+	 * 构造函数
+	 *
+	 * @param in 底层数据连接的输入流
+	 */
+	public BlockInputStream(InputStream in) {
+		this.in = in;
+	}
+
+	/**
+	 * 读取一个字节
+	 *
+	 * @return 读取的字节，文件结束时返回-1
+	 *
+	 * @throws IOException 如果读取时发生I/O错误
+	 */
+	@Override public int read() throws IOException {
+		byte[] one = new byte[1];
+		return read(one, 0, 1) == -1 ? -1 : one[0] & 0xFF;
+	}
+
+	/**
+	 * 从当前块中读取数据，当前块读完时读取下一个块头
+	 *
+	 * @param b   缓冲区
+	 * @param off 缓冲区的起始位置
+	 * @param len 最多读取的字节数
+	 *
+	 * @return 读取的字节数，文件结束时返回-1
+	 *
+	 * @throws IOException 如果读取时发生I/O错误
+	 */
+	@Override public int read(byte[] b, int off, int len) throws IOException {
+		if (len == 0) {
+			return 0;
+		}
+		while (remaining == 0) {
+			if (eof || !nextBlock()) {
+				return -1;
+			}
+		}
+		int n = in.read(b, off, Math.min(len, remaining));
+		if (n == -1) {
+			throw new EOFException("Data connection closed inside a block");
+		}
+		remaining -= n;
+		return n;
+	}
+
+	/**
+	 * 读取剩余数据直到文件结束标记，不关闭底层连接
+	 *
+	 * @throws IOException 如果读取时发生I/O错误
+	 */
+	@Override public void close() throws IOException {
+		byte[] discard = new byte[1 << 13];
+		while (read(discard, 0, discard.length) != -1) {
+			// 丢弃未读取的数据，使连接停在下一次传输的开头
+		}
+	}
+
+	/**
+	 * 读取下一个块头
+	 *
+	 * @return 如果还有数据块，返回true；读到文件结束或连接关闭时返回false
+	 *
+	 * @throws IOException 如果读取时发生I/O错误
+	 */
+	private boolean nextBlock() throws IOException {
+		if (lastBlock) {
+			eof = true;
+			return false;
+		}
+		int descriptor = in.read();
+		if (descriptor == -1) {
+			eof = true; // 对方关闭了连接，同样表示文件结束
+			return false;
+		}
+		int high = in.read();
+		int low  = in.read();
+		if (high == -1 || low == -1) {
+			throw new EOFException("Data connection closed inside a block header");
+		}
+		int count = (high << 8) | low;
+		if ((descriptor & DESCRIPTOR_RESTART_MARKER) != 0) {
+			in.skipNBytes(count);
+			count = 0;
+		}
+		remaining = count;
+		lastBlock = (descriptor & BlockOutputStream.DESCRIPTOR_EOF) != 0;
+		return true;
+	}
+}
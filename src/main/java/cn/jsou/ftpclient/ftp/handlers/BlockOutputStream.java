@@ -0,0 +1,128 @@
+package cn.jsou.ftpclient.ftp.handlers;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * 块模式（MODE B）的输出流，把数据封装为带有描述符和长度的块
+ *
+ * <p>每块由1字节描述符、2字节长度（大端序）和数据组成。关闭此流时写出带有EOF描述符的空块表示文件结束，
+ * 但不关闭底层的数据连接，同一连接可以继续用于下一次传输。</p>
+ *
+ * @see <a href="https://tools.ietf.org/html/rfc959#section-3.4.2">RFC 959 3.4.2</a>
+ */
+public class BlockOutputStream extends OutputStream {
+	/**
+	 * 描述符：文件结束
+	 */
+	static final         int          DESCRIPTOR_EOF = 64;
+	/**
+	 * 单块数据的最大长度
+	 */
+	private static final int          MAX_BLOCK      = 0xFFFF;
+	/**
+	 * 块头的长度：1字节描述符和2字节长度
+	 */
+	private static final int          HEADER         = 3;
+	/**
+	 * 底层数据连接的输出流
+	 */
+	private final        OutputStream out;
+	/**
+	 * 待写出的块，块头之后是数据，整块一次写出
+	 */
+	private final        byte[]       buffer         = new byte[HEADER + MAX_BLOCK];
+	/**
+	 * 缓冲区中的数据长度，不含块头
+	 */
+	private              int          count;
+	/**
+	 * 是否已经写出文件结束标记
+	 */
+	private              boolean      closed;
+
+	/**
+	 * 构造函数
+	 *
+	 * @param out 底层数据连接的输出流
+	 */
+	public BlockOutputStream(OutputStream out) {
+		this.out = out;
+	}
+
+	/**
+	 * 写入一个字节
+	 *
+	 * @param b 要写入的字节
+	 *
+	 * @throws IOException 如果写出时发生I/O错误
+	 */
+	@Override public void write(int b) throws IOException {
+		if (count == MAX_BLOCK) {
+			writeBlock(0);
+		}
+		buffer[HEADER + count++] = (byte) b;
+	}
+
+	/**
+	 * 写入一段数据，缓冲区写满时写出一块
+	 *
+	 * @param b   数据
+	 * @param off 数据的起始位置
+	 * @param len 数据长度
+	 *
+	 * @throws IOException 如果写出时发生I/O错误
+	 */
+	@Override public void write(byte[] b, int off, int len) throws IOException {
+		while (len > 0) {
+			if (count == MAX_BLOCK) {
+				writeBlock(0);
+			}
+			int n = Math.min(len, MAX_BLOCK - count);
+			System.arraycopy(b, off, buffer, HEADER + count, n);
+			count += n;
+			off += n;
+			len -= n;
+		}
+	}
+
+	/**
+	 * 刷新底层输出流；缓冲区中不足一块的数据留到块写满或关闭时写出
+	 *
+	 * @throws IOException 如果写出时发生I/O错误
+	 */
+	@Override public void flush() throws IOException {
+		out.flush();
+	}
+
+	/**
+	 * 写出剩余数据和文件结束标记，不关闭底层连接
+	 *
+	 * @throws IOException 如果写出时发生I/O错误
+	 */
+	@Override public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		writeBlock(DESCRIPTOR_EOF);
+		out.flush();
+	}
+
+	/**
+	 * 把缓冲区中的数据连同块头作为一块写出
+	 *
+	 * <p>块头和数据在同一次写操作中发出，小文件的最后一块不会因为Nagle算法等待对方的延迟确认。</p>
+	 *
+	 * @param descriptor 块描述符
+	 *
+	 * @throws IOException 如果写出时发生I/O错误
+	 */
+	private void writeBlock(int descriptor) throws IOException {
+		buffer[0] = (byte) descriptor;
+		buffer[1] = (byte) (count >>> 8);
+		buffer[2] = (byte) count;
+		out.write(buffer, 0, HEADER + count);
+		count = 0;
+	}
+}
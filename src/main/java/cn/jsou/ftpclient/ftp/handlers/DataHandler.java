@@ -0,0 +1,152 @@
+package cn.jsou.ftpclient.ftp.handlers;
+
+import cn.jsou.ftpclient.ftp.TransferMode;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * 数据连接处理器的基类，按当前传输模式包装数据连接的输入输出流
+ *
+ * <p>流模式（MODE S）下直接使用套接字的流；块模式（MODE B）下数据经过 {@link BlockInputStream} 和
+ * {@link BlockOutputStream} 拆分和封装，关闭这两个流不会关闭数据连接；压缩流模式（MODE Z）下数据以zlib格式传输，
+ * 读取时经过 {@link InflaterInputStream} 解压，写入时经过 {@link DeflaterOutputStream} 压缩。
+ * ASCII类型下在此基础上再转换行结束符。子类看到的始终是文件本身的数据。数据连接的关闭由 {@link cn.jsou.ftpclient.ftp.DataServer} 负责，子类不应关闭套接字。</p>
+ */
+public abstract class DataHandler implements ConnectionHandler {
+	/**
+	 * 缓冲区大小
+	 */
+	private static final int          BUFFER_SIZE      = 1 << 16;
+	/**
+	 * 数据连接的传输模式
+	 */
+	private volatile     TransferMode mode             = TransferMode.STREAM;
+	/**
+	 * MODE Z下写入数据时的压缩级别
+	 */
+	private volatile     int          compressionLevel = Deflater.DEFAULT_COMPRESSION;
+	/**
+	 * 是否按ASCII类型（TYPE A）转换行结束符
+	 */
+	private volatile     boolean      ascii;
+
+	/**
+	 * 设置数据连接的传输模式
+	 *
+	 * @param mode             传输模式，支持流模式、块模式和压缩流模式
+	 * @param compressionLevel MODE Z下写入数据时的压缩级别（0-9，或 {@link Deflater#DEFAULT_COMPRESSION}）
+	 */
+	public void setTransferMode(TransferMode mode, int compressionLevel) {
+		this.mode             = mode;
+		this.compressionLevel = compressionLevel;
+	}
+
+	/**
+	 * 设置是否按ASCII类型转换行结束符
+	 *
+	 * <p>ASCII类型下网络上的行结束符为CRLF。下载时转换为本地的行结束符（本地使用CRLF时不转换），上传时把孤立的LF转换为CRLF。</p>
+	 *
+	 * @param ascii 是否转换
+	 */
+	public void setAscii(boolean ascii) {
+		this.ascii = ascii;
+	}
+
+	/**
+	 * 判断是否按ASCII类型转换行结束符
+	 *
+	 * @return 如果转换，返回true；否则返回false
+	 */
+	public boolean isAscii() {
+		return ascii;
+	}
+
+	/**
+	 * 打开数据连接的输入流
+	 *
+	 * @param socket 数据连接的套接字
+	 *
+	 * @return 文件数据的输入流
+	 *
+	 * @throws IOException 如果无法获取套接字的输入流
+	 */
+	protected InputStream openInputStream(Socket socket) throws IOException {
+		InputStream in = decode(socket.getInputStream());
+		return ascii && !"\r\n".equals(System.lineSeparator()) ? new AsciiInputStream(in) : in;
+	}
+
+	/**
+	 * 按传输模式还原数据连接上的数据
+	 *
+	 * @param in 数据连接的输入流
+	 *
+	 * @return 未压缩、未分块数据的输入流
+	 */
+	private InputStream decode(InputStream in) {
+		if (mode == TransferMode.BLOCK) {
+			return new BlockInputStream(in);
+		}
+		if (mode != TransferMode.DEFLATE) {
+			return in;
+		}
+		Inflater inflater = new Inflater();
+		return new InflaterInputStream(in, inflater, BUFFER_SIZE) {
+			@Override public void close() throws IOException {
+				try {
+					super.close();
+				} finally {
+					inflater.end();
+				}
+			}
+		};
+	}
+
+	/**
+	 * 打开数据连接的输出流
+	 *
+	 * <p>压缩和块模式下关闭流会先写出压缩流的结尾或文件结束标记，因此必须在关闭套接字之前关闭该流。</p>
+	 *
+	 * @param socket 数据连接的套接字
+	 *
+	 * @return 接受文件数据的输出流
+	 *
+	 * @throws IOException 如果无法获取套接字的输出流
+	 */
+	protected OutputStream openOutputStream(Socket socket) throws IOException {
+		OutputStream out = encode(socket.getOutputStream());
+		return ascii ? new AsciiOutputStream(out) : out;
+	}
+
+	/**
+	 * 按传输模式封装写入数据连接的数据
+	 *
+	 * @param out 数据连接的输出流
+	 *
+	 * @return 接受未压缩、未分块数据的输出流
+	 */
+	private OutputStream encode(OutputStream out) {
+		if (mode == TransferMode.BLOCK) {
+			return new BlockOutputStream(out);
+		}
+		if (mode != TransferMode.DEFLATE) {
+			return out;
+		}
+		Deflater deflater = new Deflater(compressionLevel);
+		return new DeflaterOutputStream(out, deflater, BUFFER_SIZE) {
+			@Override public void close() throws IOException {
+				try {
+					super.close();
+				} finally {
+					deflater.end();
+				}
+			}
+		};
+	}
+}
@@ -10,13 +10,14 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.net.Socket;
 import java.util.HashMap;
+import java.util.Locale;
 import java.util.Map;
 import java.util.concurrent.CountDownLatch;
 
 /**
- * 实现ConnectionHandler接口，用于处理MLSD命令的连接
+ * 继承DataHandler，用于处理MLSD命令的连接
  */
-public class MLSDHandler implements ConnectionHandler {
+public class MLSDHandler extends DataHandler {
 	private static final Logger            logger = LogManager.getLogger(MLSDHandler.class);
 	/**
 	 * 虚拟文件系统，用于创建文件和目录
@@ -42,7 +43,7 @@ public class MLSDHandler implements ConnectionHandler {
 	 * @param socket 传入连接的套接字。
 	 */
 	@Override public void handleConnection(Socket socket) {
-		try (InputStream inputStream = socket.getInputStream();
+		try (InputStream inputStream = openInputStream(socket);
 		     BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream))) {
 			String line;
 			while ((line = reader.readLine()) != null) {
@@ -54,7 +55,8 @@ public class MLSDHandler implements ConnectionHandler {
 				for (String fact : facts) {
 					int equalsIndex = fact.indexOf('=');
 					if (equalsIndex != -1) {
-						String key   = fact.substring(0, equalsIndex);
+						// RFC 3659规定事实名称不区分大小写
+						String key   = fact.substring(0, equalsIndex).toLowerCase(Locale.ROOT);
 						String value = fact.substring(equalsIndex + 1);
 						factsMap.put(key, value);
 					}
@@ -68,12 +70,7 @@ public class MLSDHandler implements ConnectionHandler {
 		} catch (IOException e) {
 			logger.error("Error handling MLSD data connection", e);
 		} finally {
-			try {
-				socket.close();
-			} catch (IOException e) {
-				logger.error("Error closing data connection socket", e);
-			}
-			latch.countDown(); // 处理完成，计数减1
+			latch.countDown(); // 处理完成，计数减1；数据连接由DataServer关闭或保留
 		}
 	}
 
@@ -5,22 +5,46 @@ import org.apache.logging.log4j.Logger;
 
 import java.io.*;
 import java.net.Socket;
+import java.util.Arrays;
 import java.util.concurrent.CountDownLatch;
 
 /**
- * 实现ConnectionHandler接口，用于处理RETR命令的连接
+ * 继承DataHandler，用于处理RETR命令的连接
  * <p>该类负责从FTP客户端接收文件</p>
  */
-public class RETRHandler implements ConnectionHandler {
-	private static final Logger         logger = LogManager.getLogger(RETRHandler.class);
+public class RETRHandler extends DataHandler {
+	private static final Logger         logger      = LogManager.getLogger(RETRHandler.class);
 	/**
 	 * 用于同步等待处理完成的闭锁
 	 */
-	private final        CountDownLatch latch  = new CountDownLatch(1);
+	private final        CountDownLatch latch       = new CountDownLatch(1);
 	/**
 	 * 需要接收的文件
 	 */
 	private final        java.io.File   file;
+	/**
+	 * 是否将接收到的数据追加到已有文件的末尾（断点续传）
+	 */
+	private final        boolean        append;
+	/**
+	 * 续传前需要校验的尾部窗口大小（字节）
+	 *
+	 * <p>续传时服务器从本地文件长度减去窗口大小的位置开始发送，收到的前 {@code verifyLength} 个字节应与本地文件的尾部一致，
+	 * 一致时才将其后的数据追加到本地文件。</p>
+	 */
+	private final        int            verifyLength;
+	/**
+	 * 尾部校验是否通过
+	 */
+	private volatile     boolean        tailMatched = true;
+	/**
+	 * 随传输计算的摘要，为null时不计算
+	 */
+	private final        TransferDigest digest;
+	/**
+	 * 接收数据的输出流，接收到文件时为null
+	 */
+	private final        OutputStream   sink;
 
 	/**
 	 * 构造函数
@@ -28,33 +52,105 @@ public class RETRHandler implements ConnectionHandler {
 	 * @param file 接收文件时文件的存储位置
 	 */
 	public RETRHandler(java.io.File file) {
-		this.file = file;
+		this(file, false, 0);
+	}
+
+	/**
+	 * 构造函数
+	 *
+	 * @param file         接收文件时文件的存储位置
+	 * @param append       是否追加到已有文件的末尾
+	 * @param verifyLength 追加前需要与本地文件尾部比对的字节数，为0时不校验
+	 */
+	public RETRHandler(java.io.File file, boolean append, int verifyLength) {
+		this(file, append, verifyLength, null);
+	}
+
+	/**
+	 * 构造函数
+	 *
+	 * @param file         接收文件时文件的存储位置
+	 * @param append       是否追加到已有文件的末尾
+	 * @param verifyLength 追加前需要与本地文件尾部比对的字节数，为0时不校验
+	 * @param digest       随传输计算的摘要，为null时不计算
+	 */
+	public RETRHandler(java.io.File file, boolean append, int verifyLength, TransferDigest digest) {
+		this.file         = file;
+		this.append       = append;
+		this.verifyLength = append ? verifyLength : 0;
+		this.digest       = digest;
+		this.sink         = null;
 	}
 
 	/**
-	 * 处理传入的连接，从中读取数据并写入指定的文件中
+	 * 构造函数
+	 *
+	 * @param sink   接收数据的输出流，接收结束后关闭
+	 * @param digest 随传输计算的摘要，为null时不计算
+	 */
+	public RETRHandler(OutputStream sink, TransferDigest digest) {
+		this.file         = null;
+		this.append       = false;
+		this.verifyLength = 0;
+		this.digest       = digest;
+		this.sink         = sink;
+	}
+
+	/**
+	 * 处理传入的连接，从中读取数据并写入指定的文件或输出流中
 	 *
 	 * @param socket 传入连接的套接字。
 	 */
 	@Override public void handleConnection(Socket socket) {
-		try (InputStream inputStream = socket.getInputStream();
-		     BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream));
-		     FileOutputStream fos = new FileOutputStream(file, false)) {
-			byte[] buffer = new byte[1 << 11]; // 创建一个缓冲区
-			int    length;
-			while ((length = inputStream.read(buffer)) > 0) {
-				fos.write(buffer, 0, length); // 将缓冲区的数据写入输出流
+		try (InputStream inputStream = openInputStream(socket)) {
+			if (verifyLength > 0 && !verifyTail(inputStream)) {
+				tailMatched = false;
+				logger.warn("Local tail of {} does not match remote data, resume aborted", file);
+				return;
+			}
+			try (OutputStream fos = sink != null ? sink : new FileOutputStream(file, append)) {
+				byte[] buffer = new byte[1 << 11]; // 创建一个缓冲区
+				int    length;
+				while ((length = inputStream.read(buffer)) > 0) {
+					fos.write(buffer, 0, length); // 将缓冲区的数据写入输出流
+					if (digest != null) {
+						digest.update(buffer, 0, length);
+					}
+				}
 			}
 		} catch (IOException e) {
-			logger.error("Error handling STOR data connection", e);
+			logger.error("Error handling RETR data connection", e);
 		} finally {
-			try {
-				socket.close();
-			} catch (IOException e) {
-				logger.error("Error closing data connection socket", e);
-			}
-			latch.countDown(); // 处理完成，计数减1
+			latch.countDown(); // 处理完成，计数减1；数据连接由DataServer关闭或保留
+		}
+	}
+
+	/**
+	 * 比对数据连接中的前 {@code verifyLength} 个字节与本地文件的尾部
+	 *
+	 * @param inputStream 数据连接的输入流
+	 *
+	 * @return 如果完全一致返回true，否则返回false
+	 *
+	 * @throws IOException 如果读取本地文件或数据连接时发生I/O错误
+	 */
+	private boolean verifyTail(InputStream inputStream) throws IOException {
+		byte[] local = new byte[verifyLength];
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+			raf.seek(raf.length() - verifyLength);
+			raf.readFully(local);
 		}
+		byte[] remote = inputStream.readNBytes(verifyLength);
+		return Arrays.equals(local, remote);
+	}
+
+	/**
+	 * 判断续传前的尾部校验是否通过
+	 *
+	 * @return 未启用校验或校验通过时返回true，否则返回false
+	 */
+	public boolean isTailMatched() {
+		return tailMatched;
 	}
 
 	/**
@@ -8,10 +8,10 @@ import java.net.Socket;
 import java.util.concurrent.CountDownLatch;
 
 /**
- * 实现ConnectionHandler接口，用于处理STOR命令的连接
+ * 继承DataHandler，用于处理STOR命令的连接
  * <p>该类负责将文件发送到FTP客户端</p>
  */
-public class STORHandler implements ConnectionHandler {
+public class STORHandler extends DataHandler {
 	private static final Logger         logger = LogManager.getLogger(STORHandler.class);
 	/**
 	 * 用于同步等待处理完成的闭锁
@@ -21,6 +21,18 @@ public class STORHandler implements ConnectionHandler {
 	 * 需要发送的文件
 	 */
 	private final        java.io.File   file;
+	/**
+	 * 开始发送的字节偏移量，用于断点续传
+	 */
+	private final        long           offset;
+	/**
+	 * 随传输计算的摘要，为null时不计算
+	 */
+	private final        TransferDigest digest;
+	/**
+	 * 需要发送的数据流，发送文件时为null
+	 */
+	private final        InputStream    source;
 
 	/**
 	 * 构造函数
@@ -28,34 +40,87 @@ public class STORHandler implements ConnectionHandler {
 	 * @param file 发送文件时文件的位置
 	 */
 	public STORHandler(java.io.File file) {
-		this.file = file;
+		this(file, 0);
 	}
 
 	/**
-	 * 处理传入的连接，读取指定文件的数据并通过套接字发送
+	 * 构造函数
+	 *
+	 * @param file   发送文件时文件的位置
+	 * @param offset 开始发送的字节偏移量，此前的数据已存在于服务器上
+	 */
+	public STORHandler(java.io.File file, long offset) {
+		this(file, offset, null);
+	}
+
+	/**
+	 * 构造函数
+	 *
+	 * @param file   发送文件时文件的位置
+	 * @param offset 开始发送的字节偏移量，此前的数据已存在于服务器上
+	 * @param digest 随传输计算的摘要，为null时不计算
+	 */
+	public STORHandler(java.io.File file, long offset, TransferDigest digest) {
+		this.file   = file;
+		this.offset = offset;
+		this.digest = digest;
+		this.source = null;
+	}
+
+	/**
+	 * 构造函数
+	 *
+	 * @param source 需要发送的数据流，发送结束后关闭
+	 * @param digest 随传输计算的摘要，为null时不计算
+	 */
+	public STORHandler(InputStream source, TransferDigest digest) {
+		this.file   = null;
+		this.offset = 0;
+		this.digest = digest;
+		this.source = source;
+	}
+
+	/**
+	 * 处理传入的连接，读取指定文件或数据流的数据并通过套接字发送
 	 *
 	 * @param socket 传入连接的套接字。
 	 */
 	@Override public void handleConnection(Socket socket) {
-		try (OutputStream outputStream = socket.getOutputStream();
+		try (OutputStream outputStream = openOutputStream(socket);
 		     BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(outputStream));
-		     FileInputStream fis = new FileInputStream(file)) {
+		     InputStream fis = openSource()) {
 			byte[] buffer = new byte[1 << 11]; // 创建一个缓冲区
 			int    length;
 			while ((length = fis.read(buffer)) > 0) {
 				outputStream.write(buffer, 0, length); // 将缓冲区的数据写入输出流
+				if (digest != null) {
+					digest.update(buffer, 0, length);
+				}
 			}
 			outputStream.flush(); // 确保所有数据都被写出
 		} catch (IOException e) {
 			logger.error("Error handling STOR data connection", e);
 		} finally {
-			try {
-				socket.close();
-			} catch (IOException e) {
-				logger.error("Error closing data connection socket", e);
-			}
-			latch.countDown(); // 处理完成，计数减1
+			latch.countDown(); // 处理完成，计数减1；数据连接由DataServer关闭或保留
+		}
+	}
+
+	/**
+	 * 打开需要发送的数据
+	 *
+	 * @return 数据流，或从偏移量处开始读取的文件输入流
+	 *
+	 * @throws IOException 如果无法打开文件
+	 */
+	private InputStream openSource() throws IOException {
+		if (source != null) {
+			return source;
+		}
+		FileInputStream fis = new FileInputStream(file);
+		if (offset > 0) {
+			fis.getChannel().position(offset); // 跳过服务器上已有的部分
 		}
+		return fis;
 	}
 
 	/**
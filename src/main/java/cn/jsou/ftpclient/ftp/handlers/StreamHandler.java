@@ -0,0 +1,140 @@
+package cn.jsou.ftpclient.ftp.handlers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 继承DataHandler，将数据连接的流直接交给调用者读写
+ *
+ * <p>服务器建立数据连接后，处理器打开对应方向的流并交给等待中的调用者，然后一直占用数据服务器的线程，
+ * 直到调用者读写完毕并调用 {@link #release()}，数据连接随后由DataServer关闭。</p>
+ */
+public class StreamHandler extends DataHandler {
+	/**
+	 * 数据连接的流已经可用时释放的闭锁
+	 */
+	private final    CountDownLatch opened = new CountDownLatch(1);
+	/**
+	 * 调用者用完数据连接时释放的闭锁
+	 */
+	private final    CountDownLatch closed = new CountDownLatch(1);
+	/**
+	 * 是否向数据连接写入数据（STOR），否则从数据连接读取数据（RETR）
+	 */
+	private final    boolean        upload;
+	/**
+	 * 从数据连接读取数据的输入流
+	 */
+	private volatile InputStream    inputStream;
+	/**
+	 * 向数据连接写入数据的输出流
+	 */
+	private volatile OutputStream   outputStream;
+	/**
+	 * 打开数据连接的流时发生的异常
+	 */
+	private volatile IOException    failure;
+
+	/**
+	 * 构造函数
+	 *
+	 * @param upload 是否向数据连接写入数据
+	 */
+	public StreamHandler(boolean upload) {
+		this.upload = upload;
+	}
+
+	/**
+	 * 处理传入的连接，打开流后等待调用者用完数据连接
+	 *
+	 * @param socket 传入连接的套接字。
+	 */
+	@Override public void handleConnection(Socket socket) {
+		try {
+			if (upload) {
+				outputStream = openOutputStream(socket);
+			} else {
+				inputStream = openInputStream(socket);
+			}
+		} catch (IOException e) {
+			failure = e;
+			closed.countDown();
+		} finally {
+			opened.countDown();
+		}
+		try {
+			closed.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * 等待服务器建立数据连接，获取读取数据的输入流
+	 *
+	 * @param timeout 最长等待时间（毫秒）
+	 *
+	 * @return 数据连接的输入流
+	 *
+	 * @throws IOException 如果超时、线程被中断或无法打开流
+	 */
+	public InputStream awaitInputStream(long timeout) throws IOException {
+		awaitOpened(timeout);
+		return inputStream;
+	}
+
+	/**
+	 * 等待服务器建立数据连接，获取写入数据的输出流
+	 *
+	 * @param timeout 最长等待时间（毫秒）
+	 *
+	 * @return 数据连接的输出流
+	 *
+	 * @throws IOException 如果超时、线程被中断或无法打开流
+	 */
+	public OutputStream awaitOutputStream(long timeout) throws IOException {
+		awaitOpened(timeout);
+		return outputStream;
+	}
+
+	/**
+	 * 等待数据连接的流可用
+	 *
+	 * @param timeout 最长等待时间（毫秒）
+	 *
+	 * @throws IOException 如果超时、线程被中断或无法打开流
+	 */
+	private void awaitOpened(long timeout) throws IOException {
+		try {
+			if (!opened.await(timeout, TimeUnit.MILLISECONDS)) {
+				throw new IOException("Server did not open the data connection within " + timeout + " ms");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while waiting for the data connection", e);
+		}
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	/**
+	 * 调用者用完数据连接，允许DataServer关闭它
+	 */
+	public void release() {
+		closed.countDown();
+	}
+
+	/**
+	 * 等待调用者用完数据连接
+	 *
+	 * @throws InterruptedException 如果线程在等待时被中断
+	 */
+	@Override public void waitForCompletion() throws InterruptedException {
+		closed.await();
+	}
+}
@@ -0,0 +1,79 @@
+package cn.jsou.ftpclient.ftp.handlers;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * 实现ConnectionHandler接口，用于接收远程文件尾部的一小段数据并与期望的字节比对
+ * <p>上传续传前，通过REST加RETR取回服务器上已有部分的尾部窗口，确认其与本地文件对应位置的内容一致</p>
+ */
+public class TailCompareHandler implements ConnectionHandler {
+	private static final Logger         logger  = LogManager.getLogger(TailCompareHandler.class);
+	/**
+	 * 用于同步等待处理完成的闭锁
+	 */
+	private final        CountDownLatch latch   = new CountDownLatch(1);
+	/**
+	 * 期望收到的字节
+	 */
+	private final        byte[]         expected;
+	/**
+	 * 比对是否通过
+	 */
+	private volatile     boolean        matched = false;
+
+	/**
+	 * 构造函数
+	 *
+	 * @param expected 期望收到的字节
+	 */
+	public TailCompareHandler(byte[] expected) {
+		this.expected = expected;
+	}
+
+	/**
+	 * 处理传入的连接，读取全部数据并与期望的字节比对
+	 *
+	 * @param socket 传入连接的套接字。
+	 */
+	@Override public void handleConnection(Socket socket) {
+		try (InputStream inputStream = socket.getInputStream()) {
+			// 多读一个字节，以便发现远程数据比期望的更长
+			byte[] actual = inputStream.readNBytes(expected.length + 1);
+			matched = Arrays.equals(expected, actual);
+		} catch (IOException e) {
+			logger.error("Error handling RETR data connection", e);
+		} finally {
+			try {
+				socket.close();
+			} catch (IOException e) {
+				logger.error("Error closing data connection socket", e);
+			}
+			latch.countDown(); // 处理完成，计数减1
+		}
+	}
+
+	/**
+	 * 判断收到的数据是否与期望的字节完全一致
+	 *
+	 * @return 一致时返回true，否则返回false
+	 */
+	public boolean isMatched() {
+		return matched;
+	}
+
+	/**
+	 * 等待所有连接的处理完成
+	 *
+	 * @throws InterruptedException 如果线程在等待时被中断
+	 */
+	@Override public void waitForCompletion() throws InterruptedException {
+		latch.await(); // 等待处理完成
+	}
+}
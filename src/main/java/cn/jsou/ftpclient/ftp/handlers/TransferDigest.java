@@ -0,0 +1,128 @@
+package cn.jsou.ftpclient.ftp.handlers;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.zip.CRC32;
+import java.util.zip.CRC32C;
+import java.util.zip.Checksum;
+
+/**
+ * 在数据连接上随传输计算的摘要或校验和
+ *
+ * <p>RETR和STOR处理器在读写缓冲区的同时更新摘要，传输结束后与服务器的HASH、MD5、XMD5或XCRC回复比对，
+ * 无需再次读取文件。支持 {@link MessageDigest} 提供的算法（如SHA-256、SHA-1、MD5）以及CRC32和CRC32C。</p>
+ */
+public class TransferDigest {
+	/**
+	 * 算法名
+	 */
+	private final String        algorithm;
+	/**
+	 * 摘要算法，校验和算法时为null
+	 */
+	private final MessageDigest messageDigest;
+	/**
+	 * 校验和算法，摘要算法时为null
+	 */
+	private final Checksum      checksum;
+	/**
+	 * 十六进制形式的最终摘要，首次获取时计算
+	 */
+	private       String        hex;
+
+	/**
+	 * 构造函数
+	 *
+	 * @param algorithm     算法名
+	 * @param messageDigest 摘要算法
+	 * @param checksum      校验和算法
+	 */
+	private TransferDigest(String algorithm, MessageDigest messageDigest, Checksum checksum) {
+		this.algorithm     = algorithm;
+		this.messageDigest = messageDigest;
+		this.checksum      = checksum;
+	}
+
+	/**
+	 * 根据算法名创建摘要
+	 *
+	 * @param algorithm 算法名，如 {@code SHA-256}、{@code MD5}、{@code CRC32}
+	 *
+	 * @return 摘要；不支持该算法时返回null
+	 */
+	public static TransferDigest of(String algorithm) {
+		String name = algorithm.toUpperCase();
+		if ("CRC32".equals(name)) {
+			return new TransferDigest(name, null, new CRC32());
+		}
+		if ("CRC32C".equals(name)) {
+			return new TransferDigest(name, null, new CRC32C());
+		}
+		try {
+			return new TransferDigest(name, MessageDigest.getInstance(name), null);
+		} catch (NoSuchAlgorithmException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * 使用传输中的一段数据更新摘要
+	 *
+	 * @param buffer 数据缓冲区
+	 * @param offset 数据在缓冲区中的起始位置
+	 * @param length 数据长度
+	 */
+	public void update(byte[] buffer, int offset, int length) {
+		if (messageDigest != null) {
+			messageDigest.update(buffer, offset, length);
+		} else {
+			checksum.update(buffer, offset, length);
+		}
+	}
+
+	/**
+	 * 获取算法名
+	 *
+	 * @return 大写的算法名
+	 */
+	public String getAlgorithm() {
+		return algorithm;
+	}
+
+	/**
+	 * 获取十六进制形式的摘要，获取后不应再更新
+	 *
+	 * @return 小写的十六进制摘要；校验和为8位
+	 */
+	public String toHex() {
+		if (hex == null) {
+			hex = messageDigest != null
+			      ? HexFormat.of().formatHex(messageDigest.digest())
+			      : String.format("%08x", checksum.getValue());
+		}
+		return hex;
+	}
+
+	/**
+	 * 判断服务器回复的摘要是否与本摘要一致
+	 *
+	 * <p>十六进制摘要不区分大小写。部分服务器回复的CRC带有 {@code 0x} 前缀或省略了前导零，
+	 * 校验和去掉前缀并补足为8位后再比较，超过8位或含有非十六进制字符时视为不一致。</p>
+	 *
+	 * @param value 从服务器回复中取出的摘要
+	 *
+	 * @return 如果一致，返回true；否则返回false
+	 */
+	public boolean matches(String value) {
+		String actual = value;
+		if (checksum != null) {
+			actual = actual.replaceFirst("(?i)^0x", "");
+			if (!actual.matches("(?i)[0-9a-f]{1,8}")) {
+				return false;
+			}
+			actual = "0".repeat(8 - actual.length()) + actual;
+		}
+		return actual.equalsIgnoreCase(toHex());
+	}
+}
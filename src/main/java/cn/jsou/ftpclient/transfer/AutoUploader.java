@@ -0,0 +1,578 @@
+package cn.jsou.ftpclient.transfer;
+
+import cn.jsou.ftpclient.ftp.FtpSessionPool;
+import cn.jsou.ftpclient.utils.GlobalPathUtil;
+import cn.jsou.ftpclient.vfs.DirectoryListing;
+import cn.jsou.ftpclient.vfs.File;
+import cn.jsou.ftpclient.vfs.NativeFileSystemProvider;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+/**
+ * 自动上传：监视本地目录，把写入完成的文件上传到服务器上的对应位置
+ *
+ * <p>监视线程用 {@link WatchService} 监视本地目录及其所有子目录，新出现的子目录立即加入监视，
+ * 并通过 {@link NativeFileSystemProvider#list(String)} 列出其中已有的文件。有事件的文件先进入待定集合，
+ * 超过稳定时间没有新事件、且前后两次检查的大小和修改时间相同，才认为写入已经完成。</p>
+ *
+ * <p>调度线程定期把写入完成的文件交给 {@link TransferPlanner} 合并成批，由 {@link ParallelTransfer}
+ * 在会话池的多个会话上并行上传；一轮上传期间到达的文件留到下一轮。失败的文件稍后重试。</p>
+ *
+ * <p>每上传成功一个文件，就在状态文件末尾追加一行记录其大小和修改时间。启动时读取并压缩状态文件，
+ * 已上传且没有变化的文件不再上传；状态文件位于本地目录中时不参与上传。事件丢失时重新扫描整个目录树，
+ * 同样只上传状态文件中没有记录或已经变化的文件。</p>
+ */
+public class AutoUploader {
+	private static final Logger                          logger        = LogManager.getLogger(AutoUploader.class);
+	/**
+	 * 调度线程检查待定文件的间隔（毫秒）
+	 */
+	private static final long                            POLL_INTERVAL = 250;
+	/**
+	 * 上传失败的文件等待多久后重试（毫秒）
+	 */
+	private static final long                            RETRY_DELAY   = 10_000;
+	/**
+	 * 提供工作会话的会话池
+	 */
+	private final        FtpSessionPool                  pool;
+	/**
+	 * 用于列出本地目录
+	 */
+	private final        NativeFileSystemProvider        provider      = new NativeFileSystemProvider();
+	/**
+	 * 被监视的本地根目录
+	 */
+	private final        Path                            localRoot;
+	/**
+	 * 对应的远程根目录的绝对路径
+	 */
+	private final        String                          remoteRoot;
+	/**
+	 * 记录已上传文件的状态文件
+	 */
+	private final        Path                            stateFile;
+	/**
+	 * 有事件、尚未确认写入完成的文件
+	 */
+	private final        ConcurrentMap<Path, Candidate>  pending       = new ConcurrentHashMap<>();
+	/**
+	 * 各监视键对应的本地目录
+	 */
+	private final        ConcurrentMap<WatchKey, Path>   directories   = new ConcurrentHashMap<>();
+	/**
+	 * 已上传的文件，键为相对路径
+	 */
+	private final        ConcurrentMap<String, Record>   uploaded      = new ConcurrentHashMap<>();
+	/**
+	 * 已经创建或确认存在的远程目录，只在调度线程中访问
+	 */
+	private final        Set<String>                     remoteDirs    = new HashSet<>();
+	/**
+	 * 文件写入后需要保持不变的时间（毫秒）
+	 */
+	private              long                            settleTime    = 2_000;
+	/**
+	 * 每轮最多上传的文件数
+	 */
+	private              int                             maxRoundFiles = 4096;
+	/**
+	 * 监视服务
+	 */
+	private              WatchService                    service;
+	/**
+	 * 状态文件的追加写入器
+	 */
+	private              BufferedWriter                  journal;
+	/**
+	 * 监视线程
+	 */
+	private              Thread                          watcher;
+	/**
+	 * 调度线程
+	 */
+	private              Thread                          scheduler;
+	/**
+	 * 是否需要重新扫描整个目录树
+	 */
+	private volatile     boolean                         rescan;
+	/**
+	 * 停止时计数归零，调度线程在两轮之间等待它，不会在上传中途被打断
+	 */
+	private              CountDownLatch                  stopped;
+
+	/**
+	 * 构造函数
+	 *
+	 * @param pool       提供工作会话的会话池
+	 * @param localRoot  被监视的本地根目录
+	 * @param remoteRoot 对应的远程根目录的绝对路径
+	 * @param stateFile  记录已上传文件的状态文件
+	 */
+	public AutoUploader(FtpSessionPool pool, java.io.File localRoot, String remoteRoot, java.io.File stateFile) {
+		this.pool       = pool;
+		this.localRoot  = localRoot.toPath().toAbsolutePath().normalize();
+		this.remoteRoot = GlobalPathUtil.normalizePath(remoteRoot);
+		this.stateFile  = stateFile.toPath().toAbsolutePath().normalize();
+	}
+
+	/**
+	 * 设置文件写入后需要保持不变的时间
+	 *
+	 * @param settleTime 稳定时间（毫秒）
+	 */
+	public void setSettleTime(long settleTime) {
+		this.settleTime = Math.max(0, settleTime);
+	}
+
+	/**
+	 * 设置每轮最多上传的文件数
+	 *
+	 * @param maxRoundFiles 每轮最多上传的文件数
+	 */
+	public void setMaxRoundFiles(int maxRoundFiles) {
+		this.maxRoundFiles = Math.max(1, maxRoundFiles);
+	}
+
+	/**
+	 * 读取状态文件，开始监视本地目录树并启动后台线程
+	 *
+	 * <p>启动前已存在但尚未上传或已经变化的文件同样会被上传。</p>
+	 *
+	 * @throws IOException 如果无法读写状态文件或无法监视本地根目录
+	 */
+	public synchronized void start() throws IOException {
+		loadState();
+		service = localRoot.getFileSystem().newWatchService();
+		register(localRoot);
+		journal = Files.newBufferedWriter(stateFile,
+		                                  StandardCharsets.UTF_8,
+		                                  StandardOpenOption.CREATE,
+		                                  StandardOpenOption.APPEND);
+		stopped   = new CountDownLatch(1);
+		watcher   = new Thread(this::watchLoop, "auto-upload-watcher");
+		scheduler = new Thread(this::scheduleLoop, "auto-upload-scheduler");
+		watcher.start();
+		scheduler.start();
+		logger.info("Watching {} for upload to {}, {} files already uploaded", localRoot, remoteRoot, uploaded.size());
+	}
+
+	/**
+	 * 停止监视，等待正在进行的一轮上传结束后关闭状态文件
+	 *
+	 * <p>尚未上传的待定文件没有记入状态文件，下次启动时重新检查。</p>
+	 */
+	public synchronized void stop() {
+		if (service == null) {
+			return;
+		}
+		try {
+			service.close();
+		} catch (IOException e) {
+			logger.warn("Failed to close watch service: {}", e.getMessage());
+		}
+		stopped.countDown();
+		try {
+			watcher.join();
+			scheduler.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		synchronized (uploaded) {
+			try {
+				journal.close();
+			} catch (IOException e) {
+				logger.error("Failed to close upload state {}", stateFile, e);
+			}
+		}
+		service = null;
+	}
+
+	/**
+	 * 监视线程的主循环，把事件涉及的文件加入待定集合，新目录加入监视
+	 */
+	private void watchLoop() {
+		try {
+			while (true) {
+				WatchKey key = service.take();
+				Path     dir = directories.get(key);
+				for (WatchEvent<?> event : key.pollEvents()) {
+					if (event.kind() == OVERFLOW) {
+						rescan = true;
+						continue;
+					}
+					if (dir == null) {
+						continue;
+					}
+					Path child = dir.resolve((Path) event.context());
+					if (event.kind() == ENTRY_DELETE) {
+						pending.remove(child);
+					} else if (event.kind() == ENTRY_CREATE && Files.isDirectory(child)) {
+						register(child);
+					} else {
+						touch(child, System.currentTimeMillis());
+					}
+				}
+				if (!key.reset()) {
+					directories.remove(key);
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ClosedWatchServiceException e) {
+			logger.debug("Auto upload watcher stopped");
+		}
+	}
+
+	/**
+	 * 调度线程的主循环，定期上传写入完成的文件
+	 */
+	private void scheduleLoop() {
+		try {
+			while (!stopped.await(POLL_INTERVAL, TimeUnit.MILLISECONDS)) {
+				if (rescan) {
+					rescan = false;
+					logger.warn("Watch events were lost, rescanning {}", localRoot);
+					register(localRoot);
+				}
+				Map<TransferTask, Record> ready = collectReady();
+				if (!ready.isEmpty()) {
+					upload(ready);
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ClosedWatchServiceException e) {
+			logger.debug("Auto upload scheduler stopped during rescan");
+		}
+	}
+
+	/**
+	 * 监视目录及其所有子目录，把其中需要上传的文件加入待定集合
+	 *
+	 * <p>先注册监视再列出目录，列出之后写入的文件都会产生事件。已监视的目录再次注册时得到同一个监视键。</p>
+	 *
+	 * @param top 要监视的目录
+	 */
+	private void register(Path top) {
+		Deque<Path> stack = new ArrayDeque<>();
+		stack.push(top);
+		long now = System.currentTimeMillis();
+		while (!stack.isEmpty()) {
+			Path dir = stack.pop();
+			try {
+				directories.put(dir.register(service, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY), dir);
+			} catch (NoSuchFileException e) {
+				continue;
+			} catch (IOException e) {
+				logger.error("Failed to watch {}", dir, e);
+				continue;
+			}
+			DirectoryListing listing = provider.list(dir.toString());
+			for (String name : listing.getDirectories()) {
+				stack.push(dir.resolve(name));
+			}
+			for (File file : listing.getFiles()) {
+				Path   path   = dir.resolve(file.getName());
+				Record record = uploaded.get(relativePathOf(path));
+				if (record == null ||
+				    record.size != file.getSize() ||
+				    record.millis != file.getModifiedMillis()) {
+					touch(path, now);
+				}
+			}
+		}
+	}
+
+	/**
+	 * 记录文件的一次事件，稳定时间从此刻重新计算
+	 *
+	 * @param path 文件
+	 * @param time 事件时间（UTC毫秒时间戳）
+	 */
+	private void touch(Path path, long time) {
+		if (path.equals(stateFile)) {
+			return;
+		}
+		pending.compute(path, (p, candidate) -> {
+			Candidate c = candidate == null ? new Candidate() : candidate;
+			c.lastEvent = time;
+			return c;
+		});
+	}
+
+	/**
+	 * 找出写入已完成的待定文件，从待定集合中移除
+	 *
+	 * <p>超过稳定时间没有事件的文件读取一次属性；与上一次检查的大小和修改时间相同时认为写入完成，
+	 * 否则记下新的属性，等下一次检查。已不存在的文件和与状态文件记录相同的文件直接移除。</p>
+	 *
+	 * @return 写入完成的文件对应的上传任务，及其上传后应记录的状态
+	 */
+	private Map<TransferTask, Record> collectReady() {
+		Map<TransferTask, Record> ready = new HashMap<>();
+		long                      now   = System.currentTimeMillis();
+		for (Iterator<Map.Entry<Path, Candidate>> it = pending.entrySet().iterator(); it.hasNext(); ) {
+			Map.Entry<Path, Candidate> entry     = it.next();
+			Path                       path      = entry.getKey();
+			Candidate                  candidate = entry.getValue();
+			if (now - candidate.lastEvent < settleTime) {
+				continue;
+			}
+			BasicFileAttributes attrs;
+			try {
+				attrs = Files.readAttributes(path, BasicFileAttributes.class);
+			} catch (IOException e) {
+				it.remove();
+				continue;
+			}
+			if (!attrs.isRegularFile()) {
+				it.remove();
+				continue;
+			}
+			long millis = attrs.lastModifiedTime().toMillis();
+			if (attrs.size() != candidate.size || millis != candidate.millis) {
+				candidate.size   = attrs.size();
+				candidate.millis = millis;
+				continue;
+			}
+			it.remove();
+			String relative = relativePathOf(path);
+			Record record   = new Record(attrs.size(), millis);
+			if (!record.equals(uploaded.get(relative))) {
+				ready.put(new TransferTask(TransferTask.Direction.UPLOAD,
+				                           path.toFile(),
+				                           remotePathOf(relative),
+				                           attrs.size()), record);
+				if (ready.size() >= maxRoundFiles) {
+					break;
+				}
+			}
+		}
+		return ready;
+	}
+
+	/**
+	 * 并行上传一轮文件，成功的文件记入状态文件，失败的文件稍后重试
+	 *
+	 * @param ready 上传任务及其上传后应记录的状态
+	 */
+	private void upload(Map<TransferTask, Record> ready) {
+		Set<String> parents = new LinkedHashSet<>();
+		for (TransferTask task : ready.keySet()) {
+			String parent = parentOf(task.getRemotePath());
+			if (!remoteDirs.contains(parent)) {
+				parents.add(parent);
+			}
+		}
+		TransferPlan plan = new TransferPlanner(pool.getCapacity()).schedule(TransferTask.Direction.UPLOAD,
+		                                                                     new ArrayList<>(parents),
+		                                                                     new ArrayList<>(ready.keySet()));
+		ParallelTransfer transfer = new ParallelTransfer(pool);
+		transfer.setListener((client, task, success) -> {
+			if (success) {
+				record(relativePathOf(task.getLocalFile().toPath()), ready.get(task));
+			}
+		});
+		remoteDirs.addAll(parents);
+		List<TransferTask> failures = transfer.execute(plan);
+		long               retryAt  = System.currentTimeMillis() + RETRY_DELAY - settleTime;
+		for (TransferTask task : failures) {
+			// 目标目录可能并未创建成功，下一轮重新创建
+			remoteDirs.remove(parentOf(task.getRemotePath()));
+			touch(task.getLocalFile().toPath(), retryAt);
+		}
+		if (!failures.isEmpty()) {
+			logger.warn("{} of {} files failed to upload, retrying in {} ms", failures.size(), ready.size(), RETRY_DELAY);
+		}
+	}
+
+	/**
+	 * 记录一个上传成功的文件，并追加到状态文件
+	 *
+	 * @param relative 文件的相对路径
+	 * @param record   上传的文件的状态
+	 */
+	private void record(String relative, Record record) {
+		synchronized (uploaded) {
+			uploaded.put(relative, record);
+			try {
+				journal.write(record.size + "\t" + record.millis + "\t" + relative);
+				journal.newLine();
+				journal.flush();
+			} catch (IOException e) {
+				logger.error("Failed to record upload of {}", relative, e);
+			}
+		}
+	}
+
+	/**
+	 * 读取状态文件，只保留本地仍存在的文件的最后一条记录，并重写为压缩后的内容
+	 *
+	 * @throws IOException 如果读写状态文件时出现IO异常
+	 */
+	private void loadState() throws IOException {
+		uploaded.clear();
+		if (!Files.isRegularFile(stateFile)) {
+			Files.createDirectories(stateFile.getParent());
+			return;
+		}
+		Map<String, Record> state = new TreeMap<>();
+		int                 lines = 0;
+		try (BufferedReader reader = Files.newBufferedReader(stateFile, StandardCharsets.UTF_8)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				lines++;
+				// 格式：大小<TAB>修改时间<TAB>相对路径，同一路径以最后一条为准
+				String[] fields = line.split("\t", 3);
+				if (fields.length != 3) {
+					continue;
+				}
+				try {
+					state.put(fields[2], new Record(Long.parseLong(fields[0]), Long.parseLong(fields[1])));
+				} catch (NumberFormatException e) {
+					logger.warn("Ignoring malformed upload state line: {}", line);
+				}
+			}
+		}
+		state.keySet().removeIf(relative -> !Files.exists(localRoot.resolve(relative)));
+		uploaded.putAll(state);
+		if (state.size() == lines) {
+			return;
+		}
+		Path temp = stateFile.resolveSibling(stateFile.getFileName() + ".tmp");
+		try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+			for (Map.Entry<String, Record> e : state.entrySet()) {
+				writer.write(e.getValue().size + "\t" + e.getValue().millis + "\t" + e.getKey());
+				writer.newLine();
+			}
+		}
+		Files.move(temp, stateFile, StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	/**
+	 * 计算本地文件相对于根目录的路径
+	 *
+	 * @param path 本地文件
+	 *
+	 * @return 以 {@code /} 分隔的相对路径
+	 */
+	private String relativePathOf(Path path) {
+		return GlobalPathUtil.toUnixPath(localRoot.relativize(path).toString());
+	}
+
+	/**
+	 * 拼接远程路径
+	 *
+	 * @param relative 相对路径
+	 *
+	 * @return 远程绝对路径
+	 */
+	private String remotePathOf(String relative) {
+		return GlobalPathUtil.normalizePath(remoteRoot + '/' + relative);
+	}
+
+	/**
+	 * 获取远程路径的父目录
+	 *
+	 * @param remotePath 远程绝对路径
+	 *
+	 * @return 父目录的绝对路径
+	 */
+	private static String parentOf(String remotePath) {
+		int slash = remotePath.lastIndexOf('/');
+		return slash <= 0 ? "/" : remotePath.substring(0, slash);
+	}
+
+	/**
+	 * 尚未确认写入完成的文件
+	 */
+	private static class Candidate {
+		/**
+		 * 最近一次事件的时间（UTC毫秒时间戳）
+		 */
+		volatile long lastEvent;
+		/**
+		 * 上一次检查时的大小，尚未检查时为-1
+		 */
+		long          size   = -1;
+		/**
+		 * 上一次检查时的修改时间（UTC毫秒时间戳）
+		 */
+		long          millis = -1;
+	}
+
+	/**
+	 * 已上传的文件在上传时的状态
+	 */
+	private static class Record {
+		/**
+		 * 文件大小（字节）
+		 */
+		final long size;
+		/**
+		 * 修改时间（UTC毫秒时间戳）
+		 */
+		final long millis;
+
+		Record(long size, long millis) {
+			this.size   = size;
+			this.millis = millis;
+		}
+
+		/**
+		 * 判断是否与另一条记录相同
+		 *
+		 * @param o 另一条记录
+		 *
+		 * @return 如果大小和修改时间都相同，返回true；否则返回false
+		 */
+		@Override public boolean equals(Object o) {
+			return o instanceof Record && ((Record) o).size == size && ((Record) o).millis == millis;
+		}
+
+		/**
+		 * 计算哈希值
+		 *
+		 * @return 哈希值
+		 */
+		@Override public int hashCode() {
+			return Long.hashCode(size) * 31 + Long.hashCode(millis);
+		}
+	}
+}
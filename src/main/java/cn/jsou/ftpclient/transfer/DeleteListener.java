@@ -0,0 +1,19 @@
+package cn.jsou.ftpclient.transfer;
+
+/**
+ * 递归删除进度的回调接口
+ *
+ * <p>回调在执行删除的工作线程中执行，多个工作线程可能同时调用回调，实现需要保证线程安全。</p>
+ */
+public interface DeleteListener {
+	/**
+	 * 单个文件或目录处理结束时调用
+	 *
+	 * @param pathname  文件或目录的绝对路径
+	 * @param directory 是否为目录
+	 * @param success   是否删除成功
+	 * @param completed 已处理的文件和目录数
+	 * @param total     需要处理的文件和目录总数
+	 */
+	void deleted(String pathname, boolean directory, boolean success, int completed, int total);
+}
@@ -0,0 +1,425 @@
+package cn.jsou.ftpclient.transfer;
+
+import cn.jsou.ftpclient.ftp.FtpClient;
+import org.apache.commons.io.IOUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 将同一个本地文件同时上传到多个目标服务器
+ *
+ * <p>调用线程只读取一次本地文件，读出的数据块由所有目标共享，每个目标的会话在各自的线程中从有界队列取出数据块并发送。
+ * 队列满时读取线程最多等待停滞超时，仍无法放入的目标被视为落后，不再接收共享的数据块，
+ * 而是在取完队列中已有的数据后自行从磁盘的对应位置继续读取，因此一个缓慢的镜像不会拖慢其他目标。</p>
+ *
+ * <p>每个目标会话只由一个线程使用，目标列表中的会话不能同时用于其他传输。</p>
+ */
+public class FanOutUpload {
+	private static final Logger          logger        = LogManager.getLogger(FanOutUpload.class);
+	/**
+	 * 共享数据块的大小（字节）
+	 */
+	private static final int             CHUNK_SIZE    = 1 << 16;
+	/**
+	 * 目标线程检查是否已落后的间隔（毫秒）
+	 */
+	private static final long            POLL_INTERVAL = 100;
+	/**
+	 * 同时上传的目标数上限，更多的目标在前面的目标完成后开始，从磁盘读取已错过的数据
+	 */
+	private static final int             MAX_THREADS   = 16;
+	/**
+	 * 目标会话
+	 */
+	private final        List<FtpClient> destinations;
+	/**
+	 * 每个目标队列可以容纳的数据块数
+	 */
+	private              int             queueCapacity = 64;
+	/**
+	 * 队列满时读取线程等待单个目标的最长时间（毫秒）
+	 */
+	private              long            stallTimeout  = 2000;
+
+	/**
+	 * 构造函数
+	 *
+	 * @param destinations 目标会话，每个会话对应一个服务器
+	 */
+	public FanOutUpload(List<FtpClient> destinations) {
+		this.destinations = List.copyOf(destinations);
+	}
+
+	/**
+	 * 设置每个目标队列可以容纳的数据块数
+	 *
+	 * <p>每个数据块为64 KiB，队列越长，目标之间短暂的速度差异越不容易导致落后，但占用的内存越多。</p>
+	 *
+	 * @param queueCapacity 数据块数
+	 */
+	public void setQueueCapacity(int queueCapacity) {
+		this.queueCapacity = Math.max(1, queueCapacity);
+	}
+
+	/**
+	 * 设置队列满时读取线程等待单个目标的最长时间
+	 *
+	 * @param stallTimeout 最长等待时间（毫秒）
+	 */
+	public void setStallTimeout(long stallTimeout) {
+		this.stallTimeout = Math.max(0, stallTimeout);
+	}
+
+	/**
+	 * 将一个本地文件上传到所有目标
+	 *
+	 * @param file       要上传的本地文件
+	 * @param remotePath 远程文件的路径，所有目标相同
+	 *
+	 * @return 每个目标的上传结果，按目标的顺序排列
+	 */
+	public Map<FtpClient, Boolean> upload(java.io.File file, String remotePath) {
+		if (destinations.isEmpty()) {
+			logger.warn("No destinations to upload {} to", file);
+			return new LinkedHashMap<>();
+		}
+		ExecutorService executor = newExecutor();
+		try {
+			return upload(executor, file, remotePath);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * 依次将多个本地文件上传到所有目标
+	 *
+	 * @param tasks 上传任务
+	 *
+	 * @return 每个目标上传失败的任务，按目标的顺序排列；某个目标全部成功时对应空列表
+	 */
+	public Map<FtpClient, List<TransferTask>> upload(List<TransferTask> tasks) {
+		Map<FtpClient, List<TransferTask>> failures = new LinkedHashMap<>();
+		if (destinations.isEmpty()) {
+			logger.warn("No destinations to upload {} files to", tasks.size());
+			return failures;
+		}
+		destinations.forEach(client -> failures.put(client, new ArrayList<>()));
+		ExecutorService executor = newExecutor();
+		try {
+			for (TransferTask task : tasks) {
+				upload(executor, task.getLocalFile(), task.getRemotePath()).forEach((client, success) -> {
+					if (!success) {
+						failures.get(client).add(task);
+					}
+				});
+			}
+		} finally {
+			executor.shutdown();
+		}
+		return failures;
+	}
+
+	/**
+	 * 创建执行目标上传的线程池，每个目标一个线程，最多 {@link #MAX_THREADS} 个
+	 *
+	 * @return 线程池
+	 */
+	private ExecutorService newExecutor() {
+		return Executors.newFixedThreadPool(Math.min(destinations.size(), MAX_THREADS));
+	}
+
+	/**
+	 * 使用给定的线程池将一个本地文件上传到所有目标
+	 *
+	 * @param executor   执行目标上传的线程池，线程数少于目标数时后面的目标会落后
+	 * @param file       要上传的本地文件
+	 * @param remotePath 远程文件的路径
+	 *
+	 * @return 每个目标的上传结果
+	 */
+	private Map<FtpClient, Boolean> upload(ExecutorService executor, java.io.File file, String remotePath) {
+		long                    size    = file.length();
+		List<Feed>              feeds   = new ArrayList<>();
+		List<Future<Boolean>>   futures = new ArrayList<>();
+		Map<FtpClient, Boolean> results = new LinkedHashMap<>();
+		for (FtpClient client : destinations) {
+			Feed feed = new Feed(file, queueCapacity);
+			feeds.add(feed);
+			futures.add(executor.submit(() -> {
+				try (feed) {
+					return client.uploadStream(feed, size, remotePath);
+				}
+			}));
+		}
+
+		boolean read = readSource(file, feeds);
+		for (int i = 0; i < destinations.size(); i++) {
+			FtpClient client  = destinations.get(i);
+			boolean   success = false;
+			try {
+				success = futures.get(i).get() && read;
+			} catch (ExecutionException e) {
+				logger.error("Fan-out upload of {} failed on destination {}", file, i, e.getCause());
+			} catch (InterruptedException e) {
+				logger.error("Interrupted while waiting for fan-out upload of {}", file, e);
+				feeds.get(i).close();
+				Thread.currentThread().interrupt();
+			}
+			if (!success) {
+				logger.warn("Failed to upload {} to destination {}", file, i);
+			}
+			results.put(client, success);
+		}
+		return results;
+	}
+
+	/**
+	 * 读取一次本地文件，并将数据块分发给所有目标
+	 *
+	 * @param file  要读取的本地文件
+	 * @param feeds 各目标的数据流
+	 *
+	 * @return 如果完整读取了文件，返回true；否则返回false
+	 */
+	private boolean readSource(java.io.File file, List<Feed> feeds) {
+		try (FileInputStream in = new FileInputStream(file)) {
+			int length;
+			do {
+				byte[] buffer = new byte[CHUNK_SIZE];
+				length = in.readNBytes(buffer, 0, CHUNK_SIZE);
+				if (length > 0) {
+					Chunk chunk = new Chunk(buffer, length);
+					for (Feed feed : feeds) {
+						feed.offer(chunk, stallTimeout);
+					}
+				}
+			} while (length == CHUNK_SIZE);
+			for (Feed feed : feeds) {
+				feed.offer(Chunk.END, stallTimeout);
+			}
+			return true;
+		} catch (IOException e) {
+			logger.error("Failed to read {} for fan-out upload", file, e);
+		} catch (InterruptedException e) {
+			logger.error("Interrupted while reading {} for fan-out upload", file, e);
+			Thread.currentThread().interrupt();
+		}
+		feeds.forEach(Feed::fail);
+		return false;
+	}
+
+	/**
+	 * 由所有目标共享的一个数据块，不可修改
+	 */
+	private static final class Chunk {
+		/**
+		 * 表示文件结束的数据块
+		 */
+		static final Chunk  END = new Chunk(new byte[0], 0);
+		/**
+		 * 数据缓冲区
+		 */
+		final        byte[] data;
+		/**
+		 * 缓冲区中有效数据的长度
+		 */
+		final        int    length;
+
+		/**
+		 * 构造函数
+		 *
+		 * @param data   数据缓冲区
+		 * @param length 有效数据的长度
+		 */
+		Chunk(byte[] data, int length) {
+			this.data   = data;
+			this.length = length;
+		}
+	}
+
+	/**
+	 * 单个目标的数据流，从有界队列中读取共享的数据块，落后时改为从磁盘读取
+	 */
+	private static final class Feed extends InputStream {
+		/**
+		 * 正在上传的本地文件
+		 */
+		private final    java.io.File         file;
+		/**
+		 * 待发送的数据块
+		 */
+		private final    BlockingQueue<Chunk> queue;
+		/**
+		 * 是否已经落后，不再接收共享的数据块
+		 */
+		private volatile boolean              detached;
+		/**
+		 * 读取线程是否失败
+		 */
+		private volatile boolean              failed;
+		/**
+		 * 目标是否已经结束上传
+		 */
+		private volatile boolean              closed;
+		/**
+		 * 正在读取的数据块
+		 */
+		private          Chunk                current;
+		/**
+		 * 在当前数据块中的读取位置
+		 */
+		private          int                  index;
+		/**
+		 * 已经读取的字节数
+		 */
+		private          long                 position;
+		/**
+		 * 落后后从磁盘读取的文件输入流
+		 */
+		private          FileInputStream      fallback;
+
+		/**
+		 * 构造函数
+		 *
+		 * @param file     正在上传的本地文件
+		 * @param capacity 队列可以容纳的数据块数
+		 */
+		Feed(java.io.File file, int capacity) {
+			this.file  = file;
+			this.queue = new ArrayBlockingQueue<>(capacity);
+		}
+
+		/**
+		 * 由读取线程放入一个数据块，队列在超时前仍然满时将该目标标记为落后
+		 *
+		 * @param chunk   数据块
+		 * @param timeout 最长等待时间（毫秒）
+		 *
+		 * @throws InterruptedException 如果线程在等待时被中断
+		 */
+		void offer(Chunk chunk, long timeout) throws InterruptedException {
+			if (detached || closed) {
+				return;
+			}
+			if (!queue.offer(chunk, timeout, TimeUnit.MILLISECONDS)) {
+				logger.warn("Destination is falling behind, reading the rest of {} from disk", file);
+				detached = true;
+			}
+		}
+
+		/**
+		 * 由读取线程标记读取失败，目标的下一次读取将抛出异常
+		 */
+		void fail() {
+			failed = true;
+		}
+
+		/**
+		 * 读取一个字节
+		 *
+		 * @return 读取的字节，文件结束时返回-1
+		 *
+		 * @throws IOException 如果读取失败
+		 */
+		@Override public int read() throws IOException {
+			byte[] b = new byte[1];
+			return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+		}
+
+		/**
+		 * 读取数据到缓冲区
+		 *
+		 * @param b   目标缓冲区
+		 * @param off 写入的起始位置
+		 * @param len 最多读取的字节数
+		 *
+		 * @return 读取的字节数，文件结束时返回-1
+		 *
+		 * @throws IOException 如果读取线程失败或读取磁盘文件失败
+		 */
+		@Override public int read(byte[] b, int off, int len) throws IOException {
+			if (len == 0) {
+				return 0;
+			}
+			while (current == null || index == current.length) {
+				if (fallback != null) {
+					int n = fallback.read(b, off, len);
+					if (n > 0) {
+						position += n;
+					}
+					return n;
+				}
+				Chunk chunk = take();
+				if (chunk == Chunk.END) {
+					return -1;
+				}
+				if (chunk == null) {
+					// 已落后且队列已取空，从磁盘上尚未发送的位置继续
+					fallback = new FileInputStream(file);
+					fallback.getChannel().position(position);
+					continue;
+				}
+				current = chunk;
+				index   = 0;
+			}
+			int n = Math.min(len, current.length - index);
+			System.arraycopy(current.data, index, b, off, n);
+			index += n;
+			position += n;
+			return n;
+		}
+
+		/**
+		 * 从队列中取出下一个数据块
+		 *
+		 * @return 数据块；已落后且队列为空时返回null
+		 *
+		 * @throws IOException 如果读取线程失败或线程被中断
+		 */
+		private Chunk take() throws IOException {
+			try {
+				while (true) {
+					Chunk chunk = queue.poll(POLL_INTERVAL, TimeUnit.MILLISECONDS);
+					if (chunk != null) {
+						return chunk;
+					}
+					if (failed) {
+						throw new IOException("Failed to read " + file);
+					}
+					if (detached && queue.isEmpty()) {
+						return null;
+					}
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while waiting for data of " + file);
+			}
+		}
+
+		/**
+		 * 结束该目标的上传，读取线程不再向其放入数据块
+		 */
+		@Override public void close() {
+			closed = true;
+			queue.clear();
+			IOUtils.closeQuietly(fallback);
+		}
+	}
+}
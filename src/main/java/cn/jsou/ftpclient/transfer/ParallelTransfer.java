@@ -0,0 +1,184 @@
+package cn.jsou.ftpclient.transfer;
+
+import cn.jsou.ftpclient.ftp.FtpClient;
+import cn.jsou.ftpclient.ftp.FtpSessionPool;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 使用会话池并行执行传输计划
+ *
+ * <p>每个工作线程独占一个会话，反复从共享队列中领取剩余批次中最大的一个并依次传输其中的文件，直到队列为空。</p>
+ */
+public class ParallelTransfer {
+	private static final Logger           logger = LogManager.getLogger(ParallelTransfer.class);
+	/**
+	 * 提供工作会话的会话池
+	 */
+	private final        FtpSessionPool   pool;
+	/**
+	 * 传输完成的回调，可以为null
+	 */
+	private              TransferListener listener;
+
+	/**
+	 * 构造函数
+	 *
+	 * @param pool 提供工作会话的会话池
+	 */
+	public ParallelTransfer(FtpSessionPool pool) {
+		this.pool = pool;
+	}
+
+	/**
+	 * 设置传输完成的回调
+	 *
+	 * @param listener 传输完成的回调，为null时不回调
+	 */
+	public void setListener(TransferListener listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * 执行传输计划
+	 *
+	 * @param plan 传输计划
+	 *
+	 * @return 传输失败的任务，全部成功时为空列表
+	 */
+	public List<TransferTask> execute(TransferPlan plan) {
+		List<TransferTask> failures = Collections.synchronizedList(new ArrayList<>());
+		int                workers  = Math.min(pool.getCapacity(), Math.max(1, plan.getBatches().size()));
+		// 创建目录期间其余工作线程的会话已在后台建立
+		pool.warmUp(workers);
+		if (!prepareDirectories(plan)) {
+			plan.getBatches().forEach(batch -> failures.addAll(batch.getTasks()));
+			return failures;
+		}
+
+		Queue<TransferBatch> queue    = new ConcurrentLinkedQueue<>(plan.getBatches());
+		ExecutorService      executor = Executors.newFixedThreadPool(workers);
+		long                 start    = System.currentTimeMillis();
+		for (int i = 0; i < workers; i++) {
+			executor.execute(() -> runWorker(plan.getDirection(), queue, failures));
+		}
+		executor.shutdown();
+		try {
+			executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			logger.error("Interrupted while waiting for transfer workers", e);
+			executor.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+		// 所有工作线程都无法取得会话时，剩余的批次视为失败
+		TransferBatch left;
+		while ((left = queue.poll()) != null) {
+			failures.addAll(left.getTasks());
+		}
+		long elapsed = Math.max(1, System.currentTimeMillis() - start);
+		logger.info("Transferred {} bytes in {} ms ({} KiB/s), {} failures",
+		            plan.getTotalBytes(),
+		            elapsed,
+		            plan.getTotalBytes() * 1000 / 1024 / elapsed,
+		            failures.size());
+		return failures;
+	}
+
+	/**
+	 * 工作线程的主循环
+	 *
+	 * @param direction 传输方向
+	 * @param queue     待传输的批次队列
+	 * @param failures  传输失败的任务
+	 */
+	private void runWorker(TransferTask.Direction direction, Queue<TransferBatch> queue, List<TransferTask> failures) {
+		FtpClient client = null;
+		try {
+			client = pool.borrow();
+			TransferBatch batch;
+			while ((batch = queue.poll()) != null) {
+				for (TransferTask task : batch.getTasks()) {
+					boolean success = transfer(client, direction, task);
+					if (!success && !client.isConnected() && pool.restore(client)) {
+						// 整个文件的上传或下载可以安全地重复执行
+						logger.warn("Session reconnected, retrying {}", task.getRemotePath());
+						success = transfer(client, direction, task);
+					}
+					if (!success) {
+						failures.add(task);
+					}
+					if (listener != null) {
+						listener.transferred(client, task, success);
+					}
+				}
+			}
+		} catch (IOException e) {
+			logger.error("Transfer worker failed to obtain a session", e);
+		} catch (InterruptedException e) {
+			logger.error("Transfer worker interrupted", e);
+			Thread.currentThread().interrupt();
+		} finally {
+			pool.release(client);
+		}
+	}
+
+	/**
+	 * 使用指定会话传输单个文件
+	 *
+	 * @param client    FTP客户端
+	 * @param direction 传输方向
+	 * @param task      传输任务
+	 *
+	 * @return 如果传输成功，返回true；否则返回false
+	 */
+	private boolean transfer(FtpClient client, TransferTask.Direction direction, TransferTask task) {
+		if (direction == TransferTask.Direction.UPLOAD) {
+			return client.uploadFile(task.getLocalFile(), task.getRemotePath());
+		}
+		return client.downloadFile(task.getRemotePath(), task.getLocalFile());
+	}
+
+	/**
+	 * 以流水线方式按父目录在前的顺序创建计划中的目录
+	 *
+	 * @param plan 传输计划
+	 *
+	 * @return 如果可以继续传输，返回true；否则返回false
+	 */
+	private boolean prepareDirectories(TransferPlan plan) {
+		if (plan.getDirection() == TransferTask.Direction.DOWNLOAD) {
+			for (String dir : plan.getDirectories()) {
+				java.io.File local = new java.io.File(dir);
+				if (!local.isDirectory() && !local.mkdirs()) {
+					logger.error("Failed to create local directory {}", dir);
+				}
+			}
+			return true;
+		}
+		FtpClient client = null;
+		try {
+			client = pool.borrow();
+			client.makeDirectories(plan.getDirectories());
+			return true;
+		} catch (IOException e) {
+			logger.error("Failed to obtain a session for creating directories", e);
+			return false;
+		} catch (InterruptedException e) {
+			logger.error("Interrupted while creating directories", e);
+			Thread.currentThread().interrupt();
+			return false;
+		} finally {
+			pool.release(client);
+		}
+	}
+}
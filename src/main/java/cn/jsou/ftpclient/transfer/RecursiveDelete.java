@@ -0,0 +1,327 @@
+package cn.jsou.ftpclient.transfer;
+
+import cn.jsou.ftpclient.ftp.FtpClient;
+import cn.jsou.ftpclient.ftp.FtpSessionPool;
+import cn.jsou.ftpclient.utils.GlobalPathUtil;
+import cn.jsou.ftpclient.vfs.Directory;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 使用会话池并行删除远程目录树
+ *
+ * <p>先在一个会话上用 {@link cn.jsou.ftpclient.vfs.VirtualFileSystem#crawl(String)} 遍历整棵子树，每个目录只发送一次MLSD。
+ * 所有文件进入共享的就绪队列，工作线程各自独占一个会话，每次从队列中取出一批，以流水线方式发送DELE或RMD，
+ * 一批命令只等待一次往返。每个目录记录尚未删除的子项数，最后一个子项删除后该目录立即进入就绪队列，
+ * 因此目录自底向上删除，不必等待整棵树的文件全部删除。子项删除失败的目录不再发送RMD，直接记为失败。</p>
+ */
+public class RecursiveDelete {
+	private static final Logger         logger         = LogManager.getLogger(RecursiveDelete.class);
+	/**
+	 * 工作线程等待就绪项的间隔（毫秒）
+	 */
+	private static final long           POLL_INTERVAL  = 100;
+	/**
+	 * 每批命令数的上限，与 {@link FtpClient} 自身流水线的批次大小一致
+	 */
+	private static final int            MAX_BATCH_SIZE = 256;
+	/**
+	 * 提供工作会话的会话池
+	 */
+	private final        FtpSessionPool pool;
+	/**
+	 * 每批以流水线方式发送的命令数
+	 */
+	private              int            batchSize      = 16;
+	/**
+	 * 删除进度的回调，可以为null
+	 */
+	private              DeleteListener listener;
+
+	/**
+	 * 构造函数
+	 *
+	 * @param pool 提供工作会话的会话池
+	 */
+	public RecursiveDelete(FtpSessionPool pool) {
+		this.pool = pool;
+	}
+
+	/**
+	 * 设置每批以流水线方式发送的命令数
+	 *
+	 * <p>为1时每条命令都等待响应后再发送下一条，适用于不能正确处理流水线命令的服务器。
+	 * 最多256条，更大的批次可能使命令和响应写满双方的套接字缓冲区。</p>
+	 *
+	 * @param batchSize 命令数
+	 */
+	public void setBatchSize(int batchSize) {
+		this.batchSize = Math.max(1, Math.min(MAX_BATCH_SIZE, batchSize));
+	}
+
+	/**
+	 * 设置删除进度的回调
+	 *
+	 * @param listener 删除进度的回调，为null时不回调
+	 */
+	public void setListener(DeleteListener listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * 删除远程文件，或递归删除远程目录及其全部内容
+	 *
+	 * @param remotePath 文件或目录的绝对路径
+	 *
+	 * @return 删除失败或未能处理的路径，全部成功时为空列表
+	 */
+	public List<String> delete(String remotePath) {
+		List<String> failures = Collections.synchronizedList(new ArrayList<>());
+		List<Node>   nodes;
+		// 遍历目录树期间工作线程的会话已在后台建立
+		pool.warmUp(pool.getCapacity());
+		try {
+			nodes = scan(remotePath);
+		} catch (IOException e) {
+			logger.error("Failed to obtain a session for scanning {}", remotePath, e);
+			failures.add(remotePath);
+			return failures;
+		} catch (InterruptedException e) {
+			logger.error("Interrupted while scanning {}", remotePath, e);
+			Thread.currentThread().interrupt();
+			failures.add(remotePath);
+			return failures;
+		}
+
+		BlockingQueue<Node> ready     = new LinkedBlockingQueue<>();
+		AtomicInteger       completed = new AtomicInteger();
+		for (Node node : nodes) {
+			if (node.remaining.get() == 0) {
+				ready.add(node);
+			}
+		}
+		int             total    = nodes.size();
+		int             workers  = Math.min(pool.getCapacity(), total);
+		ExecutorService executor = Executors.newFixedThreadPool(workers);
+		long            start    = System.currentTimeMillis();
+		for (int i = 0; i < workers; i++) {
+			executor.execute(() -> runWorker(ready, completed, total, failures));
+		}
+		executor.shutdown();
+		try {
+			executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			logger.error("Interrupted while waiting for delete workers", e);
+			executor.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+		// 所有工作线程都无法取得会话时，未处理的项视为失败
+		for (Node node : nodes) {
+			if (!node.finished) {
+				failures.add(node.path);
+			}
+		}
+		logger.info("Deleted {} of {} entries under {} in {} ms",
+		            total - failures.size(),
+		            total,
+		            remotePath,
+		            System.currentTimeMillis() - start);
+		return failures;
+	}
+
+	/**
+	 * 遍历远程目录树，为每个文件和目录建立节点
+	 *
+	 * @param remotePath 文件或目录的绝对路径
+	 *
+	 * @return 所有节点，路径是文件时只有一个节点
+	 *
+	 * @throws IOException          如果无法取得会话
+	 * @throws InterruptedException 如果等待会话时被中断
+	 */
+	private List<Node> scan(String remotePath) throws IOException, InterruptedException {
+		List<Node> nodes  = new ArrayList<>();
+		FtpClient  client = pool.borrow();
+		try {
+			if (!client.changeWorkingDirectory(remotePath)) {
+				nodes.add(new Node(remotePath, false, null));
+				return nodes;
+			}
+			Deque<Directory> pending = new ArrayDeque<>();
+			Deque<Node>      parents = new ArrayDeque<>();
+			pending.push(client.remoteFs.crawl(remotePath));
+			parents.push(new Node(remotePath, true, null));
+			while (!pending.isEmpty()) {
+				Directory dir  = pending.pop();
+				Node      node = parents.pop();
+				nodes.add(node);
+				node.remaining.set(dir.getFiles().size() + dir.getDirectories().size());
+				for (String name : dir.getFiles().keySet()) {
+					nodes.add(new Node(GlobalPathUtil.join(node.path, name), false, node));
+				}
+				for (Directory sub : dir.getDirectories().values()) {
+					pending.push(sub);
+					parents.push(new Node(GlobalPathUtil.join(node.path, sub.getName()), true, node));
+				}
+			}
+		} finally {
+			pool.release(client);
+		}
+		return nodes;
+	}
+
+	/**
+	 * 工作线程的主循环，直到所有节点都处理完毕
+	 *
+	 * @param ready     就绪的节点
+	 * @param completed 已处理的节点数
+	 * @param total     节点总数
+	 * @param failures  删除失败的路径
+	 */
+	private void runWorker(BlockingQueue<Node> ready, AtomicInteger completed, int total, List<String> failures) {
+		FtpClient client = null;
+		try {
+			client = pool.borrow();
+			List<Node> batch = new ArrayList<>(batchSize);
+			while (completed.get() < total) {
+				Node first = ready.poll(POLL_INTERVAL, TimeUnit.MILLISECONDS);
+				if (first == null) {
+					continue; // 其他工作线程正在删除的批次可能使新的目录就绪
+				}
+				batch.add(first);
+				ready.drainTo(batch, batchSize - 1);
+				deleteBatch(client, batch, ready, completed, total, failures);
+				batch.clear();
+			}
+		} catch (IOException e) {
+			logger.error("Delete worker failed to obtain a session", e);
+		} catch (InterruptedException e) {
+			logger.error("Delete worker interrupted", e);
+			Thread.currentThread().interrupt();
+		} finally {
+			pool.release(client);
+		}
+	}
+
+	/**
+	 * 以流水线方式删除一批节点，文件和目录分别成批发送
+	 *
+	 * @param client    FTP客户端
+	 * @param batch     要删除的节点
+	 * @param ready     就绪的节点
+	 * @param completed 已处理的节点数
+	 * @param total     节点总数
+	 * @param failures  删除失败的路径
+	 */
+	private void deleteBatch(FtpClient client, List<Node> batch, BlockingQueue<Node> ready, AtomicInteger completed,
+	                         int total, List<String> failures) {
+		List<String> files       = new ArrayList<>();
+		List<String> directories = new ArrayList<>();
+		for (Node node : batch) {
+			(node.directory ? directories : files).add(node.path);
+		}
+		List<String> failed = new ArrayList<>();
+		if (!files.isEmpty()) {
+			failed.addAll(client.deleteFiles(files));
+		}
+		if (!directories.isEmpty()) {
+			failed.addAll(client.removeDirectories(directories));
+		}
+		for (Node node : batch) {
+			finish(node, !failed.contains(node.path), ready, completed, total, failures);
+		}
+	}
+
+	/**
+	 * 记录节点的处理结果，父目录的子项全部处理后使其就绪
+	 *
+	 * @param node      处理完的节点
+	 * @param success   是否删除成功
+	 * @param ready     就绪的节点
+	 * @param completed 已处理的节点数
+	 * @param total     节点总数
+	 * @param failures  删除失败的路径
+	 */
+	private void finish(Node node, boolean success, BlockingQueue<Node> ready, AtomicInteger completed, int total,
+	                    List<String> failures) {
+		node.finished = true;
+		if (!success) {
+			failures.add(node.path);
+		}
+		int done = completed.incrementAndGet();
+		if (listener != null) {
+			listener.deleted(node.path, node.directory, success, done, total);
+		}
+		Node parent = node.parent;
+		if (parent == null) {
+			return;
+		}
+		if (!success) {
+			parent.blocked = true;
+		}
+		if (parent.remaining.decrementAndGet() == 0) {
+			if (parent.blocked) {
+				// 目录中仍有未删除的内容，RMD必然失败
+				finish(parent, false, ready, completed, total, failures);
+			} else {
+				ready.add(parent);
+			}
+		}
+	}
+
+	/**
+	 * 待删除的文件或目录
+	 */
+	private static final class Node {
+		/**
+		 * 绝对路径
+		 */
+		final    String        path;
+		/**
+		 * 是否为目录
+		 */
+		final    boolean       directory;
+		/**
+		 * 父目录节点，删除起点为null
+		 */
+		final    Node          parent;
+		/**
+		 * 尚未处理的子项数
+		 */
+		final    AtomicInteger remaining = new AtomicInteger();
+		/**
+		 * 是否有子项删除失败
+		 */
+		volatile boolean       blocked;
+		/**
+		 * 是否已经处理
+		 */
+		volatile boolean       finished;
+
+		/**
+		 * 构造函数
+		 *
+		 * @param path      绝对路径
+		 * @param directory 是否为目录
+		 * @param parent    父目录节点
+		 */
+		Node(String path, boolean directory, Node parent) {
+			this.path      = path;
+			this.directory = directory;
+			this.parent    = parent;
+		}
+	}
+}
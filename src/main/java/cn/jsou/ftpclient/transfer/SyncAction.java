@@ -0,0 +1,139 @@
+package cn.jsou.ftpclient.transfer;
+
+/**
+ * 同步引擎比较两侧目录树后得出的一个动作
+ */
+public class SyncAction {
+	/**
+	 * 动作类型
+	 */
+	private final Type         type;
+	/**
+	 * 相对于同步根目录的路径，使用 {@code /} 分隔
+	 */
+	private final String       relativePath;
+	/**
+	 * 本地文件或目录
+	 */
+	private final java.io.File localFile;
+	/**
+	 * 远程文件或目录的绝对路径
+	 */
+	private final String       remotePath;
+	/**
+	 * 需要传输的字节数，目录、删除和冲突时为0
+	 */
+	private final long         size;
+	/**
+	 * 目标是否为目录
+	 */
+	private final boolean      directory;
+
+	/**
+	 * 构造函数
+	 *
+	 * @param type         动作类型
+	 * @param relativePath 相对于同步根目录的路径
+	 * @param localFile    本地文件或目录
+	 * @param remotePath   远程文件或目录的绝对路径
+	 * @param size         需要传输的字节数
+	 * @param directory    目标是否为目录
+	 */
+	SyncAction(Type type, String relativePath, java.io.File localFile, String remotePath, long size, boolean directory) {
+		this.type         = type;
+		this.relativePath = relativePath;
+		this.localFile    = localFile;
+		this.remotePath   = remotePath;
+		this.size         = size;
+		this.directory    = directory;
+	}
+
+	/**
+	 * 获取动作类型
+	 *
+	 * @return 动作类型
+	 */
+	public Type getType() {
+		return type;
+	}
+
+	/**
+	 * 获取相对于同步根目录的路径
+	 *
+	 * @return 使用 {@code /} 分隔的相对路径
+	 */
+	public String getRelativePath() {
+		return relativePath;
+	}
+
+	/**
+	 * 获取本地文件或目录
+	 *
+	 * @return 本地文件或目录
+	 */
+	public java.io.File getLocalFile() {
+		return localFile;
+	}
+
+	/**
+	 * 获取远程文件或目录的绝对路径
+	 *
+	 * @return 远程绝对路径
+	 */
+	public String getRemotePath() {
+		return remotePath;
+	}
+
+	/**
+	 * 获取需要传输的字节数
+	 *
+	 * @return 字节数
+	 */
+	public long getSize() {
+		return size;
+	}
+
+	/**
+	 * 判断目标是否为目录
+	 *
+	 * @return 如果目标是目录，返回true；否则返回false
+	 */
+	public boolean isDirectory() {
+		return directory;
+	}
+
+	/**
+	 * 返回便于日志和试运行输出的动作描述
+	 *
+	 * @return 动作描述
+	 */
+	@Override public String toString() {
+		return type + " " + relativePath + (directory ? "/" : " (" + size + " bytes)");
+	}
+
+	/**
+	 * 动作类型枚举
+	 */
+	public enum Type {
+		/**
+		 * 上传新增或已修改的本地文件，或者在服务器上创建本地存在的目录
+		 */
+		UPLOAD,
+		/**
+		 * 下载新增或已修改的远程文件，或者在本地创建服务器上存在的目录
+		 */
+		DOWNLOAD,
+		/**
+		 * 删除本地文件或目录
+		 */
+		DELETE_LOCAL,
+		/**
+		 * 删除远程文件或目录
+		 */
+		DELETE_REMOTE,
+		/**
+		 * 两侧在上次同步后都被修改，不做处理
+		 */
+		CONFLICT
+	}
+}
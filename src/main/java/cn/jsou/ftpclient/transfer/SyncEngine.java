@@ -0,0 +1,789 @@
+package cn.jsou.ftpclient.transfer;
+
+import cn.jsou.ftpclient.ftp.FtpClient;
+import cn.jsou.ftpclient.ftp.FtpSessionPool;
+import cn.jsou.ftpclient.utils.GlobalPathUtil;
+import cn.jsou.ftpclient.vfs.Directory;
+import cn.jsou.ftpclient.vfs.File;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 增量同步引擎，比较本地目录树和远程目录树，只传输新增或修改过的文件
+ *
+ * <p>本地一侧使用 {@link Files#walkFileTree} 读取 {@link BasicFileAttributes}，远程一侧通过
+ * {@link cn.jsou.ftpclient.vfs.VirtualFileSystem#crawl(String)} 对每个目录发送一次MLSD，使用 {@code size} 和
+ * {@code modify} 事实。大小不同，或者源文件比目标文件新（超过时间容差），即认为文件需要传输。
+ * 上传后通过MFMT把远程文件的修改时间设为本地文件的修改时间，下载后把本地文件的修改时间设为远程文件的修改时间，
+ * 下一次同步时未变化的文件不再传输。</p>
+ *
+ * <p>双向同步需要上一次同步的快照（{@link #setStateFile(java.io.File)}）来区分"一侧新增"与"另一侧删除"，
+ * 以及判断哪一侧在上次同步后被修改；两侧都被修改的文件报告为 {@link SyncAction.Type#CONFLICT}，不做处理。
+ * 删除传播默认关闭；双向同步只传播文件的删除，不删除目录。</p>
+ *
+ * <p>传输通过 {@link TransferPlanner} 规划，由 {@link ParallelTransfer} 在会话池的多个会话上并行执行。</p>
+ */
+public class SyncEngine {
+	private static final Logger         logger            = LogManager.getLogger(SyncEngine.class);
+	/**
+	 * 提供工作会话的会话池
+	 */
+	private final        FtpSessionPool pool;
+	/**
+	 * 同步模式
+	 */
+	private final        Mode           mode;
+	/**
+	 * 是否传播删除
+	 */
+	private              boolean        deletePropagation = false;
+	/**
+	 * 比较修改时间时允许的误差（毫秒），用于容忍服务器和文件系统的时间精度差异
+	 */
+	private              long           timeTolerance     = 2000;
+	/**
+	 * 上一次同步的快照文件，为null时不读写快照
+	 */
+	private              java.io.File   stateFile;
+
+	/**
+	 * 构造函数
+	 *
+	 * @param pool 提供工作会话的会话池
+	 * @param mode 同步模式
+	 */
+	public SyncEngine(FtpSessionPool pool, Mode mode) {
+		this.pool = pool;
+		this.mode = mode;
+	}
+
+	/**
+	 * 设置是否传播删除
+	 *
+	 * <p>单向同步时删除目标中源不存在的文件和目录；双向同步时删除另一侧在上次同步后被删除的文件。</p>
+	 *
+	 * @param deletePropagation 是否传播删除
+	 */
+	public void setDeletePropagation(boolean deletePropagation) {
+		this.deletePropagation = deletePropagation;
+	}
+
+	/**
+	 * 设置比较修改时间时允许的误差
+	 *
+	 * @param timeTolerance 允许的误差（毫秒）
+	 */
+	public void setTimeTolerance(long timeTolerance) {
+		this.timeTolerance = Math.max(0, timeTolerance);
+	}
+
+	/**
+	 * 设置上一次同步的快照文件
+	 *
+	 * <p>快照记录上一次同步后两侧一致的文件，双向同步依赖它判断删除和冲突。快照文件位于本地同步目录中时不参与同步。</p>
+	 *
+	 * @param stateFile 快照文件，为null时不读写快照
+	 */
+	public void setStateFile(java.io.File stateFile) {
+		this.stateFile = stateFile;
+	}
+
+	/**
+	 * 试运行：比较两侧目录树并输出需要执行的动作，不修改任何一侧
+	 *
+	 * @param localDir  本地同步根目录
+	 * @param remoteDir 远程同步根目录的绝对路径
+	 *
+	 * @return 需要执行的动作
+	 *
+	 * @throws IOException          如果遍历本地目录或读取快照时出现IO异常
+	 * @throws InterruptedException 如果等待会话时被中断
+	 */
+	public List<SyncAction> plan(java.io.File localDir, String remoteDir) throws IOException, InterruptedException {
+		Tree             local   = scanLocal(localDir);
+		Tree             remote  = scanRemote(remoteDir);
+		List<SyncAction> actions = diff(localDir, remoteDir, local, remote, loadState());
+		for (SyncAction action : actions) {
+			logger.info("[dry-run] {}", action);
+		}
+		logSummary(actions);
+		return actions;
+	}
+
+	/**
+	 * 执行同步
+	 *
+	 * @param localDir  本地同步根目录
+	 * @param remoteDir 远程同步根目录的绝对路径
+	 *
+	 * @return 失败的动作和未处理的冲突，全部成功时为空列表
+	 *
+	 * @throws IOException          如果遍历本地目录或读写快照时出现IO异常
+	 * @throws InterruptedException 如果等待会话时被中断
+	 */
+	public List<SyncAction> sync(java.io.File localDir, String remoteDir) throws IOException, InterruptedException {
+		Map<String, Record> state   = loadState();
+		Tree                local   = scanLocal(localDir);
+		Tree                remote  = scanRemote(remoteDir);
+		List<SyncAction>    actions = diff(localDir, remoteDir, local, remote, state);
+		logSummary(actions);
+
+		List<SyncAction>    failures  = new ArrayList<>();
+		Map<String, Record> completed = new ConcurrentHashMap<>();
+		List<SyncAction>    uploads    = new ArrayList<>();
+		List<SyncAction>    downloads  = new ArrayList<>();
+		List<String>        remoteDirs = new ArrayList<>();
+		List<String>        localDirs  = new ArrayList<>();
+		for (SyncAction action : actions) {
+			switch (action.getType()) {
+				case UPLOAD:
+					if (action.isDirectory()) {
+						remoteDirs.add(action.getRemotePath());
+					} else {
+						uploads.add(action);
+					}
+					break;
+				case DOWNLOAD:
+					if (action.isDirectory()) {
+						localDirs.add(action.getLocalFile().getPath());
+					} else {
+						downloads.add(action);
+					}
+					break;
+				case CONFLICT:
+					logger.warn("Conflict: {} was modified on both sides since the last sync", action.getRelativePath());
+					failures.add(action);
+					break;
+				default:
+					break;
+			}
+		}
+		failures.addAll(deleteRemote(actions));
+		failures.addAll(deleteLocal(actions));
+		if ((!uploads.isEmpty() || !remoteDirs.isEmpty()) && remote.files.isEmpty() && remote.directories.isEmpty()) {
+			// 远程根目录可能不存在
+			remoteDirs.add(0, GlobalPathUtil.normalizePath(remoteDir));
+		}
+		if ((!downloads.isEmpty() || !localDirs.isEmpty()) && !localDir.isDirectory()) {
+			localDirs.add(0, localDir.getPath());
+		}
+		failures.addAll(transfer(TransferTask.Direction.UPLOAD, remoteDirs, uploads, local, remote, completed));
+		failures.addAll(transfer(TransferTask.Direction.DOWNLOAD, localDirs, downloads, local, remote, completed));
+		saveState(actions, failures, local, remote, state, completed);
+		logger.info("Sync finished with {} of {} actions failed or unresolved", failures.size(), actions.size());
+		return failures;
+	}
+
+	/**
+	 * 比较两侧目录树，得出需要执行的动作
+	 *
+	 * @param localDir  本地同步根目录
+	 * @param remoteDir 远程同步根目录
+	 * @param local     本地目录树
+	 * @param remote    远程目录树
+	 * @param state     上一次同步的快照
+	 *
+	 * @return 动作列表，创建目录的动作按父目录在前、删除目录的动作按子目录在前的顺序排列
+	 */
+	private List<SyncAction> diff(java.io.File localDir,
+	                              String remoteDir,
+	                              Tree local,
+	                              Tree remote,
+	                              Map<String, Record> state) {
+		List<SyncAction> actions = new ArrayList<>();
+		TreeSet<String>  paths   = new TreeSet<>(local.files.keySet());
+		paths.addAll(remote.files.keySet());
+		for (String path : paths) {
+			Entry           l    = local.files.get(path);
+			Entry           r    = remote.files.get(path);
+			SyncAction.Type type = mode == Mode.TWO_WAY ? decideTwoWay(l, r, state.get(path)) : decideOneWay(l, r);
+			if (type != null) {
+				long size = type == SyncAction.Type.UPLOAD ? l.size : type == SyncAction.Type.DOWNLOAD ? r.size : 0;
+				actions.add(new SyncAction(type,
+				                           path,
+				                           new java.io.File(localDir, path),
+				                           remotePathOf(remoteDir, path),
+				                           size,
+				                           false));
+			}
+		}
+		// 单向镜像删除目标中多余的目录，子目录在前
+		List<String> deletedDirs = new ArrayList<>();
+		if (deletePropagation && mode != Mode.TWO_WAY) {
+			Tree target = mode == Mode.UPLOAD ? remote : local;
+			Tree source = mode == Mode.UPLOAD ? local : remote;
+			deletedDirs.addAll(target.directories);
+			deletedDirs.removeAll(new HashSet<>(source.directories));
+			Collections.reverse(deletedDirs);
+		}
+		// 目标一侧缺少的目录在传输前创建，父目录在前；双向同步时两侧互为目标
+		if (mode != Mode.DOWNLOAD) {
+			addMissingDirectories(actions, SyncAction.Type.UPLOAD, local, remote, deletedDirs, localDir, remoteDir);
+		}
+		if (mode != Mode.UPLOAD) {
+			addMissingDirectories(actions, SyncAction.Type.DOWNLOAD, remote, local, deletedDirs, localDir, remoteDir);
+		}
+		SyncAction.Type deleteType = mode == Mode.UPLOAD ? SyncAction.Type.DELETE_REMOTE : SyncAction.Type.DELETE_LOCAL;
+		for (String path : deletedDirs) {
+			actions.add(new SyncAction(deleteType,
+			                           path,
+			                           new java.io.File(localDir, path),
+			                           remotePathOf(remoteDir, path),
+			                           0,
+			                           true));
+		}
+		return actions;
+	}
+
+	/**
+	 * 单向同步时判断单个文件的动作
+	 *
+	 * @param local  本地文件，不存在时为null
+	 * @param remote 远程文件，不存在时为null
+	 *
+	 * @return 动作类型，无需处理时返回null
+	 */
+	private SyncAction.Type decideOneWay(Entry local, Entry remote) {
+		Entry source = mode == Mode.UPLOAD ? local : remote;
+		Entry target = mode == Mode.UPLOAD ? remote : local;
+		if (source == null) {
+			if (!deletePropagation) {
+				return null;
+			}
+			return mode == Mode.UPLOAD ? SyncAction.Type.DELETE_REMOTE : SyncAction.Type.DELETE_LOCAL;
+		}
+		// 服务器不支持MFMT时上传后的远程文件比本地新，因此只在源文件更新时才认为已修改
+		if (target == null || source.size != target.size || isNewer(source.millis, target.millis)) {
+			return mode == Mode.UPLOAD ? SyncAction.Type.UPLOAD : SyncAction.Type.DOWNLOAD;
+		}
+		return null;
+	}
+
+	/**
+	 * 双向同步时判断单个文件的动作
+	 *
+	 * @param local  本地文件，不存在时为null
+	 * @param remote 远程文件，不存在时为null
+	 * @param last   上一次同步后的快照，没有记录时为null
+	 *
+	 * @return 动作类型，无需处理时返回null
+	 */
+	private SyncAction.Type decideTwoWay(Entry local, Entry remote, Record last) {
+		if (remote == null) {
+			// 上次同步后远程被删除且本地未修改时传播删除，否则视为本地新增
+			if (last != null && last.matchesLocal(local) && deletePropagation) {
+				return SyncAction.Type.DELETE_LOCAL;
+			}
+			return SyncAction.Type.UPLOAD;
+		}
+		if (local == null) {
+			if (last != null && last.matchesRemote(remote) && deletePropagation) {
+				return SyncAction.Type.DELETE_REMOTE;
+			}
+			return SyncAction.Type.DOWNLOAD;
+		}
+		if (last != null) {
+			boolean localChanged  = !last.matchesLocal(local);
+			boolean remoteChanged = !last.matchesRemote(remote);
+			if (localChanged && remoteChanged) {
+				return SyncAction.Type.CONFLICT;
+			}
+			if (localChanged) {
+				return SyncAction.Type.UPLOAD;
+			}
+			return remoteChanged ? SyncAction.Type.DOWNLOAD : null;
+		}
+		// 没有快照时较新的一侧胜出
+		if (isNewer(local.millis, remote.millis)) {
+			return SyncAction.Type.UPLOAD;
+		}
+		if (isNewer(remote.millis, local.millis)) {
+			return SyncAction.Type.DOWNLOAD;
+		}
+		return local.size == remote.size ? null : SyncAction.Type.CONFLICT;
+	}
+
+	/**
+	 * 判断一个修改时间是否比另一个新，超过时间容差
+	 *
+	 * @param millis 修改时间
+	 * @param other  另一个修改时间
+	 *
+	 * @return 如果两个时间都已知且前者更新，返回true；否则返回false
+	 */
+	private boolean isNewer(long millis, long other) {
+		return millis != File.UNKNOWN_TIME && other != File.UNKNOWN_TIME && millis - other > timeTolerance;
+	}
+
+	/**
+	 * 判断两个修改时间是否在时间容差内一致
+	 *
+	 * @param millis 修改时间
+	 * @param other  另一个修改时间
+	 *
+	 * @return 如果任一时间未知或两者相差不超过容差，返回true；否则返回false
+	 */
+	private boolean sameTime(long millis, long other) {
+		return millis == File.UNKNOWN_TIME || other == File.UNKNOWN_TIME || Math.abs(millis - other) <= timeTolerance;
+	}
+
+	/**
+	 * 删除远程文件和目录
+	 *
+	 * @param actions 所有动作
+	 *
+	 * @return 删除失败的动作
+	 *
+	 * @throws IOException          如果无法取得会话
+	 * @throws InterruptedException 如果等待会话时被中断
+	 */
+	private List<SyncAction> deleteRemote(List<SyncAction> actions) throws IOException, InterruptedException {
+		List<SyncAction> failures = new ArrayList<>();
+		FtpClient        client   = null;
+		try {
+			for (SyncAction action : actions) {
+				if (action.getType() != SyncAction.Type.DELETE_REMOTE) {
+					continue;
+				}
+				if (client == null) {
+					client = pool.borrow();
+				}
+				boolean deleted = action.isDirectory()
+				                  ? client.removeDirectory(action.getRemotePath())
+				                  : client.deleteFile(action.getRemotePath());
+				if (!deleted) {
+					failures.add(action);
+				}
+			}
+		} finally {
+			pool.release(client);
+		}
+		return failures;
+	}
+
+	/**
+	 * 删除本地文件和目录
+	 *
+	 * @param actions 所有动作
+	 *
+	 * @return 删除失败的动作
+	 */
+	private List<SyncAction> deleteLocal(List<SyncAction> actions) {
+		List<SyncAction> failures = new ArrayList<>();
+		for (SyncAction action : actions) {
+			if (action.getType() != SyncAction.Type.DELETE_LOCAL) {
+				continue;
+			}
+			if (!action.getLocalFile().delete()) {
+				logger.error("Failed to delete local {}", action.getLocalFile());
+				failures.add(action);
+			}
+		}
+		return failures;
+	}
+
+	/**
+	 * 并行传输一个方向上的文件，并在每个文件传输完成后同步修改时间
+	 *
+	 * @param direction   传输方向
+	 * @param directories 需要预先创建的目录，父目录在前
+	 * @param actions     该方向上的传输动作
+	 * @param local       本地目录树
+	 * @param remote      远程目录树
+	 * @param completed   传输成功的文件在传输后的快照，由本方法填充
+	 *
+	 * @return 传输失败的动作
+	 */
+	private List<SyncAction> transfer(TransferTask.Direction direction,
+	                                  List<String> directories,
+	                                  List<SyncAction> actions,
+	                                  Tree local,
+	                                  Tree remote,
+	                                  Map<String, Record> completed) {
+		if (actions.isEmpty() && directories.isEmpty()) {
+			return Collections.emptyList();
+		}
+		Map<TransferTask, SyncAction> byTask = new IdentityHashMap<>();
+		List<TransferTask>            tasks  = new ArrayList<>();
+		for (SyncAction action : actions) {
+			TransferTask task = new TransferTask(direction, action.getLocalFile(), action.getRemotePath(), action.getSize());
+			byTask.put(task, action);
+			tasks.add(task);
+		}
+		TransferPlanner  planner  = new TransferPlanner(pool.getCapacity());
+		ParallelTransfer transfer = new ParallelTransfer(pool);
+		transfer.setListener((client, task, success) -> {
+			if (!success) {
+				return;
+			}
+			String path = byTask.get(task).getRelativePath();
+			if (direction == TransferTask.Direction.UPLOAD) {
+				Entry source = local.files.get(path);
+				// 不支持MFMT的服务器上远程修改时间未知，下次只比较大小
+				long remoteMillis = client.setModifiedTime(task.getRemotePath(), source.millis)
+				                    ? source.millis
+				                    : File.UNKNOWN_TIME;
+				completed.put(path, new Record(source.size, source.millis, remoteMillis));
+			} else {
+				Entry source = remote.files.get(path);
+				if (source.millis != File.UNKNOWN_TIME && !task.getLocalFile().setLastModified(source.millis)) {
+					logger.warn("Failed to set modification time of {}", task.getLocalFile());
+				}
+				completed.put(path, new Record(source.size, task.getLocalFile().lastModified(), source.millis));
+			}
+		});
+		List<SyncAction> failures = new ArrayList<>();
+		for (TransferTask task : transfer.execute(planner.schedule(direction, directories, tasks))) {
+			failures.add(byTask.get(task));
+		}
+		return failures;
+	}
+
+	/**
+	 * 为目标一侧缺少的目录添加创建动作
+	 *
+	 * @param actions   接收动作的列表
+	 * @param type      {@link SyncAction.Type#UPLOAD} 表示在服务器上创建，{@link SyncAction.Type#DOWNLOAD} 表示在本地创建
+	 * @param source    源目录树
+	 * @param target    目标目录树
+	 * @param excluded  本次同步中将被删除的目录，不再创建
+	 * @param localDir  本地同步根目录
+	 * @param remoteDir 远程同步根目录
+	 */
+	private static void addMissingDirectories(List<SyncAction> actions,
+	                                          SyncAction.Type type,
+	                                          Tree source,
+	                                          Tree target,
+	                                          List<String> excluded,
+	                                          java.io.File localDir,
+	                                          String remoteDir) {
+		Set<String> skipped = new HashSet<>(target.directories);
+		skipped.addAll(excluded);
+		for (String path : source.directories) {
+			if (!skipped.contains(path)) {
+				actions.add(new SyncAction(type,
+				                           path,
+				                           new java.io.File(localDir, path),
+				                           remotePathOf(remoteDir, path),
+				                           0,
+				                           true));
+			}
+		}
+	}
+
+	/**
+	 * 遍历本地目录树
+	 *
+	 * @param localDir 本地同步根目录
+	 *
+	 * @return 本地目录树
+	 *
+	 * @throws IOException 如果遍历时出现IO异常
+	 */
+	private Tree scanLocal(java.io.File localDir) throws IOException {
+		Tree tree = new Tree();
+		if (!localDir.isDirectory()) {
+			return tree;
+		}
+		Path root  = localDir.toPath();
+		Path state = stateFile == null ? null : stateFile.toPath().toAbsolutePath();
+		Files.walkFileTree(root, new SimpleFileVisitor<>() {
+			@Override
+			public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+				if (!dir.equals(root)) {
+					tree.directories.add(relativePathOf(dir));
+				}
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+				if (attrs.isRegularFile() && !file.toAbsolutePath().equals(state)) {
+					tree.files.put(relativePathOf(file), new Entry(attrs.size(), attrs.lastModifiedTime().toMillis()));
+				}
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFileFailed(Path file, IOException e) {
+				logger.error("Failed to visit {}", file, e);
+				return FileVisitResult.CONTINUE;
+			}
+
+			private String relativePathOf(Path path) {
+				return GlobalPathUtil.toUnixPath(root.relativize(path).toString());
+			}
+		});
+		return tree;
+	}
+
+	/**
+	 * 通过MLSD遍历远程目录树
+	 *
+	 * @param remoteDir 远程同步根目录的绝对路径
+	 *
+	 * @return 远程目录树
+	 *
+	 * @throws IOException          如果无法取得会话
+	 * @throws InterruptedException 如果等待会话时被中断
+	 */
+	private Tree scanRemote(String remoteDir) throws IOException, InterruptedException {
+		Tree      tree   = new Tree();
+		FtpClient client = pool.borrow();
+		try {
+			Deque<Directory> pending  = new ArrayDeque<>();
+			Deque<String>    prefixes = new ArrayDeque<>();
+			pending.push(client.remoteFs.crawl(remoteDir));
+			prefixes.push("");
+			while (!pending.isEmpty()) {
+				Directory dir    = pending.pop();
+				String    prefix = prefixes.pop();
+				for (File f : dir.getFiles().values()) {
+					tree.files.put(prefix + f.getName(), new Entry(f.getSize(), f.getModifiedMillis()));
+				}
+				for (Directory sub : dir.getDirectories().values()) {
+					tree.directories.add(prefix + sub.getName());
+					pending.push(sub);
+					prefixes.push(prefix + sub.getName() + '/');
+				}
+			}
+		} finally {
+			pool.release(client);
+		}
+		return tree;
+	}
+
+	/**
+	 * 读取上一次同步的快照
+	 *
+	 * @return 相对路径到快照记录的映射，没有快照时为空
+	 *
+	 * @throws IOException 如果读取快照时出现IO异常
+	 */
+	private Map<String, Record> loadState() throws IOException {
+		Map<String, Record> state = new HashMap<>();
+		if (stateFile == null || !stateFile.isFile()) {
+			return state;
+		}
+		try (BufferedReader reader = Files.newBufferedReader(stateFile.toPath(), StandardCharsets.UTF_8)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				// 格式：大小<TAB>本地修改时间<TAB>远程修改时间<TAB>相对路径
+				String[] fields = line.split("\t", 4);
+				if (fields.length != 4) {
+					continue;
+				}
+				try {
+					state.put(fields[3],
+					          new Record(Long.parseLong(fields[0]), Long.parseLong(fields[1]), Long.parseLong(fields[2])));
+				} catch (NumberFormatException e) {
+					logger.warn("Ignoring malformed sync state line: {}", line);
+				}
+			}
+		}
+		return state;
+	}
+
+	/**
+	 * 写入本次同步后的快照
+	 *
+	 * <p>快照包含本次同步后两侧一致的文件；失败或冲突的文件保留原有记录，以便下一次同步再次处理。
+	 * 先写入临时文件再替换，避免中断时留下不完整的快照。</p>
+	 *
+	 * @param actions   所有动作
+	 * @param failures  失败的动作和未处理的冲突
+	 * @param local     同步前的本地目录树
+	 * @param remote    同步前的远程目录树
+	 * @param previous  上一次同步的快照
+	 * @param completed 传输成功的文件在传输后的快照
+	 *
+	 * @throws IOException 如果写入快照时出现IO异常
+	 */
+	private void saveState(List<SyncAction> actions,
+	                       List<SyncAction> failures,
+	                       Tree local,
+	                       Tree remote,
+	                       Map<String, Record> previous,
+	                       Map<String, Record> completed) throws IOException {
+		if (stateFile == null) {
+			return;
+		}
+		Map<String, Record> state = new TreeMap<>();
+		for (Map.Entry<String, Entry> e : local.files.entrySet()) {
+			Entry r = remote.files.get(e.getKey());
+			if (r != null) {
+				state.put(e.getKey(), new Record(e.getValue().size, e.getValue().millis, r.millis));
+			}
+		}
+		for (SyncAction action : actions) {
+			if (!action.isDirectory()) {
+				state.remove(action.getRelativePath());
+			}
+		}
+		state.putAll(completed);
+		for (SyncAction action : failures) {
+			Record last = previous.get(action.getRelativePath());
+			if (last != null) {
+				state.put(action.getRelativePath(), last);
+			}
+		}
+
+		Path temp = stateFile.toPath().resolveSibling(stateFile.getName() + ".tmp");
+		try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+			for (Map.Entry<String, Record> e : state.entrySet()) {
+				Record r = e.getValue();
+				writer.write(r.size + "\t" + r.localMillis + "\t" + r.remoteMillis + "\t" + e.getKey());
+				writer.newLine();
+			}
+		}
+		Files.move(temp, stateFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	/**
+	 * 输出动作统计
+	 *
+	 * @param actions 所有动作
+	 */
+	private void logSummary(List<SyncAction> actions) {
+		Map<SyncAction.Type, Integer> counts = new TreeMap<>();
+		long                          bytes  = 0;
+		for (SyncAction action : actions) {
+			counts.merge(action.getType(), 1, Integer::sum);
+			bytes += action.getSize();
+		}
+		logger.info("{} sync: {} actions {}, {} bytes to transfer", mode, actions.size(), counts, bytes);
+	}
+
+	/**
+	 * 拼接远程路径
+	 *
+	 * @param remoteDir 远程同步根目录
+	 * @param path      相对路径
+	 *
+	 * @return 远程绝对路径
+	 */
+	private static String remotePathOf(String remoteDir, String path) {
+		return GlobalPathUtil.normalizePath(remoteDir + '/' + path);
+	}
+
+	/**
+	 * 同步模式枚举
+	 */
+	public enum Mode {
+		/**
+		 * 以本地为准镜像到服务器
+		 */
+		UPLOAD,
+		/**
+		 * 以服务器为准镜像到本地
+		 */
+		DOWNLOAD,
+		/**
+		 * 双向同步
+		 */
+		TWO_WAY
+	}
+
+	/**
+	 * 目录树中的一个文件
+	 */
+	private static class Entry {
+		/**
+		 * 文件大小（字节）
+		 */
+		final long size;
+		/**
+		 * 修改时间（UTC毫秒时间戳）
+		 */
+		final long millis;
+
+		Entry(long size, long millis) {
+			this.size   = size;
+			this.millis = millis;
+		}
+	}
+
+	/**
+	 * 一侧的目录树，路径均相对于同步根目录
+	 */
+	private static class Tree {
+		/**
+		 * 文件，相对路径到文件信息的映射
+		 */
+		final Map<String, Entry> files       = new HashMap<>();
+		/**
+		 * 目录，父目录在前
+		 */
+		final List<String>       directories = new ArrayList<>();
+	}
+
+	/**
+	 * 上一次同步后两侧一致的文件记录
+	 */
+	private class Record {
+		/**
+		 * 文件大小（字节）
+		 */
+		final long size;
+		/**
+		 * 本地修改时间
+		 */
+		final long localMillis;
+		/**
+		 * 远程修改时间
+		 */
+		final long remoteMillis;
+
+		Record(long size, long localMillis, long remoteMillis) {
+			this.size         = size;
+			this.localMillis  = localMillis;
+			this.remoteMillis = remoteMillis;
+		}
+
+		/**
+		 * 判断本地文件自上次同步后是否未变化
+		 *
+		 * @param local 本地文件
+		 *
+		 * @return 如果未变化，返回true；否则返回false
+		 */
+		boolean matchesLocal(Entry local) {
+			return size == local.size && sameTime(localMillis, local.millis);
+		}
+
+		/**
+		 * 判断远程文件自上次同步后是否未变化
+		 *
+		 * @param remote 远程文件
+		 *
+		 * @return 如果未变化，返回true；否则返回false
+		 */
+		boolean matchesRemote(Entry remote) {
+			return size == remote.size && sameTime(remoteMillis, remote.millis);
+		}
+	}
+}
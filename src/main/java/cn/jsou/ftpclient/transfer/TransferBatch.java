@@ -0,0 +1,76 @@
+package cn.jsou.ftpclient.transfer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 调度的基本单位，由同一个会话依次传输的一组文件
+ *
+ * <p>大文件单独成批；小文件合并成批，使调度开销与会话切换分摊到多个文件上。</p>
+ */
+public class TransferBatch {
+	/**
+	 * 批内的传输任务
+	 */
+	private final List<TransferTask> tasks = new ArrayList<>();
+	/**
+	 * 批内文件的总字节数
+	 */
+	private       long               bytes;
+	/**
+	 * 批次的调度权重，即总字节数加上每个文件的固定开销
+	 */
+	private       long               weight;
+
+	/**
+	 * 向批中添加一个任务
+	 *
+	 * @param task         传输任务
+	 * @param fileOverhead 每个文件的固定开销（折算为字节）
+	 */
+	void add(TransferTask task, long fileOverhead) {
+		tasks.add(task);
+		bytes += task.getSize();
+		weight += task.getSize() + fileOverhead;
+	}
+
+	/**
+	 * 获取批内的传输任务
+	 *
+	 * @return 只读的任务列表
+	 */
+	public List<TransferTask> getTasks() {
+		return Collections.unmodifiableList(tasks);
+	}
+
+	/**
+	 * 获取批内文件的总字节数
+	 *
+	 * @return 总字节数
+	 */
+	public long getBytes() {
+		return bytes;
+	}
+
+	/**
+	 * 获取批次的调度权重
+	 *
+	 * <p>每个文件都需要若干次控制连接往返和一次数据连接握手，对小文件而言这部分开销比数据本身更大，
+	 * 因此权重为总字节数加上按文件数折算的固定开销。</p>
+	 *
+	 * @return 调度权重
+	 */
+	public long getWeight() {
+		return weight;
+	}
+
+	/**
+	 * 获取批内的文件数
+	 *
+	 * @return 文件数
+	 */
+	public int size() {
+		return tasks.size();
+	}
+}
@@ -0,0 +1,20 @@
+package cn.jsou.ftpclient.transfer;
+
+import cn.jsou.ftpclient.ftp.FtpClient;
+
+/**
+ * 传输完成的回调接口
+ *
+ * <p>回调在完成传输的工作线程中执行，并使用该线程独占的会话，可以在同一会话上继续发送后续命令（例如设置修改时间）。
+ * 多个工作线程可能同时调用回调，实现需要保证线程安全。</p>
+ */
+public interface TransferListener {
+	/**
+	 * 单个文件传输结束时调用
+	 *
+	 * @param client  完成传输的会话
+	 * @param task    传输任务
+	 * @param success 传输是否成功
+	 */
+	void transferred(FtpClient client, TransferTask task, boolean success);
+}
@@ -0,0 +1,125 @@
+package cn.jsou.ftpclient.transfer;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 目录传输的执行计划
+ *
+ * <p>计划包含需要预先创建的目录（父目录在前），以及按调度权重从大到小排列的传输批次。
+ * 执行时空闲的工作线程总是领取剩余批次中最大的一个，这正是最长处理时间优先（LPT）的列表调度；
+ * {@link #getEstimatedLoads()} 给出在带宽均等的假设下每个工作线程分到的调度权重。</p>
+ */
+public class TransferPlan {
+	/**
+	 * 传输方向
+	 */
+	private final TransferTask.Direction direction;
+	/**
+	 * 需要预先创建的目录，父目录在前；上传时为远程路径，下载时为本地路径
+	 */
+	private final List<String>           directories;
+	/**
+	 * 按调度权重从大到小排列的传输批次
+	 */
+	private final List<TransferBatch>    batches;
+	/**
+	 * LPT调度下每个工作线程的预计权重
+	 */
+	private final long[]                 estimatedLoads;
+
+	/**
+	 * 构造函数
+	 *
+	 * @param direction      传输方向
+	 * @param directories    需要预先创建的目录
+	 * @param batches        按调度权重从大到小排列的传输批次
+	 * @param estimatedLoads 每个工作线程的预计权重
+	 */
+	TransferPlan(TransferTask.Direction direction,
+	             List<String> directories,
+	             List<TransferBatch> batches,
+	             long[] estimatedLoads) {
+		this.direction      = direction;
+		this.directories    = directories;
+		this.batches        = batches;
+		this.estimatedLoads = estimatedLoads;
+	}
+
+	/**
+	 * 获取传输方向
+	 *
+	 * @return 传输方向
+	 */
+	public TransferTask.Direction getDirection() {
+		return direction;
+	}
+
+	/**
+	 * 获取需要预先创建的目录
+	 *
+	 * @return 目录路径列表，父目录在前
+	 */
+	public List<String> getDirectories() {
+		return Collections.unmodifiableList(directories);
+	}
+
+	/**
+	 * 获取按调度权重从大到小排列的传输批次
+	 *
+	 * @return 传输批次列表
+	 */
+	public List<TransferBatch> getBatches() {
+		return Collections.unmodifiableList(batches);
+	}
+
+	/**
+	 * 获取每个工作线程的预计权重
+	 *
+	 * @return 预计权重数组的副本
+	 */
+	public long[] getEstimatedLoads() {
+		return estimatedLoads.clone();
+	}
+
+	/**
+	 * 获取计划中的总字节数
+	 *
+	 * @return 总字节数
+	 */
+	public long getTotalBytes() {
+		long total = 0;
+		for (TransferBatch batch : batches) {
+			total += batch.getBytes();
+		}
+		return total;
+	}
+
+	/**
+	 * 获取计划中的文件总数
+	 *
+	 * @return 文件总数
+	 */
+	public int getFileCount() {
+		int count = 0;
+		for (TransferBatch batch : batches) {
+			count += batch.size();
+		}
+		return count;
+	}
+
+	/**
+	 * 获取负载最重的工作线程的预计权重
+	 *
+	 * <p>该值除以单个会话的带宽即为预计的总耗时；理想情况下接近总权重除以工作线程数。</p>
+	 *
+	 * @return 最大的预计权重
+	 */
+	public long getEstimatedMakespan() {
+		long max = 0;
+		for (long load : estimatedLoads) {
+			max = Math.max(max, load);
+		}
+		return max;
+	}
+}
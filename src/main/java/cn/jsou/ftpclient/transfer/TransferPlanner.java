@@ -0,0 +1,226 @@
+package cn.jsou.ftpclient.transfer;
+
+import cn.jsou.ftpclient.ftp.FtpClient;
+import cn.jsou.ftpclient.utils.GlobalPathUtil;
+import cn.jsou.ftpclient.vfs.Directory;
+import cn.jsou.ftpclient.vfs.File;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * 目录传输规划器，先枚举整个传输任务，再按文件大小安排传输顺序
+ *
+ * <p>按文件系统顺序逐个传输时，一个大文件可能最后才开始，其余会话早已空闲，整体耗时被这一个文件拖长。
+ * 规划器先完整地遍历本地目录或通过MLSD遍历远程目录，把小文件合并成批，然后按调度权重从大到小排列，
+ * 使用最长处理时间优先（LPT）启发式在多个会话间分配，让总耗时接近总字节数除以聚合带宽。</p>
+ */
+public class TransferPlanner {
+	private static final Logger logger             = LogManager.getLogger(TransferPlanner.class);
+	/**
+	 * 并行的工作线程（会话）数
+	 */
+	private final        int    workers;
+	/**
+	 * 小于该字节数的文件视为小文件，合并成批传输
+	 */
+	private              long   smallFileThreshold = 1L << 20;
+	/**
+	 * 每批小文件的最大调度权重（字节数加上文件开销）
+	 */
+	private              long   batchBytes         = 4L << 20;
+	/**
+	 * 每批小文件的最大文件数
+	 */
+	private              int    batchMaxFiles      = 32;
+	/**
+	 * 每个文件的固定开销（命令往返和数据连接握手），折算为字节，用于调度权重
+	 */
+	private              long   fileOverhead       = 64L << 10;
+
+	/**
+	 * 构造函数
+	 *
+	 * @param workers 并行的工作线程（会话）数
+	 */
+	public TransferPlanner(int workers) {
+		this.workers = Math.max(1, workers);
+	}
+
+	/**
+	 * 设置小文件的阈值
+	 *
+	 * @param smallFileThreshold 小于该字节数的文件合并成批传输
+	 */
+	public void setSmallFileThreshold(long smallFileThreshold) {
+		this.smallFileThreshold = smallFileThreshold;
+	}
+
+	/**
+	 * 设置每批小文件的上限
+	 *
+	 * @param batchBytes    每批的最大调度权重
+	 * @param batchMaxFiles 每批的最大文件数
+	 */
+	public void setBatchLimits(long batchBytes, int batchMaxFiles) {
+		this.batchBytes    = batchBytes;
+		this.batchMaxFiles = Math.max(1, batchMaxFiles);
+	}
+
+	/**
+	 * 设置每个文件的固定开销
+	 *
+	 * @param fileOverhead 折算为字节的固定开销
+	 */
+	public void setFileOverhead(long fileOverhead) {
+		this.fileOverhead = Math.max(0, fileOverhead);
+	}
+
+	/**
+	 * 规划本地目录的上传
+	 *
+	 * <p>本地目录 {@code localDir} 将被上传为远程目录 {@code remoteParent} 下的同名子目录。</p>
+	 *
+	 * @param localDir     要上传的本地目录
+	 * @param remoteParent 远程父目录的绝对路径
+	 *
+	 * @return 传输计划
+	 *
+	 * @throws IOException 如果遍历本地目录时出现IO异常
+	 */
+	public TransferPlan planUpload(java.io.File localDir, String remoteParent) throws IOException {
+		Path               root        = localDir.toPath();
+		String             remoteRoot  = GlobalPathUtil.normalizePath(remoteParent + '/' + localDir.getName());
+		List<String>       directories = new ArrayList<>();
+		List<TransferTask> tasks       = new ArrayList<>();
+		Files.walkFileTree(root, new SimpleFileVisitor<>() {
+			@Override
+			public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+				directories.add(remotePathOf(dir));
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+				if (attrs.isRegularFile()) {
+					tasks.add(new TransferTask(TransferTask.Direction.UPLOAD,
+					                           file.toFile(),
+					                           remotePathOf(file),
+					                           attrs.size()));
+				}
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFileFailed(Path file, IOException e) {
+				logger.error("Failed to visit {}", file, e);
+				return FileVisitResult.CONTINUE;
+			}
+
+			private String remotePathOf(Path path) {
+				String relative = GlobalPathUtil.toUnixPath(root.relativize(path).toString());
+				return relative.isEmpty() ? remoteRoot : GlobalPathUtil.normalizePath(remoteRoot + '/' + relative);
+			}
+		});
+		return schedule(TransferTask.Direction.UPLOAD, directories, tasks);
+	}
+
+	/**
+	 * 规划远程目录的下载
+	 *
+	 * <p>通过MLSD遍历远程目录树（每个目录只列出一次），远程目录 {@code remoteDir} 的内容将下载到本地目录 {@code localDir} 中。</p>
+	 *
+	 * @param client    用于遍历远程目录的FTP客户端
+	 * @param remoteDir 远程目录的绝对路径
+	 * @param localDir  本地目录
+	 *
+	 * @return 传输计划
+	 */
+	public TransferPlan planDownload(FtpClient client, String remoteDir, java.io.File localDir) {
+		Directory           top         = client.remoteFs.crawl(remoteDir);
+		List<String>        directories = new ArrayList<>();
+		List<TransferTask>  tasks       = new ArrayList<>();
+		Deque<Directory>    pending     = new ArrayDeque<>();
+		Deque<java.io.File> localDirs   = new ArrayDeque<>();
+		pending.push(top);
+		localDirs.push(localDir);
+		while (!pending.isEmpty()) {
+			Directory    dir   = pending.pop();
+			java.io.File local = localDirs.pop();
+			directories.add(local.getPath());
+			for (File f : dir.getFiles().values()) {
+				tasks.add(new TransferTask(TransferTask.Direction.DOWNLOAD,
+				                           new java.io.File(local, f.getName()),
+				                           GlobalPathUtil.normalizePath(dir.getPath() + '/' + f.getName()),
+				                           f.getSize()));
+			}
+			for (Directory sub : dir.getDirectories().values()) {
+				pending.push(sub);
+				localDirs.push(new java.io.File(local, sub.getName()));
+			}
+		}
+		return schedule(TransferTask.Direction.DOWNLOAD, directories, tasks);
+	}
+
+	/**
+	 * 把传输任务组织成批次并按LPT启发式排序
+	 *
+	 * @param direction   传输方向
+	 * @param directories 需要预先创建的目录，父目录在前
+	 * @param tasks       所有传输任务
+	 *
+	 * @return 传输计划
+	 */
+	public TransferPlan schedule(TransferTask.Direction direction, List<String> directories, List<TransferTask> tasks) {
+		List<TransferBatch> batches = new ArrayList<>();
+		TransferBatch       pending = null;
+		for (TransferTask task : tasks) {
+			if (task.getSize() >= smallFileThreshold) {
+				TransferBatch single = new TransferBatch();
+				single.add(task, fileOverhead);
+				batches.add(single);
+				continue;
+			}
+			// 小文件按枚举顺序合并，保持同一目录下的文件在同一批中
+			if (pending == null ||
+			    pending.size() >= batchMaxFiles ||
+			    pending.getWeight() + task.getSize() + fileOverhead > batchBytes) {
+				pending = new TransferBatch();
+				batches.add(pending);
+			}
+			pending.add(task, fileOverhead);
+		}
+		batches.sort(Comparator.comparingLong(TransferBatch::getWeight).reversed());
+
+		// 模拟LPT：每个批次分配给当前负载最轻的工作线程
+		long[] loads = new long[workers];
+		for (TransferBatch batch : batches) {
+			int lightest = 0;
+			for (int i = 1; i < loads.length; i++) {
+				if (loads[i] < loads[lightest]) {
+					lightest = i;
+				}
+			}
+			loads[lightest] += batch.getWeight();
+		}
+		TransferPlan plan = new TransferPlan(direction, directories, batches, loads);
+		logger.info("Planned {} files ({} bytes) in {} batches over {} workers, estimated makespan {}",
+		            plan.getFileCount(),
+		            plan.getTotalBytes(),
+		            batches.size(),
+		            workers,
+		            plan.getEstimatedMakespan());
+		return plan;
+	}
+}
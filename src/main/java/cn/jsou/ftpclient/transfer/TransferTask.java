@@ -0,0 +1,97 @@
+package cn.jsou.ftpclient.transfer;
+
+/**
+ * 表示一个待传输的文件，包括传输方向、本地文件、远程路径和文件大小
+ */
+public class TransferTask {
+	/**
+	 * 传输方向
+	 */
+	private final Direction    direction;
+	/**
+	 * 本地文件
+	 */
+	private final java.io.File localFile;
+	/**
+	 * 远程文件的绝对路径
+	 */
+	private final String       remotePath;
+	/**
+	 * 文件大小（字节），用于调度
+	 */
+	private final long         size;
+
+	/**
+	 * 构造函数
+	 *
+	 * @param direction  传输方向
+	 * @param localFile  本地文件
+	 * @param remotePath 远程文件的绝对路径
+	 * @param size       文件大小（字节）
+	 */
+	public TransferTask(Direction direction, java.io.File localFile, String remotePath, long size) {
+		this.direction  = direction;
+		this.localFile  = localFile;
+		this.remotePath = remotePath;
+		this.size       = size;
+	}
+
+	/**
+	 * 获取传输方向
+	 *
+	 * @return 传输方向
+	 */
+	public Direction getDirection() {
+		return direction;
+	}
+
+	/**
+	 * 获取本地文件
+	 *
+	 * @return 本地文件
+	 */
+	public java.io.File getLocalFile() {
+		return localFile;
+	}
+
+	/**
+	 * 获取远程文件的绝对路径
+	 *
+	 * @return 远程文件的绝对路径
+	 */
+	public String getRemotePath() {
+		return remotePath;
+	}
+
+	/**
+	 * 获取文件大小
+	 *
+	 * @return 文件大小（字节）
+	 */
+	public long getSize() {
+		return size;
+	}
+
+	/**
+	 * 返回便于日志输出的任务描述
+	 *
+	 * @return 任务描述
+	 */
+	@Override public String toString() {
+		return direction + " " + localFile + " <-> " + remotePath + " (" + size + " bytes)";
+	}
+
+	/**
+	 * 传输方向枚举
+	 */
+	public enum Direction {
+		/**
+		 * 从本地上传到服务器
+		 */
+		UPLOAD,
+		/**
+		 * 从服务器下载到本地
+		 */
+		DOWNLOAD
+	}
+}
@@ -0,0 +1,30 @@
+package cn.jsou.ftpclient.ui;
+
+import cn.jsou.ftpclient.utils.TimeUtil;
+import org.apache.commons.io.FileUtils;
+
+import javax.swing.table.DefaultTableCellRenderer;
+import java.time.LocalDateTime;
+
+/**
+ * 文件大小和时间列的单元格渲染器，在绘制时才把原始值格式化为显示文本
+ *
+ * <p>JTable只为可见的单元格调用渲染器，因此无论目录有多少项，每次绘制只格式化屏幕上的几十行。</p>
+ */
+public class FileAttributeRenderer extends DefaultTableCellRenderer {
+	/**
+	 * 将单元格的原始值格式化后设置为显示文本
+	 *
+	 * @param value 文件大小（字节）、时间，或表示目录的null
+	 */
+	@Override
+	protected void setValue(Object value) {
+		if (value instanceof Long size) {
+			setText(FileUtils.byteCountToDisplaySize(size));
+		} else if (value instanceof LocalDateTime time) {
+			setText(TimeUtil.formatRelativeTime(time));
+		} else {
+			setText("");
+		}
+	}
+}
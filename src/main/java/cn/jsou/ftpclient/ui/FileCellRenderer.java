@@ -4,7 +4,6 @@ import cn.jsou.ftpclient.utils.SvgIconLoader;
 
 import javax.swing.*;
 import javax.swing.table.DefaultTableCellRenderer;
-import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 
 /**
@@ -14,11 +13,15 @@ public class FileCellRenderer extends DefaultTableCellRenderer {
 	/**
 	 * 目录的图标
 	 */
-	private Icon directoryIcon;
+	private Icon    directoryIcon;
 	/**
 	 * 文件的图标
 	 */
-	private Icon fileIcon;
+	private Icon    fileIcon;
+	/**
+	 * 是否已开始加载图标
+	 */
+	private boolean iconsRequested;
 
 	/**
 	 * 获取单元格渲染组件。此方法会根据单元格的内容调整显示的图标
@@ -48,18 +51,24 @@ public class FileCellRenderer extends DefaultTableCellRenderer {
 		// 获取行高用于调整图标大小
 		int rowHeight = table.getRowHeight();
 
-		// 根据行高动态加载和调整图标
-		if (directoryIcon == null || fileIcon == null) {
-			directoryIcon = SvgIconLoader.loadSvgIcon("/FolderIcon.svg", rowHeight);
-			fileIcon      = SvgIconLoader.loadSvgIcon("/FileIcon.svg", rowHeight);
+		// 根据行高加载和调整图标，尚未加载好时先不显示图标，加载完成后重绘表格
+		if (!iconsRequested) {
+			iconsRequested = true;
+			SvgIconLoader.loadSvgIconLater("/FolderIcon.svg", rowHeight, icon -> {
+				directoryIcon = icon;
+				table.repaint();
+			});
+			SvgIconLoader.loadSvgIconLater("/FileIcon.svg", rowHeight, icon -> {
+				fileIcon = icon;
+				table.repaint();
+			});
 		}
 
 		// 使用模型索引从模型中获取数据
-		DefaultTableModel model     = (DefaultTableModel) table.getModel();
-		String            sizeValue = (String) model.getValueAt(modelRow, 1); // 假设大小列是第2列
+		FileTableModel model = (FileTableModel) table.getModel();
 
 		// 根据模型中的数据设置图标
-		setIcon(sizeValue.isEmpty() ? directoryIcon : fileIcon); // 如果大小为空，表示这是一个目录
+		setIcon(model.isDirectory(modelRow) ? directoryIcon : fileIcon);
 
 		setText((String) value);
 
@@ -1,33 +1,79 @@
 package cn.jsou.ftpclient.ui;
 
-import cn.jsou.ftpclient.ftp.FtpClient;
+import cn.jsou.ftpclient.ftp.SessionSupervisor;
 import cn.jsou.ftpclient.utils.GlobalPathUtil;
 import cn.jsou.ftpclient.utils.SvgIconLoader;
-import cn.jsou.ftpclient.utils.TimeUtil;
+import cn.jsou.ftpclient.vfs.DirectoryChanges;
+import cn.jsou.ftpclient.vfs.DirectoryListing;
 import cn.jsou.ftpclient.vfs.File;
 import cn.jsou.ftpclient.vfs.FileSystemProvider;
-import org.apache.commons.io.FileUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
-import javax.swing.table.TableModel;
-import javax.swing.table.TableRowSorter;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import java.awt.*;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.Collections;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * 文件浏览组件类，用于在UI中显示和管理本地或远程的文件系统
  */
 public class FileExplorerComponent extends JPanel {
+	private static final Logger          logger            = LogManager.getLogger(FileExplorerComponent.class);
+	/**
+	 * 工具栏按钮图标的高度
+	 */
+	private static final int             TOOLBAR_ICON_SIZE = 24;
+	/**
+	 * 右键菜单图标的高度
+	 */
+	private static final int             MENU_ICON_SIZE    = 16;
+	/**
+	 * 重绘时间列的间隔（毫秒），相对时间的最小单位是分钟
+	 */
+	private static final int             TIME_REFRESH_MS   = 60_000;
+	/**
+	 * 在后台列出目录的线程
+	 */
+	private static final ExecutorService LISTER            = Executors.newCachedThreadPool(runnable -> {
+		Thread thread = new Thread(runnable, "file-lister");
+		thread.setDaemon(true);
+		return thread;
+	});
 	/**
 	 * 当前路径标签，显示当前浏览的目录路径
 	 */
-	private final JLabel currentPathLabel = new JLabel(" ");
+	private final JLabel                  currentPathLabel = new JLabel(" ");
+	/**
+	 * 文件表格的数据模型，在整个组件生命周期内复用
+	 */
+	private final FileTableModel          fileModel        = new FileTableModel();
+	/**
+	 * 文件表格的行排序器，负责排序和按名称筛选
+	 */
+	private final FileRowSorter           fileSorter       = new FileRowSorter(fileModel);
+	/**
+	 * 按名称筛选当前目录的输入框
+	 */
+	private final JTextField              filterField      = new JTextField(12);
+	/**
+	 * 相对时间随时间推移而变化，此定时器定期重绘可见的时间单元格，只在组件显示期间运行
+	 */
+	private final Timer                   timeRefresher    = new Timer(TIME_REFRESH_MS, e -> repaintTimeColumns());
+	/**
+	 * 初始目录在后台列出并显示后完成
+	 */
+	private final CompletableFuture<Void> initialListing;
 	/**
 	 * 向上一级目录的按钮
 	 */
@@ -61,9 +107,9 @@ public class FileExplorerComponent extends JPanel {
 	 */
 	private String                currentPath;
 	/**
-	 * FTP客户端实例，用于远程文件操作
+	 * 监督FTP客户端的会话监督器，远程文件操作通过它执行，控制连接断开时重新连接并重试
 	 */
-	private FtpClient             ftpClient;
+	private SessionSupervisor     supervisor;
 	/**
 	 * 表示当前组件是用于本地文件系统还是远程文件系统
 	 */
@@ -72,10 +118,20 @@ public class FileExplorerComponent extends JPanel {
 	 * 与当前组件配对的另一个文件浏览组件，用于同步操作和显示
 	 */
 	private FileExplorerComponent peer;
+	/**
+	 * 每次开始列出目录时加一，后台列出的结果返回时据此判断是否已过时，只在界面线程中访问
+	 */
+	private int                   listingGeneration;
+	/**
+	 * 最近列出的目录是否正在被监视，监视时目录的变化会自动显示，无需重新列出，只在界面线程中访问
+	 */
+	private boolean               watching;
 
 	/**
 	 * 构造函数，初始化文件浏览组件
 	 *
+	 * <p>初始目录在后台线程中列出，组件可以先显示出来，列出完成后再填充文件列表。</p>
+	 *
 	 * @param fileSystemProvider 文件系统提供者
 	 * @param initialPath        初始浏览的目录路径
 	 * @param isRemote           是否为远程文件系统
@@ -84,10 +140,36 @@ public class FileExplorerComponent extends JPanel {
 	                             String initialPath,
 	                             boolean isRemote) {
 		this.fileSystemProvider = fileSystemProvider;
-		this.currentPath        = initialPath;
 		initUI();
-		updateFileList(initialPath);
-		this.isRemote = isRemote;
+		currentPath = initialPath;
+		currentPathLabel.setText(initialPath);
+		initialListing = updateFileListInBackground(initialPath);
+		this.isRemote  = isRemote;
+	}
+
+	/**
+	 * 获取初始目录的列出结果
+	 *
+	 * @return 初始目录在界面线程中显示后完成的Future，列出失败时以异常完成
+	 */
+	public CompletableFuture<Void> getInitialListing() {
+		return initialListing;
+	}
+
+	/**
+	 * 在后台提前准备本组件用到的图标，应在创建组件之前调用
+	 */
+	public static void prefetchIcons() {
+		for (String icon : new String[]{"/up-icon.svg", "/new-folder-icon.svg", "/delete-icon.svg",
+		                                 "/upload-download-icon.svg", "/refresh-icon.svg"}) {
+			SvgIconLoader.prefetch(icon, TOOLBAR_ICON_SIZE);
+		}
+		for (String icon : new String[]{"/rename-icon.svg", "/delete-icon.svg", "/upload-download-icon.svg"}) {
+			SvgIconLoader.prefetch(icon, MENU_ICON_SIZE);
+		}
+		// 文件表格的图标高度等于行高，JTable的默认行高为16
+		SvgIconLoader.prefetch("/FolderIcon.svg", 16);
+		SvgIconLoader.prefetch("/FileIcon.svg", 16);
 	}
 
 	/**
@@ -103,15 +185,15 @@ public class FileExplorerComponent extends JPanel {
 		// 创建按钮并添加到工具栏
 		JPanel toolBar = new JPanel(new FlowLayout(FlowLayout.LEFT));
 
-		btnGoUp.setIcon(SvgIconLoader.loadSvgIcon("/up-icon.svg", 24));
+		SvgIconLoader.loadSvgIconLater("/up-icon.svg", TOOLBAR_ICON_SIZE, btnGoUp::setIcon);
 		btnGoUp.setToolTipText("上一级");
-		btnNewFolder.setIcon(SvgIconLoader.loadSvgIcon("/new-folder-icon.svg", 24));
+		SvgIconLoader.loadSvgIconLater("/new-folder-icon.svg", TOOLBAR_ICON_SIZE, btnNewFolder::setIcon);
 		btnNewFolder.setToolTipText("新建目录");
-		btnDelete.setIcon(SvgIconLoader.loadSvgIcon("/delete-icon.svg", 24));
+		SvgIconLoader.loadSvgIconLater("/delete-icon.svg", TOOLBAR_ICON_SIZE, btnDelete::setIcon);
 		btnDelete.setToolTipText("删除");
-		btnUploadDownload.setIcon(SvgIconLoader.loadSvgIcon("/upload-download-icon.svg", 24));
+		SvgIconLoader.loadSvgIconLater("/upload-download-icon.svg", TOOLBAR_ICON_SIZE, btnUploadDownload::setIcon);
 		btnUploadDownload.setToolTipText("上传/下载");
-		btnRefresh.setIcon(SvgIconLoader.loadSvgIcon("/refresh-icon.svg", 24));
+		SvgIconLoader.loadSvgIconLater("/refresh-icon.svg", TOOLBAR_ICON_SIZE, btnRefresh::setIcon);
 		btnRefresh.setToolTipText("刷新");
 
 		// 添加按钮到工具栏
@@ -128,10 +210,8 @@ public class FileExplorerComponent extends JPanel {
 				Path parentDirectory  = currentDirectory.getParent(); // 获取父目录
 
 				if (parentDirectory != null) {
-					// 更新当前路径
-					currentPath = GlobalPathUtil.normalizePath(parentDirectory.toString());
-					// 刷新文件列表以显示父目录的内容
-					updateFileList(currentPath);
+					// 刷新文件列表以显示父目录的内容，并更新当前路径
+					updateFileList(GlobalPathUtil.normalizePath(parentDirectory.toString()));
 				}
 			}
 		});
@@ -178,9 +258,9 @@ public class FileExplorerComponent extends JPanel {
 		});
 		btnUploadDownload.addActionListener(e -> {
 			uploadDownloadSelectedFiles();
-			peer.refresh();
+			peer.refreshAfterChange();
 		});
-		btnRefresh.addActionListener(e -> refresh());
+		btnRefresh.addActionListener(e -> updateFileListInBackground(currentPath));
 
 		// 将工具栏添加到北部面板的北部
 		northPanel.add(toolBar, BorderLayout.NORTH);
@@ -190,12 +270,31 @@ public class FileExplorerComponent extends JPanel {
 		pathPanel.setBorder(BorderFactory.createEmptyBorder(5, 5, 5, 5)); // 添加一些边距
 		currentPathLabel.setText(currentPath); // 初始时设置为当前路径
 		pathPanel.add(currentPathLabel, BorderLayout.CENTER);
+		// 筛选框放在路径右侧，每次输入都重新筛选
+		filterField.setToolTipText("筛选：输入名称的一部分，或使用 * 和 ? 通配符");
+		filterField.getDocument().addDocumentListener(new DocumentListener() {
+			@Override
+			public void insertUpdate(DocumentEvent e) {
+				fileSorter.setFilter(filterField.getText());
+			}
+
+			@Override
+			public void removeUpdate(DocumentEvent e) {
+				fileSorter.setFilter(filterField.getText());
+			}
+
+			@Override
+			public void changedUpdate(DocumentEvent e) {
+				fileSorter.setFilter(filterField.getText());
+			}
+		});
+		pathPanel.add(filterField, BorderLayout.EAST);
 		// 将路径面板添加到北部面板的中部
 		northPanel.add(pathPanel, BorderLayout.SOUTH);
 		// 将北部面板添加到主面板的北部
 		add(northPanel, BorderLayout.NORTH);
 
-		fileTable = new JTable() {
+		fileTable = new JTable(fileModel) {
 			@Override
 			public boolean isCellEditable(int row, int column) {
 				return false; // 使表格不可编辑
@@ -203,6 +302,13 @@ public class FileExplorerComponent extends JPanel {
 		};
 		fileTable.setShowGrid(false); // 去掉网格线
 		fileTable.setIntercellSpacing(new Dimension(0, 0)); // 去掉单元格间距
+		fileTable.getColumnModel().getColumn(0).setCellRenderer(new FileCellRenderer());
+		FileAttributeRenderer attributeRenderer = new FileAttributeRenderer();
+		for (int column = 1; column < fileModel.getColumnCount(); column++) {
+			fileTable.getColumnModel().getColumn(column).setCellRenderer(attributeRenderer);
+		}
+		// 点击表头时由排序器切换排序列和方向
+		fileTable.setRowSorter(fileSorter);
 		JScrollPane scrollPane = new JScrollPane(fileTable);
 		add(scrollPane, BorderLayout.CENTER);
 		addTableMouseListener(); // 添加鼠标事件监听器
@@ -248,59 +354,132 @@ public class FileExplorerComponent extends JPanel {
 		updateFileList(currentPath);
 	}
 
+	/**
+	 * 在本程序修改当前目录后刷新文件列表
+	 *
+	 * <p>当前目录正在被监视时，变化已经或即将自动显示，不再重新列出整个目录。</p>
+	 */
+	public void refreshAfterChange() {
+		if (!watching) {
+			refresh();
+		}
+	}
+
 	/**
 	 * 更新当前目录下的文件列表
 	 *
 	 * @param path 要更新的目录绝对路径
 	 */
 	public void updateFileList(String path) {
-		String[] columnNames = {"名称", "大小", "创建时间", "修改时间"};
-		DefaultTableModel model       = new DefaultTableModel(columnNames, 0);
-
-		java.util.List<String> directories = fileSystemProvider.getDirectories(path);
-		directories.forEach(dir -> model.addRow(new Object[]{dir, "", "", ""}));
+		listingGeneration++;
+		// 先开始监视再列出，列出之后发生的变化都能收到
+		watching = fileSystemProvider.watch(path, this::onDirectoryChanged);
+		DirectoryListing listing = fileSystemProvider.list(path);
+		showListing(path, listing.getDirectories(), listing.getFiles());
+	}
 
-		List<File> files = fileSystemProvider.getFiles(path);
-		files.forEach(file -> model.addRow(new Object[]{
-				file.getName(),
-				FileUtils.byteCountToDisplaySize(file.getSize()),
-				TimeUtil.formatRelativeTime(file.getCreatedTime()),
-				TimeUtil.formatRelativeTime(file.getModifiedTime())
-		}));
+	/**
+	 * 在后台线程中列出目录，完成后在界面线程中更新文件列表，应在界面线程中调用
+	 *
+	 * <p>列出期间又开始列出其他目录时，本次的结果已过时，不再显示。</p>
+	 *
+	 * @param path 要列出的目录路径
+	 *
+	 * @return 结果在界面线程中显示或丢弃后完成的Future，列出失败时以异常完成
+	 */
+	public CompletableFuture<Void> updateFileListInBackground(String path) {
+		int                     generation = ++listingGeneration;
+		FileSystemProvider      provider   = fileSystemProvider;
+		CompletableFuture<Void> done       = new CompletableFuture<>();
+		watching = provider.watch(path, this::onDirectoryChanged);
+		LISTER.execute(() -> {
+			try {
+				DirectoryListing listing = provider.list(path);
+				SwingUtilities.invokeLater(() -> {
+					if (generation == listingGeneration) {
+						showListing(path, listing.getDirectories(), listing.getFiles());
+					}
+					done.complete(null);
+				});
+			} catch (RuntimeException e) {
+				logger.error("Failed to list {}", path, e);
+				SwingUtilities.invokeLater(() -> done.completeExceptionally(e));
+			}
+		});
+		return done;
+	}
 
-		fileTable.setModel(model);
+	/**
+	 * 显示已列出的目录内容
+	 *
+	 * @param path        目录路径
+	 * @param directories 子目录名称列表
+	 * @param files       文件列表
+	 */
+	private void showListing(String path, List<String> directories, List<File> files) {
+		if (path.equals(currentPath)) {
+			// 刷新同一目录时只更新变化的行，保留选中状态
+			fileModel.update(directories, files);
+		} else {
+			// 进入其他目录时清除筛选
+			filterField.setText("");
+			fileModel.setListing(directories, files);
+		}
 		currentPath = path;
 		// 在文件列表更新后，设置标签以显示新的当前路径
 		currentPathLabel.setText(path);
+	}
 
-		fileTable.getColumnModel().getColumn(0).setCellRenderer(new FileCellRenderer());
-
-		// 创建行排序器并为表格设置行排序器
-		TableRowSorter<TableModel> sorter = new TableRowSorter<>(fileTable.getModel());
-		fileTable.setRowSorter(sorter);
-		fileTable.getTableHeader().addMouseListener(new MouseAdapter() {
-			@Override
-			public void mouseClicked(MouseEvent e) {
-				int col = fileTable.columnAtPoint(e.getPoint());
-				if (col >= 0) {
-					// 检查当前列的排序状态
-					List<? extends RowSorter.SortKey> sortKeys = sorter.getSortKeys();
-					if (!sortKeys.isEmpty() && sortKeys.get(0).getColumn() == col) {
-						// 如果当前列已经是主排序键，反转排序顺序
-						boolean ascending = sortKeys.get(0).getSortOrder() == SortOrder.ASCENDING;
-						sorter.setSortKeys(Collections.singletonList(new RowSorter.SortKey(col,
-						                                                                   ascending ?
-						                                                                   SortOrder.DESCENDING :
-						                                                                   SortOrder.ASCENDING)));
-					} else {
-						// 否则，设置为升序排序
-						sorter.setSortKeys(Collections.singletonList(new RowSorter.SortKey(col, SortOrder.ASCENDING)));
-					}
-				}
+	/**
+	 * 接收监视到的目录变化，在界面线程中应用到文件列表
+	 *
+	 * <p>只处理当前目录的变化；事件丢失时在后台重新列出整个目录。</p>
+	 *
+	 * @param changes 一批合并后的变化，在监视线程中传入
+	 */
+	private void onDirectoryChanged(DirectoryChanges changes) {
+		SwingUtilities.invokeLater(() -> {
+			if (!changes.getDirectory().equals(currentPath)) {
+				return;
+			}
+			if (changes.isOverflow()) {
+				updateFileListInBackground(currentPath);
+			} else {
+				DirectoryListing entries = changes.getEntries();
+				fileModel.applyChanges(changes.getNames(), entries.getDirectories(), entries.getFiles());
 			}
 		});
+	}
 
-		this.repaint();
+	/**
+	 * 组件加入到可显示的容器中时开始定期重绘时间列
+	 */
+	@Override
+	public void addNotify() {
+		super.addNotify();
+		timeRefresher.start();
+	}
+
+	/**
+	 * 组件从容器中移除时停止定时器，否则定时器会一直持有组件，使其无法被回收
+	 */
+	@Override
+	public void removeNotify() {
+		timeRefresher.stop();
+		super.removeNotify();
+	}
+
+	/**
+	 * 重绘可见区域内的时间列，其他单元格不重新渲染
+	 */
+	private void repaintTimeColumns() {
+		Rectangle visible = fileTable.getVisibleRect();
+		for (int column = 0; column < fileTable.getColumnCount(); column++) {
+			if (fileTable.getColumnClass(column) == LocalDateTime.class) {
+				Rectangle cell = fileTable.getCellRect(0, column, true);
+				fileTable.repaint(cell.x, visible.y, cell.width, visible.height);
+			}
+		}
 	}
 
 	/**
@@ -386,12 +565,30 @@ public class FileExplorerComponent extends JPanel {
 	}
 
 	/**
-	 * 设置FTP客户端实例
+	 * 设置远程文件操作使用的会话监督器
 	 *
-	 * @param client FTP客户端实例
+	 * @param supervisor 监督FTP客户端的会话监督器
 	 */
-	public void setFtpClient(FtpClient client) {
-		this.ftpClient = client;
+	public void setSupervisor(SessionSupervisor supervisor) {
+		this.supervisor = supervisor;
+	}
+
+	/**
+	 * 通过会话监督器执行一次传输，控制连接断开时重新连接并重试
+	 *
+	 * <p>只用于重复执行不会产生额外影响的传输，例如覆盖上传或下载。</p>
+	 *
+	 * @param operation 在FTP客户端上执行的传输
+	 *
+	 * @return 如果传输成功，返回true；否则返回false
+	 */
+	private boolean transfer(SessionSupervisor.Operation<Boolean> operation) {
+		try {
+			return supervisor.execute(operation);
+		} catch (IOException e) {
+			logger.error("Transfer failed: {}", e.getMessage());
+			return false;
+		}
 	}
 
 	/**
@@ -438,7 +635,7 @@ public class FileExplorerComponent extends JPanel {
 				String filePath = GlobalPathUtil.normalizePath(currentPath + "/" + fileName);
 				fileSystemProvider.delete(filePath);
 			}
-			refresh();
+			refreshAfterChange();
 		}
 	}
 
@@ -452,7 +649,7 @@ public class FileExplorerComponent extends JPanel {
 		// 假设已经处理了目录存在的情况和是否覆盖的决定
 
 		// 执行下载目录的操作
-		boolean success = ftpClient.downloadDirectory(remoteDirName, localDir);
+		boolean success = transfer(client -> client.downloadDirectory(remoteDirName, localDir));
 
 		// 显示目录下载操作的结果
 		showTransferResult(success, "下载目录", remoteDirName);
@@ -464,7 +661,7 @@ public class FileExplorerComponent extends JPanel {
 	 * @param directory 要上传的本地目录文件对象
 	 */
 	private void uploadDirectory(java.io.File directory) {
-		boolean success = ftpClient.uploadDirectory(directory);
+		boolean success = transfer(client -> client.uploadDirectory(directory));
 		showTransferResult(success, "上传目录", directory.getName());
 	}
 
@@ -484,7 +681,7 @@ public class FileExplorerComponent extends JPanel {
 
 		// 执行上传操作
 		if (!fileToUpload.isDirectory() && fileToUpload.exists() && fileToUpload.isFile()) {
-			boolean success = ftpClient.uploadFile(fileToUpload);
+			boolean success = transfer(client -> client.uploadFile(fileToUpload));
 			showTransferResult(success, "上传", fileName);
 		}
 	}
@@ -503,7 +700,7 @@ public class FileExplorerComponent extends JPanel {
 		}
 
 		// 执行下载操作
-		boolean success = ftpClient.downloadFile(fileName, localFile);
+		boolean success = transfer(client -> client.downloadFile(fileName, localFile));
 		showTransferResult(success, "下载", fileName);
 	}
 
@@ -534,7 +731,7 @@ public class FileExplorerComponent extends JPanel {
 			JOptionPane.showMessageDialog(this,
 			                              fileName + " " + action + "成功",
 			                              "成功", JOptionPane.INFORMATION_MESSAGE);
-			refresh(); // 刷新视图
+			refreshAfterChange(); // 刷新视图
 		} else {
 			JOptionPane.showMessageDialog(this,
 			                              fileName + " " + action + "失败",
@@ -546,7 +743,7 @@ public class FileExplorerComponent extends JPanel {
 	 * 上传或下载选中的文件或目录
 	 */
 	private void uploadDownloadSelectedFiles() {
-		if (ftpClient == null) {
+		if (supervisor == null) {
 			JOptionPane.showMessageDialog(this, "请先连接到FTP服务器", "错误", JOptionPane.ERROR_MESSAGE);
 			return;
 		}
@@ -592,15 +789,15 @@ public class FileExplorerComponent extends JPanel {
 		JPopupMenu popupMenu = new JPopupMenu();
 
 		JMenuItem menuItemRename = new JMenuItem("重命名");
-		menuItemRename.setIcon(SvgIconLoader.loadSvgIcon("/rename-icon.svg", 16)); // 设定合适的大小
+		SvgIconLoader.loadSvgIconLater("/rename-icon.svg", MENU_ICON_SIZE, menuItemRename::setIcon);
 		menuItemRename.setToolTipText("重命名选定的文件或目录");
 
 		JMenuItem menuItemDelete = new JMenuItem("删除");
-		menuItemDelete.setIcon(SvgIconLoader.loadSvgIcon("/delete-icon.svg", 16)); // 设定合适的大小
+		SvgIconLoader.loadSvgIconLater("/delete-icon.svg", MENU_ICON_SIZE, menuItemDelete::setIcon);
 		menuItemDelete.setToolTipText("删除选定的文件或目录");
 
 		JMenuItem menuItemUploadDownload = new JMenuItem("上传/下载");
-		menuItemUploadDownload.setIcon(SvgIconLoader.loadSvgIcon("/upload-download-icon.svg", 16)); // 设定合适的大小
+		SvgIconLoader.loadSvgIconLater("/upload-download-icon.svg", MENU_ICON_SIZE, menuItemUploadDownload::setIcon);
 		menuItemUploadDownload.setToolTipText("上传或下载文件");
 
 		// 为菜单项添加动作监听器
@@ -616,7 +813,7 @@ public class FileExplorerComponent extends JPanel {
 			String newFilename = promptForName("请输入新的文件名:", "重命名");
 			if (newFilename != null && !newFilename.trim().isEmpty()) {
 				fileSystemProvider.rename(oldFilePath, newFilename);
-				refresh();
+				refreshAfterChange();
 			} else if (newFilename != null) {
 				JOptionPane.showMessageDialog(this, "文件名不能为空。", "警告", JOptionPane.WARNING_MESSAGE);
 			}
@@ -633,7 +830,7 @@ public class FileExplorerComponent extends JPanel {
 		});
 		menuItemUploadDownload.addActionListener(e -> {
 			uploadDownloadSelectedFiles();
-			peer.refresh();
+			peer.refreshAfterChange();
 		});
 
 
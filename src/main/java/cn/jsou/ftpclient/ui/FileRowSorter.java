@@ -0,0 +1,755 @@
+package cn.jsou.ftpclient.ui;
+
+import cn.jsou.ftpclient.vfs.File;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.swing.*;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 文件表格的行排序器，按原始的大小和时间值排序，目录始终排在文件之前，并可以按名称筛选行
+ *
+ * <p>排序前先从模型中取出每行的排序键：大小为字节数，时间为毫秒时间戳。数值列的键与行号合并为一个long，
+ * 用 {@link Arrays#parallelSort(long[])} 并行排序，不创建比较器和装箱对象；名称列按不区分大小写的顺序并行排序。
+ * 行数超过 {@link #ASYNC_THRESHOLD} 时在后台线程排序，完成后在事件分派线程中一次性替换视图顺序，期间表格保持原来的顺序。
+ * 模型的增删行事件只做线性的索引调整，同一批事件结束后合并为一次排序。</p>
+ *
+ * <p>筛选由 {@link NameIndex} 完成，结果与排序后的顺序合并为视图顺序。模型不变时排序结果和索引都会保留，
+ * 输入筛选文本只需重新匹配，不必重新排序。新的筛选文本会使正在后台进行的匹配尽快放弃。</p>
+ */
+public class FileRowSorter extends RowSorter<FileTableModel> {
+	private static final Logger             logger          = LogManager.getLogger(FileRowSorter.class);
+	/**
+	 * 超过此行数时在后台线程排序
+	 */
+	private static final int                ASYNC_THRESHOLD = 20_000;
+	/**
+	 * 按名称归并排序时，短于此长度的区间改用插入排序
+	 */
+	private static final int                MERGE_CUTOFF    = 7;
+	/**
+	 * 执行后台排序和筛选的线程池，结果直接投递到事件分派线程，不经过 {@link SwingWorker} 的合并定时器
+	 */
+	private static final ExecutorService    WORKER          = Executors.newCachedThreadPool(runnable -> {
+		Thread thread = new Thread(runnable, "file-sorter");
+		thread.setDaemon(true);
+		return thread;
+	});
+	/**
+	 * 名称的比较器，不区分大小写，相同时再区分大小写
+	 */
+	private static final Comparator<String> NAME_ORDER      =
+			String.CASE_INSENSITIVE_ORDER.thenComparing(Comparator.naturalOrder());
+	/**
+	 * 被排序的表格模型
+	 */
+	private final        FileTableModel     model;
+	/**
+	 * 当前的排序键，只使用第一个
+	 */
+	private              List<SortKey>      sortKeys        = Collections.emptyList();
+	/**
+	 * 视图行号到模型行号的映射
+	 */
+	private              int[]              viewToModel     = new int[0];
+	/**
+	 * 模型行号到视图行号的映射
+	 */
+	private              int[]              modelToView     = new int[0];
+	/**
+	 * 模型中全部行排序后的顺序，模型或排序键改变后为null
+	 */
+	private              int[]              sortedRows;
+	/**
+	 * 当前模型的名称索引，模型改变后为null
+	 */
+	private              NameIndex          index;
+	/**
+	 * 当前的筛选文本，为空时不筛选
+	 */
+	private              String             filter          = "";
+	/**
+	 * 排序请求的序号，用于丢弃已过时的后台排序和筛选结果
+	 */
+	private volatile     int                generation;
+	/**
+	 * 是否已安排了合并后的排序和筛选
+	 */
+	private              boolean            refreshScheduled;
+
+	/**
+	 * 构造函数
+	 *
+	 * @param model 被排序的表格模型
+	 */
+	public FileRowSorter(FileTableModel model) {
+		this.model = model;
+		resetMapping();
+	}
+
+	/**
+	 * 获取被排序的表格模型
+	 *
+	 * @return 表格模型
+	 */
+	@Override public FileTableModel getModel() {
+		return model;
+	}
+
+	/**
+	 * 切换某列的排序顺序：已按该列排序时反转顺序，否则按该列升序排序
+	 *
+	 * @param column 模型中的列号
+	 */
+	@Override public void toggleSortOrder(int column) {
+		SortOrder order = SortOrder.ASCENDING;
+		if (!sortKeys.isEmpty() && sortKeys.get(0).getColumn() == column &&
+		    sortKeys.get(0).getSortOrder() == SortOrder.ASCENDING) {
+			order = SortOrder.DESCENDING;
+		}
+		setSortKeys(Collections.singletonList(new SortKey(column, order)));
+	}
+
+	/**
+	 * 将视图行号转换为模型行号
+	 *
+	 * @param index 视图行号
+	 *
+	 * @return 模型行号
+	 */
+	@Override public int convertRowIndexToModel(int index) {
+		if (index < 0 || index >= viewToModel.length) {
+			throw new IndexOutOfBoundsException("Invalid view index " + index);
+		}
+		return viewToModel[index];
+	}
+
+	/**
+	 * 将模型行号转换为视图行号
+	 *
+	 * @param index 模型行号
+	 *
+	 * @return 视图行号
+	 */
+	@Override public int convertRowIndexToView(int index) {
+		if (index < 0 || index >= modelToView.length) {
+			throw new IndexOutOfBoundsException("Invalid model index " + index);
+		}
+		return modelToView[index];
+	}
+
+	/**
+	 * 设置排序键并重新排序
+	 *
+	 * @param keys 排序键，为null或空时恢复模型顺序
+	 */
+	@Override public void setSortKeys(List<? extends SortKey> keys) {
+		List<SortKey> newKeys = keys == null ? Collections.emptyList() : List.copyOf(keys);
+		if (newKeys.equals(sortKeys)) {
+			return;
+		}
+		sortKeys   = newKeys;
+		sortedRows = null;
+		fireSortOrderChanged();
+		refresh();
+	}
+
+	/**
+	 * 获取当前的排序键
+	 *
+	 * @return 排序键
+	 */
+	@Override public List<? extends SortKey> getSortKeys() {
+		return sortKeys;
+	}
+
+	/**
+	 * 设置筛选文本，只显示名称与之匹配的行
+	 *
+	 * <p>不区分大小写；含有 {@code *} 或 {@code ?} 时作为通配符匹配整个名称，否则匹配名称中的任意位置。</p>
+	 *
+	 * @param text 筛选文本，为null或空白时显示所有行
+	 */
+	public void setFilter(String text) {
+		String query = text == null ? "" : text.trim();
+		if (query.equals(filter)) {
+			return;
+		}
+		filter = query;
+		refresh();
+	}
+
+	/**
+	 * 获取当前的筛选文本
+	 *
+	 * @return 筛选文本，不筛选时为空字符串
+	 */
+	public String getFilter() {
+		return filter;
+	}
+
+	/**
+	 * 获取视图中的行数
+	 *
+	 * @return 视图中的行数
+	 */
+	@Override public int getViewRowCount() {
+		return viewToModel.length;
+	}
+
+	/**
+	 * 获取模型中的行数
+	 *
+	 * @return 模型中的行数
+	 */
+	@Override public int getModelRowCount() {
+		return model.getRowCount();
+	}
+
+	/**
+	 * 模型的列结构改变时重新排序
+	 */
+	@Override public void modelStructureChanged() {
+		allRowsChanged();
+	}
+
+	/**
+	 * 模型的全部行改变时，先恢复模型顺序再重新排序
+	 */
+	@Override public void allRowsChanged() {
+		invalidate();
+		resetMapping();
+		refresh();
+	}
+
+	/**
+	 * 模型插入行后，新行暂时显示在视图末尾，并安排重新排序和筛选
+	 *
+	 * <p>不排序也不筛选时视图保持模型顺序，新行直接显示在模型中的位置。</p>
+	 *
+	 * @param firstRow 插入的第一行
+	 * @param endRow   插入的最后一行
+	 */
+	@Override public void rowsInserted(int firstRow, int endRow) {
+		checkRange(firstRow, endRow, model.getRowCount());
+		invalidate();
+		if (sortKeys.isEmpty() && filter.isEmpty()) {
+			resetMapping();
+			scheduleRefresh();
+			return;
+		}
+		int   count = endRow - firstRow + 1;
+		int[] view  = Arrays.copyOf(viewToModel, viewToModel.length + count);
+		for (int i = 0; i < viewToModel.length; i++) {
+			if (view[i] >= firstRow) {
+				view[i] += count;
+			}
+		}
+		for (int i = 0; i < count; i++) {
+			view[viewToModel.length + i] = firstRow + i;
+		}
+		setMapping(view);
+		scheduleRefresh();
+	}
+
+	/**
+	 * 模型删除行后，从视图中移除这些行，并安排重新排序和筛选
+	 *
+	 * @param firstRow 删除的第一行
+	 * @param endRow   删除的最后一行
+	 */
+	@Override public void rowsDeleted(int firstRow, int endRow) {
+		checkRange(firstRow, endRow, model.getRowCount() + endRow - firstRow + 1);
+		invalidate();
+		int   count = endRow - firstRow + 1;
+		int[] view  = new int[viewToModel.length];
+		int   next  = 0;
+		for (int row : viewToModel) {
+			if (row > endRow) {
+				view[next++] = row - count;
+			} else if (row < firstRow) {
+				view[next++] = row;
+			}
+		}
+		setMapping(Arrays.copyOf(view, next));
+		scheduleRefresh();
+	}
+
+	/**
+	 * 模型中的行更新后安排重新排序和筛选
+	 *
+	 * @param firstRow 更新的第一行
+	 * @param endRow   更新的最后一行
+	 */
+	@Override public void rowsUpdated(int firstRow, int endRow) {
+		checkRange(firstRow, endRow, model.getRowCount());
+		invalidate();
+		scheduleRefresh();
+	}
+
+	/**
+	 * 模型中某列的行更新后，安排重新排序和筛选
+	 *
+	 * @param firstRow 更新的第一行
+	 * @param endRow   更新的最后一行
+	 * @param column   更新的列
+	 */
+	@Override public void rowsUpdated(int firstRow, int endRow, int column) {
+		rowsUpdated(firstRow, endRow);
+	}
+
+	/**
+	 * 检查模型事件的行范围
+	 *
+	 * @param firstRow 第一行
+	 * @param endRow   最后一行
+	 * @param rowCount 有效的行数
+	 */
+	private static void checkRange(int firstRow, int endRow, int rowCount) {
+		if (firstRow < 0 || endRow < firstRow || endRow >= rowCount) {
+			throw new IndexOutOfBoundsException("Invalid range " + firstRow + ".." + endRow + " of " + rowCount);
+		}
+	}
+
+	/**
+	 * 模型改变后丢弃排序结果和名称索引
+	 */
+	private void invalidate() {
+		sortedRows = null;
+		index      = null;
+	}
+
+	/**
+	 * 将视图恢复为模型顺序，不发出事件
+	 */
+	private void resetMapping() {
+		int[] view = new int[model.getRowCount()];
+		Arrays.setAll(view, i -> i);
+		setMapping(view);
+	}
+
+	/**
+	 * 设置视图到模型的映射，并重建反向映射，被筛选掉的行反向映射为-1
+	 *
+	 * @param view 视图行号到模型行号的映射
+	 */
+	private void setMapping(int[] view) {
+		int[] inverse = new int[model.getRowCount()];
+		Arrays.fill(inverse, -1);
+		for (int i = 0; i < view.length; i++) {
+			inverse[view[i]] = i;
+		}
+		viewToModel = view;
+		modelToView = inverse;
+	}
+
+	/**
+	 * 在当前事件处理完后排序和筛选一次，同一批模型事件只处理一次
+	 */
+	private void scheduleRefresh() {
+		// 正在后台进行的排序基于变化前的模型，其结果已经过时
+		generation++;
+		if ((sortKeys.isEmpty() && filter.isEmpty()) || refreshScheduled) {
+			return;
+		}
+		refreshScheduled = true;
+		SwingUtilities.invokeLater(() -> {
+			refreshScheduled = false;
+			refresh();
+		});
+	}
+
+	/**
+	 * 按当前排序键排序并按筛选文本筛选，行数少时立即完成，行数多时在后台线程进行
+	 */
+	private void refresh() {
+		int request = ++generation;
+		if (sortKeys.isEmpty() && filter.isEmpty()) {
+			int[] previous = viewToModel;
+			resetMapping();
+			fireRowSorterChanged(previous);
+			return;
+		}
+		Job job = new Job(request);
+		if (model.getRowCount() <= ASYNC_THRESHOLD) {
+			if (job.run()) {
+				apply(job);
+			}
+			return;
+		}
+		WORKER.execute(() -> {
+			try {
+				if (job.run()) {
+					SwingUtilities.invokeLater(() -> {
+						// 期间又有新的请求或模型变化时，结果已经过时
+						if (request == generation) {
+							apply(job);
+						}
+					});
+				}
+			} catch (RuntimeException e) {
+				logger.error("Failed to sort {} rows", job.rows, e);
+			}
+		});
+	}
+
+	/**
+	 * 应用排序和筛选的结果，并通知表格视图顺序已改变
+	 *
+	 * @param job 已完成的排序和筛选任务
+	 */
+	private void apply(Job job) {
+		sortedRows = job.sorted;
+		index      = job.names;
+		int[] view = job.sorted;
+		if (job.matches != null) {
+			boolean[] included = new boolean[job.sorted.length];
+			for (int row : job.matches) {
+				included[row] = true;
+			}
+			view = new int[job.matches.length];
+			int next = 0;
+			for (int row : job.sorted) {
+				if (included[row]) {
+					view[next++] = row;
+				}
+			}
+		}
+		int[] previous = viewToModel;
+		setMapping(view);
+		fireRowSorterChanged(previous);
+	}
+
+	/**
+	 * 一次排序和筛选，只重新计算已失效的部分
+	 */
+	private final class Job {
+		/**
+		 * 请求的序号
+		 */
+		final int      request;
+		/**
+		 * 模型的行数
+		 */
+		final int      rows;
+		/**
+		 * 筛选文本
+		 */
+		final String   query;
+		/**
+		 * 从模型中取出的数据，排序结果和名称索引都有效时为null
+		 */
+		final Snapshot snapshot;
+		/**
+		 * 排序后的全部行
+		 */
+		int[]          sorted;
+		/**
+		 * 名称索引
+		 */
+		NameIndex      names;
+		/**
+		 * 匹配筛选文本的行，不筛选时为null
+		 */
+		int[]          matches;
+
+		/**
+		 * 在事件分派线程中取出任务所需的数据
+		 *
+		 * @param request 请求的序号
+		 */
+		Job(int request) {
+			boolean stale = sortedRows == null || (index == null && !filter.isEmpty());
+			this.request  = request;
+			this.rows     = model.getRowCount();
+			this.query    = filter;
+			this.sorted   = sortedRows;
+			this.names    = index;
+			this.snapshot = stale ? new Snapshot(model, sortKeys.isEmpty() ? null : sortKeys.get(0)) : null;
+		}
+
+		/**
+		 * 排序和筛选，可以在后台线程中调用
+		 *
+		 * @return 如果完成，返回true；如果筛选因请求过时被放弃，返回false
+		 */
+		boolean run() {
+			if (sorted == null) {
+				sorted = snapshot.sort();
+			}
+			if (query.isEmpty()) {
+				return true;
+			}
+			if (names == null) {
+				names = new NameIndex(snapshot.names);
+			}
+			matches = names.match(query, () -> request != generation);
+			return matches != null;
+		}
+	}
+
+	/**
+	 * 排序时从模型中取出的排序键，可以在后台线程中排序
+	 */
+	private static final class Snapshot {
+		/**
+		 * 各行的名称
+		 */
+		final String[]  names;
+		/**
+		 * 各行是否为目录
+		 */
+		final boolean[] directory;
+		/**
+		 * 排序列，不排序时为-1
+		 */
+		final int       column;
+		/**
+		 * 各行的数值排序键，按名称排序或不排序时为null
+		 */
+		final long[]    keys;
+		/**
+		 * 是否降序
+		 */
+		final boolean   descending;
+
+		/**
+		 * 从模型中取出排序所需的数据
+		 *
+		 * @param model   表格模型
+		 * @param sortKey 排序键，为null时保持模型顺序
+		 */
+		Snapshot(FileTableModel model, SortKey sortKey) {
+			int rows = model.getRowCount();
+			column     = sortKey == null ? -1 : sortKey.getColumn();
+			names      = new String[rows];
+			directory  = new boolean[rows];
+			keys       = column <= 0 ? null : new long[rows];
+			descending = sortKey != null && sortKey.getSortOrder() == SortOrder.DESCENDING;
+			long known = Long.MAX_VALUE;
+			for (int row = 0; row < rows; row++) {
+				names[row]     = model.getName(row);
+				directory[row] = model.isDirectory(row);
+				if (keys != null && !directory[row]) {
+					keys[row] = key(model.getFile(row), column);
+					if (keys[row] != Long.MIN_VALUE) {
+						known = Math.min(known, keys[row]);
+					}
+				}
+			}
+			if (keys != null) {
+				// 未知时间排在最早的已知时间之前，键的范围不因此扩大到整个long
+				long unknown = known == Long.MAX_VALUE ? 0 : known - 1;
+				for (int row = 0; row < rows; row++) {
+					if (keys[row] == Long.MIN_VALUE) {
+						keys[row] = unknown;
+					}
+				}
+			}
+		}
+
+		/**
+		 * 计算文件在某列的数值排序键
+		 *
+		 * @param file   文件
+		 * @param column 列号
+		 *
+		 * @return 大小列为字节数，时间列为毫秒时间戳，未知时间为 {@link Long#MIN_VALUE}，由构造函数换成最早的已知时间之前
+		 */
+		private static long key(File file, int column) {
+			if (column == 1) {
+				return file.getSize();
+			}
+			LocalDateTime time = column == 2 ? file.getCreatedTime() : file.getModifiedTime();
+			if (time == null) {
+				return Long.MIN_VALUE;
+			}
+			// 只用于比较先后，统一按UTC换算即可
+			return time.toEpochSecond(ZoneOffset.UTC) * 1000 + time.getNano() / 1_000_000;
+		}
+
+		/**
+		 * 排序，目录在前，文件在后
+		 *
+		 * <p>目录没有大小和时间，总是按名称排序，只有按名称列排序时才随排序方向反转。</p>
+		 *
+		 * @return 视图行号到模型行号的映射
+		 */
+		int[] sort() {
+			if (column < 0) {
+				int[] view = new int[names.length];
+				Arrays.setAll(view, i -> i);
+				return view;
+			}
+			int[] directories = rows(true);
+			int[] files       = rows(false);
+			sortByName(directories, keys == null && descending);
+			if (keys == null) {
+				sortByName(files, descending);
+			} else {
+				sortByKey(files);
+			}
+			int[] view = Arrays.copyOf(directories, directories.length + files.length);
+			System.arraycopy(files, 0, view, directories.length, files.length);
+			return view;
+		}
+
+		/**
+		 * 取出所有目录行或所有文件行
+		 *
+		 * @param directories 为true时取目录行，否则取文件行
+		 *
+		 * @return 按模型顺序排列的行号
+		 */
+		private int[] rows(boolean directories) {
+			int count = 0;
+			for (boolean isDirectory : directory) {
+				if (isDirectory == directories) {
+					count++;
+				}
+			}
+			int[] rows = new int[count];
+			int   next = 0;
+			for (int row = 0; row < directory.length; row++) {
+				if (directory[row] == directories) {
+					rows[next++] = row;
+				}
+			}
+			return rows;
+		}
+
+		/**
+		 * 按名称排序，名称相同的行保持模型顺序
+		 *
+		 * <p>直接对行号数组做归并排序，不必把行号装箱成 {@link Integer}。</p>
+		 *
+		 * @param rows       要排序的行号，排序结果写回此数组
+		 * @param descending 是否降序
+		 */
+		private void sortByName(int[] rows, boolean descending) {
+			Comparator<String> order = descending ? NAME_ORDER.reversed() : NAME_ORDER;
+			mergeSort(rows.clone(), rows, 0, rows.length, order);
+		}
+
+		/**
+		 * 按名称稳定地归并排序行号，src和dest在区间内的初始内容相同
+		 *
+		 * @param src   辅助数组
+		 * @param dest  排序结果写入的数组
+		 * @param low   区间起点（包含）
+		 * @param high  区间终点（不包含）
+		 * @param order 名称的顺序
+		 */
+		private void mergeSort(int[] src, int[] dest, int low, int high, Comparator<String> order) {
+			if (high - low < MERGE_CUTOFF) {
+				for (int i = low + 1; i < high; i++) {
+					for (int j = i; j > low && order.compare(names[dest[j - 1]], names[dest[j]]) > 0; j--) {
+						int row = dest[j];
+						dest[j]     = dest[j - 1];
+						dest[j - 1] = row;
+					}
+				}
+				return;
+			}
+			int mid = (low + high) >>> 1;
+			mergeSort(dest, src, low, mid, order);
+			mergeSort(dest, src, mid, high, order);
+			// 两半已经有序时直接复制
+			if (order.compare(names[src[mid - 1]], names[src[mid]]) <= 0) {
+				System.arraycopy(src, low, dest, low, high - low);
+				return;
+			}
+			for (int i = low, p = low, q = mid; i < high; i++) {
+				if (q >= high || p < mid && order.compare(names[src[p]], names[src[q]]) <= 0) {
+					dest[i] = src[p++];
+				} else {
+					dest[i] = src[q++];
+				}
+			}
+		}
+
+		/**
+		 * 按数值键并行排序，键相同的行保持模型顺序
+		 *
+		 * @param rows 要排序的行号，排序结果写回此数组
+		 */
+		private void sortByKey(int[] rows) {
+			long[] values = new long[rows.length];
+			for (int i = 0; i < rows.length; i++) {
+				values[i] = keys[rows[i]];
+			}
+			sortPacked(rows, values, descending);
+		}
+
+		/**
+		 * 将数值与位置合并为一个long后并行排序，数值相同的行保持原来的顺序
+		 *
+		 * <p>数值减去最小值后左移，低位存放行在数组中的位置；降序时用最大值减去数值。
+		 * 数值的范围放不进剩余的位数时，先换成它在去重后的数值中的名次，名次总能放下。</p>
+		 *
+		 * @param rows       要排序的行号，排序结果写回此数组
+		 * @param values     与rows位置对应的数值
+		 * @param descending 是否降序
+		 */
+		private static void sortPacked(int[] rows, long[] values, boolean descending) {
+			if (rows.length < 2) {
+				return;
+			}
+			long min = Long.MAX_VALUE;
+			long max = Long.MIN_VALUE;
+			for (long value : values) {
+				min = Math.min(min, value);
+				max = Math.max(max, value);
+			}
+			int  indexBits = 32 - Integer.numberOfLeadingZeros(rows.length - 1);
+			long range     = max - min;
+			if (range < 0 || range >>> (63 - indexBits) != 0) {
+				values = ranks(values);
+				min    = 0;
+				range  = rows.length - 1;
+			}
+			long[] packed = new long[rows.length];
+			for (int i = 0; i < rows.length; i++) {
+				long offset = values[i] - min;
+				packed[i] = (descending ? range - offset : offset) << indexBits | i;
+			}
+			Arrays.parallelSort(packed);
+			int[] original = rows.clone();
+			long  mask     = (1L << indexBits) - 1;
+			for (int i = 0; i < rows.length; i++) {
+				rows[i] = original[(int) (packed[i] & mask)];
+			}
+		}
+
+		/**
+		 * 将数值换成它在去重后的数值中的名次
+		 *
+		 * @param values 数值
+		 *
+		 * @return 与values位置对应的名次，从0开始
+		 */
+		private static long[] ranks(long[] values) {
+			long[] distinct = values.clone();
+			Arrays.parallelSort(distinct);
+			int count = 1;
+			for (int i = 1; i < distinct.length; i++) {
+				if (distinct[i] != distinct[count - 1]) {
+					distinct[count++] = distinct[i];
+				}
+			}
+			long[] ranks = new long[values.length];
+			for (int i = 0; i < values.length; i++) {
+				ranks[i] = Arrays.binarySearch(distinct, 0, count, values[i]);
+			}
+			return ranks;
+		}
+	}
+}
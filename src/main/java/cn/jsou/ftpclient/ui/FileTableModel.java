@@ -0,0 +1,376 @@
+package cn.jsou.ftpclient.ui;
+
+import cn.jsou.ftpclient.vfs.File;
+
+import javax.swing.table.AbstractTableModel;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * 文件表格的数据模型，直接引用目录列表中的名称和文件对象
+ *
+ * <p>每行只保存一个名称引用和一个文件对象引用（目录为null），不预先生成格式化的字符串。大小和时间列返回原始的
+ * {@link Long} 和 {@link LocalDateTime}，由 {@link FileAttributeRenderer} 在绘制可见行时才格式化，排序也按原始值进行。
+ * 刷新同一目录时，{@link #update(List, List)} 只为新增、删除和变化的行发出事件，选中状态和排序得以保留；
+ * 监视到目录变化时，{@link #applyChanges(Set, List, List)} 只处理变化的名称。</p>
+ */
+public class FileTableModel extends AbstractTableModel {
+	/**
+	 * 列名
+	 */
+	private static final String[]   COLUMN_NAMES            = {"名称", "大小", "创建时间", "修改时间"};
+	/**
+	 * 各列的值类型
+	 */
+	private static final Class<?>[] COLUMN_CLASSES          =
+			{String.class, Long.class, LocalDateTime.class, LocalDateTime.class};
+	/**
+	 * 逐行发出事件的最大变化行数，超过时整体替换，逐行事件的总开销会超过一次完整刷新
+	 */
+	private static final int        MAX_INCREMENTAL_CHANGES = 256;
+	/**
+	 * 各行的名称，目录在前，文件在后
+	 */
+	private final        List<String> names                 = new ArrayList<>();
+	/**
+	 * 各行的文件对象，目录行为null
+	 */
+	private final        List<File>   files                 = new ArrayList<>();
+
+	/**
+	 * 用新的目录列表替换全部行
+	 *
+	 * @param directories 子目录名称
+	 * @param fileList    文件
+	 */
+	public void setListing(List<String> directories, List<File> fileList) {
+		names.clear();
+		files.clear();
+		append(directories, fileList, names, files);
+		fireTableDataChanged();
+	}
+
+	/**
+	 * 用同一目录的新列表更新各行，只为变化的部分发出事件
+	 *
+	 * <p>保留下来的行在新旧列表中的相对顺序不变时，依次发出删除、插入和更新事件；顺序改变或变化过多时退化为整体替换。</p>
+	 *
+	 * @param directories 子目录名称
+	 * @param fileList    文件
+	 */
+	public void update(List<String> directories, List<File> fileList) {
+		List<String> newNames = new ArrayList<>(directories.size() + fileList.size());
+		List<File>   newFiles = new ArrayList<>(directories.size() + fileList.size());
+		append(directories, fileList, newNames, newFiles);
+		Map<String, Integer> newDirectoryRows = new HashMap<>();
+		Map<String, Integer> newFileRows      = new HashMap<>();
+		for (int row = 0; row < newNames.size(); row++) {
+			(newFiles.get(row) == null ? newDirectoryRows : newFileRows).put(newNames.get(row), row);
+		}
+
+		List<Integer> removed = new ArrayList<>();
+		int           last    = -1;
+		for (int row = 0; row < names.size(); row++) {
+			Integer newRow = (files.get(row) == null ? newDirectoryRows : newFileRows).get(names.get(row));
+			if (newRow == null) {
+				removed.add(row);
+				if (removed.size() > MAX_INCREMENTAL_CHANGES) {
+					replace(newNames, newFiles);
+					return;
+				}
+			} else if (newRow < last) {
+				// 保留的行顺序改变，无法用插入和删除表示
+				replace(newNames, newFiles);
+				return;
+			} else {
+				last = newRow;
+			}
+		}
+		int added = newNames.size() - (names.size() - removed.size());
+		if (removed.size() + added > MAX_INCREMENTAL_CHANGES) {
+			replace(newNames, newFiles);
+			return;
+		}
+
+		for (int i = removed.size() - 1; i >= 0; i--) {
+			int row = removed.get(i);
+			names.remove(row);
+			files.remove(row);
+			fireTableRowsDeleted(row, row);
+		}
+		// 剩下的行与新列表中保留的行顺序一致，按新位置依次插入新增的行
+		for (int row = 0; row < newNames.size(); row++) {
+			if (row >= names.size() || !sameEntry(row, newNames.get(row), newFiles.get(row))) {
+				names.add(row, newNames.get(row));
+				files.add(row, newFiles.get(row));
+				fireTableRowsInserted(row, row);
+			}
+		}
+		List<Integer> changed = new ArrayList<>();
+		for (int row = 0; row < files.size(); row++) {
+			File file = newFiles.get(row);
+			if (file != null && isChanged(files.get(row), file)) {
+				changed.add(row);
+			}
+			files.set(row, file);
+		}
+		if (changed.size() > MAX_INCREMENTAL_CHANGES) {
+			fireTableRowsUpdated(0, files.size() - 1);
+		} else {
+			changed.forEach(row -> fireTableRowsUpdated(row, row));
+		}
+	}
+
+	/**
+	 * 把目录中部分名称的变化应用到各行，不比较整个列表
+	 *
+	 * <p>仍存在且类型不变的行就地更新，已不存在或类型改变的行被删除，新出现的目录插入到目录行之后，新出现的文件追加到末尾。
+	 * 变化过多时改为发出一次整体刷新事件。</p>
+	 *
+	 * @param changed     发生变化的名称
+	 * @param directories 发生变化的名称中仍存在的子目录
+	 * @param fileList    发生变化的名称中仍存在的文件
+	 */
+	public void applyChanges(Set<String> changed, List<String> directories, List<File> fileList) {
+		Set<String>       presentDirectories = new HashSet<>(directories);
+		Map<String, File> presentFiles       = new HashMap<>();
+		for (File file : fileList) {
+			presentFiles.put(file.getName(), file);
+		}
+		Set<String>   kept          = new HashSet<>();
+		List<Integer> updated       = new ArrayList<>();
+		List<Integer> removed       = new ArrayList<>();
+		int           directoryRows = 0;
+		for (int row = 0; row < names.size(); row++) {
+			String name = names.get(row);
+			File   file = files.get(row);
+			if (file == null) {
+				directoryRows++;
+			}
+			if (!changed.contains(name)) {
+				continue;
+			}
+			if (file == null ? presentDirectories.contains(name) : presentFiles.containsKey(name)) {
+				kept.add(name);
+				if (file != null && isChanged(file, presentFiles.get(name))) {
+					files.set(row, presentFiles.get(name));
+					updated.add(row);
+				}
+			} else {
+				removed.add(row);
+			}
+		}
+		List<String> addedDirectories = new ArrayList<>();
+		for (String directory : directories) {
+			if (!kept.contains(directory)) {
+				addedDirectories.add(directory);
+			}
+		}
+		List<File> addedFiles = new ArrayList<>();
+		for (File file : fileList) {
+			if (!kept.contains(file.getName())) {
+				addedFiles.add(file);
+			}
+		}
+		boolean incremental =
+				updated.size() + removed.size() + addedDirectories.size() + addedFiles.size() <= MAX_INCREMENTAL_CHANGES;
+
+		if (incremental) {
+			updated.forEach(row -> fireTableRowsUpdated(row, row));
+		}
+		for (int i = removed.size() - 1; i >= 0; i--) {
+			int row = removed.get(i);
+			if (files.get(row) == null) {
+				directoryRows--;
+			}
+			names.remove(row);
+			files.remove(row);
+			if (incremental) {
+				fireTableRowsDeleted(row, row);
+			}
+		}
+		for (String directory : addedDirectories) {
+			int row = directoryRows++;
+			names.add(row, directory);
+			files.add(row, null);
+			if (incremental) {
+				fireTableRowsInserted(row, row);
+			}
+		}
+		for (File file : addedFiles) {
+			int row = names.size();
+			names.add(file.getName());
+			files.add(file);
+			if (incremental) {
+				fireTableRowsInserted(row, row);
+			}
+		}
+		if (!incremental) {
+			fireTableDataChanged();
+		}
+	}
+
+	/**
+	 * 将目录和文件按表格的行顺序追加到给定的列表
+	 *
+	 * @param directories 子目录名称
+	 * @param fileList    文件
+	 * @param rowNames    接收各行名称的列表
+	 * @param rowFiles    接收各行文件对象的列表
+	 */
+	private static void append(List<String> directories, List<File> fileList, List<String> rowNames,
+	                           List<File> rowFiles) {
+		for (String directory : directories) {
+			rowNames.add(directory);
+			rowFiles.add(null);
+		}
+		for (File file : fileList) {
+			rowNames.add(file.getName());
+			rowFiles.add(file);
+		}
+	}
+
+	/**
+	 * 整体替换全部行
+	 *
+	 * @param newNames 新的名称
+	 * @param newFiles 新的文件对象
+	 */
+	private void replace(List<String> newNames, List<File> newFiles) {
+		names.clear();
+		names.addAll(newNames);
+		files.clear();
+		files.addAll(newFiles);
+		fireTableDataChanged();
+	}
+
+	/**
+	 * 判断当前某行与新列表中的一项是否为同一个目录项
+	 *
+	 * @param row  行号
+	 * @param name 新列表中的名称
+	 * @param file 新列表中的文件对象，目录为null
+	 *
+	 * @return 如果名称和类型都相同，返回true；否则返回false
+	 */
+	private boolean sameEntry(int row, String name, File file) {
+		return names.get(row).equals(name) && (files.get(row) == null) == (file == null);
+	}
+
+	/**
+	 * 判断文件的显示属性是否变化
+	 *
+	 * @param oldFile 原来的文件对象
+	 * @param newFile 新的文件对象
+	 *
+	 * @return 如果大小、创建时间或修改时间不同，返回true；否则返回false
+	 */
+	private static boolean isChanged(File oldFile, File newFile) {
+		return oldFile != newFile &&
+		       (oldFile.getSize() != newFile.getSize() ||
+		        !Objects.equals(oldFile.getCreatedTime(), newFile.getCreatedTime()) ||
+		        !Objects.equals(oldFile.getModifiedTime(), newFile.getModifiedTime()));
+	}
+
+	/**
+	 * 判断某行是否为目录
+	 *
+	 * @param row 模型中的行号
+	 *
+	 * @return 如果是目录，返回true；否则返回false
+	 */
+	public boolean isDirectory(int row) {
+		return files.get(row) == null;
+	}
+
+	/**
+	 * 获取某行的名称
+	 *
+	 * @param row 模型中的行号
+	 *
+	 * @return 文件或目录的名称
+	 */
+	public String getName(int row) {
+		return names.get(row);
+	}
+
+	/**
+	 * 获取某行的文件对象
+	 *
+	 * @param row 模型中的行号
+	 *
+	 * @return 文件对象，目录行为null
+	 */
+	public File getFile(int row) {
+		return files.get(row);
+	}
+
+	/**
+	 * 获取行数
+	 *
+	 * @return 行数
+	 */
+	@Override public int getRowCount() {
+		return names.size();
+	}
+
+	/**
+	 * 获取列数
+	 *
+	 * @return 列数
+	 */
+	@Override public int getColumnCount() {
+		return COLUMN_NAMES.length;
+	}
+
+	/**
+	 * 获取列名
+	 *
+	 * @param column 列号
+	 *
+	 * @return 列名
+	 */
+	@Override public String getColumnName(int column) {
+		return COLUMN_NAMES[column];
+	}
+
+	/**
+	 * 获取列的值类型，用于选择渲染器和排序比较器
+	 *
+	 * @param column 列号
+	 *
+	 * @return 列的值类型
+	 */
+	@Override public Class<?> getColumnClass(int column) {
+		return COLUMN_CLASSES[column];
+	}
+
+	/**
+	 * 获取单元格的原始值
+	 *
+	 * @param row    行号
+	 * @param column 列号
+	 *
+	 * @return 名称、大小（字节）或时间；目录的大小和时间为null
+	 */
+	@Override public Object getValueAt(int row, int column) {
+		if (column == 0) {
+			return names.get(row);
+		}
+		File file = files.get(row);
+		if (file == null) {
+			return null;
+		}
+		return switch (column) {
+			case 1 -> file.getSize();
+			case 2 -> file.getCreatedTime();
+			default -> file.getModifiedTime();
+		};
+	}
+}
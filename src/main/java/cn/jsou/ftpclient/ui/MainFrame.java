@@ -1,7 +1,10 @@
 package cn.jsou.ftpclient.ui;
 
 import cn.jsou.ftpclient.ftp.FtpClient;
+import cn.jsou.ftpclient.ftp.FtpConnectionFactory;
+import cn.jsou.ftpclient.ftp.SessionSupervisor;
 import cn.jsou.ftpclient.vfs.NativeFileSystemProvider;
+import cn.jsou.ftpclient.vfs.PathIndex;
 import cn.jsou.ftpclient.vfs.VirtualFileSystem;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -10,6 +13,10 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * 主窗口类，提供了Java FTP客户端的图形用户界面
@@ -48,6 +55,18 @@ public class MainFrame extends JFrame {
 	 * FTP客户端实例
 	 */
 	private              FtpClient             ftpClient;
+	/**
+	 * 保持控制连接存活并在断开后重新连接的监督器
+	 */
+	private              SessionSupervisor     supervisor;
+	/**
+	 * 当前服务器的远程路径索引，未连接时为null
+	 */
+	private              PathIndex             remoteIndex;
+	/**
+	 * 远程路径索引的保存位置
+	 */
+	private              Path                  indexFile;
 
 	/**
 	 * 构造函数，初始化主窗口
@@ -62,10 +81,14 @@ public class MainFrame extends JFrame {
 			@Override
 			public void windowClosing(WindowEvent e) {
 				// 在这里调用 ftpClient.logout()
+				if (supervisor != null) {
+					supervisor.close();
+				}
 				if (ftpClient != null) {
 					ftpClient.logout();
 					ftpClient.close();
 				}
+				saveIndex();
 				System.exit(0); // 确保应用程序完全退出
 			}
 		});
@@ -82,6 +105,7 @@ public class MainFrame extends JFrame {
 		usernameField      = new JTextField(10);
 		passwordField      = new JPasswordField(10);
 		connectButton      = new JButton("Connect");
+		JButton searchButton = new JButton("搜索");
 
 		//DEBUG
 		serverAddressField.setText("172.17.0.2");
@@ -91,6 +115,7 @@ public class MainFrame extends JFrame {
 		//DEBUG
 
 		connectButton.addActionListener(e -> initFtp());
+		searchButton.addActionListener(e -> openSearch());
 
 		topPanel.add(new JLabel("服务器地址:"));
 		topPanel.add(serverAddressField);
@@ -101,6 +126,7 @@ public class MainFrame extends JFrame {
 		topPanel.add(new JLabel("密码:"));
 		topPanel.add(passwordField);
 		topPanel.add(connectButton);
+		topPanel.add(searchButton);
 
 		JSplitPane splitPane = new JSplitPane(JSplitPane.HORIZONTAL_SPLIT);
 
@@ -130,18 +156,30 @@ public class MainFrame extends JFrame {
 		String password = new String(passwordField.getPassword());
 
 		try {
+			if (supervisor != null) {
+				supervisor.close();
+				supervisor = null;
+			}
+			saveIndex();
 			ftpClient = new FtpClient(server, port); // 假设FtpClient构造函数接受服务器地址
 			boolean loginSuccess = ftpClient.login(username, password);
 
 			if (loginSuccess) {
 				JOptionPane.showMessageDialog(this, "登录成功！", "登录", JOptionPane.INFORMATION_MESSAGE);
+				// 先载入索引，之后列出的每个目录都会写入索引
+				indexFile   = PathIndex.defaultFile(server, port);
+				remoteIndex = loadIndex(indexFile);
+				ftpClient.remoteFs.setIndex(remoteIndex);
 				// 登录成功后的操作，例如更新界面显示服务器文件列表
 				ftpClient.init();
 				ftpClient.dataServer.waitHandlerComplete();
+				supervisor = new SessionSupervisor(ftpClient, password);
+				supervisor.start();
+				ftpClient.remoteFs.setSupervisor(supervisor);
 				serverFileExplorer.setFileSystemProvider(ftpClient.remoteFs);
 				serverFileExplorer.updateFileList(ftpClient.remoteFs.getCurrentDirectoryPath());
-				localFileExplorer.setFtpClient(ftpClient);
-				serverFileExplorer.setFtpClient(ftpClient);
+				localFileExplorer.setSupervisor(supervisor);
+				serverFileExplorer.setSupervisor(supervisor);
 			} else {
 				JOptionPane.showMessageDialog(this,
 				                              "登录失败：用户名或密码错误。",
@@ -153,4 +191,91 @@ public class MainFrame extends JFrame {
 			JOptionPane.showMessageDialog(this, "错误：" + ex.getMessage(), "错误", JOptionPane.ERROR_MESSAGE);
 		}
 	}
+
+	/**
+	 * 载入远程路径索引
+	 *
+	 * @param file 索引文件
+	 *
+	 * @return 文件中的索引；文件不存在或无法读取时返回空索引
+	 */
+	private static PathIndex loadIndex(Path file) {
+		if (Files.exists(file)) {
+			try {
+				return PathIndex.load(file);
+			} catch (IOException e) {
+				logger.warn("Discarding unreadable index {}: {}", file, e.getMessage());
+			}
+		}
+		return new PathIndex();
+	}
+
+	/**
+	 * 保存当前服务器的远程路径索引
+	 */
+	private void saveIndex() {
+		if (remoteIndex == null) {
+			return;
+		}
+		try {
+			remoteIndex.save(indexFile);
+		} catch (IOException e) {
+			logger.error("Failed to save index {}", indexFile, e);
+		}
+	}
+
+	/**
+	 * 获取窗口可以操作的时刻
+	 *
+	 * @return 本地文件浏览组件列出初始目录后完成的Future
+	 */
+	public CompletableFuture<Void> whenReady() {
+		return localFileExplorer.getInitialListing();
+	}
+
+	/**
+	 * 打开远程文件搜索对话框
+	 */
+	private void openSearch() {
+		if (remoteIndex == null) {
+			JOptionPane.showMessageDialog(this, "请先连接服务器。", "搜索", JOptionPane.INFORMATION_MESSAGE);
+			return;
+		}
+		new SearchDialog(this, remoteIndex, serverFileExplorer::updateFileList, this::indexServer).setVisible(true);
+	}
+
+	/**
+	 * 在后台用单独的会话遍历整个服务器，把所有目录写入远程路径索引
+	 *
+	 * <p>遍历使用独立的控制连接，不影响界面上的浏览和传输。完成后保存索引。</p>
+	 *
+	 * @param onDone 完成后在事件分派线程中执行的回调
+	 */
+	private void indexServer(Runnable onDone) {
+		String    server   = serverAddressField.getText();
+		String    port     = portField.getText();
+		String    username = usernameField.getText();
+		String    password = new String(passwordField.getPassword());
+		PathIndex index    = remoteIndex;
+		Path      file     = indexFile;
+		Thread indexer = new Thread(() -> {
+			try (FtpConnectionFactory factory = new FtpConnectionFactory(server, port, username, password)) {
+				FtpClient client = factory.open();
+				try {
+					client.remoteFs.setIndex(index);
+					client.remoteFs.crawl("/");
+				} finally {
+					client.logout();
+					client.close();
+				}
+				index.save(file);
+				logger.info("Indexed {} entries on {}:{}", index.size(), server, port);
+			} catch (IOException e) {
+				logger.error("Failed to index {}:{}", server, port, e);
+			}
+			SwingUtilities.invokeLater(onDone);
+		}, "ftp-indexer");
+		indexer.setDaemon(true);
+		indexer.start();
+	}
 }
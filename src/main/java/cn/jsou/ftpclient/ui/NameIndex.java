@@ -0,0 +1,201 @@
+package cn.jsou.ftpclient.ui;
+
+import cn.jsou.ftpclient.utils.GlobalPathUtil;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+
+/**
+ * 目录列表名称的筛选索引，支持子串、前缀和通配符匹配
+ *
+ * <p>索引保存所有名称的小写形式，并记住上一次查询的结果。新查询的结果必然是上一次结果的子集时
+ * （例如在子串后继续输入字符，或把前缀继续加长），只在上一次的结果中查找，因此边输入边筛选时，
+ * 每次按键需要检查的名称越来越少。检查在公共的ForkJoin线程池中并行进行。</p>
+ */
+class NameIndex {
+	/**
+	 * 每检查多少个名称检查一次查询是否已被取消
+	 */
+	private static final int      CHECK_INTERVAL = 4096;
+	/**
+	 * 各行名称的小写形式，下标为模型中的行号
+	 */
+	private final        String[] names;
+	/**
+	 * 上一次查询
+	 */
+	private              Query    lastQuery;
+	/**
+	 * 上一次查询匹配的行号，按升序排列
+	 */
+	private              int[]    lastMatches;
+
+	/**
+	 * 构造函数
+	 *
+	 * @param names 各行的名称，下标为模型中的行号
+	 */
+	NameIndex(String[] names) {
+		this.names = new String[names.length];
+		for (int row = 0; row < names.length; row++) {
+			this.names[row] = names[row].toLowerCase(Locale.ROOT);
+		}
+	}
+
+	/**
+	 * 查找名称与查询匹配的行，不区分大小写
+	 *
+	 * <p>查询中含有 {@code *} 或 {@code ?} 时作为通配符匹配整个名称，否则匹配名称中的任意位置。</p>
+	 *
+	 * @param text      查询文本
+	 * @param cancelled 返回true时表示查询已过时，应尽快放弃
+	 *
+	 * @return 匹配的行号，按升序排列；查询被取消时返回null
+	 */
+	synchronized int[] match(String text, BooleanSupplier cancelled) {
+		Query query = new Query(text.toLowerCase(Locale.ROOT));
+		if (query.equals(lastQuery)) {
+			return lastMatches;
+		}
+		int[] candidates = query.refines(lastQuery) ? lastMatches : null;
+		int[] matches    = scan(candidates, query.matcher(), cancelled);
+		if (matches != null) {
+			lastQuery   = query;
+			lastMatches = matches;
+		}
+		return matches;
+	}
+
+	/**
+	 * 并行检查候选行的名称
+	 *
+	 * <p>候选行按 {@link #CHECK_INTERVAL} 个一段分给各线程，每段开始前检查一次查询是否已被取消，
+	 * 因此无论候选行号如何分布，每检查这么多名称都会检查一次取消。</p>
+	 *
+	 * @param candidates 候选行号，为null时检查所有行
+	 * @param matcher    名称的匹配条件
+	 * @param cancelled  返回true时表示查询已过时
+	 *
+	 * @return 匹配的行号，按升序排列；查询被取消时返回null
+	 */
+	private int[] scan(int[] candidates, Predicate<String> matcher, BooleanSupplier cancelled) {
+		int count    = candidates == null ? names.length : candidates.length;
+		int segments = (count + CHECK_INTERVAL - 1) / CHECK_INTERVAL;
+		try {
+			return IntStream.range(0, segments).parallel().mapToObj(segment -> {
+				if (cancelled.getAsBoolean()) {
+					throw new CancellationException();
+				}
+				int   from    = segment * CHECK_INTERVAL;
+				int   to      = Math.min(count, from + CHECK_INTERVAL);
+				int[] matches = new int[to - from];
+				int   found   = 0;
+				for (int i = from; i < to; i++) {
+					int row = candidates == null ? i : candidates[i];
+					if (matcher.test(names[row])) {
+						matches[found++] = row;
+					}
+				}
+				return Arrays.copyOf(matches, found);
+			}).flatMapToInt(Arrays::stream).toArray();
+		} catch (CancellationException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * 解析后的查询
+	 */
+	private static final class Query {
+		/**
+		 * 小写的查询文本
+		 */
+		final String  text;
+		/**
+		 * 是否为子串查询
+		 */
+		final boolean substring;
+		/**
+		 * 是否为前缀查询，即只在末尾有一个 {@code *} 的通配符
+		 */
+		final boolean prefix;
+		/**
+		 * 子串或前缀查询的字面文本，其他查询为null
+		 */
+		final String  literal;
+
+		/**
+		 * 解析查询文本
+		 *
+		 * @param text 小写的查询文本
+		 */
+		Query(String text) {
+			this.text = text;
+			int wildcards = 0;
+			for (int i = 0; i < text.length(); i++) {
+				if (text.charAt(i) == '*' || text.charAt(i) == '?') {
+					wildcards++;
+				}
+			}
+			substring = wildcards == 0;
+			prefix    = wildcards == 1 && text.endsWith("*");
+			literal   = substring ? text : prefix ? text.substring(0, text.length() - 1) : null;
+		}
+
+		/**
+		 * 判断本查询的结果是否必然是另一查询结果的子集
+		 *
+		 * @param previous 另一查询，可以为null
+		 *
+		 * @return 如果是子集，返回true；否则返回false
+		 */
+		boolean refines(Query previous) {
+			if (previous == null || literal == null) {
+				return false;
+			}
+			if (previous.substring) {
+				return literal.contains(previous.literal);
+			}
+			return previous.prefix && prefix && literal.startsWith(previous.literal);
+		}
+
+		/**
+		 * 创建名称的匹配条件
+		 *
+		 * @return 匹配条件，参数为小写的名称
+		 */
+		Predicate<String> matcher() {
+			if (substring) {
+				return name -> name.contains(literal);
+			}
+			if (prefix) {
+				return name -> name.startsWith(literal);
+			}
+			return name -> GlobalPathUtil.globMatches(text, name);
+		}
+
+		/**
+		 * 判断两个查询是否相同
+		 *
+		 * @param o 另一个对象
+		 *
+		 * @return 如果查询文本相同，返回true；否则返回false
+		 */
+		@Override public boolean equals(Object o) {
+			return o instanceof Query other && text.equals(other.text);
+		}
+
+		/**
+		 * 计算哈希值
+		 *
+		 * @return 查询文本的哈希值
+		 */
+		@Override public int hashCode() {
+			return text.hashCode();
+		}
+	}
+}
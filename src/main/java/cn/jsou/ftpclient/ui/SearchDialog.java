@@ -0,0 +1,241 @@
+package cn.jsou.ftpclient.ui;
+
+import cn.jsou.ftpclient.vfs.File;
+import cn.jsou.ftpclient.vfs.PathIndex;
+import cn.jsou.ftpclient.vfs.SearchQuery;
+import org.apache.commons.io.FileUtils;
+
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 远程文件搜索对话框，在远程路径索引中按名称、大小和修改时间查找
+ *
+ * <p>每次修改条件都立即重新查询索引，不访问服务器。索引只包含浏览或遍历过的目录，
+ * 点击“索引整个服务器”会在后台遍历整个服务器。双击结果时，服务器文件浏览组件跳转到结果所在的目录。</p>
+ */
+class SearchDialog extends JDialog {
+	/**
+	 * 每MB的字节数
+	 */
+	private static final long                               BYTES_PER_MB = 1024L * 1024L;
+	/**
+	 * 结果中修改日期的显示格式
+	 */
+	private static final DateTimeFormatter                  DATE_FORMAT  = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+	/**
+	 * 远程路径索引
+	 */
+	private final        PathIndex                          index;
+	/**
+	 * 名称条件输入字段
+	 */
+	private final        JTextField                         nameField    = new JTextField(20);
+	/**
+	 * 最小文件大小（MB）输入字段
+	 */
+	private final        JTextField                         minSizeField = new JTextField(5);
+	/**
+	 * 最大文件大小（MB）输入字段
+	 */
+	private final        JTextField                         maxSizeField = new JTextField(5);
+	/**
+	 * 修改日期下限输入字段
+	 */
+	private final        JTextField                         afterField   = new JTextField(8);
+	/**
+	 * 修改日期上限输入字段
+	 */
+	private final        JTextField                         beforeField  = new JTextField(8);
+	/**
+	 * 查询结果
+	 */
+	private final        DefaultListModel<PathIndex.Result> results      = new DefaultListModel<>();
+	/**
+	 * 显示结果数或错误信息的标签
+	 */
+	private final        JLabel                             statusLabel  = new JLabel(" ");
+
+	/**
+	 * 构造函数，初始化搜索对话框
+	 *
+	 * @param owner     所属的主窗口
+	 * @param index     远程路径索引
+	 * @param navigator 跳转到远程目录的回调，参数为目录的绝对路径
+	 * @param indexer   在后台索引整个服务器的操作，参数为完成后在事件分派线程中执行的回调
+	 */
+	SearchDialog(JFrame owner, PathIndex index, Consumer<String> navigator, Consumer<Runnable> indexer) {
+		super(owner, "搜索服务器文件", false);
+		this.index = index;
+
+		JPanel conditionPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+		nameField.setToolTipText("输入名称的一部分，或使用 * 和 ? 通配符");
+		afterField.setToolTipText("yyyy-MM-dd");
+		beforeField.setToolTipText("yyyy-MM-dd");
+		conditionPanel.add(new JLabel("名称:"));
+		conditionPanel.add(nameField);
+		conditionPanel.add(new JLabel("大小(MB):"));
+		conditionPanel.add(minSizeField);
+		conditionPanel.add(new JLabel("-"));
+		conditionPanel.add(maxSizeField);
+		conditionPanel.add(new JLabel("修改日期:"));
+		conditionPanel.add(afterField);
+		conditionPanel.add(new JLabel("-"));
+		conditionPanel.add(beforeField);
+
+		DocumentListener listener = new DocumentListener() {
+			@Override
+			public void insertUpdate(DocumentEvent e) {
+				search();
+			}
+
+			@Override
+			public void removeUpdate(DocumentEvent e) {
+				search();
+			}
+
+			@Override
+			public void changedUpdate(DocumentEvent e) {
+				search();
+			}
+		};
+		for (JTextField field : List.of(nameField, minSizeField, maxSizeField, afterField, beforeField)) {
+			field.getDocument().addDocumentListener(listener);
+		}
+
+		JList<PathIndex.Result> resultList = new JList<>(results);
+		resultList.setCellRenderer(new DefaultListCellRenderer() {
+			@Override
+			public Component getListCellRendererComponent(JList<?> list,
+			                                              Object value,
+			                                              int index,
+			                                              boolean isSelected,
+			                                              boolean cellHasFocus) {
+				super.getListCellRendererComponent(list, value, index, isSelected, cellHasFocus);
+				setText(describe((PathIndex.Result) value));
+				return this;
+			}
+		});
+		resultList.addMouseListener(new MouseAdapter() {
+			@Override
+			public void mouseClicked(MouseEvent e) {
+				if (e.getClickCount() == 2 && resultList.getSelectedValue() != null) {
+					PathIndex.Result result = resultList.getSelectedValue();
+					navigator.accept(result.isDirectory() ? result.getPath() : parentOf(result.getPath()));
+				}
+			}
+		});
+
+		JButton indexButton = new JButton("索引整个服务器");
+		indexButton.addActionListener(e -> {
+			indexButton.setEnabled(false);
+			statusLabel.setText("正在索引整个服务器……");
+			indexer.accept(() -> {
+				indexButton.setEnabled(true);
+				search();
+			});
+		});
+		JPanel southPanel = new JPanel(new BorderLayout());
+		southPanel.setBorder(BorderFactory.createEmptyBorder(5, 5, 5, 5));
+		southPanel.add(statusLabel, BorderLayout.CENTER);
+		southPanel.add(indexButton, BorderLayout.EAST);
+
+		getContentPane().add(conditionPanel, BorderLayout.NORTH);
+		getContentPane().add(new JScrollPane(resultList), BorderLayout.CENTER);
+		getContentPane().add(southPanel, BorderLayout.SOUTH);
+		setSize(760, 480);
+		setLocationRelativeTo(owner);
+		search();
+	}
+
+	/**
+	 * 按当前条件查询索引并显示结果
+	 */
+	private void search() {
+		SearchQuery query = new SearchQuery(nameField.getText());
+		try {
+			if (!minSizeField.getText().isBlank()) {
+				query.setMinSize(parseSize(minSizeField.getText()));
+			}
+			if (!maxSizeField.getText().isBlank()) {
+				query.setMaxSize(parseSize(maxSizeField.getText()));
+			}
+			if (!afterField.getText().isBlank()) {
+				query.setModifiedAfter(startOfDay(LocalDate.parse(afterField.getText().trim())));
+			}
+			if (!beforeField.getText().isBlank()) {
+				query.setModifiedBefore(startOfDay(LocalDate.parse(beforeField.getText().trim()).plusDays(1)) - 1);
+			}
+		} catch (NumberFormatException | DateTimeParseException e) {
+			statusLabel.setText("条件格式错误：大小为MB数，日期为yyyy-MM-dd");
+			return;
+		}
+		List<PathIndex.Result> found = index.search(query);
+		results.clear();
+		results.addAll(found);
+		statusLabel.setText((found.size() >= query.getLimit() ? "显示前 " : "找到 ") + found.size() + " 项，索引中共 " +
+		                    index.size() + " 项");
+	}
+
+	/**
+	 * 解析以MB为单位的文件大小
+	 *
+	 * @param text 输入的文本
+	 *
+	 * @return 文件大小（字节）
+	 */
+	private static long parseSize(String text) {
+		return (long) (Double.parseDouble(text.trim()) * BYTES_PER_MB);
+	}
+
+	/**
+	 * 获取某天开始时刻的时间戳
+	 *
+	 * @param date 本地日期
+	 *
+	 * @return 该日期在系统默认时区的零点的UTC毫秒时间戳
+	 */
+	private static long startOfDay(LocalDate date) {
+		return date.atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+	}
+
+	/**
+	 * 获取路径的上级目录
+	 *
+	 * @param path 绝对路径
+	 *
+	 * @return 上级目录的绝对路径
+	 */
+	private static String parentOf(String path) {
+		int slash = path.lastIndexOf('/');
+		return slash <= 0 ? "/" : path.substring(0, slash);
+	}
+
+	/**
+	 * 生成结果的显示文本
+	 *
+	 * @param result 查询结果
+	 *
+	 * @return 路径，文件还附带大小和修改时间
+	 */
+	private static String describe(PathIndex.Result result) {
+		if (result.isDirectory()) {
+			return result.getPath() + "/";
+		}
+		String modified = result.getModifiedMillis() == File.UNKNOWN_TIME ? "" :
+		                  "，" + DATE_FORMAT.format(Instant.ofEpochMilli(result.getModifiedMillis())
+		                                                   .atZone(ZoneId.systemDefault()));
+		return result.getPath() + "  (" + FileUtils.byteCountToDisplaySize(result.getSize()) + modified + ")";
+	}
+}
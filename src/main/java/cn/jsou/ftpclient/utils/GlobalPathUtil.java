@@ -20,4 +20,54 @@ public class GlobalPathUtil {
 
 		return normalizedPath;
 	}
+
+	/**
+	 * 将名称拼接到Unix风格的目录路径之后
+	 *
+	 * <p>目录路径以 {@code /} 结尾时（例如根目录）不再添加分隔符，不会产生 {@code //name}。</p>
+	 *
+	 * @param directory 目录路径
+	 * @param name      目录中的名称
+	 *
+	 * @return 拼接后的路径
+	 */
+	public static String join(String directory, String name) {
+		return directory.endsWith("/") ? directory + name : directory + '/' + name;
+	}
+
+	/**
+	 * 用通配符匹配整个名称
+	 *
+	 * <p>{@code *} 匹配任意个字符，{@code ?} 匹配一个字符。遇到 {@code *} 时记住位置，
+	 * 之后不匹配就回到该位置让 {@code *} 多匹配一个字符，一般情况下只需扫描名称一遍。</p>
+	 *
+	 * @param pattern 通配符模式
+	 * @param name    名称
+	 *
+	 * @return 如果匹配，返回true；否则返回false
+	 */
+	public static boolean globMatches(String pattern, String name) {
+		int p    = 0;
+		int n    = 0;
+		int star = -1;
+		int mark = 0;
+		while (n < name.length()) {
+			if (p < pattern.length() && (pattern.charAt(p) == '?' || pattern.charAt(p) == name.charAt(n))) {
+				p++;
+				n++;
+			} else if (p < pattern.length() && pattern.charAt(p) == '*') {
+				star = p++;
+				mark = n;
+			} else if (star >= 0) {
+				p = star + 1;
+				n = ++mark;
+			} else {
+				return false;
+			}
+		}
+		while (p < pattern.length() && pattern.charAt(p) == '*') {
+			p++;
+		}
+		return p == pattern.length();
+	}
 }
@@ -0,0 +1,61 @@
+package cn.jsou.ftpclient.utils;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 记录启动过程中各阶段的耗时
+ *
+ * <p>每个阶段的耗时从上一阶段结束时算起，第一个阶段从JVM进程启动时算起。本类不使用日志框架，
+ * 计时本身不会提前初始化日志。</p>
+ */
+public class StartupTimer {
+	/**
+	 * JVM进程的启动时间（UTC毫秒时间戳），无法获取时为本类加载的时间
+	 */
+	private static final long         PROCESS_START = ProcessHandle.current()
+	                                                               .info()
+	                                                               .startInstant()
+	                                                               .map(Instant::toEpochMilli)
+	                                                               .orElse(System.currentTimeMillis());
+	/**
+	 * 已结束的阶段名称
+	 */
+	private static final List<String> phases        = new ArrayList<>();
+	/**
+	 * 各阶段结束的时间（UTC毫秒时间戳）
+	 */
+	private static final List<Long>   ends          = new ArrayList<>();
+
+	/**
+	 * 工具类，不允许实例化
+	 */
+	private StartupTimer() {
+	}
+
+	/**
+	 * 记录一个阶段在此刻结束
+	 *
+	 * @param phase 阶段名称
+	 */
+	public static synchronized void mark(String phase) {
+		phases.add(phase);
+		ends.add(System.currentTimeMillis());
+	}
+
+	/**
+	 * 生成启动耗时报告
+	 *
+	 * @return 总耗时和各阶段耗时，例如 {@code 启动耗时 640 ms：JVM启动 120 ms，设置外观 180 ms，……}
+	 */
+	public static synchronized String report() {
+		StringBuilder report = new StringBuilder();
+		long          last   = PROCESS_START;
+		for (int i = 0; i < phases.size(); i++) {
+			report.append(i == 0 ? "：" : "，").append(phases.get(i)).append(' ').append(ends.get(i) - last).append(" ms");
+			last = ends.get(i);
+		}
+		return "启动耗时 " + (last - PROCESS_START) + " ms" + report;
+	}
+}
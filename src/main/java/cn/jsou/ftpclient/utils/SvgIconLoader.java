@@ -1,20 +1,54 @@
 package cn.jsou.ftpclient.utils;
 
-import org.apache.batik.transcoder.SVGAbstractTranscoder;
-import org.apache.batik.transcoder.TranscoderException;
-import org.apache.batik.transcoder.TranscoderInput;
-import org.apache.batik.transcoder.TranscoderOutput;
-import org.apache.batik.transcoder.image.ImageTranscoder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
+import javax.imageio.ImageIO;
 import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BaseMultiResolutionImage;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
 
 /**
  * 用于加载SVG图标的工具类
+ *
+ * <p>图标按（资源路径、高度、屏幕缩放比例）缓存在内存中，同一个图标只转码一次。转码后的位图还会以PNG保存在磁盘缓存目录中，
+ * 文件名包含SVG内容的校验和，之后启动时直接读取PNG，不再加载Batik。启动时可以用 {@link #prefetch(String, int)}
+ * 在后台线程中提前准备图标，界面线程用 {@link #loadSvgIconLater(String, int, Consumer)} 取用，不必等待加载。</p>
  */
 public class SvgIconLoader {
+	private static final    Logger                                         logger    = LogManager.getLogger(SvgIconLoader.class);
+	/**
+	 * 已加载或正在加载的图标，键为资源路径、高度和缩放比例
+	 */
+	private static final    ConcurrentMap<String, CompletableFuture<Icon>> ICONS     = new ConcurrentHashMap<>();
+	/**
+	 * 在后台准备图标的线程
+	 */
+	private static final    ExecutorService                                LOADER    = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "icon-loader");
+		thread.setDaemon(true);
+		return thread;
+	});
+	/**
+	 * 保存转码结果的磁盘缓存目录，为null时不使用磁盘缓存
+	 */
+	private static volatile Path                                           diskCache =
+			Paths.get(System.getProperty("user.home"), ".ftpclient", "icons");
+
 	/**
 	 * 从SVG文件加载图标
 	 *
@@ -24,64 +58,212 @@ public class SvgIconLoader {
 	 * @return 加载的图标，如果加载失败则返回null
 	 */
 	public static Icon loadSvgIcon(String path, int height) {
+		double                  scale    = screenScale();
+		CompletableFuture<Icon> future   = new CompletableFuture<>();
+		CompletableFuture<Icon> existing = ICONS.putIfAbsent(key(path, height, scale), future);
+		if (existing != null) {
+			// 已加载，或后台线程正在加载
+			return existing.join();
+		}
+		load(future, path, height, scale);
+		return future.join();
+	}
+
+	/**
+	 * 在后台线程中提前加载图标，之后以相同参数调用 {@link #loadSvgIcon(String, int)} 时直接使用结果
+	 *
+	 * @param path   SVG文件的路径
+	 * @param height 图标的期望高度
+	 */
+	public static void prefetch(String path, int height) {
+		request(path, height);
+	}
+
+	/**
+	 * 加载图标，不阻塞界面线程
+	 *
+	 * <p>图标已准备好时立即交给回调；否则在后台线程中加载，完成后在界面线程中调用回调。应在界面线程中调用。</p>
+	 *
+	 * @param path     SVG文件的路径
+	 * @param height   图标的期望高度
+	 * @param consumer 接收图标的回调，例如 {@code button::setIcon}，加载失败时参数为null
+	 */
+	public static void loadSvgIconLater(String path, int height, Consumer<Icon> consumer) {
+		CompletableFuture<Icon> future = request(path, height);
+		if (future.isDone()) {
+			consumer.accept(future.join());
+		} else {
+			future.thenAccept(icon -> SwingUtilities.invokeLater(() -> consumer.accept(icon)));
+		}
+	}
+
+	/**
+	 * 获取图标的Future，尚未加载时提交到后台线程加载
+	 *
+	 * @param path   SVG文件的路径
+	 * @param height 图标的期望高度
+	 *
+	 * @return 图标的Future
+	 */
+	private static CompletableFuture<Icon> request(String path, int height) {
+		double                  scale    = screenScale();
+		CompletableFuture<Icon> future   = new CompletableFuture<>();
+		CompletableFuture<Icon> existing = ICONS.putIfAbsent(key(path, height, scale), future);
+		if (existing != null) {
+			return existing;
+		}
+		LOADER.execute(() -> load(future, path, height, scale));
+		return future;
+	}
+
+	/**
+	 * 设置磁盘缓存目录
+	 *
+	 * @param directory 保存PNG的目录，为null时不再读写磁盘缓存
+	 */
+	public static void setDiskCache(Path directory) {
+		diskCache = directory;
+	}
+
+	/**
+	 * 加载图标并完成对应的Future，加载失败时结果为null
+	 *
+	 * @param future 要完成的Future
+	 * @param path   SVG文件的路径
+	 * @param height 图标的高度
+	 * @param scale  屏幕缩放比例
+	 */
+	private static void load(CompletableFuture<Icon> future, String path, int height, double scale) {
+		Icon icon = null;
 		try {
-			// 创建一个用于转换的BufferedImageTranscoder
-			BufferedImageTranscoder transcoder = new BufferedImageTranscoder();
-			// 设置期望的高度
-			transcoder.addTranscodingHint(SVGAbstractTranscoder.KEY_HEIGHT, (float) height);
-			// 读取SVG文件
-			try (InputStream inputStream = SvgIconLoader.class.getResourceAsStream(path)) {
-				TranscoderInput input = new TranscoderInput(inputStream);
-				transcoder.transcode(input, null);
-				BufferedImage image = transcoder.getBufferedImage();
-				return new ImageIcon(image);
-			}
-		} catch (IOException | TranscoderException e) {
-			e.printStackTrace();
-			return null;
+			icon = createIcon(path, height, scale);
+		} catch (IOException | RuntimeException e) {
+			logger.error("Failed to load icon {}", path, e);
 		}
+		future.complete(icon);
 	}
 
 	/**
-	 * 内部类，用于将SVG图像转码为BufferedImage
+	 * 创建图标，缩放比例大于1时同时准备逻辑尺寸和物理像素尺寸的位图，绘制时选用合适的一张
+	 *
+	 * @param path   SVG文件的路径
+	 * @param height 图标的高度
+	 * @param scale  屏幕缩放比例
+	 *
+	 * @return 创建的图标
+	 *
+	 * @throws IOException 如果SVG文件无法读取或转码
 	 */
-	private static class BufferedImageTranscoder extends ImageTranscoder {
-		/**
-		 * 转码后的图像
-		 */
-		private BufferedImage image;
+	private static Icon createIcon(String path, int height, double scale) throws IOException {
+		byte[] svg;
+		try (InputStream inputStream = SvgIconLoader.class.getResourceAsStream(path)) {
+			if (inputStream == null) {
+				throw new IOException("Icon resource not found: " + path);
+			}
+			svg = inputStream.readAllBytes();
+		}
+		BufferedImage base   = rasterize(path, svg, height);
+		int           pixels = (int) Math.round(height * scale);
+		if (pixels <= height) {
+			return new ImageIcon(base);
+		}
+		return new ImageIcon(new BaseMultiResolutionImage(base, rasterize(path, svg, pixels)));
+	}
 
-		/**
-		 * 创建图像缓冲区
-		 *
-		 * @param w 图像的宽度
-		 * @param h 图像的高度
-		 *
-		 * @return 创建的图像缓冲区
-		 */
-		@Override
-		public BufferedImage createImage(int w, int h) {
-			return new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+	/**
+	 * 获取指定像素高度的位图，优先读取磁盘缓存，没有时转码并写入磁盘缓存
+	 *
+	 * @param path   SVG文件的路径
+	 * @param svg    SVG文件的内容
+	 * @param pixels 位图的高度（像素）
+	 *
+	 * @return 位图
+	 *
+	 * @throws IOException 如果SVG无法转码
+	 */
+	private static BufferedImage rasterize(String path, byte[] svg, int pixels) throws IOException {
+		Path directory = diskCache;
+		Path file      = directory == null ? null : directory.resolve(cacheName(path, svg, pixels));
+		if (file != null && Files.isRegularFile(file)) {
+			try {
+				BufferedImage cached = ImageIO.read(file.toFile());
+				if (cached != null) {
+					return cached;
+				}
+			} catch (IOException e) {
+				logger.warn("Ignoring unreadable icon cache {}: {}", file, e.getMessage());
+			}
 		}
+		BufferedImage image = SvgRasterizer.rasterize(svg, pixels);
+		if (file != null) {
+			store(image, file);
+		}
+		return image;
+	}
 
-		/**
-		 * 将转码后的图像写入图像缓冲区
-		 *
-		 * @param img 要写入的图像
-		 * @param out 转码输出
-		 */
-		@Override
-		public void writeImage(BufferedImage img, TranscoderOutput out) {
-			this.image = img;
+	/**
+	 * 将位图写入磁盘缓存，先写入临时文件再替换，写入失败时只记录日志
+	 *
+	 * @param image 位图
+	 * @param file  缓存文件
+	 */
+	private static void store(BufferedImage image, Path file) {
+		try {
+			Files.createDirectories(file.getParent());
+			Path temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+			try {
+				ImageIO.write(image, "png", temp.toFile());
+				Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} finally {
+				Files.deleteIfExists(temp);
+			}
+		} catch (IOException e) {
+			logger.warn("Failed to cache icon {}: {}", file, e.getMessage());
 		}
+	}
+
+	/**
+	 * 生成缓存文件名，SVG内容改变后文件名随之改变，旧的缓存不会被误用
+	 *
+	 * @param path   SVG文件的路径
+	 * @param svg    SVG文件的内容
+	 * @param pixels 位图的高度（像素）
+	 *
+	 * @return 缓存文件名
+	 */
+	private static String cacheName(String path, byte[] svg, int pixels) {
+		CRC32 crc = new CRC32();
+		crc.update(svg);
+		String stem = path.replaceFirst("^/", "").replaceFirst("\\.svg$", "").replaceAll("[^\\w.-]", "_");
+		return stem + '-' + pixels + '-' + Long.toHexString(crc.getValue()) + ".png";
+	}
 
-		/**
-		 * 获取转码后的图像
-		 *
-		 * @return 转码后的图像
-		 */
-		public BufferedImage getBufferedImage() {
-			return image;
+	/**
+	 * 生成图标的缓存键
+	 *
+	 * @param path   SVG文件的路径
+	 * @param height 图标的高度
+	 * @param scale  屏幕缩放比例
+	 *
+	 * @return 缓存键
+	 */
+	private static String key(String path, int height, double scale) {
+		return path + '@' + height + 'x' + scale;
+	}
+
+	/**
+	 * 获取默认屏幕的缩放比例
+	 *
+	 * @return 缩放比例，无图形环境时为1
+	 */
+	private static double screenScale() {
+		if (GraphicsEnvironment.isHeadless()) {
+			return 1;
 		}
+		return GraphicsEnvironment.getLocalGraphicsEnvironment()
+		                          .getDefaultScreenDevice()
+		                          .getDefaultConfiguration()
+		                          .getDefaultTransform()
+		                          .getScaleX();
 	}
 }
@@ -0,0 +1,90 @@
+package cn.jsou.ftpclient.utils;
+
+import org.apache.batik.transcoder.SVGAbstractTranscoder;
+import org.apache.batik.transcoder.TranscoderException;
+import org.apache.batik.transcoder.TranscoderInput;
+import org.apache.batik.transcoder.TranscoderOutput;
+import org.apache.batik.transcoder.image.ImageTranscoder;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+/**
+ * 用Batik把SVG转码为位图
+ *
+ * <p>所有对Batik的引用都集中在这个类中。图标命中缓存时不会加载这个类，也就不会加载Batik。</p>
+ */
+final class SvgRasterizer {
+	/**
+	 * 工具类，不允许实例化
+	 */
+	private SvgRasterizer() {
+	}
+
+	/**
+	 * 将SVG转码为指定高度的位图
+	 *
+	 * @param svg    SVG文件的内容
+	 * @param height 位图的高度（像素），宽度将按比例调整
+	 *
+	 * @return 转码后的位图
+	 *
+	 * @throws IOException 如果SVG无法转码
+	 */
+	static BufferedImage rasterize(byte[] svg, int height) throws IOException {
+		// 创建一个用于转换的BufferedImageTranscoder
+		BufferedImageTranscoder transcoder = new BufferedImageTranscoder();
+		// 设置期望的高度
+		transcoder.addTranscodingHint(SVGAbstractTranscoder.KEY_HEIGHT, (float) height);
+		try {
+			transcoder.transcode(new TranscoderInput(new ByteArrayInputStream(svg)), null);
+		} catch (TranscoderException e) {
+			throw new IOException("Failed to transcode SVG", e);
+		}
+		return transcoder.getBufferedImage();
+	}
+
+	/**
+	 * 内部类，用于将SVG图像转码为BufferedImage
+	 */
+	private static class BufferedImageTranscoder extends ImageTranscoder {
+		/**
+		 * 转码后的图像
+		 */
+		private BufferedImage image;
+
+		/**
+		 * 创建图像缓冲区
+		 *
+		 * @param w 图像的宽度
+		 * @param h 图像的高度
+		 *
+		 * @return 创建的图像缓冲区
+		 */
+		@Override
+		public BufferedImage createImage(int w, int h) {
+			return new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+		}
+
+		/**
+		 * 将转码后的图像写入图像缓冲区
+		 *
+		 * @param img 要写入的图像
+		 * @param out 转码输出
+		 */
+		@Override
+		public void writeImage(BufferedImage img, TranscoderOutput out) {
+			this.image = img;
+		}
+
+		/**
+		 * 获取转码后的图像
+		 *
+		 * @return 转码后的图像
+		 */
+		public BufferedImage getBufferedImage() {
+			return image;
+		}
+	}
+}
@@ -2,19 +2,66 @@ package cn.jsou.ftpclient.utils;
 
 import org.ocpsoft.prettytime.PrettyTime;
 
+import java.time.Instant;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
+import java.util.Date;
 import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
 
 /**
  * 时间工具类
+ *
+ * <p>相对时间按距今的时间差每30秒分一个桶，每个桶的文本只用PrettyTime生成一次；超过1年的时间按日期缓存。
+ * 当前时间每秒才重新获取一次，格式化一个单元格通常只需一次减法和一次查表。</p>
  */
 public class TimeUtil {
 	/**
-	 * PrettyTime实例
+	 * 每个桶的长度（毫秒）。PrettyTime的单位切换点和四舍五入点都是30秒的整数倍，
+	 * 同一个桶内的时间差格式化结果相同
 	 */
-	private static final PrettyTime p = new PrettyTime(new Locale("zh_CN"));
+	private static final    long                             BUCKET_MILLIS     = 30_000;
+	/**
+	 * 每秒的毫秒数
+	 */
+	private static final    long                             MILLIS_PER_SECOND = 1_000;
+	/**
+	 * 距今不超过这个桶数（360天）的时间一定不超过12个月，无需计算月数
+	 */
+	private static final    long                             RECENT_BUCKETS    = 360L * 24 * 60 * 2;
+	/**
+	 * 每个缓存的最大项数，超过后清空
+	 */
+	private static final    int                              CACHE_LIMIT       = 16384;
+	/**
+	 * 超过1年的时间的显示格式
+	 */
+	private static final    DateTimeFormatter                DATE_FORMAT       = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+	/**
+	 * PrettyTime实例，参照时间固定为UTC零点，只用来按时间差生成文本
+	 */
+	private static final    PrettyTime                       p                 =
+			new PrettyTime(new Date(0), new Locale("zh_CN"));
+	/**
+	 * 相对时间文本，键为距今的桶序号
+	 */
+	private static final    ConcurrentMap<Long, String>      relativeTexts     = new ConcurrentHashMap<>();
+	/**
+	 * 超过1年的时间的日期文本
+	 */
+	private static final    ConcurrentMap<LocalDate, String> dateTexts         = new ConcurrentHashMap<>();
+	/**
+	 * 当前时间，每秒更新一次
+	 */
+	private static volatile LocalDateTime                    now;
+	/**
+	 * 下一秒开始的时间（UTC毫秒时间戳），到达后更新 {@link #now}
+	 */
+	private static volatile long                             nextSecond        = Long.MIN_VALUE;
 
 	/**
 	 * 格式化相对时间
@@ -27,12 +74,68 @@ public class TimeUtil {
 		if (dateTime == null) {
 			return "";
 		}
-		long months = ChronoUnit.MONTHS.between(dateTime, LocalDateTime.now());
-		if ((months > 12)) {
+		LocalDateTime current = currentTime();
+		long          bucket  = Math.floorDiv(ChronoUnit.MILLIS.between(dateTime, current), BUCKET_MILLIS);
+		if (bucket > RECENT_BUCKETS && ChronoUnit.MONTHS.between(dateTime, current) > 12) {
 			// 对于超过1年的，直接返回具体日期
-			return dateTime.format(DateTimeFormatter.ofPattern("yyyy-MM-dd"));
-		} else {
-			return p.format(dateTime);
+			return cached(dateTexts, dateTime.toLocalDate(), DATE_FORMAT::format);
+		}
+		return cached(relativeTexts, bucket, TimeUtil::formatAge);
+	}
+
+	/**
+	 * 提前初始化PrettyTime并格式化一次，加载其资源包，供启动时在后台线程中调用
+	 */
+	public static void warmUp() {
+		formatRelativeTime(LocalDateTime.now().minusMinutes(5));
+	}
+
+	/**
+	 * 获取当前时间，每秒只调用一次 {@link LocalDateTime#now()}
+	 *
+	 * @return 当前时间，最多比实际时间早1秒
+	 */
+	private static LocalDateTime currentTime() {
+		long millis = System.currentTimeMillis();
+		if (millis >= nextSecond) {
+			// 先更新now再更新nextSecond，看到新的nextSecond的线程一定也能看到新的now
+			now        = LocalDateTime.now();
+			nextSecond = millis - millis % MILLIS_PER_SECOND + MILLIS_PER_SECOND;
+		}
+		return now;
+	}
+
+	/**
+	 * 用PrettyTime生成相对时间文本
+	 *
+	 * @param bucket 距今的桶序号，负数表示将来
+	 *
+	 * @return 相对时间文本
+	 */
+	private static synchronized String formatAge(long bucket) {
+		// 用桶的中点格式化，避开桶两端的切换点
+		return p.format(Instant.ofEpochMilli(-(bucket * BUCKET_MILLIS + BUCKET_MILLIS / 2)));
+	}
+
+	/**
+	 * 从缓存中取出文本，没有时生成并放入缓存，缓存过大时先清空
+	 *
+	 * @param cache  缓存
+	 * @param key    键
+	 * @param format 生成文本的方法
+	 * @param <K>    键的类型
+	 *
+	 * @return 文本
+	 */
+	private static <K> String cached(ConcurrentMap<K, String> cache, K key, Function<? super K, String> format) {
+		String text = cache.get(key);
+		if (text == null) {
+			if (cache.size() >= CACHE_LIMIT) {
+				cache.clear();
+			}
+			text = format.apply(key);
+			cache.put(key, text);
 		}
+		return text;
 	}
 }
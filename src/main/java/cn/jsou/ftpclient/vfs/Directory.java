@@ -101,6 +101,19 @@ public class Directory {
 		return parent;
 	}
 
+	/**
+	 * 获取此目录从根目录开始的绝对路径
+	 *
+	 * @return 目录的绝对路径，根目录为 {@code /}
+	 */
+	public String getPath() {
+		if (parent == null) {
+			return name;
+		}
+		String parentPath = parent.getPath();
+		return (parentPath.endsWith("/") ? parentPath : parentPath + '/') + name;
+	}
+
 	/**
 	 * 清空此目录下的所有文件和子目录
 	 */
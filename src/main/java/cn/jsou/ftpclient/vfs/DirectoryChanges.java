@@ -0,0 +1,91 @@
+package cn.jsou.ftpclient.vfs;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * 被监视的目录中一批合并后的变化
+ *
+ * <p>只记录哪些名称发生了变化，以及这些名称当前对应的目录项；名称不在 {@link #getEntries()} 中表示已被删除。
+ * 事件丢失时无法知道具体的变化，{@link #isOverflow()} 为true，需要重新列出整个目录。</p>
+ */
+public class DirectoryChanges {
+	/**
+	 * 发生变化的目录的绝对路径
+	 */
+	private final String           directory;
+	/**
+	 * 发生变化的名称
+	 */
+	private final Set<String>      names;
+	/**
+	 * 发生变化的名称中当前仍存在的子目录和文件
+	 */
+	private final DirectoryListing entries;
+	/**
+	 * 是否丢失了事件
+	 */
+	private final boolean          overflow;
+
+	/**
+	 * 构造函数
+	 *
+	 * @param directory 发生变化的目录的绝对路径
+	 * @param names     发生变化的名称
+	 * @param entries   发生变化的名称中当前仍存在的子目录和文件
+	 * @param overflow  是否丢失了事件
+	 */
+	public DirectoryChanges(String directory, Set<String> names, DirectoryListing entries, boolean overflow) {
+		this.directory = directory;
+		this.names     = names;
+		this.entries   = entries;
+		this.overflow  = overflow;
+	}
+
+	/**
+	 * 创建表示事件丢失的变化
+	 *
+	 * @param directory 发生变化的目录的绝对路径
+	 *
+	 * @return 需要重新列出整个目录的变化
+	 */
+	public static DirectoryChanges overflow(String directory) {
+		return new DirectoryChanges(directory, Collections.emptySet(), DirectoryListing.empty(), true);
+	}
+
+	/**
+	 * 获取发生变化的目录
+	 *
+	 * @return 目录的绝对路径
+	 */
+	public String getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * 获取发生变化的名称
+	 *
+	 * @return 发生变化的名称
+	 */
+	public Set<String> getNames() {
+		return names;
+	}
+
+	/**
+	 * 获取发生变化的名称中当前仍存在的目录项
+	 *
+	 * @return 子目录名称和文件对象
+	 */
+	public DirectoryListing getEntries() {
+		return entries;
+	}
+
+	/**
+	 * 判断是否丢失了事件
+	 *
+	 * @return 如果需要重新列出整个目录，返回true；否则返回false
+	 */
+	public boolean isOverflow() {
+		return overflow;
+	}
+}
@@ -0,0 +1,56 @@
+package cn.jsou.ftpclient.vfs;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 一次列出目录的结果，同时包含子目录和文件
+ */
+public class DirectoryListing {
+	/**
+	 * 子目录名称列表
+	 */
+	private final List<String> directories;
+	/**
+	 * 文件列表
+	 */
+	private final List<File>   files;
+
+	/**
+	 * 构造函数
+	 *
+	 * @param directories 子目录名称列表
+	 * @param files       文件列表
+	 */
+	public DirectoryListing(List<String> directories, List<File> files) {
+		this.directories = directories;
+		this.files       = files;
+	}
+
+	/**
+	 * 创建空的列出结果
+	 *
+	 * @return 没有子目录和文件的结果
+	 */
+	public static DirectoryListing empty() {
+		return new DirectoryListing(Collections.emptyList(), Collections.emptyList());
+	}
+
+	/**
+	 * 获取子目录名称列表
+	 *
+	 * @return 子目录名称列表
+	 */
+	public List<String> getDirectories() {
+		return directories;
+	}
+
+	/**
+	 * 获取文件列表
+	 *
+	 * @return 文件列表
+	 */
+	public List<File> getFiles() {
+		return files;
+	}
+}
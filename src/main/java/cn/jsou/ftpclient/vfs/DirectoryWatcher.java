@@ -0,0 +1,182 @@
+package cn.jsou.ftpclient.vfs;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+/**
+ * 用 {@link WatchService} 监视一个本地目录的变化
+ *
+ * <p>同一时刻只监视一个目录，监视新目录时取消之前的目录。后台线程收到事件后继续等待，直到目录安静下来，
+ * 把这期间的事件按名称合并为一批，重新读取涉及的目录项的属性后交给监听器。事件丢失或目录失效时，
+ * 监听器收到 {@link DirectoryChanges#overflow(String)}，需要重新列出整个目录。</p>
+ */
+class DirectoryWatcher {
+	private static final Logger                     logger       = LogManager.getLogger(DirectoryWatcher.class);
+	/**
+	 * 最后一个事件之后等待的时间（毫秒），期间没有新事件时发出这一批变化
+	 */
+	private static final long                       QUIET_MS     = 100;
+	/**
+	 * 一批变化最多等待的时间（毫秒），持续写入的文件也能定期更新
+	 */
+	private static final long                       MAX_DELAY_MS = 1_000;
+	/**
+	 * 监视服务，第一次监视时创建
+	 */
+	private              WatchService               service;
+	/**
+	 * 当前监视的目录的监视键
+	 */
+	private volatile     WatchKey                   key;
+	/**
+	 * 当前监视的目录的绝对路径
+	 */
+	private volatile     String                     directory;
+	/**
+	 * 接收当前目录变化的回调
+	 */
+	private volatile     Consumer<DirectoryChanges> listener;
+
+	/**
+	 * 开始监视目录，取代之前监视的目录
+	 *
+	 * @param path     目录的绝对路径
+	 * @param listener 接收变化的回调，在后台线程中调用
+	 *
+	 * @return 如果已开始监视，返回true；否则返回false
+	 */
+	synchronized boolean watch(String path, Consumer<DirectoryChanges> listener) {
+		try {
+			Path dir = Paths.get(path);
+			if (service == null) {
+				service = dir.getFileSystem().newWatchService();
+				Thread thread = new Thread(this::run, "directory-watcher");
+				thread.setDaemon(true);
+				thread.start();
+			}
+			WatchKey newKey = dir.register(service, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+			if (key != null && key != newKey) {
+				key.cancel();
+			}
+			// 先设置目录和回调再设置监视键，后台线程看到新的监视键时一定也能看到它们
+			this.directory = path;
+			this.listener  = listener;
+			key            = newKey;
+			return true;
+		} catch (IOException | UnsupportedOperationException e) {
+			logger.warn("Failed to watch {}: {}", path, e.getMessage());
+			stop();
+			return false;
+		}
+	}
+
+	/**
+	 * 停止监视当前目录
+	 */
+	synchronized void stop() {
+		if (key != null) {
+			key.cancel();
+			key = null;
+		}
+	}
+
+	/**
+	 * 后台线程的主循环，等待第一个事件后合并一批变化并通知监听器
+	 */
+	private void run() {
+		try {
+			while (true) {
+				WatchKey first = service.take();
+				// 以收到第一个事件时的监视目录为准，这一批中其他目录的事件丢弃
+				WatchKey                   current  = key;
+				String                     path     = directory;
+				Consumer<DirectoryChanges> callback = listener;
+				Set<String>                names    = new LinkedHashSet<>();
+				boolean                    overflow = false;
+				long                       deadline = System.currentTimeMillis() + MAX_DELAY_MS;
+				for (WatchKey next = first; next != null; ) {
+					if (next == current) {
+						overflow |= collect(next, names);
+						overflow |= !next.reset();
+					} else {
+						next.pollEvents();
+						next.reset();
+					}
+					long wait = Math.min(QUIET_MS, deadline - System.currentTimeMillis());
+					next = wait > 0 ? service.poll(wait, TimeUnit.MILLISECONDS) : null;
+				}
+				if (current == null || current != key) {
+					continue;
+				}
+				if (overflow) {
+					callback.accept(DirectoryChanges.overflow(path));
+				} else if (!names.isEmpty()) {
+					callback.accept(read(path, names));
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ClosedWatchServiceException e) {
+			logger.debug("Watch service closed");
+		}
+	}
+
+	/**
+	 * 取出监视键上的事件，把涉及的名称加入集合
+	 *
+	 * @param watchKey 监视键
+	 * @param names    接收名称的集合
+	 *
+	 * @return 如果有事件丢失，返回true；否则返回false
+	 */
+	private static boolean collect(WatchKey watchKey, Set<String> names) {
+		boolean overflow = false;
+		for (WatchEvent<?> event : watchKey.pollEvents()) {
+			if (event.kind() == OVERFLOW) {
+				overflow = true;
+			} else {
+				names.add(event.context().toString());
+			}
+		}
+		return overflow;
+	}
+
+	/**
+	 * 重新读取发生变化的目录项的属性
+	 *
+	 * @param path  目录的绝对路径
+	 * @param names 发生变化的名称
+	 *
+	 * @return 这一批变化
+	 */
+	private static DirectoryChanges read(String path, Set<String> names) {
+		Path       dir     = Paths.get(path);
+		List<Path> entries = new ArrayList<>(names.size());
+		for (String name : names) {
+			entries.add(dir.resolve(name));
+		}
+		BasicFileAttributes[] attributes = new BasicFileAttributes[entries.size()];
+		NativeFileSystemProvider.readAttributes(entries, attributes, 0, entries.size());
+		return new DirectoryChanges(path, names, NativeFileSystemProvider.toListing(entries, attributes), false);
+	}
+}
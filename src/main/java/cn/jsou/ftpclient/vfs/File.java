@@ -2,6 +2,7 @@ package cn.jsou.ftpclient.vfs;
 
 import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
@@ -27,6 +28,15 @@ public class File {
 	 * 文件的创建时间
 	 */
 	LocalDateTime createdTime;
+	/**
+	 * 文件修改时间的UTC毫秒时间戳，用于跨时区比较本地与远程文件
+	 */
+	long          modifiedMillis;
+
+	/**
+	 * 未知时间戳
+	 */
+	public static final long UNKNOWN_TIME = Long.MIN_VALUE;
 
 	/**
 	 * 构造一个新的文件实例，初始化为当前时间的创建和修改时间
@@ -35,10 +45,11 @@ public class File {
 	 * @param size 文件大小（字节）
 	 */
 	public File(String name, long size) {
-		this.name         = name;
-		this.size         = size;
-		this.createdTime  = LocalDateTime.now();
-		this.modifiedTime = LocalDateTime.now();
+		this.name           = name;
+		this.size           = size;
+		this.createdTime    = LocalDateTime.now();
+		this.modifiedTime   = LocalDateTime.now();
+		this.modifiedMillis = toMillis(modifiedTime);
 	}
 
 	/**
@@ -50,10 +61,11 @@ public class File {
 	 * @param createdTime  文件的创建时间
 	 */
 	public File(String name, long size, LocalDateTime modifiedTime, LocalDateTime createdTime) {
-		this.name         = name;
-		this.size         = size;
-		this.createdTime  = createdTime;
-		this.modifiedTime = modifiedTime;
+		this.name           = name;
+		this.size           = size;
+		this.createdTime    = createdTime;
+		this.modifiedTime   = modifiedTime;
+		this.modifiedMillis = toMillis(modifiedTime);
 	}
 
 	/**
@@ -68,8 +80,47 @@ public class File {
 		DateTimeFormatter formatter1 = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
 		DateTimeFormatter formatter2 = DateTimeFormatter.ofPattern("yyyyMMddHHmmss.SSS");
 
-		this.modifiedTime = parseDate(factsMap.get("modify"), formatter1, formatter2);
-		this.createdTime  = parseDate(factsMap.get("create"), formatter1, formatter2);
+		this.modifiedTime   = parseDate(factsMap.get("modify"), formatter1, formatter2);
+		this.createdTime    = parseDate(factsMap.get("create"), formatter1, formatter2);
+		this.modifiedMillis = parseUtcMillis(factsMap.get("modify"));
+	}
+
+	/**
+	 * 将本地时区的时间转换为UTC毫秒时间戳
+	 *
+	 * @param time 本地时区的时间
+	 *
+	 * @return UTC毫秒时间戳；时间为null时返回 {@link #UNKNOWN_TIME}
+	 */
+	private static long toMillis(LocalDateTime time) {
+		return time == null ? UNKNOWN_TIME : time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+	}
+
+	/**
+	 * 解析MLSD中的时间值
+	 *
+	 * <p>RFC 3659规定时间值为UTC时间的 {@code YYYYMMDDHHMMSS[.sss]} 形式。</p>
+	 *
+	 * @param value 时间值
+	 *
+	 * @return UTC毫秒时间戳；无法解析时返回 {@link #UNKNOWN_TIME}
+	 */
+	private static long parseUtcMillis(String value) {
+		if (value == null || value.length() < 14) {
+			return UNKNOWN_TIME;
+		}
+		try {
+			DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+			LocalDateTime     time      = LocalDateTime.parse(value.substring(0, 14), formatter);
+			long              millis    = time.toInstant(ZoneOffset.UTC).toEpochMilli();
+			if (value.length() > 15 && value.charAt(14) == '.') {
+				String fraction = (value.substring(15) + "00").substring(0, 3);
+				millis += Integer.parseInt(fraction);
+			}
+			return millis;
+		} catch (DateTimeParseException | NumberFormatException e) {
+			return UNKNOWN_TIME;
+		}
 	}
 
 	private LocalDateTime parseDate(String dateStr, DateTimeFormatter formatter1, DateTimeFormatter formatter2) {
@@ -115,6 +166,15 @@ public class File {
 		return modifiedTime;
 	}
 
+	/**
+	 * 获取文件修改时间的UTC毫秒时间戳
+	 *
+	 * @return UTC毫秒时间戳；未知时返回 {@link #UNKNOWN_TIME}
+	 */
+	public long getModifiedMillis() {
+		return modifiedMillis;
+	}
+
 	/**
 	 * 获取文件的创建时间
 	 *
@@ -1,6 +1,7 @@
 package cn.jsou.ftpclient.vfs;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * 文件系统提供者接口，定义了文件系统操作的基本方法
@@ -24,6 +25,34 @@ public interface FileSystemProvider {
 	 */
 	List<File> getFiles(String path);
 
+	/**
+	 * 一次列出指定路径下的所有目录和文件
+	 *
+	 * <p>默认实现依次调用 {@link #getDirectories(String)} 和 {@link #getFiles(String)}，
+	 * 实现类可以覆盖为只读取一次目录。</p>
+	 *
+	 * @param path 要查询的绝对路径
+	 *
+	 * @return 目录名称和文件对象
+	 */
+	default DirectoryListing list(String path) {
+		return new DirectoryListing(getDirectories(path), getFiles(path));
+	}
+
+	/**
+	 * 开始监视指定目录的变化，取代之前监视的目录
+	 *
+	 * <p>默认实现不支持监视，返回false，调用方需要自行刷新。</p>
+	 *
+	 * @param path     目录的绝对路径
+	 * @param listener 接收变化的回调，在后台线程中调用
+	 *
+	 * @return 如果已开始监视，返回true；否则返回false
+	 */
+	default boolean watch(String path, Consumer<DirectoryChanges> listener) {
+		return false;
+	}
+
 	/**
 	 * 判断给定的路径是否为目录
 	 *
@@ -5,19 +5,47 @@ import org.apache.logging.log4j.Logger;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
 
 /**
  * 本地文件系统提供者，实现了FileSystemProvider接口，用于操作本地文件系统
  */
 public class NativeFileSystemProvider implements FileSystemProvider {
-	private static final Logger logger = LogManager.getLogger(NativeFileSystemProvider.class);
+	private static final Logger           logger             = LogManager.getLogger(NativeFileSystemProvider.class);
+	/**
+	 * 目录项不少于这个数目时并行读取属性
+	 */
+	private static final int              PARALLEL_THRESHOLD = 256;
+	/**
+	 * 并行读取属性的线程数。读取属性主要是等待文件系统，网络挂载的目录尤其如此，线程数不必受CPU核数限制
+	 */
+	private static final int              READERS            = 8;
+	/**
+	 * 并行读取属性的线程池
+	 */
+	private static final ExecutorService  ATTRIBUTE_READERS  = Executors.newFixedThreadPool(READERS, runnable -> {
+		Thread thread = new Thread(runnable, "attribute-reader");
+		thread.setDaemon(true);
+		return thread;
+	});
+	/**
+	 * 监视当前浏览的目录
+	 */
+	private final        DirectoryWatcher watcher            = new DirectoryWatcher();
 
 	/**
 	 * 获取指定路径下的所有目录
@@ -28,10 +56,7 @@ public class NativeFileSystemProvider implements FileSystemProvider {
 	 */
 	@Override
 	public List<String> getDirectories(String path) {
-		java.io.File file = new File(path);
-		return Arrays.stream(file.listFiles(File::isDirectory))
-		             .map(File::getName)
-		             .collect(Collectors.toList());
+		return list(path).getDirectories();
 	}
 
 	/**
@@ -43,31 +68,128 @@ public class NativeFileSystemProvider implements FileSystemProvider {
 	 */
 	@Override
 	public List<cn.jsou.ftpclient.vfs.File> getFiles(String path) {
-		java.io.File file = new File(path);
-
-		return Arrays.stream(file.listFiles(File::isFile))
-		             .map(f -> {
-			             try {
-				             BasicFileAttributes
-						             attrs =
-						             Files.readAttributes(f.toPath(), BasicFileAttributes.class);
-				             LocalDateTime
-						             modifiedTime =
-						             attrs.lastModifiedTime()
-						                  .toInstant()
-						                  .atZone(ZoneId.systemDefault())
-						                  .toLocalDateTime();
-				             LocalDateTime
-						             creationTime =
-						             attrs.creationTime().toInstant().atZone(ZoneId.systemDefault()).toLocalDateTime();
-				             return new cn.jsou.ftpclient.vfs.File(f.getName(),
-				                                                   f.length(), modifiedTime, creationTime);
-			             } catch (IOException e) {
-				             logger.error("Failed to read file attributes", e);
-				             return null;
-			             }
-		             })
-		             .collect(Collectors.toList());
+		return list(path).getFiles();
+	}
+
+	/**
+	 * 只遍历一次目录，列出其中的所有目录和文件
+	 *
+	 * <p>每个目录项只读取一次属性，大小和时间都取自同一次读取。目录项较多时分成若干段，在多个线程中同时读取属性。
+	 * 与 {@link java.io.File#isDirectory()} 一样跟随符号链接，无法读取属性的目录项（例如失效的链接）被忽略。</p>
+	 *
+	 * @param path 要查询的绝对路径
+	 *
+	 * @return 目录名称和文件对象，无法读取目录时为空
+	 */
+	@Override
+	public DirectoryListing list(String path) {
+		List<Path> entries = new ArrayList<>();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(Paths.get(path))) {
+			for (Path entry : stream) {
+				entries.add(entry);
+			}
+		} catch (IOException | DirectoryIteratorException e) {
+			logger.error("Failed to list directory {}", path, e);
+			return DirectoryListing.empty();
+		}
+		BasicFileAttributes[] attributes = new BasicFileAttributes[entries.size()];
+		if (entries.size() < PARALLEL_THRESHOLD) {
+			readAttributes(entries, attributes, 0, entries.size());
+		} else {
+			readAttributesInParallel(entries, attributes);
+		}
+
+		return toListing(entries, attributes);
+	}
+
+	/**
+	 * 开始监视目录的变化，取代之前监视的目录
+	 *
+	 * @param path     目录的绝对路径
+	 * @param listener 接收变化的回调，在后台线程中调用
+	 *
+	 * @return 如果已开始监视，返回true；否则返回false
+	 */
+	@Override
+	public boolean watch(String path, Consumer<DirectoryChanges> listener) {
+		return watcher.watch(path, listener);
+	}
+
+	/**
+	 * 按已读取的属性把目录项分为子目录和文件
+	 *
+	 * @param entries    目录项
+	 * @param attributes 各目录项的属性，为null的目录项被忽略
+	 *
+	 * @return 子目录名称和文件对象，既不是目录也不是普通文件的目录项被忽略
+	 */
+	static DirectoryListing toListing(List<Path> entries, BasicFileAttributes[] attributes) {
+		ZoneId                           zone        = ZoneId.systemDefault();
+		List<String>                     directories = new ArrayList<>();
+		List<cn.jsou.ftpclient.vfs.File> files       = new ArrayList<>();
+		for (int i = 0; i < attributes.length; i++) {
+			BasicFileAttributes attrs = attributes[i];
+			if (attrs == null) {
+				continue;
+			}
+			String name = entries.get(i).getFileName().toString();
+			if (attrs.isDirectory()) {
+				directories.add(name);
+			} else if (attrs.isRegularFile()) {
+				files.add(new cn.jsou.ftpclient.vfs.File(name,
+				                                         attrs.size(),
+				                                         LocalDateTime.ofInstant(attrs.lastModifiedTime().toInstant(),
+				                                                                 zone),
+				                                         LocalDateTime.ofInstant(attrs.creationTime().toInstant(),
+				                                                                 zone)));
+			}
+		}
+		return new DirectoryListing(directories, files);
+	}
+
+	/**
+	 * 读取一段目录项的属性
+	 *
+	 * @param entries    目录项
+	 * @param attributes 保存属性的数组，无法读取的目录项对应null
+	 * @param from       起始下标（含）
+	 * @param to         结束下标（不含）
+	 */
+	static void readAttributes(List<Path> entries, BasicFileAttributes[] attributes, int from, int to) {
+		for (int i = from; i < to; i++) {
+			try {
+				attributes[i] = Files.readAttributes(entries.get(i), BasicFileAttributes.class);
+			} catch (IOException e) {
+				logger.debug("Skipping {}: {}", entries.get(i), e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * 把目录项分成若干段，在线程池中同时读取属性，调用线程读取第一段
+	 *
+	 * @param entries    目录项
+	 * @param attributes 保存属性的数组，无法读取的目录项对应null
+	 */
+	private static void readAttributesInParallel(List<Path> entries, BasicFileAttributes[] attributes) {
+		int             chunk   = (entries.size() + READERS - 1) / READERS;
+		List<Future<?>> futures = new ArrayList<>();
+		for (int from = chunk; from < entries.size(); from += chunk) {
+			int start = from;
+			int end   = Math.min(from + chunk, entries.size());
+			futures.add(ATTRIBUTE_READERS.submit(() -> readAttributes(entries, attributes, start, end)));
+		}
+		readAttributes(entries, attributes, 0, Math.min(chunk, entries.size()));
+		for (Future<?> future : futures) {
+			try {
+				future.get();
+			} catch (ExecutionException e) {
+				logger.error("Failed to read file attributes", e.getCause());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
 	}
 
 	/**
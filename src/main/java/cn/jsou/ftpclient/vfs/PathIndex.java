@@ -0,0 +1,880 @@
+package cn.jsou.ftpclient.vfs;
+
+import cn.jsou.ftpclient.utils.GlobalPathUtil;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 远程服务器上所有已列出路径的名称索引，不访问服务器即可按名称、大小和修改时间查找文件
+ *
+ * <p>每个文件或目录是一个条目，条目的父目录、名称、大小和修改时间分别存放在以条目编号为下标的基本类型数组中。
+ * 名称去重后编号，每个小写名称的三字符组（trigram）对应一个按编号递增的名称列表。子串查询取查询中各三字符组的列表求交集，
+ * 只需逐个检查交集中的少量名称；通配符查询对其中每段长度不少于3的字面文本做同样的处理。大小和时间范围直接比较数组中的值。</p>
+ *
+ * <p>{@link VirtualFileSystem} 每次列出目录后调用 {@link #update(Directory)}，只替换该目录的直接子项，
+ * 消失的子目录连同其整棵子树一并移除。索引可以保存到磁盘，下次连接同一服务器时载入。</p>
+ */
+public class PathIndex {
+	private static final Logger               logger        = LogManager.getLogger(PathIndex.class);
+	/**
+	 * 索引文件的魔数
+	 */
+	private static final int                  MAGIC         = 0x46504958;
+	/**
+	 * 索引文件的格式版本
+	 */
+	private static final int                  VERSION       = 1;
+	/**
+	 * 根目录的条目编号
+	 */
+	private static final int                  ROOT          = 0;
+	/**
+	 * 已释放条目的父目录编号
+	 */
+	private static final int                  FREE          = -2;
+	/**
+	 * 数组的初始容量
+	 */
+	private static final int                  INITIAL_SIZE  = 1024;
+	/**
+	 * 保护索引数据的读写锁，查询可以并发进行
+	 */
+	private final        ReadWriteLock        lock          = new ReentrantReadWriteLock();
+	/**
+	 * 目录的绝对路径到条目编号的映射
+	 */
+	private final        Map<String, Integer> directoryIds  = new HashMap<>();
+	/**
+	 * 各条目的父目录编号，根目录为-1，已释放的条目为 {@link #FREE}
+	 */
+	private              int[]                parents       = new int[INITIAL_SIZE];
+	/**
+	 * 各条目的名称编号
+	 */
+	private              int[]                nameIds       = new int[INITIAL_SIZE];
+	/**
+	 * 各条目是否为目录
+	 */
+	private              boolean[]            directories   = new boolean[INITIAL_SIZE];
+	/**
+	 * 各文件的大小（字节）
+	 */
+	private              long[]               sizes         = new long[INITIAL_SIZE];
+	/**
+	 * 各文件修改时间的UTC毫秒时间戳
+	 */
+	private              long[]               modifiedTimes = new long[INITIAL_SIZE];
+	/**
+	 * 各目录的第一个子项，没有子项时为-1
+	 */
+	private              int[]                firstChildren = new int[INITIAL_SIZE];
+	/**
+	 * 各条目的下一个同级条目，没有时为-1
+	 */
+	private              int[]                nextSiblings  = new int[INITIAL_SIZE];
+	/**
+	 * 同名的下一个条目，没有时为-1
+	 */
+	private              int[]                nextSameName  = new int[INITIAL_SIZE];
+	/**
+	 * 同名的上一个条目，没有时为-1
+	 */
+	private              int[]                prevSameName  = new int[INITIAL_SIZE];
+	/**
+	 * 已释放、可以重新使用的条目编号
+	 */
+	private              int[]                freeEntries   = new int[INITIAL_SIZE];
+	/**
+	 * 已释放的条目数
+	 */
+	private              int                  freeCount;
+	/**
+	 * 已分配过的条目编号数
+	 */
+	private              int                  entryCount;
+	/**
+	 * 有效的条目数，包括根目录
+	 */
+	private              int                  liveCount;
+	/**
+	 * 各名称，下标为名称编号
+	 */
+	private              String[]             names         = new String[INITIAL_SIZE];
+	/**
+	 * 各名称的小写形式，与原名相同时引用同一个字符串
+	 */
+	private              String[]             lowerNames    = new String[INITIAL_SIZE];
+	/**
+	 * 使用各名称的第一个条目，没有时为-1
+	 */
+	private              int[]                nameHeads     = new int[INITIAL_SIZE];
+	/**
+	 * 名称的开放寻址散列表，值为名称编号加1，0表示空槽
+	 */
+	private              int[]                nameSlots     = new int[INITIAL_SIZE * 2];
+	/**
+	 * 名称数
+	 */
+	private              int                  nameCount;
+	/**
+	 * 三字符组的开放寻址散列表，0表示空槽
+	 */
+	private              long[]               trigramKeys   = new long[INITIAL_SIZE * 2];
+	/**
+	 * 各三字符组对应的名称编号，按升序排列
+	 */
+	private              int[][]              postings      = new int[INITIAL_SIZE * 2][];
+	/**
+	 * 各三字符组的名称编号数
+	 */
+	private              int[]                postingSizes  = new int[INITIAL_SIZE * 2];
+	/**
+	 * 三字符组数
+	 */
+	private              int                  trigramCount;
+
+	/**
+	 * 构造函数，创建只有根目录的空索引
+	 */
+	public PathIndex() {
+		int root = allocate();
+		parents[root]       = -1;
+		nameIds[root]       = -1;
+		directories[root]   = true;
+		modifiedTimes[root] = File.UNKNOWN_TIME;
+		firstChildren[root] = -1;
+		nextSiblings[root]  = -1;
+		directoryIds.put("/", root);
+	}
+
+	/**
+	 * 获取某服务器的索引文件的默认位置
+	 *
+	 * @param server FTP服务器的地址
+	 * @param port   FTP服务器的端口号
+	 *
+	 * @return 用户主目录下的索引文件路径
+	 */
+	public static Path defaultFile(String server, String port) {
+		String name = (server + '_' + port).replaceAll("[^\\w.-]", "_") + ".idx";
+		return Paths.get(System.getProperty("user.home"), ".ftpclient", "index", name);
+	}
+
+	/**
+	 * 用一个目录的最新列表替换其在索引中的直接子项
+	 *
+	 * <p>未变化的子项保留原来的条目，文件的大小和修改时间就地更新；列表中不再出现的子目录连同其子树一并移除。
+	 * 索引中尚不存在的上级目录会被补上。</p>
+	 *
+	 * @param listing 已列出的目录节点
+	 */
+	public void update(Directory listing) {
+		String path = listing.getPath();
+		lock.writeLock().lock();
+		try {
+			int                  dir      = ensureDirectory(path);
+			Map<String, Integer> existing = new HashMap<>();
+			for (int child = firstChildren[dir]; child >= 0; child = nextSiblings[child]) {
+				existing.put(childKey(names[nameIds[child]], directories[child]), child);
+			}
+			int head = -1;
+			for (File file : listing.files.values()) {
+				Integer id    = existing.remove(childKey(file.name, false));
+				int     entry = id != null ? id : addEntry(dir, internName(file.name), false);
+				sizes[entry]         = file.size;
+				modifiedTimes[entry] = file.modifiedMillis;
+				nextSiblings[entry]  = head;
+				head                 = entry;
+			}
+			for (Directory sub : listing.directories.values()) {
+				Integer id    = existing.remove(childKey(sub.name, true));
+				int     entry = id != null ? id : addDirectoryEntry(dir, sub.name, childPath(path, sub.name));
+				nextSiblings[entry] = head;
+				head                = entry;
+			}
+			for (int stale : existing.values()) {
+				removeSubtree(stale);
+			}
+			firstChildren[dir] = head;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * 将一棵已遍历的目录树中的每个目录都写入索引
+	 *
+	 * @param top 目录树的起点，通常是 {@link VirtualFileSystem#crawl(String)} 的返回值
+	 */
+	public void updateTree(Directory top) {
+		Deque<Directory> pending = new ArrayDeque<>();
+		pending.push(top);
+		while (!pending.isEmpty()) {
+			Directory dir = pending.pop();
+			update(dir);
+			pending.addAll(dir.directories.values());
+		}
+	}
+
+	/**
+	 * 按条件查找文件和目录
+	 *
+	 * @param query 查询条件
+	 *
+	 * @return 匹配的条目，最多 {@link SearchQuery#getLimit()} 个
+	 */
+	public List<Result> search(SearchQuery query) {
+		List<Result> results = new ArrayList<>();
+		String       text    = query.getText().toLowerCase(Locale.ROOT);
+		lock.readLock().lock();
+		try {
+			if (text.isEmpty()) {
+				for (int entry = ROOT + 1; entry < entryCount && results.size() < query.getLimit(); entry++) {
+					if (parents[entry] != FREE && accepts(entry, query)) {
+						results.add(result(entry));
+					}
+				}
+				return results;
+			}
+			boolean glob       = text.indexOf('*') >= 0 || text.indexOf('?') >= 0;
+			int[]   candidates = candidateNames(glob ? text.split("[*?]") : new String[]{text});
+			int     count      = candidates == null ? nameCount : candidates.length;
+			for (int i = 0; i < count && results.size() < query.getLimit(); i++) {
+				int    name  = candidates == null ? i : candidates[i];
+				String lower = lowerNames[name];
+				if (glob ? !GlobalPathUtil.globMatches(text, lower) : !lower.contains(text)) {
+					continue;
+				}
+				for (int entry = nameHeads[name]; entry >= 0 && results.size() < query.getLimit();
+				     entry = nextSameName[entry]) {
+					if (accepts(entry, query)) {
+						results.add(result(entry));
+					}
+				}
+			}
+			return results;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * 获取索引中的文件和目录数，不含根目录
+	 *
+	 * @return 条目数
+	 */
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return liveCount - 1;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * 将索引保存到文件
+	 *
+	 * <p>先写入同目录下的临时文件，完成后再替换原文件，写入中途失败不会损坏已有的索引文件。
+	 * 文件中先是用到的名称，然后按父目录在前的顺序写出各条目，已释放的编号不会写入。</p>
+	 *
+	 * @param file 索引文件
+	 *
+	 * @throws IOException 如果写入失败
+	 */
+	public void save(Path file) throws IOException {
+		Files.createDirectories(file.toAbsolutePath().getParent());
+		Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+		lock.readLock().lock();
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp),
+		                                                                          1 << 16))) {
+			int[] order      = new int[liveCount];
+			int[] newEntries = new int[entryCount];
+			int[] newNames   = new int[nameCount];
+			int   usedNames  = 0;
+			int   ordered    = 1;
+			Arrays.fill(newNames, -1);
+			// 广度优先排列，保证父目录先于子项写出
+			for (int i = 0; i < ordered; i++) {
+				for (int child = firstChildren[order[i]]; child >= 0; child = nextSiblings[child]) {
+					newEntries[child] = ordered;
+					order[ordered++]  = child;
+					if (newNames[nameIds[child]] < 0) {
+						newNames[nameIds[child]] = usedNames++;
+					}
+				}
+			}
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(usedNames);
+			String[] used = new String[usedNames];
+			for (int name = 0; name < nameCount; name++) {
+				if (newNames[name] >= 0) {
+					used[newNames[name]] = names[name];
+				}
+			}
+			for (String name : used) {
+				out.writeUTF(name);
+			}
+			out.writeInt(ordered - 1);
+			for (int i = 1; i < ordered; i++) {
+				int entry = order[i];
+				out.writeInt(newEntries[parents[entry]]);
+				out.writeInt(newNames[nameIds[entry]]);
+				out.writeBoolean(directories[entry]);
+				out.writeLong(sizes[entry]);
+				out.writeLong(modifiedTimes[entry]);
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+		Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		logger.info("Saved {} indexed paths to {}", size(), file);
+	}
+
+	/**
+	 * 从文件载入索引
+	 *
+	 * @param file 索引文件
+	 *
+	 * @return 载入的索引
+	 *
+	 * @throws IOException 如果读取失败或文件格式不正确
+	 */
+	public static PathIndex load(Path file) throws IOException {
+		long      start = System.currentTimeMillis();
+		PathIndex index = new PathIndex();
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+				throw new IOException("Unsupported index file " + file);
+			}
+			int nameCount = in.readInt();
+			for (int i = 0; i < nameCount; i++) {
+				index.internName(in.readUTF());
+			}
+			int entries = in.readInt();
+			for (int i = 0; i < entries; i++) {
+				int     parent    = in.readInt();
+				int     name      = in.readInt();
+				boolean directory = in.readBoolean();
+				if (parent < 0 || parent > i || name < 0 || name >= nameCount) {
+					throw new IOException("Corrupt index file " + file);
+				}
+				int entry = directory ?
+				            index.addDirectoryEntry(parent, index.names[name],
+				                                    childPath(index.path(parent), index.names[name])) :
+				            index.addEntry(parent, name, false);
+				index.sizes[entry]          = in.readLong();
+				index.modifiedTimes[entry]  = in.readLong();
+				index.nextSiblings[entry]   = index.firstChildren[parent];
+				index.firstChildren[parent] = entry;
+			}
+		}
+		logger.info("Loaded {} indexed paths from {} in {} ms", index.size(), file, System.currentTimeMillis() - start);
+		return index;
+	}
+
+	/**
+	 * 取得目录的条目编号，索引中没有时连同缺少的上级目录一起创建
+	 *
+	 * @param path 目录的绝对路径
+	 *
+	 * @return 条目编号
+	 */
+	private int ensureDirectory(String path) {
+		Integer id = directoryIds.get(path);
+		if (id != null) {
+			return id;
+		}
+		int    slash      = path.lastIndexOf('/');
+		String parentPath = slash <= 0 ? "/" : path.substring(0, slash);
+		int    parent     = ensureDirectory(parentPath);
+		int    entry      = addDirectoryEntry(parent, path.substring(slash + 1), path);
+		nextSiblings[entry]   = firstChildren[parent];
+		firstChildren[parent] = entry;
+		return entry;
+	}
+
+	/**
+	 * 创建一个目录条目并登记其路径，不加入父目录的子项链表
+	 *
+	 * @param parent 父目录的条目编号
+	 * @param name   目录名称
+	 * @param path   目录的绝对路径
+	 *
+	 * @return 条目编号
+	 */
+	private int addDirectoryEntry(int parent, String name, String path) {
+		int entry = addEntry(parent, internName(name), true);
+		modifiedTimes[entry] = File.UNKNOWN_TIME;
+		directoryIds.put(path, entry);
+		return entry;
+	}
+
+	/**
+	 * 创建一个条目并加入同名链表，不加入父目录的子项链表
+	 *
+	 * @param parent    父目录的条目编号
+	 * @param name      名称编号
+	 * @param directory 是否为目录
+	 *
+	 * @return 条目编号
+	 */
+	private int addEntry(int parent, int name, boolean directory) {
+		int entry = allocate();
+		int head  = nameHeads[name];
+		parents[entry]       = parent;
+		nameIds[entry]       = name;
+		directories[entry]   = directory;
+		sizes[entry]         = 0;
+		firstChildren[entry] = -1;
+		nextSiblings[entry]  = -1;
+		nextSameName[entry]  = head;
+		prevSameName[entry]  = -1;
+		if (head >= 0) {
+			prevSameName[head] = entry;
+		}
+		nameHeads[name] = entry;
+		return entry;
+	}
+
+	/**
+	 * 移除一个条目及其全部子项
+	 *
+	 * @param top 要移除的条目编号
+	 */
+	private void removeSubtree(int top) {
+		List<Integer> pending = new ArrayList<>();
+		List<String>  paths   = new ArrayList<>();
+		pending.add(top);
+		paths.add(directories[top] ? path(top) : null);
+		while (!pending.isEmpty()) {
+			int    entry = pending.remove(pending.size() - 1);
+			String path  = paths.remove(paths.size() - 1);
+			if (path != null) {
+				directoryIds.remove(path);
+				for (int child = firstChildren[entry]; child >= 0; child = nextSiblings[child]) {
+					pending.add(child);
+					paths.add(directories[child] ? childPath(path, names[nameIds[child]]) : null);
+				}
+			}
+			release(entry);
+		}
+	}
+
+	/**
+	 * 分配一个条目编号，优先使用已释放的编号
+	 *
+	 * @return 条目编号
+	 */
+	private int allocate() {
+		liveCount++;
+		if (freeCount > 0) {
+			return freeEntries[--freeCount];
+		}
+		if (entryCount == parents.length) {
+			int capacity = parents.length * 2;
+			parents       = Arrays.copyOf(parents, capacity);
+			nameIds       = Arrays.copyOf(nameIds, capacity);
+			directories   = Arrays.copyOf(directories, capacity);
+			sizes         = Arrays.copyOf(sizes, capacity);
+			modifiedTimes = Arrays.copyOf(modifiedTimes, capacity);
+			firstChildren = Arrays.copyOf(firstChildren, capacity);
+			nextSiblings  = Arrays.copyOf(nextSiblings, capacity);
+			nextSameName  = Arrays.copyOf(nextSameName, capacity);
+			prevSameName  = Arrays.copyOf(prevSameName, capacity);
+		}
+		return entryCount++;
+	}
+
+	/**
+	 * 释放一个条目，将其移出同名链表
+	 *
+	 * @param entry 条目编号
+	 */
+	private void release(int entry) {
+		int prev = prevSameName[entry];
+		int next = nextSameName[entry];
+		if (prev >= 0) {
+			nextSameName[prev] = next;
+		} else {
+			nameHeads[nameIds[entry]] = next;
+		}
+		if (next >= 0) {
+			prevSameName[next] = prev;
+		}
+		parents[entry] = FREE;
+		if (freeCount == freeEntries.length) {
+			freeEntries = Arrays.copyOf(freeEntries, freeCount * 2);
+		}
+		freeEntries[freeCount++] = entry;
+		liveCount--;
+	}
+
+	/**
+	 * 取得名称的编号，新名称会被加入名称表和三字符组索引
+	 *
+	 * @param name 名称
+	 *
+	 * @return 名称编号
+	 */
+	private int internName(String name) {
+		int mask = nameSlots.length - 1;
+		int slot = mix(name.hashCode()) & mask;
+		while (nameSlots[slot] != 0) {
+			int id = nameSlots[slot] - 1;
+			if (names[id].equals(name)) {
+				return id;
+			}
+			slot = (slot + 1) & mask;
+		}
+		int id = nameCount++;
+		if (id == names.length) {
+			names      = Arrays.copyOf(names, id * 2);
+			lowerNames = Arrays.copyOf(lowerNames, id * 2);
+			nameHeads  = Arrays.copyOf(nameHeads, id * 2);
+		}
+		String lower = name.toLowerCase(Locale.ROOT);
+		names[id]       = name;
+		lowerNames[id]  = lower.equals(name) ? name : lower;
+		nameHeads[id]   = -1;
+		nameSlots[slot] = id + 1;
+		if (nameCount * 2 > nameSlots.length) {
+			rehashNames();
+		}
+		for (int i = 0; i + 3 <= lower.length(); i++) {
+			addPosting(trigram(lower, i), id);
+		}
+		return id;
+	}
+
+	/**
+	 * 将名称散列表扩大一倍
+	 */
+	private void rehashNames() {
+		int[] slots = new int[nameSlots.length * 2];
+		int   mask  = slots.length - 1;
+		for (int id = 0; id < nameCount; id++) {
+			int slot = mix(names[id].hashCode()) & mask;
+			while (slots[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+			slots[slot] = id + 1;
+		}
+		nameSlots = slots;
+	}
+
+	/**
+	 * 将名称编号加入三字符组的列表，同一名称中重复的三字符组只加入一次
+	 *
+	 * @param key  三字符组
+	 * @param name 名称编号
+	 */
+	private void addPosting(long key, int name) {
+		int slot = trigramSlot(key);
+		if (trigramKeys[slot] == 0) {
+			trigramKeys[slot] = key;
+			postings[slot]    = new int[4];
+			if (++trigramCount * 2 > trigramKeys.length) {
+				rehashTrigrams();
+				slot = trigramSlot(key);
+			}
+		}
+		int size = postingSizes[slot];
+		if (size > 0 && postings[slot][size - 1] == name) {
+			return;
+		}
+		if (size == postings[slot].length) {
+			postings[slot] = Arrays.copyOf(postings[slot], size * 2);
+		}
+		postings[slot][size] = name;
+		postingSizes[slot]   = size + 1;
+	}
+
+	/**
+	 * 将三字符组散列表扩大一倍
+	 */
+	private void rehashTrigrams() {
+		long[]  oldKeys  = trigramKeys;
+		int[][] oldLists = postings;
+		int[]   oldSizes = postingSizes;
+		trigramKeys  = new long[oldKeys.length * 2];
+		postings     = new int[oldKeys.length * 2][];
+		postingSizes = new int[oldKeys.length * 2];
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != 0) {
+				int slot = trigramSlot(oldKeys[i]);
+				trigramKeys[slot]  = oldKeys[i];
+				postings[slot]     = oldLists[i];
+				postingSizes[slot] = oldSizes[i];
+			}
+		}
+	}
+
+	/**
+	 * 查找三字符组所在的槽，不存在时返回应插入的空槽
+	 *
+	 * @param key 三字符组
+	 *
+	 * @return 槽的下标
+	 */
+	private int trigramSlot(long key) {
+		int mask = trigramKeys.length - 1;
+		int slot = mix(Long.hashCode(key * 0x9E3779B97F4A7C15L)) & mask;
+		while (trigramKeys[slot] != 0 && trigramKeys[slot] != key) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	/**
+	 * 取出字面文本中所有三字符组的名称列表并求交集
+	 *
+	 * @param literals 查询中的字面文本，小写
+	 *
+	 * @return 可能匹配的名称编号，按升序排列；没有长度不少于3的字面文本时返回null，表示需要检查所有名称
+	 */
+	private int[] candidateNames(String[] literals) {
+		List<Integer> slots = new ArrayList<>();
+		for (String literal : literals) {
+			for (int i = 0; i + 3 <= literal.length(); i++) {
+				int slot = trigramSlot(trigram(literal, i));
+				if (trigramKeys[slot] == 0) {
+					return new int[0];
+				}
+				slots.add(slot);
+			}
+		}
+		if (slots.isEmpty()) {
+			return null;
+		}
+		// 从最短的列表开始求交集，中间结果只会越来越短
+		slots.sort(Comparator.comparingInt(slot -> postingSizes[slot]));
+		int   first  = slots.get(0);
+		int[] result = Arrays.copyOf(postings[first], postingSizes[first]);
+		for (int i = 1; i < slots.size() && result.length > 0; i++) {
+			result = intersect(result, postings[slots.get(i)], postingSizes[slots.get(i)]);
+		}
+		return result;
+	}
+
+	/**
+	 * 求两个升序数组的交集
+	 *
+	 * <p>较短的数组中的每个元素在较长的数组中二分查找，查找起点随之后移，长度悬殊时远快于逐个比较。</p>
+	 *
+	 * @param small      较短的数组
+	 * @param large      较长的数组
+	 * @param largeCount 较长的数组中有效的元素数
+	 *
+	 * @return 交集，按升序排列
+	 */
+	private static int[] intersect(int[] small, int[] large, int largeCount) {
+		int[] result = new int[small.length];
+		int   found  = 0;
+		int   from   = 0;
+		for (int value : small) {
+			int position = Arrays.binarySearch(large, from, largeCount, value);
+			if (position >= 0) {
+				result[found++] = value;
+				from            = position + 1;
+			} else {
+				from = -position - 1;
+			}
+			if (from >= largeCount) {
+				break;
+			}
+		}
+		return Arrays.copyOf(result, found);
+	}
+
+	/**
+	 * 判断条目是否满足查询的大小和时间范围
+	 *
+	 * @param entry 条目编号
+	 * @param query 查询条件
+	 *
+	 * @return 如果满足，返回true；否则返回false
+	 */
+	private boolean accepts(int entry, SearchQuery query) {
+		if (directories[entry]) {
+			return !query.hasAttributeRange();
+		}
+		return query.accepts(sizes[entry], modifiedTimes[entry]);
+	}
+
+	/**
+	 * 为条目创建查询结果
+	 *
+	 * @param entry 条目编号
+	 *
+	 * @return 查询结果
+	 */
+	private Result result(int entry) {
+		return new Result(path(entry), directories[entry], sizes[entry], modifiedTimes[entry]);
+	}
+
+	/**
+	 * 沿父目录链拼出条目的绝对路径
+	 *
+	 * @param entry 条目编号
+	 *
+	 * @return 绝对路径
+	 */
+	private String path(int entry) {
+		if (entry == ROOT) {
+			return "/";
+		}
+		Deque<String> parts = new ArrayDeque<>();
+		for (int current = entry; current != ROOT; current = parents[current]) {
+			parts.push(names[nameIds[current]]);
+		}
+		StringBuilder path = new StringBuilder();
+		for (String part : parts) {
+			path.append('/').append(part);
+		}
+		return path.toString();
+	}
+
+	/**
+	 * 拼接子项的绝对路径
+	 *
+	 * @param parentPath 父目录的绝对路径
+	 * @param name       子项名称
+	 *
+	 * @return 子项的绝对路径
+	 */
+	private static String childPath(String parentPath, String name) {
+		return (parentPath.endsWith("/") ? parentPath : parentPath + '/') + name;
+	}
+
+	/**
+	 * 生成区分文件和目录的子项键，名称中不会出现 {@code /}
+	 *
+	 * @param name      子项名称
+	 * @param directory 是否为目录
+	 *
+	 * @return 子项键
+	 */
+	private static String childKey(String name, boolean directory) {
+		return directory ? name + '/' : name;
+	}
+
+	/**
+	 * 将从某位置开始的三个字符合并为一个非零的键
+	 *
+	 * @param text  小写文本
+	 * @param index 起始位置
+	 *
+	 * @return 三字符组的键
+	 */
+	private static long trigram(String text, int index) {
+		return 1L << 48 | (long) text.charAt(index) << 32 | (long) text.charAt(index + 1) << 16 | text.charAt(index + 2);
+	}
+
+	/**
+	 * 打散散列值的低位，减少开放寻址时的聚集
+	 *
+	 * @param hash 原始散列值
+	 *
+	 * @return 打散后的散列值
+	 */
+	private static int mix(int hash) {
+		int h = hash * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * 索引查询的一个结果
+	 */
+	public static final class Result {
+		/**
+		 * 绝对路径
+		 */
+		private final String  path;
+		/**
+		 * 是否为目录
+		 */
+		private final boolean directory;
+		/**
+		 * 文件大小（字节）
+		 */
+		private final long    size;
+		/**
+		 * 修改时间的UTC毫秒时间戳
+		 */
+		private final long    modifiedMillis;
+
+		/**
+		 * 构造函数
+		 *
+		 * @param path           绝对路径
+		 * @param directory      是否为目录
+		 * @param size           文件大小（字节）
+		 * @param modifiedMillis 修改时间的UTC毫秒时间戳
+		 */
+		Result(String path, boolean directory, long size, long modifiedMillis) {
+			this.path           = path;
+			this.directory      = directory;
+			this.size           = size;
+			this.modifiedMillis = modifiedMillis;
+		}
+
+		/**
+		 * 获取绝对路径
+		 *
+		 * @return 绝对路径
+		 */
+		public String getPath() {
+			return path;
+		}
+
+		/**
+		 * 判断是否为目录
+		 *
+		 * @return 如果是目录，返回true；否则返回false
+		 */
+		public boolean isDirectory() {
+			return directory;
+		}
+
+		/**
+		 * 获取文件大小
+		 *
+		 * @return 文件大小（字节），目录为0
+		 */
+		public long getSize() {
+			return size;
+		}
+
+		/**
+		 * 获取修改时间
+		 *
+		 * @return UTC毫秒时间戳，未知时为 {@link File#UNKNOWN_TIME}
+		 */
+		public long getModifiedMillis() {
+			return modifiedMillis;
+		}
+	}
+}
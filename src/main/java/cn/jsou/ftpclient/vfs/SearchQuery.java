@@ -0,0 +1,179 @@
+package cn.jsou.ftpclient.vfs;
+
+/**
+ * 远程路径索引的查询条件
+ *
+ * <p>名称条件不区分大小写：含有 {@code *} 或 {@code ?} 时作为通配符匹配整个名称，否则匹配名称中的任意位置，为空时不限制名称。
+ * 设置了大小或修改时间范围时只匹配文件，目录没有这些属性。</p>
+ */
+public class SearchQuery {
+	/**
+	 * 名称条件，为空时不限制名称
+	 */
+	private String text           = "";
+	/**
+	 * 最小文件大小（字节，含）
+	 */
+	private long   minSize        = 0;
+	/**
+	 * 最大文件大小（字节，含）
+	 */
+	private long   maxSize        = Long.MAX_VALUE;
+	/**
+	 * 修改时间的下限（UTC毫秒时间戳，含）
+	 */
+	private long   modifiedAfter  = Long.MIN_VALUE;
+	/**
+	 * 修改时间的上限（UTC毫秒时间戳，含）
+	 */
+	private long   modifiedBefore = Long.MAX_VALUE;
+	/**
+	 * 最多返回的结果数
+	 */
+	private int    limit          = 1000;
+
+	/**
+	 * 构造函数，不限制任何条件
+	 */
+	public SearchQuery() {
+	}
+
+	/**
+	 * 构造函数，只限制名称
+	 *
+	 * @param text 名称条件
+	 */
+	public SearchQuery(String text) {
+		setText(text);
+	}
+
+	/**
+	 * 获取名称条件
+	 *
+	 * @return 名称条件，不限制时为空字符串
+	 */
+	public String getText() {
+		return text;
+	}
+
+	/**
+	 * 设置名称条件
+	 *
+	 * @param text 子串或通配符，为null或空白时不限制名称
+	 */
+	public void setText(String text) {
+		this.text = text == null ? "" : text.trim();
+	}
+
+	/**
+	 * 获取最小文件大小
+	 *
+	 * @return 最小文件大小（字节）
+	 */
+	public long getMinSize() {
+		return minSize;
+	}
+
+	/**
+	 * 设置最小文件大小
+	 *
+	 * @param minSize 最小文件大小（字节，含）
+	 */
+	public void setMinSize(long minSize) {
+		this.minSize = Math.max(0, minSize);
+	}
+
+	/**
+	 * 获取最大文件大小
+	 *
+	 * @return 最大文件大小（字节）
+	 */
+	public long getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * 设置最大文件大小
+	 *
+	 * @param maxSize 最大文件大小（字节，含）
+	 */
+	public void setMaxSize(long maxSize) {
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * 获取修改时间的下限
+	 *
+	 * @return UTC毫秒时间戳
+	 */
+	public long getModifiedAfter() {
+		return modifiedAfter;
+	}
+
+	/**
+	 * 设置修改时间的下限
+	 *
+	 * @param modifiedAfter UTC毫秒时间戳（含）
+	 */
+	public void setModifiedAfter(long modifiedAfter) {
+		this.modifiedAfter = modifiedAfter;
+	}
+
+	/**
+	 * 获取修改时间的上限
+	 *
+	 * @return UTC毫秒时间戳
+	 */
+	public long getModifiedBefore() {
+		return modifiedBefore;
+	}
+
+	/**
+	 * 设置修改时间的上限
+	 *
+	 * @param modifiedBefore UTC毫秒时间戳（含）
+	 */
+	public void setModifiedBefore(long modifiedBefore) {
+		this.modifiedBefore = modifiedBefore;
+	}
+
+	/**
+	 * 获取最多返回的结果数
+	 *
+	 * @return 结果数
+	 */
+	public int getLimit() {
+		return limit;
+	}
+
+	/**
+	 * 设置最多返回的结果数
+	 *
+	 * @param limit 结果数
+	 */
+	public void setLimit(int limit) {
+		this.limit = Math.max(1, limit);
+	}
+
+	/**
+	 * 判断是否限制了大小或修改时间
+	 *
+	 * @return 如果限制了，返回true；否则返回false
+	 */
+	boolean hasAttributeRange() {
+		return minSize > 0 || maxSize != Long.MAX_VALUE || modifiedAfter != Long.MIN_VALUE ||
+		       modifiedBefore != Long.MAX_VALUE;
+	}
+
+	/**
+	 * 判断文件属性是否在范围内
+	 *
+	 * @param size     文件大小（字节）
+	 * @param modified 修改时间的UTC毫秒时间戳
+	 *
+	 * @return 如果在范围内，返回true；否则返回false
+	 */
+	boolean accepts(long size, long modified) {
+		return size >= minSize && size <= maxSize && modified >= modifiedAfter && modified <= modifiedBefore;
+	}
+}
@@ -1,32 +1,38 @@
 package cn.jsou.ftpclient.vfs;
 
 import cn.jsou.ftpclient.ftp.FtpClient;
+import cn.jsou.ftpclient.ftp.SessionSupervisor;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 
 /**
  * 实现了虚拟文件系统的类，提供了操作远程FTP服务器上的文件和目录的方法
  */
 public class VirtualFileSystem implements FileSystemProvider {
-	private static final Logger    logger = LogManager.getLogger(VirtualFileSystem.class);
+	private static final Logger            logger = LogManager.getLogger(VirtualFileSystem.class);
 	/**
 	 * 根目录对象
 	 */
-	private final        Directory root;
+	private final        Directory         root;
 	/**
 	 * FTP客户端实例，用于与远程服务器进行通信
 	 */
-	private final        FtpClient ftpClient;
+	private final        FtpClient         ftpClient;
 	/**
 	 * 当前工作目录
 	 */
-	private              Directory currentDirectory;
+	private              Directory         currentDirectory;
+	/**
+	 * 远程路径索引，每次列出目录后更新，为null时不维护索引
+	 */
+	private              PathIndex         index;
+	/**
+	 * 监督FTP客户端的会话监督器，设置后列出目录时控制连接断开会重新连接并重试，为null时直接使用客户端
+	 */
+	private              SessionSupervisor supervisor;
 
 	/**
 	 * 构造函数，初始化虚拟文件系统
@@ -159,7 +165,7 @@ public class VirtualFileSystem implements FileSystemProvider {
 		try {
 			changeDirectory(path);
 			currentDirectory.clear();
-			ftpClient.machineListDictionary(path);
+			machineList(path);
 			return new ArrayList<>(currentDirectory.directories.keySet());
 		} catch (IOException e) {
 			logger.error("Failed to list directories", e);
@@ -177,7 +183,7 @@ public class VirtualFileSystem implements FileSystemProvider {
 	@Override public List<File> getFiles(String path) {
 		if (ftpClient == null) {return Collections.emptyList();}
 		try {
-			ftpClient.machineListDictionary(path);
+			machineList(path);
 			changeDirectory(path);
 			return new ArrayList<>(currentDirectory.files.values());
 		} catch (IOException e) {
@@ -186,6 +192,124 @@ public class VirtualFileSystem implements FileSystemProvider {
 		}
 	}
 
+	/**
+	 * 使用一次MLSD列出指定目录的所有目录和文件
+	 *
+	 * @param path 要查询的绝对路径
+	 *
+	 * @return 目录名称和文件对象
+	 */
+	@Override public DirectoryListing list(String path) {
+		if (ftpClient == null) {return DirectoryListing.empty();}
+		Directory directory = listDirectory(path);
+		return new DirectoryListing(new ArrayList<>(directory.directories.keySet()),
+		                            new ArrayList<>(directory.files.values()));
+	}
+
+	/**
+	 * 使用一次MLSD列出指定目录，返回其目录节点
+	 *
+	 * <p>与先后调用 {@link #getDirectories(String)} 和 {@link #getFiles(String)} 相比，只向服务器发送一次MLSD。</p>
+	 *
+	 * @param path 要列出的目录的绝对路径
+	 *
+	 * @return 填充了文件和子目录的目录节点
+	 */
+	public Directory listDirectory(String path) {
+		changeDirectory(path);
+		Directory directory = currentDirectory;
+		if (ftpClient == null) {
+			return directory;
+		}
+		try {
+			directory.clear();
+			machineList(path);
+		} catch (IOException e) {
+			logger.error("Failed to list directory {}", path, e);
+		}
+		changeDirectory(directory);
+		return directory;
+	}
+
+	/**
+	 * 递归遍历远程目录树，每个目录只发送一次MLSD
+	 *
+	 * <p>遍历结束后恢复原来的当前工作目录。返回的目录节点包含整棵子树的文件和目录信息。</p>
+	 *
+	 * @param path 要遍历的目录的绝对路径
+	 *
+	 * @return 遍历起点的目录节点
+	 */
+	public Directory crawl(String path) {
+		Directory        saved   = currentDirectory;
+		Directory        top     = listDirectory(path);
+		Deque<Directory> pending = new ArrayDeque<>(top.directories.values());
+		while (!pending.isEmpty()) {
+			Directory next = pending.pop();
+			listDirectory(next.getPath());
+			pending.addAll(next.directories.values());
+		}
+		changeDirectory(saved);
+		// MLSD前的CWD会停留在最后遍历的目录，恢复服务器上的工作目录，以免影响后续对这些目录的删除或重命名
+		if (ftpClient != null) {
+			ftpClient.changeWorkingDirectory(saved.getPath());
+		}
+		return top;
+	}
+
+	/**
+	 * 设置会话监督器，之后列出目录时控制连接断开会重新连接并重试
+	 *
+	 * @param supervisor 监督本文件系统的FTP客户端的会话监督器，为null时直接使用客户端
+	 */
+	public void setSupervisor(SessionSupervisor supervisor) {
+		this.supervisor = supervisor;
+	}
+
+	/**
+	 * 使用MLSD列出目录，设置了会话监督器时通过监督器执行
+	 *
+	 * @param path 目录的绝对路径
+	 *
+	 * @throws IOException 如果列出时出现IO异常，或者重试后连接仍然断开
+	 */
+	private void machineList(String path) throws IOException {
+		if (supervisor != null) {
+			supervisor.execute(client -> client.machineListDictionary(path));
+		} else {
+			ftpClient.machineListDictionary(path);
+		}
+	}
+
+	/**
+	 * 设置远程路径索引，之后每次列出目录都会更新索引
+	 *
+	 * @param index 远程路径索引，为null时不再更新
+	 */
+	public void setIndex(PathIndex index) {
+		this.index = index;
+	}
+
+	/**
+	 * 获取远程路径索引
+	 *
+	 * @return 远程路径索引，未设置时为null
+	 */
+	public PathIndex getIndex() {
+		return index;
+	}
+
+	/**
+	 * 将当前目录刚刚列出的内容写入远程路径索引
+	 *
+	 * <p>由 {@link FtpClient#machineListDictionary(String)} 在MLSD完成后调用，此时当前目录就是被列出的目录。</p>
+	 */
+	public void indexCurrentDirectory() {
+		if (index != null) {
+			index.update(currentDirectory);
+		}
+	}
+
 	/**
 	 * 判断给定的路径是否为目录
 	 *
@@ -217,6 +341,29 @@ public class VirtualFileSystem implements FileSystemProvider {
 		return true; // 成功遍历完整个路径，且每一部分都存在，因此这是一个目录
 	}
 
+	/**
+	 * 从虚拟文件系统中移除一个目录节点及其子树，不向服务器发送命令
+	 *
+	 * <p>切换到不存在的目录时，{@link #changeDirectory(String)} 会先创建对应的节点；服务器拒绝进入该目录后应将其移除，
+	 * 以免 {@link #isDirectory(String)} 误认为它已存在。</p>
+	 *
+	 * @param path 目录的绝对路径
+	 */
+	public void forgetDirectory(String path) {
+		Directory dir = root;
+		for (String component : path.split("/")) {
+			if (!component.isEmpty()) {
+				dir = dir.directories.get(component);
+				if (dir == null) {
+					return;
+				}
+			}
+		}
+		if (dir.parent != null) {
+			dir.parent.directories.remove(dir.name);
+		}
+	}
+
 	/**
 	 * 刷新文件系统，重新加载目录和文件列表
 	 */
@@ -227,7 +374,7 @@ public class VirtualFileSystem implements FileSystemProvider {
 		}
 		try {
 			String currentPath = getCurrentDirectoryPath();
-			ftpClient.machineListDictionary(currentPath);
+			machineList(currentPath);
 			changeDirectory(currentPath);
 		} catch (IOException e) {
 			logger.error("Failed to refresh the directory", e);
@@ -242,19 +389,28 @@ public class VirtualFileSystem implements FileSystemProvider {
 	@Override
 	public void mkDir(String path) {
 		if (!isDirectory(path)) {
-			String[]  pathComponents = path.split("/");
-			Directory currentDir     = root;
-
-			for (int i = 1; i < pathComponents.length; i++) {
-				String component = pathComponents[i];
-				if (!component.isEmpty()) {
-					if (!currentDir.directories.containsKey(component)) {
-						currentDir.createDirectory(component);
-					}
-					currentDir = currentDir.directories.get(component);
+			addDirectory(path);
+			ftpClient.makeDirectory(path);
+		}
+	}
+
+	/**
+	 * 在文件系统中记录一个已在服务器上存在的目录，缺少的上级目录一并记录，不向服务器发送命令
+	 *
+	 * @param path 目录的绝对路径
+	 */
+	public void addDirectory(String path) {
+		String[]  pathComponents = path.split("/");
+		Directory currentDir     = root;
+
+		for (int i = 1; i < pathComponents.length; i++) {
+			String component = pathComponents[i];
+			if (!component.isEmpty()) {
+				if (!currentDir.directories.containsKey(component)) {
+					currentDir.createDirectory(component);
 				}
+				currentDir = currentDir.directories.get(component);
 			}
-			ftpClient.makeDirectory(path);
 		}
 	}
 
@@ -0,0 +1,578 @@
+package cn.jsou.ftpclient.ftp;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 支持块模式（MODE B）的本地替身FTP服务器，用于检查数据连接的复用
+ *
+ * <p>只实现登录、目录切换、MLSD、STOR、RETR和SIZE等客户端传输所需的命令，文件保存在给定的本地目录中，
+ * 数据连接只支持主动模式（PORT）。流模式下每次传输后关闭数据连接并回复226；块模式下每个文件以带有EOF描述符的块结束，
+ * 传输后保留数据连接并回复250，下一次传输没有新的PORT命令时以125回复沿用该连接。
+ * 服务器记录打开过的数据连接数，由此可以判断连续的传输是否复用了同一连接。</p>
+ *
+ * <p>直接运行时在临时目录上启动服务器，用启用块模式的 {@link FtpClient} 连续上传、列出和下载一批小文件，
+ * 校验内容并输出打开的数据连接数；只打开了一个数据连接时以状态0退出，否则以状态1退出：</p>
+ *
+ * <pre>{@code
+ * mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -cp target/classes:target/test-classes:$(cat target/cp.txt) cn.jsou.ftpclient.ftp.BlockModeServer [files]
+ * }</pre>
+ *
+ * @see <a href="https://tools.ietf.org/html/rfc959#section-3.4.2">RFC 959 3.4.2</a>
+ */
+public class BlockModeServer implements Runnable, AutoCloseable {
+	private static final Logger            logger          = LogManager.getLogger(BlockModeServer.class);
+	/**
+	 * 描述符：文件结束
+	 */
+	private static final int               DESCRIPTOR_EOF  = 64;
+	/**
+	 * 描述符：重启标记，块中的数据不属于文件
+	 */
+	private static final int               DESCRIPTOR_MARK = 16;
+	/**
+	 * 单块数据的最大长度
+	 */
+	private static final int               MAX_BLOCK       = 0xFFFF;
+	/**
+	 * MLSD中modify事实的时间格式
+	 */
+	private static final DateTimeFormatter MODIFY_FORMAT   = DateTimeFormatter.ofPattern("yyyyMMddHHmmss")
+	                                                                          .withZone(ZoneOffset.UTC);
+	/**
+	 * 监听控制连接的套接字
+	 */
+	private final        ServerSocket      serverSocket;
+	/**
+	 * 服务器的根目录
+	 */
+	private final        Path              root;
+	/**
+	 * 打开过的数据连接数
+	 */
+	private final        AtomicInteger     dataConnections = new AtomicInteger();
+
+	/**
+	 * 构造函数，在本地回环地址上监听
+	 *
+	 * @param port 控制连接的端口号，为0时自动分配
+	 * @param root 服务器的根目录
+	 *
+	 * @throws IOException 如果无法监听该端口
+	 */
+	public BlockModeServer(int port, Path root) throws IOException {
+		this.serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+		this.root         = root;
+	}
+
+	/**
+	 * 在临时目录上启动服务器，检查块模式下连续的传输只使用一个数据连接
+	 *
+	 * @param args 可选的文件数，默认为200
+	 *
+	 * @throws Exception 如果启动服务器或传输时出现异常
+	 */
+	public static void main(String[] args) throws Exception {
+		int  count  = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+		Path root   = Files.createTempDirectory("block-mode-server");
+		Path local  = Files.createTempDirectory("block-mode-client");
+		Path copies = Files.createDirectory(local.resolve("copies"));
+		int  status;
+		try (BlockModeServer server = new BlockModeServer(0, root)) {
+			Thread thread = new Thread(server, "block-mode-server");
+			thread.setDaemon(true);
+			thread.start();
+
+			FtpClient client = new FtpClient(InetAddress.getLoopbackAddress().getHostAddress(),
+			                                 String.valueOf(server.getPort()));
+			client.setBlockMode(true);
+			if (!client.login("anonymous", "anonymous")) {
+				throw new IOException("Login refused");
+			}
+			client.init();
+
+			long start    = System.nanoTime();
+			int  failures = 0;
+			for (int i = 0; i < count; i++) {
+				Path file = local.resolve("file" + i + ".txt");
+				Files.write(file, ("small file " + i + "\n").repeat(i % 7 + 1).getBytes(StandardCharsets.UTF_8));
+				failures += client.uploadFile(file.toFile(), "/file" + i + ".txt") ? 0 : 1;
+			}
+			failures += client.machineListDictionary("/") ? 0 : 1;
+			for (int i = 0; i < count; i++) {
+				Path copy = copies.resolve("file" + i + ".txt");
+				if (!client.downloadFile("/file" + i + ".txt", copy.toFile()) ||
+				    !Arrays.equals(Files.readAllBytes(local.resolve("file" + i + ".txt")), Files.readAllBytes(copy))) {
+					failures++;
+				}
+			}
+			long millis = (System.nanoTime() - start) / 1_000_000;
+			client.logout();
+			client.close();
+
+			int connections = server.getDataConnectionCount();
+			System.out.printf("%d STOR, 1 MLSD and %d RETR in %d ms over %d data connection(s), %d failure(s)%n",
+			                  count, count, millis, connections, failures);
+			status = failures == 0 && connections == 1 ? 0 : 1;
+		} finally {
+			deleteTree(local);
+			deleteTree(root);
+		}
+		// 客户端的数据服务器线程不是守护线程，需要显式退出
+		System.exit(status);
+	}
+
+	/**
+	 * 获取控制连接的端口号
+	 *
+	 * @return 端口号
+	 */
+	public int getPort() {
+		return serverSocket.getLocalPort();
+	}
+
+	/**
+	 * 获取打开过的数据连接数
+	 *
+	 * @return 数据连接数
+	 */
+	public int getDataConnectionCount() {
+		return dataConnections.get();
+	}
+
+	/**
+	 * 接受控制连接，每个连接在单独的线程中处理
+	 */
+	@Override public void run() {
+		try {
+			while (!serverSocket.isClosed()) {
+				Socket socket = serverSocket.accept();
+				Thread thread = new Thread(new Session(socket), "block-mode-session");
+				thread.setDaemon(true);
+				thread.start();
+			}
+		} catch (IOException e) {
+			logger.debug("Block mode server stopped: {}", e.getMessage());
+		}
+	}
+
+	/**
+	 * 停止接受控制连接
+	 */
+	@Override public void close() {
+		IOUtils.closeQuietly(serverSocket);
+	}
+
+	/**
+	 * 删除目录及其中的文件
+	 *
+	 * @param dir 要删除的目录
+	 *
+	 * @throws IOException 如果删除时出现IO异常
+	 */
+	private static void deleteTree(Path dir) throws IOException {
+		try (var paths = Files.walk(dir)) {
+			for (Path path : (Iterable<Path>) paths.sorted((a, b) -> b.compareTo(a))::iterator) {
+				Files.deleteIfExists(path);
+			}
+		}
+	}
+
+	/**
+	 * 一个控制连接上的会话
+	 */
+	private class Session implements Runnable {
+		/**
+		 * 控制连接
+		 */
+		private final Socket      control;
+		/**
+		 * 当前工作目录，相对于根目录的绝对路径
+		 */
+		private       String      cwd      = "/";
+		/**
+		 * 当前传输模式，'S'或'B'
+		 */
+		private       char        mode     = 'S';
+		/**
+		 * PORT命令给出的客户端地址
+		 */
+		private       InetAddress dataAddress;
+		/**
+		 * PORT命令给出的客户端端口
+		 */
+		private       int         dataPort = -1;
+		/**
+		 * 块模式下保留的数据连接
+		 */
+		private       Socket      dataSocket;
+		/**
+		 * 发送回复的写入器
+		 */
+		private       PrintWriter writer;
+
+		/**
+		 * 构造函数
+		 *
+		 * @param control 控制连接
+		 */
+		Session(Socket control) {
+			this.control = control;
+		}
+
+		/**
+		 * 发送欢迎信息后逐条处理命令，直到QUIT或连接关闭
+		 */
+		@Override public void run() {
+			try (Socket socket = control;
+			     BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+			                                                                      StandardCharsets.UTF_8))) {
+				// 与常见的FTP服务器一样关闭Nagle算法，否则传输的完成回复要等客户端对预备回复的延迟确认，每个文件多等约40毫秒
+				socket.setTcpNoDelay(true);
+				writer = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.UTF_8);
+				reply("220 Block mode stand-in server ready");
+				String line;
+				while ((line = reader.readLine()) != null) {
+					int    space    = line.indexOf(' ');
+					String command  = (space < 0 ? line : line.substring(0, space)).toUpperCase(Locale.ROOT);
+					String argument = space < 0 ? "" : line.substring(space + 1);
+					if (!handle(command, argument)) {
+						break;
+					}
+				}
+			} catch (IOException e) {
+				logger.debug("Session closed: {}", e.getMessage());
+			} finally {
+				IOUtils.closeQuietly(dataSocket);
+			}
+		}
+
+		/**
+		 * 处理一条命令
+		 *
+		 * @param command  命令名称，大写
+		 * @param argument 命令参数
+		 *
+		 * @return 如果会话应继续，返回true；收到QUIT时返回false
+		 *
+		 * @throws IOException 如果读写控制连接时出现IO异常
+		 */
+		private boolean handle(String command, String argument) throws IOException {
+			switch (command) {
+				case "USER" -> reply("331 Password required");
+				case "PASS" -> reply("230 Logged in");
+				case "SYST" -> reply("215 UNIX Type: L8");
+				case "FEAT" -> reply("211-Features:\r\n MLSD\r\n MLST type*;size*;modify*;\r\n UTF8\r\n211 End");
+				case "OPTS", "TYPE", "NOOP" -> reply("200 OK");
+				case "PWD" -> reply("257 \"" + cwd + "\" is the current directory");
+				case "CWD" -> changeDirectory(argument);
+				case "MODE" -> transferMode(argument);
+				case "PORT" -> dataPort(argument);
+				case "SIZE" -> size(argument);
+				case "MLSD" -> transfer(() -> listing(resolve(argument.isEmpty() ? cwd : argument)), null);
+				case "RETR" -> retrieve(argument);
+				case "STOR" -> store(argument);
+				case "QUIT" -> {
+					reply("221 Bye");
+					return false;
+				}
+				default -> reply("502 Command not implemented");
+			}
+			return true;
+		}
+
+		/**
+		 * 处理CWD命令
+		 *
+		 * @param path 目标目录
+		 */
+		private void changeDirectory(String path) {
+			Path dir = resolve(path);
+			if (Files.isDirectory(dir)) {
+				cwd = "/" + root.relativize(dir).toString().replace('\\', '/');
+				reply("250 Directory changed to " + cwd);
+			} else {
+				reply("550 No such directory");
+			}
+		}
+
+		/**
+		 * 处理MODE命令，只接受流模式和块模式；离开块模式时关闭保留的数据连接
+		 *
+		 * @param argument 模式代码
+		 */
+		private void transferMode(String argument) {
+			String code = argument.trim().toUpperCase(Locale.ROOT);
+			if (code.equals("S") || code.equals("B")) {
+				mode = code.charAt(0);
+				if (mode != 'B') {
+					closeDataConnection();
+				}
+				reply("200 Mode set to " + code);
+			} else {
+				reply("504 Mode not supported");
+			}
+		}
+
+		/**
+		 * 处理PORT命令，记录客户端的数据地址；新的PORT表示客户端不再使用保留的数据连接
+		 *
+		 * @param argument h1,h2,h3,h4,p1,p2形式的地址
+		 *
+		 * @throws IOException 如果地址无效
+		 */
+		private void dataPort(String argument) throws IOException {
+			String[] parts = argument.trim().split(",");
+			if (parts.length != 6) {
+				reply("501 Invalid PORT argument");
+				return;
+			}
+			closeDataConnection();
+			dataAddress = InetAddress.getByName(String.join(".", Arrays.copyOf(parts, 4)));
+			dataPort    = Integer.parseInt(parts[4]) << 8 | Integer.parseInt(parts[5]);
+			reply("200 PORT command successful");
+		}
+
+		/**
+		 * 处理SIZE命令
+		 *
+		 * @param path 文件路径
+		 *
+		 * @throws IOException 如果读取文件属性时出现IO异常
+		 */
+		private void size(String path) throws IOException {
+			Path file = resolve(path);
+			if (Files.isRegularFile(file)) {
+				reply("213 " + Files.size(file));
+			} else {
+				reply("550 No such file");
+			}
+		}
+
+		/**
+		 * 处理RETR命令
+		 *
+		 * @param path 文件路径
+		 *
+		 * @throws IOException 如果读写时出现IO异常
+		 */
+		private void retrieve(String path) throws IOException {
+			Path file = resolve(path);
+			if (!Files.isRegularFile(file)) {
+				reply("550 No such file");
+				return;
+			}
+			transfer(() -> Files.readAllBytes(file), null);
+		}
+
+		/**
+		 * 处理STOR命令
+		 *
+		 * @param path 文件路径
+		 *
+		 * @throws IOException 如果读写时出现IO异常
+		 */
+		private void store(String path) throws IOException {
+			Path file = resolve(path);
+			if (!Files.isDirectory(file.getParent())) {
+				reply("553 No such directory");
+				return;
+			}
+			transfer(null, file);
+		}
+
+		/**
+		 * 在数据连接上发送或接收一个文件，并按传输模式回复和关闭或保留数据连接
+		 *
+		 * @param source 提供要发送的数据，接收时为null
+		 * @param target 接收的数据写入的文件，发送时为null
+		 *
+		 * @throws IOException 如果读取要发送的数据时出现IO异常
+		 */
+		private void transfer(DataSource source, Path target) throws IOException {
+			byte[] data = source == null ? null : source.read();
+			try {
+				if (mode == 'B' && dataSocket != null) {
+					reply("125 Using existing data connection");
+				} else {
+					if (dataPort < 0) {
+						reply("425 Use PORT first");
+						return;
+					}
+					dataSocket = new Socket(dataAddress, dataPort);
+					dataSocket.setTcpNoDelay(true);
+					dataConnections.incrementAndGet();
+					reply("150 Opening data connection");
+				}
+				if (data != null) {
+					send(dataSocket.getOutputStream(), data);
+				} else {
+					Files.write(target, receive(dataSocket.getInputStream()));
+				}
+				if (mode == 'B') {
+					reply("250 Transfer complete, data connection kept");
+				} else {
+					closeDataConnection();
+					reply("226 Transfer complete, closing data connection");
+				}
+			} catch (IOException e) {
+				logger.warn("Data transfer failed: {}", e.getMessage());
+				closeDataConnection();
+				reply("426 Data connection failed");
+			}
+		}
+
+		/**
+		 * 按当前传输模式发送数据
+		 *
+		 * @param out  数据连接的输出流
+		 * @param data 要发送的数据
+		 *
+		 * @throws IOException 如果写出时出现IO异常
+		 */
+		private void send(OutputStream out, byte[] data) throws IOException {
+			if (mode != 'B') {
+				out.write(data);
+				out.flush();
+				return;
+			}
+			// 块头和数据在同一次写操作中发出
+			ByteArrayOutputStream blocks = new ByteArrayOutputStream(data.length + 3);
+			int                   offset = 0;
+			do {
+				int     length = Math.min(MAX_BLOCK, data.length - offset);
+				boolean last   = offset + length == data.length;
+				blocks.write(last ? DESCRIPTOR_EOF : 0);
+				blocks.write(length >> 8);
+				blocks.write(length & 0xFF);
+				blocks.write(data, offset, length);
+				offset += length;
+			} while (offset < data.length);
+			blocks.writeTo(out);
+			out.flush();
+		}
+
+		/**
+		 * 按当前传输模式接收数据；块模式下读到带有EOF描述符的块为止，流模式下读到连接关闭为止
+		 *
+		 * @param in 数据连接的输入流
+		 *
+		 * @return 接收的数据
+		 *
+		 * @throws IOException 如果读取时出现IO异常
+		 */
+		private byte[] receive(InputStream in) throws IOException {
+			if (mode != 'B') {
+				return in.readAllBytes();
+			}
+			DataInputStream       data   = new DataInputStream(in);
+			ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+			int                   descriptor;
+			do {
+				descriptor = data.read();
+				if (descriptor == -1) {
+					throw new EOFException("Data connection closed before the EOF block");
+				}
+				byte[] block = new byte[data.readUnsignedShort()];
+				data.readFully(block);
+				if ((descriptor & DESCRIPTOR_MARK) == 0) {
+					buffer.write(block);
+				}
+			} while ((descriptor & DESCRIPTOR_EOF) == 0);
+			return buffer.toByteArray();
+		}
+
+		/**
+		 * 生成目录的MLSD列表
+		 *
+		 * @param dir 要列出的目录
+		 *
+		 * @return MLSD列表的字节
+		 *
+		 * @throws IOException 如果读取目录时出现IO异常
+		 */
+		private byte[] listing(Path dir) throws IOException {
+			StringBuilder lines = new StringBuilder();
+			try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir)) {
+				for (Path entry : entries) {
+					BasicFileAttributes attributes = Files.readAttributes(entry, BasicFileAttributes.class);
+					lines.append("type=").append(attributes.isDirectory() ? "dir" : "file")
+					     .append(";size=").append(attributes.size())
+					     .append(";modify=").append(MODIFY_FORMAT.format(attributes.lastModifiedTime().toInstant()))
+					     .append("; ").append(entry.getFileName()).append("\r\n");
+				}
+			}
+			return lines.toString().getBytes(StandardCharsets.UTF_8);
+		}
+
+		/**
+		 * 把客户端给出的路径解析为根目录下的本地路径
+		 *
+		 * @param path 绝对路径或相对于当前工作目录的路径
+		 *
+		 * @return 本地路径，不会超出根目录
+		 */
+		private Path resolve(String path) {
+			String absolute = path.startsWith("/") ? path : cwd + "/" + path;
+			Path   resolved = root.resolve(absolute.replaceAll("^/+", "")).normalize();
+			return resolved.startsWith(root) ? resolved : root;
+		}
+
+		/**
+		 * 关闭保留的数据连接
+		 */
+		private void closeDataConnection() {
+			IOUtils.closeQuietly(dataSocket);
+			dataSocket = null;
+		}
+
+		/**
+		 * 发送一条回复
+		 *
+		 * @param line 回复内容，不含结尾的CRLF
+		 */
+		private void reply(String line) {
+			writer.print(line + "\r\n");
+			writer.flush();
+		}
+	}
+
+	/**
+	 * 提供要发送的数据
+	 */
+	private interface DataSource {
+		/**
+		 * 读取全部数据
+		 *
+		 * @return 要发送的数据
+		 *
+		 * @throws IOException 如果读取时出现IO异常
+		 */
+		byte[] read() throws IOException;
+	}
+}